@@ -0,0 +1,92 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.DiscardingProducer;
+import com.wit.calculator.config.KafkaTopicsConfig;
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.kafka.CalculatorBatchListener;
+import com.wit.calculator.kafka.CalculatorListener;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records/sec of the worker for one poll of {@value #POLL} records: the record
+ * listener followed by one reply send per record (what {@code @SendTo} does),
+ * against the batch listener with its single flush. Replies are serialized with
+ * the production JSON serializer and then discarded.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchListenerBenchmark {
+
+    static final int POLL = 500;
+
+    private final String[] ops = {"sum", "sub", "mul", "div"};
+
+    private List<ConsumerRecord<String, CalculatorRequest>> records;
+    private KafkaTemplate<String, CalculatorResponse> template;
+    private CalculatorListener recordListener;
+    private CalculatorBatchListener batchListener;
+
+    @Setup
+    public void setUp() {
+        JsonSerializer<CalculatorResponse> valueSerializer = new JsonSerializer<>();
+        valueSerializer.setAddTypeInfo(false);
+        template = new KafkaTemplate<>(new MockProducerFactory<>(
+                () -> new DiscardingProducer<>(new StringSerializer(), valueSerializer)));
+
+        CalculationService service = new CalculationService();
+        WorkerMetrics metrics = new WorkerMetrics(new SimpleMeterRegistry());
+        recordListener = new CalculatorListener(service, DedupStore.off(), metrics);
+        batchListener = new CalculatorBatchListener(service, template, DedupStore.off(), metrics);
+
+        records = new ArrayList<>(POLL);
+        for (int i = 0; i < POLL; i++) {
+            String id = UUID.randomUUID().toString();
+            var req = new CalculatorRequest(id, BigDecimal.valueOf(i + 1, 2), BigDecimal.valueOf(7), ops[i % ops.length]);
+            var record = new ConsumerRecord<>(KafkaTopicsConfig.REQ, 0, i, id, req);
+            record.headers().add("Request-Id", id.getBytes(StandardCharsets.UTF_8));
+            record.headers().add(KafkaHeaders.CORRELATION_ID, id.getBytes(StandardCharsets.UTF_8));
+            records.add(record);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL)
+    public void recordListener() {
+        for (ConsumerRecord<String, CalculatorRequest> record : records) {
+            String id = record.key();
+            CalculatorResponse response = recordListener.handle(record.value(), id);
+            var reply = new ProducerRecord<>(KafkaTopicsConfig.RES, id, response);
+            reply.headers().add(KafkaHeaders.CORRELATION_ID, record.headers().lastHeader(KafkaHeaders.CORRELATION_ID).value());
+            template.send(reply);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(POLL)
+    public void batchListener() {
+        batchListener.handle(records);
+    }
+}
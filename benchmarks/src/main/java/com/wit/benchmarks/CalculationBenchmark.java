@@ -0,0 +1,58 @@
+package com.wit.benchmarks;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.kafka.CalculatorListener;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of {@link CalculatorListener#handle} for each operation and operand size, without
+ * Kafka around it. Operands have {@code digits} significant digits, a quarter of them
+ * after the decimal point; {@code div} always produces a scale-10 result.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CalculationBenchmark {
+
+    @Param({"sum", "sub", "mul", "div"})
+    public String op;
+
+    @Param({"4", "32", "128"})
+    public int digits;
+
+    private CalculatorListener listener;
+    private CalculatorRequest request;
+
+    @Setup
+    public void setUp() {
+        listener = new CalculatorListener(new CalculationService(), DedupStore.off(), new WorkerMetrics(new SimpleMeterRegistry()));
+        Random random = new Random(digits);
+        request = new CalculatorRequest("bench", operand(random), operand(random), op);
+    }
+
+    @Benchmark
+    public CalculatorResponse handle() {
+        return listener.handle(request, "bench");
+    }
+
+    private BigDecimal operand(Random random) {
+        StringBuilder unscaled = new StringBuilder().append(1 + random.nextInt(9));
+        while (unscaled.length() < digits) {
+            unscaled.append(random.nextInt(10));
+        }
+        return new BigDecimal(new BigInteger(unscaled.toString()), digits / 4);
+    }
+}
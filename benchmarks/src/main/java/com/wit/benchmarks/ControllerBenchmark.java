@@ -0,0 +1,56 @@
+package com.wit.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wit.benchmarks.support.StubReplyingKafkaTemplate;
+import com.wit.rest.controller.CalculatorController;
+import com.wit.rest.id.TimeOrderedRequestIdGenerator;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.service.AdmissionControl;
+import com.wit.rest.service.CalculatorService;
+import com.wit.rest.service.ResultCache;
+import com.wit.rest.service.RoutingPolicy;
+import com.wit.rest.transport.KafkaTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.http.ResponseEntity;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link CalculatorController} itself costs per request: parsing, MDC, building
+ * the record and mapping the reply, with the Kafka round trip replaced by a stub that
+ * answers immediately. Cache, coalescing and local routing are off so every call
+ * takes the full path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ControllerBenchmark {
+
+    private CalculatorController controller;
+
+    @Setup
+    public void setUp() {
+        var cache = new ResultCache(false, 0, Duration.ZERO, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        var routing = new RoutingPolicy(RoutingPolicy.Mode.KAFKA, Set.of(), 0, Duration.ZERO, Duration.ofSeconds(1));
+        var metrics = new RequestMetrics(new SimpleMeterRegistry());
+        var admission = new AdmissionControl(AdmissionControl.Mode.STATIC, 1000, 8, Duration.ofMillis(250),
+                Duration.ofSeconds(5), new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        var service = new CalculatorService(new KafkaTransport(new StubReplyingKafkaTemplate(Duration.ZERO)), cache, routing,
+                admission, metrics, false, Duration.ofSeconds(5));
+        controller = new CalculatorController(service, metrics, new TimeOrderedRequestIdGenerator(0), Duration.ofSeconds(5), 1000, 1.0,
+                new ObjectMapper(), 256, 65536);
+    }
+
+    @Benchmark
+    public ResponseEntity<?> sum() {
+        return controller.sum("1234.5678", "98.76", null, null).join();
+    }
+}
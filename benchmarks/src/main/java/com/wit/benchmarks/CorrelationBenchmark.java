@@ -0,0 +1,95 @@
+package com.wit.benchmarks;
+
+import com.wit.rest.transport.PendingReplies;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.requestreply.CorrelationKey;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of registering a caller and then handing it its reply, with {@value #OUTSTANDING}
+ * other callers still waiting and 8 threads doing the same. {@code template} is what
+ * {@code ReplyingKafkaTemplate} does on its own: a random UUID correlation key, a
+ * {@code ConcurrentHashMap} entry, and a timeout task on its scheduler that stays queued
+ * for the reply timeout whether or not the reply came. {@code wheel} is
+ * {@link PendingReplies}. Run with {@code -prof gc} for the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(8)
+public class CorrelationBenchmark {
+
+    static final int OUTSTANDING = 100_000;
+    static final Duration REPLY_TIMEOUT = Duration.ofSeconds(5);
+
+    @Param({"template", "wheel"})
+    public String table;
+
+    private Map<CorrelationKey, CompletableFuture<String>> futures;
+    private ThreadPoolTaskScheduler scheduler;
+    private PendingReplies<String> pending;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (table.equals("template")) {
+            futures = new ConcurrentHashMap<>();
+            scheduler = new ThreadPoolTaskScheduler();
+            scheduler.initialize();
+        } else {
+            pending = new PendingReplies<>("benchmark", () -> new KafkaReplyTimeoutException("Reply timed out"));
+        }
+        // callers that are still waiting for the whole run
+        for (int i = 0; i < OUTSTANDING; i++) {
+            if (pending != null) {
+                pending.register(new CompletableFuture<>(), Duration.ofHours(1));
+            } else {
+                registerWithTemplate(new CompletableFuture<>(), Duration.ofHours(1));
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    @Benchmark
+    public String registerAndReply() {
+        CompletableFuture<String> caller = new CompletableFuture<>();
+        if (pending != null) {
+            pending.remove(pending.register(caller, REPLY_TIMEOUT)).complete("reply");
+        } else {
+            futures.remove(registerWithTemplate(caller, REPLY_TIMEOUT)).complete("reply");
+        }
+        return caller.getNow(null);
+    }
+
+    private CorrelationKey registerWithTemplate(CompletableFuture<String> caller, Duration timeout) {
+        UUID uuid = UUID.randomUUID();
+        var key = new CorrelationKey(ByteBuffer.allocate(16)
+                .putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits()).array());
+        futures.put(key, caller);
+        scheduler.schedule(() -> {
+            CompletableFuture<String> expired = futures.remove(key);
+            if (expired != null) {
+                expired.completeExceptionally(new KafkaReplyTimeoutException("Reply timed out"));
+            }
+        }, Instant.now().plus(timeout));
+        return key;
+    }
+}
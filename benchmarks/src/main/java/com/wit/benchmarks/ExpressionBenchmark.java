@@ -0,0 +1,61 @@
+package com.wit.benchmarks;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.expression.CompiledExpression;
+import com.wit.calculator.expression.ExpressionCache;
+import com.wit.calculator.expression.ExpressionParser;
+import com.wit.calculator.service.CalculationService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker-side cost of {@code (a*b + c) / d}: parsing it from scratch, evaluating it
+ * through {@link CalculationService} with the parsed form cached, and the three
+ * binary calculations a client chains today to get the same result.
+ * {@link ExpressionRoundTripBenchmark} measures what it saves in Kafka round trips.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpressionBenchmark {
+
+    static final String FORMULA = "(a*b + c) / d";
+    static final Map<String, BigDecimal> VARIABLES = Map.of(
+            "a", new BigDecimal("1234.5678"), "b", new BigDecimal("98.76"),
+            "c", new BigDecimal("0.25"), "d", new BigDecimal("7"));
+
+    private CalculationService service;
+    private CalculatorRequest eval;
+
+    @Setup
+    public void setUp() {
+        service = new CalculationService(1.0, new ExpressionCache(1000));
+        eval = new CalculatorRequest("bench", null, null, "eval");
+        eval.setExpression(FORMULA);
+        eval.setVariables(VARIABLES);
+    }
+
+    @Benchmark
+    public CompiledExpression coldParse() {
+        return ExpressionParser.parse(FORMULA);
+    }
+
+    @Benchmark
+    public CalculatorResponse cachedEvaluation() {
+        return service.calculate(eval, "bench");
+    }
+
+    @Benchmark
+    public CalculatorResponse chainedBinary() {
+        BigDecimal ab = service.calculate(new CalculatorRequest("bench", VARIABLES.get("a"), VARIABLES.get("b"), "mul"), "bench").getResult();
+        BigDecimal abc = service.calculate(new CalculatorRequest("bench", ab, VARIABLES.get("c"), "sum"), "bench").getResult();
+        return service.calculate(new CalculatorRequest("bench", abc, VARIABLES.get("d"), "div"), "bench");
+    }
+}
@@ -0,0 +1,59 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.EmbeddedStack;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.service.CalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of {@code (a*b + c) / d} through {@link CalculatorService}, an embedded Kafka
+ * broker and the calculator worker: as one {@code eval} request, and as the three
+ * binary requests a client chains without it. The result cache is off so every
+ * request is a real round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExpressionRoundTripBenchmark {
+
+    private EmbeddedStack stack;
+    private CalculatorService service;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        stack = EmbeddedStack.start("rest:calculator.cache.enabled=false", "rest:calculator.coalescing.enabled=false");
+        service = stack.restBean(CalculatorService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        stack.close();
+    }
+
+    @Benchmark
+    public CalculatorResponse eval() {
+        CalculatorRequest req = new CalculatorRequest(UUID.randomUUID().toString(), null, null, "eval");
+        req.setExpression(ExpressionBenchmark.FORMULA);
+        req.setVariables(ExpressionBenchmark.VARIABLES);
+        return service.calculate(req).join();
+    }
+
+    @Benchmark
+    public CalculatorResponse chainedBinary() {
+        BigDecimal ab = call("mul", ExpressionBenchmark.VARIABLES.get("a"), ExpressionBenchmark.VARIABLES.get("b")).getResult();
+        BigDecimal abc = call("sum", ab, ExpressionBenchmark.VARIABLES.get("c")).getResult();
+        return call("div", abc, ExpressionBenchmark.VARIABLES.get("d"));
+    }
+
+    private CalculatorResponse call(String op, BigDecimal a, BigDecimal b) {
+        return service.calculate(new CalculatorRequest(UUID.randomUUID().toString(), a, b, op)).join();
+    }
+}
@@ -0,0 +1,105 @@
+package com.wit.benchmarks;
+
+import com.wit.common.engine.CalculationEngine;
+import com.wit.common.engine.CalculationEngine.Outcome;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link CalculationEngine#evaluate} against the bare {@code BigDecimal} operation and
+ * against a {@code long} fast path for every operation (read both unscaled values,
+ * compute with overflow checks, rebuild the result). {@code BigDecimal} already keeps
+ * values of up to 18 digits in a {@code long}, so only division gains from doing it by
+ * hand, and only division does it in the engine. Run with {@code -prof gc} for bytes
+ * allocated per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FastPathBenchmark {
+
+    private static final long[] POW10 = {1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L,
+            10_000_000L, 100_000_000L, 1_000_000_000L, 10_000_000_000L, 100_000_000_000L,
+            1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L};
+
+    @Param({"sum", "sub", "mul", "div"})
+    public String op;
+
+    @Param({"2|3", "1234.56|7.8", "123456789012345678901234|3"})
+    public String operands;
+
+    private BigDecimal a;
+    private BigDecimal b;
+
+    @Setup
+    public void setUp() {
+        String[] parts = operands.split("\\|");
+        a = new BigDecimal(parts[0]);
+        b = new BigDecimal(parts[1]);
+    }
+
+    @Benchmark
+    public Outcome engine() {
+        return CalculationEngine.evaluate(op, a, b);
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        return switch (op) {
+            case "sum" -> a.add(b);
+            case "sub" -> a.subtract(b);
+            case "mul" -> a.multiply(b);
+            default -> a.divide(b, CalculationEngine.DIVISION_SCALE, RoundingMode.HALF_UP);
+        };
+    }
+
+    @Benchmark
+    public BigDecimal primitive() {
+        if (fits(a) && fits(b)) {
+            try {
+                long ua = unscaled(a);
+                long ub = unscaled(b);
+                int scale = Math.max(a.scale(), b.scale());
+                switch (op) {
+                    case "sum":
+                        return BigDecimal.valueOf(Math.addExact(Math.multiplyExact(ua, POW10[scale - a.scale()]),
+                                Math.multiplyExact(ub, POW10[scale - b.scale()])), scale);
+                    case "sub":
+                        return BigDecimal.valueOf(Math.subtractExact(Math.multiplyExact(ua, POW10[scale - a.scale()]),
+                                Math.multiplyExact(ub, POW10[scale - b.scale()])), scale);
+                    case "mul":
+                        return BigDecimal.valueOf(Math.multiplyExact(ua, ub), a.scale() + b.scale());
+                    default:
+                        int shift = CalculationEngine.DIVISION_SCALE - a.scale() + b.scale();
+                        if (shift >= 0 && shift < POW10.length) {
+                            long dividend = Math.multiplyExact(ua, POW10[shift]);
+                            long quotient = dividend / ub;
+                            long remainder = Math.abs(dividend % ub);
+                            if (remainder != 0 && remainder >= Math.abs(ub) - remainder) {
+                                quotient += (dividend ^ ub) < 0 ? -1 : 1;
+                            }
+                            return BigDecimal.valueOf(quotient, CalculationEngine.DIVISION_SCALE);
+                        }
+                }
+            } catch (ArithmeticException overflow) {
+                // fall back below
+            }
+        }
+        return bigDecimal();
+    }
+
+    private static boolean fits(BigDecimal v) {
+        return v.scale() >= 0 && v.scale() < POW10.length && v.precision() < POW10.length;
+    }
+
+    private static long unscaled(BigDecimal v) {
+        return v.scale() == 0 ? v.longValue() : v.scaleByPowerOfTen(v.scale()).longValue();
+    }
+}
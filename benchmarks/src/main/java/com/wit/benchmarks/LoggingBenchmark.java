@@ -0,0 +1,73 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.AppConfig;
+import com.wit.calculator.CalculatorApplication;
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.kafka.CalculatorListener;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records per second through the worker's listener with its real {@code logback-spring.xml},
+ * once with the default profile (synchronous console and file appenders, every request
+ * logged) and once with {@code high-throughput} (async file appender, 1% of successes
+ * logged). Kafka is not started; the listener is called directly. Console output is
+ * discarded so the run stays readable, but it is still formatted and written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class LoggingBenchmark {
+
+    @Param({"default", "high-throughput"})
+    public String profile;
+
+    private PrintStream console;
+    private ConfigurableApplicationContext calculator;
+    private CalculatorListener listener;
+    private CalculatorRequest request;
+
+    @Setup(Level.Trial)
+    public void start() {
+        console = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        List<String> props = new ArrayList<>(List.of(
+                AppConfig.locationOf(CalculatorApplication.class),
+                AppConfig.loggingConfigOf(CalculatorApplication.class),
+                "spring.main.web-application-type=none",
+                "spring.kafka.listener.auto-startup=false",
+                "spring.kafka.admin.auto-create=false",
+                "spring.docker.compose.enabled=false"));
+        if (!"default".equals(profile)) {
+            props.add("spring.profiles.active=" + profile);
+        }
+        calculator = new SpringApplicationBuilder(CalculatorApplication.class).run(AppConfig.args(props));
+        listener = calculator.getBean(CalculatorListener.class);
+        request = new CalculatorRequest("bench", new BigDecimal("1234.5678"), new BigDecimal("98.76"), "sum");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        calculator.close();
+        System.setOut(console);
+    }
+
+    @Benchmark
+    public CalculatorResponse handle() {
+        return listener.handle(request, "bench");
+    }
+}
@@ -0,0 +1,87 @@
+package com.wit.benchmarks;
+
+import com.wit.common.engine.BigMath;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BigMath} against textbook series at 10 to 10,000 digits: sqrt against the
+ * JDK's {@code BigDecimal.sqrt}, exp against the Taylor series of the unreduced
+ * argument, ln against the {@code atanh} series {@code 2 * sum z^(2k+1) / (2k+1)} with
+ * {@code z = (x - 1) / (x + 1)}, and pow as {@code exp(y * ln x)} over those two. The
+ * textbook series need a number of terms proportional to the digits, each a full-width
+ * multiplication and division; the naive runs at 10,000 digits take seconds each.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class PrecisionBenchmark {
+
+    @Param({"sqrt", "exp", "ln", "pow"})
+    public String op;
+
+    @Param({"10", "100", "1000", "10000"})
+    public int digits;
+
+    private final BigDecimal x = new BigDecimal("2.5");
+    private final BigDecimal y = new BigDecimal("0.75");
+    private MathContext mc;
+
+    @Setup
+    public void setUp() {
+        mc = new MathContext(digits, RoundingMode.HALF_EVEN);
+    }
+
+    @Benchmark
+    public BigDecimal bigMath() {
+        return switch (op) {
+            case "sqrt" -> BigMath.sqrt(x, mc);
+            case "exp" -> BigMath.exp(x, mc);
+            case "ln" -> BigMath.ln(x, mc);
+            default -> BigMath.pow(x, y, mc);
+        };
+    }
+
+    @Benchmark
+    public BigDecimal naive() {
+        return switch (op) {
+            case "sqrt" -> x.sqrt(mc);
+            case "exp" -> taylorExp(x, mc);
+            case "ln" -> atanhLn(x, mc);
+            default -> taylorExp(y.multiply(atanhLn(x, mc), mc), mc);
+        };
+    }
+
+    private static BigDecimal taylorExp(BigDecimal x, MathContext mc) {
+        MathContext work = new MathContext(mc.getPrecision() + 5, mc.getRoundingMode());
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(work.getPrecision());
+        BigDecimal sum = BigDecimal.ONE;
+        BigDecimal term = BigDecimal.ONE;
+        for (int n = 1; term.abs().compareTo(epsilon) > 0; n++) {
+            term = term.multiply(x, work).divide(BigDecimal.valueOf(n), work);
+            sum = sum.add(term, work);
+        }
+        return sum.round(mc);
+    }
+
+    private static BigDecimal atanhLn(BigDecimal x, MathContext mc) {
+        MathContext work = new MathContext(mc.getPrecision() + 5, mc.getRoundingMode());
+        BigDecimal epsilon = BigDecimal.ONE.movePointLeft(work.getPrecision());
+        BigDecimal z = x.subtract(BigDecimal.ONE).divide(x.add(BigDecimal.ONE), work);
+        BigDecimal z2 = z.multiply(z, work);
+        BigDecimal power = z;
+        BigDecimal sum = z;
+        for (int k = 3; power.compareTo(epsilon) > 0; k += 2) {
+            power = power.multiply(z2, work);
+            sum = sum.add(power.divide(BigDecimal.valueOf(k), work), work);
+        }
+        return sum.multiply(BigDecimal.TWO).round(mc);
+    }
+}
@@ -0,0 +1,70 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.EmbeddedStack;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.service.CalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round trips through {@link CalculatorService}, an embedded Kafka broker and the worker
+ * for each {@code calculator.kafka.producer.profile}, with one producer or a pool of
+ * them on both sides. {@code latency} sends one request at a time; {@code throughput}
+ * keeps 16 callers waiting on replies at once, which is where lingering, compression
+ * and extra producers pay off. The result cache and coalescing are off so every
+ * request is a real round trip.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ProducerProfileBenchmark {
+
+    @Param({"default", "low-latency", "high-throughput"})
+    public String profile;
+
+    @Param({"1", "4"})
+    public int poolSize;
+
+    private EmbeddedStack stack;
+    private CalculatorService service;
+    private final AtomicLong next = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        stack = EmbeddedStack.start("calculator.kafka.producer.profile=" + profile,
+                "calculator.kafka.producer.pool-size=" + poolSize,
+                "rest:calculator.cache.enabled=false", "rest:calculator.coalescing.enabled=false");
+        service = stack.restBean(CalculatorService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        stack.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CalculatorResponse latency() {
+        return roundTrip();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(16)
+    public CalculatorResponse throughput() {
+        return roundTrip();
+    }
+
+    private CalculatorResponse roundTrip() {
+        return service.calculate(new CalculatorRequest(UUID.randomUUID().toString(),
+                BigDecimal.valueOf(next.getAndIncrement()), BigDecimal.ONE, "sum")).join();
+    }
+}
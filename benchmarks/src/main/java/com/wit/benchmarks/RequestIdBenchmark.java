@@ -0,0 +1,49 @@
+package com.wit.benchmarks;
+
+import com.wit.common.id.RequestIds;
+import com.wit.rest.id.RequestIdGenerator;
+import com.wit.rest.id.TimeOrderedRequestIdGenerator;
+import com.wit.rest.id.UuidRequestIdGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of issuing a {@code Request-Id} and encoding it as the Kafka header, with
+ * {@code UUID.randomUUID} and with the time-ordered generator, from one thread and
+ * from eight threads sharing the generator as Tomcat's workers do.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestIdBenchmark {
+
+    @Param({"uuid", "time"})
+    public String generator;
+
+    private RequestIdGenerator ids;
+
+    @Setup
+    public void setUp() {
+        ids = "uuid".equals(generator) ? new UuidRequestIdGenerator() : new TimeOrderedRequestIdGenerator(0);
+    }
+
+    @Benchmark
+    public String next() {
+        return ids.next();
+    }
+
+    @Benchmark
+    public byte[] nextAsHeader() {
+        return RequestIds.toHeader(ids.next());
+    }
+
+    @Benchmark
+    @Threads(8)
+    public String nextContended() {
+        return ids.next();
+    }
+}
@@ -0,0 +1,47 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.EmbeddedStack;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.service.CalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of one calculation through {@link CalculatorService} with the result cache
+ * on (every call after the first is a hit) and off (every call is a real round trip
+ * through an embedded Kafka broker and the calculator worker).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ResultCacheBenchmark {
+
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    private EmbeddedStack stack;
+    private CalculatorService service;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        stack = EmbeddedStack.start("rest:calculator.cache.enabled=" + cacheEnabled);
+        service = stack.restBean(CalculatorService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        stack.close();
+    }
+
+    @Benchmark
+    public CalculatorResponse sum() {
+        return service.calculate(new CalculatorRequest(UUID.randomUUID().toString(), new BigDecimal("2.50"), new BigDecimal("3.5"), "sum")).join();
+    }
+}
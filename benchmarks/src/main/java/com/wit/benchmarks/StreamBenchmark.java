@@ -0,0 +1,134 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.RestApplicationRunner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sustained {@code POST /stream} throughput: one request of {@value #LINES} generated
+ * NDJSON lines, uploaded and answered over HTTP, with the reply stubbed after a fixed
+ * delay standing in for the Kafka round trip. 0 answers on the calling thread and
+ * measures the stream itself; with a delay, the rate cannot pass window / delay. The
+ * cache and coalescing are off, so every line takes that round trip. The score is lines
+ * per second; the body is produced as it is sent and the results are counted as they
+ * arrive, so neither side is held in memory.
+ * <p>
+ * The request goes over a plain socket, the body written on its own thread while the
+ * results are read: {@code java.net.http.HttpClient} reads no response before it has sent
+ * the whole body, so the results would back up until the server's write timed out.
+ * HTTP/1.0 keeps the response unchunked, ended by the server closing the connection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(StreamBenchmark.LINES)
+@Warmup(iterations = 1, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class StreamBenchmark {
+
+    static final int LINES = 2_000_000;
+
+    @Param({"0"})
+    public int replyDelayMillis;
+
+    private RestApplicationRunner app;
+    private long bodyLength;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        app = RestApplicationRunner.start(Duration.ofMillis(replyDelayMillis),
+                "calculator.cache.enabled=false", "calculator.coalescing.enabled=false");
+        bodyLength = new GeneratedBody(LINES).transferTo(OutputStream.nullOutputStream());
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        app.close();
+    }
+
+    @Benchmark
+    public long stream() throws Exception {
+        try (Socket socket = new Socket("localhost", app.port())) {
+            OutputStream out = socket.getOutputStream();
+            Thread upload = Thread.ofVirtual().name("stream-upload").start(() -> {
+                try {
+                    out.write(("POST /stream HTTP/1.0\r\nHost: localhost\r\nContent-Type: application/x-ndjson\r\n"
+                            + "Content-Length: " + bodyLength + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                    new GeneratedBody(LINES).transferTo(out);
+                    out.flush();
+                } catch (IOException e) {
+                    throw new IllegalStateException("upload failed", e);
+                }
+            });
+            long results = countResultLines(new BufferedInputStream(socket.getInputStream(), 65536));
+            upload.join();
+            if (results != LINES) {
+                throw new IllegalStateException("expected " + LINES + " result lines, got " + results);
+            }
+            return results;
+        }
+    }
+
+    /** Skips the status line and headers, then counts the lines of the body up to the end of the stream. */
+    private static long countResultLines(InputStream in) throws IOException {
+        int matched = 0;
+        int b;
+        while (matched < 4 && (b = in.read()) >= 0) {
+            matched = b == "\r\n\r\n".charAt(matched) ? matched + 1 : (b == '\r' ? 1 : 0);
+        }
+        long lines = 0;
+        while ((b = in.read()) >= 0) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+        return lines;
+    }
+
+    /** {@code {"op":"sum","a":"<n>","b":"1"}} for n = 1..lines, produced as it is read. */
+    private static final class GeneratedBody extends InputStream {
+        private final int lines;
+        private byte[] current = new byte[0];
+        private int position;
+        private int line;
+
+        GeneratedBody(int lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read() {
+            if (position == current.length) {
+                if (line == lines) {
+                    return -1;
+                }
+                line++;
+                current = ("{\"op\":\"sum\",\"a\":\"" + line + "\",\"b\":\"1\"}\n").getBytes(StandardCharsets.US_ASCII);
+                position = 0;
+            }
+            return current[position++];
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = 0;
+            while (n < len) {
+                int next = read();
+                if (next < 0) {
+                    return n == 0 ? -1 : n;
+                }
+                b[off + n++] = (byte) next;
+            }
+            return n;
+        }
+    }
+}
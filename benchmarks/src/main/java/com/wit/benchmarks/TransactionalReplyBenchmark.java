@@ -0,0 +1,54 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.EmbeddedStack;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.service.CalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What exactly-once replies cost: latency of one calculation through
+ * {@link CalculatorService}, an embedded Kafka broker and the worker, with the worker
+ * replying plainly or inside a Kafka transaction ({@code transactional} profile on both
+ * services, so rest reads replies {@code read_committed}). The result cache is off so
+ * every request is a real round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransactionalReplyBenchmark {
+
+    @Param({"plain", "transactional"})
+    public String mode;
+
+    private EmbeddedStack stack;
+    private CalculatorService service;
+    private long next;
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        stack = mode.equals("transactional")
+                ? EmbeddedStack.start("spring.profiles.active=transactional",
+                        "rest:calculator.cache.enabled=false", "rest:calculator.coalescing.enabled=false")
+                : EmbeddedStack.start("rest:calculator.cache.enabled=false", "rest:calculator.coalescing.enabled=false");
+        service = stack.restBean(CalculatorService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        stack.close();
+    }
+
+    @Benchmark
+    public CalculatorResponse roundTrip() {
+        return service.calculate(new CalculatorRequest(UUID.randomUUID().toString(),
+                BigDecimal.valueOf(next++), BigDecimal.ONE, "sum")).join();
+    }
+}
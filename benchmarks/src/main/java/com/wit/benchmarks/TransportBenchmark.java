@@ -0,0 +1,66 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.EmbeddedStack;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.service.CalculatorService;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Round trips through {@link CalculatorService} to the worker on the same machine, over
+ * Kafka (embedded broker) or the {@code direct} TCP transport. {@code latency} sends one
+ * request at a time, for p50/p99; {@code throughput} keeps 16 callers waiting on
+ * replies at once. The result cache and coalescing are off so every request reaches
+ * the worker.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class TransportBenchmark {
+
+    @Param({"kafka", "direct"})
+    public String transport;
+
+    private EmbeddedStack stack;
+    private CalculatorService service;
+    private final AtomicLong next = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void start() throws Exception {
+        stack = EmbeddedStack.start("calculator:calculator.direct.enabled=true", "calculator:calculator.direct.port=0",
+                "rest:calculator.transport=" + transport,
+                "rest:calculator.cache.enabled=false", "rest:calculator.coalescing.enabled=false");
+        service = stack.restBean(CalculatorService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        stack.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public CalculatorResponse latency() {
+        return roundTrip();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Threads(16)
+    public CalculatorResponse throughput() {
+        return roundTrip();
+    }
+
+    private CalculatorResponse roundTrip() {
+        return service.calculate(new CalculatorRequest(UUID.randomUUID().toString(),
+                BigDecimal.valueOf(next.getAndIncrement()), BigDecimal.ONE, "sum")).join();
+    }
+}
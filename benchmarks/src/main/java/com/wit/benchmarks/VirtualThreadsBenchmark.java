@@ -0,0 +1,58 @@
+package com.wit.benchmarks;
+
+import com.wit.benchmarks.support.RestApplicationRunner;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP latency of {@code GET /sum} with virtual threads on and off, under more
+ * concurrent clients than Tomcat has platform worker threads. The reply is stubbed
+ * with a fixed delay standing in for the Kafka round trip; sample mode reports
+ * p50/p99, and the teardown prints the highest number of concurrent in-flight
+ * calculations the service accepted.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(400)
+public class VirtualThreadsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean virtualThreads;
+
+    @Param({"5"})
+    public int replyDelayMillis;
+
+    private RestApplicationRunner app;
+    private HttpClient client;
+    private HttpRequest request;
+
+    @Setup(Level.Trial)
+    public void start() {
+        app = RestApplicationRunner.start(Duration.ofMillis(replyDelayMillis),
+                "spring.threads.virtual.enabled=" + virtualThreads,
+                "server.tomcat.threads.max=200");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + app.port() + "/sum?a=2&b=3")).GET().build();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        System.out.println("virtualThreads=" + virtualThreads + " maxInFlight=" + app.stub().getMaxInFlight());
+        app.close();
+    }
+
+    @Benchmark
+    public int sum() throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
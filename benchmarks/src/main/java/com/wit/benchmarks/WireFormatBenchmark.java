@@ -0,0 +1,114 @@
+package com.wit.benchmarks;
+
+import com.wit.calculator.serde.CalculatorRequestDeserializer;
+import com.wit.calculator.serde.CalculatorResponseSerializer;
+import com.wit.common.wire.WireFormat;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.serde.CalculatorRequestSerializer;
+import com.wit.rest.serde.CalculatorResponseDeserializer;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode time of one request (rest to worker) and one reply (worker to
+ * rest) with the serde classes and properties used in production, JSON against the
+ * binary format, for a single calculation and for a batch. Message sizes are compared by
+ * rest's {@code WireFormatCompatibilityTest}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    private static final String TOPIC = "calculator";
+
+    @Param({"JSON", "BINARY"})
+    public WireFormat format;
+
+    /** 0 for a single calculation, otherwise a {@code batch} message with this many items. */
+    @Param({"0", "100"})
+    public int batchItems;
+
+    private CalculatorRequestSerializer requestSerializer;
+    private CalculatorRequestDeserializer requestDeserializer;
+    private CalculatorResponseSerializer responseSerializer;
+    private CalculatorResponseDeserializer responseDeserializer;
+
+    private RecordHeaders headers;
+    private CalculatorRequest request;
+    private com.wit.calculator.dto.CalculatorResponse response;
+    private byte[] requestBytes;
+    private byte[] responseBytes;
+
+    @Setup
+    public void setUp() {
+        Map<String, Object> producer = Map.of(WireFormat.CONFIG, format.name(), JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        requestSerializer = new CalculatorRequestSerializer();
+        requestSerializer.configure(producer, false);
+        responseSerializer = new CalculatorResponseSerializer();
+        responseSerializer.configure(producer, false);
+
+        requestDeserializer = new CalculatorRequestDeserializer();
+        requestDeserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "com.wit.calculator.dto.*",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, com.wit.calculator.dto.CalculatorRequest.class.getName()), false);
+        responseDeserializer = new CalculatorResponseDeserializer();
+        responseDeserializer.configure(Map.of(
+                JsonDeserializer.TRUSTED_PACKAGES, "com.wit.rest.dto.*",
+                JsonDeserializer.VALUE_DEFAULT_TYPE, CalculatorResponse.class.getName()), false);
+
+        String id = UUID.randomUUID().toString();
+        headers = new RecordHeaders();
+        headers.add("Request-Id", id.getBytes(StandardCharsets.UTF_8));
+        request = new CalculatorRequest(id, new BigDecimal("1234.5678"), new BigDecimal("-98.76"), "div");
+        response = new com.wit.calculator.dto.CalculatorResponse(id, new BigDecimal("-12.5006862090"));
+        if (batchItems > 0) {
+            List<CalculatorRequest> items = new ArrayList<>(batchItems);
+            List<com.wit.calculator.dto.CalculatorResponse> results = new ArrayList<>(batchItems);
+            for (int i = 0; i < batchItems; i++) {
+                items.add(new CalculatorRequest(null, BigDecimal.valueOf(i, 2), new BigDecimal("-98.76"), "mul"));
+                results.add(new com.wit.calculator.dto.CalculatorResponse(null, BigDecimal.valueOf(-98 * i, 4)));
+            }
+            request = new CalculatorRequest(id, null, null, "batch");
+            request.setItems(items);
+            response = new com.wit.calculator.dto.CalculatorResponse(id, results);
+        }
+
+        requestBytes = requestSerializer.serialize(TOPIC, headers, request);
+        responseBytes = responseSerializer.serialize(TOPIC, headers, response);
+    }
+
+    @Benchmark
+    public byte[] encodeRequest() {
+        return requestSerializer.serialize(TOPIC, headers, request);
+    }
+
+    @Benchmark
+    public Object decodeRequest() {
+        return requestDeserializer.deserialize(TOPIC, headers, requestBytes);
+    }
+
+    @Benchmark
+    public byte[] encodeReply() {
+        return responseSerializer.serialize(TOPIC, headers, response);
+    }
+
+    @Benchmark
+    public Object decodeReply() {
+        return responseDeserializer.deserialize(TOPIC, headers, responseBytes);
+    }
+}
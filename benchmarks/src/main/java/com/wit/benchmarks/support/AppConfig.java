@@ -0,0 +1,41 @@
+package com.wit.benchmarks.support;
+
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * rest and calculator both ship an {@code application.properties}; with both jars on
+ * one classpath only the first would be found. Each application is therefore started
+ * with {@code spring.config.location} pointing at its own module's file.
+ * The same goes for {@code logback-spring.xml}. Properties are passed as command-line
+ * arguments so they win over that file.
+ */
+public final class AppConfig {
+
+    private AppConfig() { }
+
+    public static String[] args(List<String> properties) {
+        return properties.stream().map(p -> "--" + p).toArray(String[]::new);
+    }
+
+    public static String locationOf(Class<?> application) {
+        return "spring.config.location=" + resource(application, "application.properties");
+    }
+
+    public static String loggingConfigOf(Class<?> application) {
+        return "logging.config=" + resource(application, "logback-spring.xml");
+    }
+
+    private static String resource(Class<?> application, String name) {
+        try {
+            Path source = Path.of(application.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return Files.isDirectory(source)
+                    ? source.resolve(name).toUri().toString()
+                    : "jar:" + source.toUri() + "!/" + name;
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.wit.benchmarks.support;
+
+import org.apache.kafka.clients.producer.Callback;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.Serializer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * Producer that serializes every record, as a real one would, and then drops it.
+ * Unlike {@link MockProducer} it keeps no send history, so long benchmark
+ * iterations do not grow the heap.
+ */
+public class DiscardingProducer<K, V> extends MockProducer<K, V> {
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+
+    public DiscardingProducer(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        super(true, keySerializer, valueSerializer);
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+    }
+
+    @Override
+    public synchronized Future<RecordMetadata> send(ProducerRecord<K, V> record, Callback callback) {
+        byte[] key = keySerializer.serialize(record.topic(), record.headers(), record.key());
+        byte[] value = valueSerializer.serialize(record.topic(), record.headers(), record.value());
+        int partition = record.partition() != null ? record.partition() : 0;
+        RecordMetadata metadata = new RecordMetadata(new TopicPartition(record.topic(), partition), 0L, 0, 0L,
+                key != null ? key.length : 0, value != null ? value.length : 0);
+        if (callback != null) {
+            callback.onCompletion(metadata, null);
+        }
+        return CompletableFuture.completedFuture(metadata);
+    }
+
+    @Override
+    public synchronized void flush() {
+    }
+}
@@ -0,0 +1,110 @@
+package com.wit.benchmarks.support;
+
+import com.wit.calculator.CalculatorApplication;
+import com.wit.calculator.direct.DirectServer;
+import com.wit.rest.RestApplication;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The whole pipeline in one JVM: an embedded Kafka broker, the calculator worker
+ * and the rest service on a random port, wired exactly as in production.
+ */
+public final class EmbeddedStack implements AutoCloseable {
+
+    private final EmbeddedKafkaKraftBroker broker;
+    private final ConfigurableApplicationContext calculator;
+    private final ConfigurableApplicationContext rest;
+
+    private EmbeddedStack(EmbeddedKafkaKraftBroker broker, ConfigurableApplicationContext calculator,
+                          ConfigurableApplicationContext rest) {
+        this.broker = broker;
+        this.calculator = calculator;
+        this.rest = rest;
+    }
+
+    /**
+     * Starts the stack. Properties prefixed with {@code calculator:} or {@code rest:}
+     * only go to that application; all others go to both.
+     */
+    public static EmbeddedStack start(String... properties) throws InterruptedException {
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 1);
+        // a single broker can only host the transaction log unreplicated
+        broker.brokerProperties(Map.of("transaction.state.log.replication.factor", "1",
+                "transaction.state.log.min.isr", "1"));
+        broker.afterPropertiesSet();
+
+        List<String> calculatorProps = new ArrayList<>(List.of(
+                AppConfig.locationOf(CalculatorApplication.class),
+                "spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "spring.kafka.consumer.auto-offset-reset=earliest",
+                "spring.main.web-application-type=none",
+                "spring.docker.compose.enabled=false"));
+        List<String> restProps = new ArrayList<>(List.of(
+                AppConfig.locationOf(RestApplication.class),
+                "spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                "server.port=0",
+                "calculator.request-id.node=0",
+                "spring.docker.compose.enabled=false"));
+        for (String property : properties) {
+            if (property.startsWith("calculator:")) {
+                calculatorProps.add(property.substring("calculator:".length()));
+            } else if (property.startsWith("rest:")) {
+                restProps.add(property.substring("rest:".length()));
+            } else {
+                calculatorProps.add(property);
+                restProps.add(property);
+            }
+        }
+
+        ConfigurableApplicationContext calculator = new SpringApplicationBuilder(CalculatorApplication.class)
+                .run(AppConfig.args(calculatorProps));
+        // with calculator.direct.enabled, rest finds the worker's direct port without being told
+        calculator.getBeanProvider(DirectServer.class)
+                .ifAvailable(server -> restProps.add("calculator.direct.address=localhost:" + server.port()));
+        ConfigurableApplicationContext rest = new SpringApplicationBuilder(RestApplication.class)
+                .run(AppConfig.args(restProps));
+
+        // there is no reply container with calculator.transport=direct
+        @SuppressWarnings("unchecked")
+        var template = (ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse>)
+                rest.getBeanProvider(ReplyingKafkaTemplate.class).getIfAvailable();
+        if (template != null && !template.waitForAssignment(Duration.ofSeconds(30))) {
+            throw new IllegalStateException("reply container was not assigned");
+        }
+        return new EmbeddedStack(broker, calculator, rest);
+    }
+
+    public <T> T restBean(Class<T> type) {
+        return rest.getBean(type);
+    }
+
+    public <T> T calculatorBean(Class<T> type) {
+        return calculator.getBean(type);
+    }
+
+    public int restPort() {
+        return ((WebServerApplicationContext) rest).getWebServer().getPort();
+    }
+
+    public String brokers() {
+        return broker.getBrokersAsString();
+    }
+
+    @Override
+    public void close() {
+        rest.close();
+        calculator.close();
+        broker.destroy();
+    }
+}
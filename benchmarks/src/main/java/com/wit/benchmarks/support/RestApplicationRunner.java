@@ -0,0 +1,70 @@
+package com.wit.benchmarks.support;
+
+import com.wit.rest.RestApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the rest module on a random port with {@link StubReplyingKafkaTemplate}
+ * registered in place of the real replying template.
+ */
+public final class RestApplicationRunner implements AutoCloseable {
+
+    private static StubReplyingKafkaTemplate pendingStub;
+
+    private final ConfigurableApplicationContext context;
+    private final StubReplyingKafkaTemplate stub;
+
+    private RestApplicationRunner(ConfigurableApplicationContext context, StubReplyingKafkaTemplate stub) {
+        this.context = context;
+        this.stub = stub;
+    }
+
+    public static synchronized RestApplicationRunner start(Duration replyDelay, String... properties) {
+        pendingStub = new StubReplyingKafkaTemplate(replyDelay);
+        List<String> props = new ArrayList<>(List.of(
+                AppConfig.locationOf(RestApplication.class),
+                "server.port=0",
+                "calculator.request-id.node=0",
+                "spring.main.allow-bean-definition-overriding=true",
+                "spring.kafka.bootstrap-servers=localhost:1",
+                "spring.kafka.admin.auto-create=false",
+                "spring.docker.compose.enabled=false",
+                "logging.level.root=WARN",
+                "logging.level.com.wit=WARN",
+                "logging.level.com.wit.rest=WARN"));
+        props.addAll(List.of(properties));
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(RestApplication.class, StubReplyConfig.class)
+                .run(AppConfig.args(props));
+        return new RestApplicationRunner(context, pendingStub);
+    }
+
+    public int port() {
+        return ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    public StubReplyingKafkaTemplate stub() {
+        return stub;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    @Configuration(proxyBeanMethods = false)
+    static class StubReplyConfig {
+
+        @Bean
+        public StubReplyingKafkaTemplate replyingKafkaTemplate() {
+            return pendingStub;
+        }
+    }
+}
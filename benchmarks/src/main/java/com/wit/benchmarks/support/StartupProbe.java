@@ -0,0 +1,179 @@
+package com.wit.benchmarks.support;
+
+import org.springframework.kafka.test.EmbeddedKafkaKraftBroker;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Starts the worker and rest as separate processes against an embedded broker and
+ * reports, per build variant, the time from launching both until rest returns its
+ * first calculation answered by the worker, and the resident memory (VmRSS) of each
+ * process right then. The median of several starts is reported.
+ * Variants: {@code jar} (the plain executable jar), {@code aot} (built with
+ * {@code -Paot}), {@code cds} and {@code aot+cds} (the {@code target/cds} output of
+ * {@code -Pcds} or {@code -Paot,cds}), {@code native} (built with {@code -Pnative}).
+ *
+ * <pre>
+ * mvn -pl benchmarks exec:exec@startup -Dstartup.args="--runs=5 jar aot cds aot+cds"
+ * </pre>
+ */
+public final class StartupProbe {
+
+    private static final Duration GIVE_UP = Duration.ofMinutes(2);
+
+    private final Path root;
+    private final String brokers;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+
+    private StartupProbe(Path root, String brokers) {
+        this.root = root;
+        this.brokers = brokers;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int runs = 3;
+        List<String> variants = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--runs=")) {
+                runs = Integer.parseInt(arg.substring("--runs=".length()));
+            } else {
+                variants.add(arg);
+            }
+        }
+        if (variants.isEmpty()) {
+            variants.add("jar");
+        }
+
+        EmbeddedKafkaKraftBroker broker = new EmbeddedKafkaKraftBroker(1, 1);
+        broker.afterPropertiesSet();
+        try {
+            // exec:exec runs in the benchmarks module
+            StartupProbe probe = new StartupProbe(Path.of("..").toAbsolutePath().normalize(), broker.getBrokersAsString());
+            System.out.printf("%-10s %22s %16s %22s%n", "Variant", "First calculation (ms)", "rest RSS (MB)", "calculator RSS (MB)");
+            for (String variant : variants) {
+                long[] millis = new long[runs];
+                long[] restRss = new long[runs];
+                long[] calculatorRss = new long[runs];
+                for (int run = 0; run < runs; run++) {
+                    long[] result = probe.start(variant);
+                    millis[run] = result[0];
+                    restRss[run] = result[1];
+                    calculatorRss[run] = result[2];
+                }
+                System.out.printf("%-10s %22d %16d %22d%n", variant, median(millis), median(restRss) >> 10,
+                        median(calculatorRss) >> 10);
+            }
+        } finally {
+            broker.destroy();
+        }
+    }
+
+    /** Milliseconds to the first calculation, then rest's and the worker's RSS in kB. */
+    private long[] start(String variant) throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        long start = System.nanoTime();
+        Process calculator = launch(variant, "calculator", "--server.port=0",
+                "--spring.kafka.consumer.auto-offset-reset=earliest");
+        Process rest = launch(variant, "rest", "--server.port=" + port,
+                "--spring.kafka.consumer.auto-offset-reset=earliest", "--calculator.kafka.reply-timeout=1s", "--calculator.request-id.node=0");
+        try {
+            // a precision keeps rest from computing the sum in-process
+            HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/sum?a=1&b=2&precision=5"))
+                    .timeout(Duration.ofSeconds(5)).build();
+            while (System.nanoTime() - start < GIVE_UP.toNanos()) {
+                if (!rest.isAlive() || !calculator.isAlive()) {
+                    throw new IllegalStateException(variant + ": an application exited, see target/startup/");
+                }
+                try {
+                    HttpResponse<String> response = http.send(request, HttpResponse.BodyHandlers.ofString());
+                    if (response.statusCode() == 200 && response.body().contains("\"result\"")) {
+                        long millis = (System.nanoTime() - start) / 1_000_000;
+                        return new long[] {millis, rss(rest), rss(calculator)};
+                    }
+                } catch (IOException e) {
+                    // not listening yet
+                }
+                Thread.sleep(10);
+            }
+            throw new IllegalStateException(variant + ": no calculation within " + GIVE_UP);
+        } finally {
+            stop(rest);
+            stop(calculator);
+        }
+    }
+
+    private Process launch(String variant, String app, String... appArgs) throws IOException {
+        Path target = root.resolve(app).resolve("target");
+        List<String> command = new ArrayList<>();
+        Path directory = target;
+        switch (variant) {
+            case "jar", "aot" -> {
+                command.addAll(List.of("java", "-Dspring.aot.enabled=" + variant.equals("aot"), "-jar",
+                        executableJar(target).toString()));
+            }
+            case "cds", "aot+cds" -> {
+                // the archive only matches the jar paths it was written with, relative to target/cds
+                directory = target.resolve("cds");
+                command.addAll(List.of("java", "-XX:SharedArchiveFile=application.jsa",
+                        "-Dspring.aot.enabled=" + variant.equals("aot+cds"), "-jar",
+                        executableJar(directory).getFileName().toString()));
+            }
+            case "native" -> command.add(target.resolve(app).toString());
+            default -> throw new IllegalArgumentException("unknown variant " + variant);
+        }
+        command.add("--spring.kafka.bootstrap-servers=" + brokers);
+        command.addAll(Arrays.asList(appArgs));
+
+        Path logs = root.resolve("benchmarks").resolve("target").resolve("startup");
+        Files.createDirectories(logs);
+        return new ProcessBuilder(command).directory(directory.toFile())
+                .redirectErrorStream(true)
+                .redirectOutput(logs.resolve(variant + "-" + app + ".log").toFile())
+                .start();
+    }
+
+    private static Path executableJar(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith("-exec.jar")).findFirst()
+                    .orElseThrow(() -> new IllegalStateException("no executable jar in " + directory + ", build it first"));
+        }
+    }
+
+    private static long rss(Process process) throws IOException {
+        for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(process.pid()), "status"))) {
+            if (line.startsWith("VmRSS:")) {
+                return Long.parseLong(line.replaceAll("\\D", ""));
+            }
+        }
+        return 0;
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(10, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+}
@@ -0,0 +1,75 @@
+package com.wit.benchmarks.support;
+
+import com.wit.rest.config.KafkaTopicsConfig;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Stands in for the Kafka round trip: every request is answered after a fixed
+ * delay without touching a broker. Tracks the highest number of requests that
+ * were in flight at the same time.
+ */
+public class StubReplyingKafkaTemplate extends ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> {
+
+    private final long replyDelayMicros;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    public StubReplyingKafkaTemplate(Duration replyDelay) {
+        super(new DefaultKafkaProducerFactory<>(Map.of()),
+                new KafkaMessageListenerContainer<>(new DefaultKafkaConsumerFactory<>(Map.of()),
+                        new ContainerProperties(KafkaTopicsConfig.RES)));
+        this.replyDelayMicros = TimeUnit.NANOSECONDS.toMicros(replyDelay.toNanos());
+        setAutoStartup(false);
+    }
+
+    @Override
+    public RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> sendAndReceive(
+            ProducerRecord<String, CalculatorRequest> record) {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+        CalculatorResponse reply = reply(record.value());
+        Runnable complete = () -> {
+            inFlight.decrementAndGet();
+            future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, record.key(), reply));
+        };
+        if (replyDelayMicros == 0) {
+            complete.run();
+        } else {
+            CompletableFuture.runAsync(complete,
+                    CompletableFuture.delayedExecutor(replyDelayMicros, TimeUnit.MICROSECONDS));
+        }
+        return future;
+    }
+
+    @Override
+    public RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> sendAndReceive(
+            ProducerRecord<String, CalculatorRequest> record, Duration replyTimeout) {
+        return sendAndReceive(record);
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight.get();
+    }
+
+    private static CalculatorResponse reply(CalculatorRequest req) {
+        CalculatorResponse res = new CalculatorResponse();
+        res.setId(req.getId());
+        res.setResult(req.getA().add(req.getB()));
+        return res;
+    }
+}
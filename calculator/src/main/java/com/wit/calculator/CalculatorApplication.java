@@ -1,11 +1,14 @@
 package com.wit.calculator;
 
+import com.wit.calculator.config.CalculatorRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 import org.springframework.kafka.annotation.EnableKafka;
 
 @EnableKafka
 @SpringBootApplication
+@ImportRuntimeHints(CalculatorRuntimeHints.class)
 public class CalculatorApplication {
 
 	public static void main(String[] args) {
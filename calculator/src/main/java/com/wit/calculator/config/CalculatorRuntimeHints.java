@@ -0,0 +1,30 @@
+package com.wit.calculator.config;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.serde.CalculatorRequestDeserializer;
+import com.wit.calculator.serde.CalculatorResponseSerializer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * What a native image of the worker needs beyond what Spring's AOT processing finds on
+ * its own: Jackson binding for the request and reply DTOs, which only travel through
+ * the Kafka serializers and the direct server, and the constructors of those
+ * serializers, which the Kafka client instantiates from their class names in
+ * {@code application.properties}.
+ */
+public class CalculatorRuntimeHints implements RuntimeHintsRegistrar {
+
+  private final BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+
+  @Override
+  public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+    bindings.registerReflectionHints(hints.reflection(), CalculatorRequest.class, CalculatorResponse.class);
+    hints.reflection()
+        .registerType(CalculatorRequestDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+        .registerType(CalculatorResponseSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+  }
+}
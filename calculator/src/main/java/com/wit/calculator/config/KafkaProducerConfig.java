@@ -0,0 +1,68 @@
+package com.wit.calculator.config;
+
+import com.wit.common.kafka.ProducerPool;
+import com.wit.common.kafka.ProducerProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.support.ProducerListener;
+
+/**
+ * Tunes the producer behind the replies. {@code calculator.kafka.producer.profile}
+ * is applied to Boot's producer factory, and the reply template, which {@code @SendTo}
+ * and the batch listener both send through, spreads its sends over
+ * {@code calculator.kafka.producer.pool-size} producers. Its {@code flush()} flushes all
+ * of them, since the batch listener commits a poll's offsets once it returns.
+ */
+@Configuration
+public class KafkaProducerConfig {
+
+  private static final Logger log = LoggerFactory.getLogger(KafkaProducerConfig.class);
+
+  @Bean
+  public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer(
+      @Value("${calculator.kafka.producer.profile:default}") String profileName) {
+    ProducerProfile profile = ProducerProfile.fromConfig(profileName);
+    return factory -> {
+      var settings = profile.missingFrom(factory.getConfigurationProperties());
+      log.info("Producer profile {}: {}", profile.configName(), settings);
+      factory.updateConfigs(settings);
+    };
+  }
+
+  /** Replaces Boot's template only to put the pool in front of its factory. */
+  @Bean
+  public KafkaTemplate<?, ?> kafkaTemplate(ProducerFactory<Object, Object> producerFactory,
+                                          ProducerListener<Object, Object> producerListener,
+                                          @Value("${calculator.kafka.producer.pool-size:1}") int poolSize) {
+    ProducerFactory<Object, Object> producers = ProducerPool.of(producerFactory, poolSize);
+    if (poolSize > 1 && !(producers instanceof ProducerPool)) {
+      log.warn("Producer pool of {} ignored: transactional replies stay on one producer", poolSize);
+    }
+    KafkaTemplate<Object, Object> template = new KafkaTemplate<>(producers) {
+      @Override
+      public void flush() {
+        if (producers instanceof ProducerPool<Object, Object> pool) {
+          pool.flush();
+        } else {
+          super.flush();
+        }
+      }
+
+      @Override
+      public void destroy() {
+        super.destroy();
+        if (producers instanceof ProducerPool<?, ?> pool) {
+          pool.destroy();
+        }
+      }
+    };
+    template.setProducerListener(producerListener);
+    return template;
+  }
+}
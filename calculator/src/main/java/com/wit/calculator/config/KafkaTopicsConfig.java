@@ -1,6 +1,7 @@
 package com.wit.calculator.config;
 
 import org.apache.kafka.clients.admin.NewTopic;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -9,13 +10,19 @@ public class KafkaTopicsConfig {
   public static final String REQ = "calculator.requests";
   public static final String RES = "calculator.replies";
 
+  @Value("${calculator.kafka.partitions:1}")
+  private int partitions;
+
+  @Value("${calculator.kafka.replication-factor:1}")
+  private short replicationFactor;
+
   @Bean 
   public NewTopic calculatorRequestsTopic(){ 
-    return new NewTopic(REQ, 1, (short)1); 
+    return new NewTopic(REQ, partitions, replicationFactor); 
   }
 
   @Bean 
   public NewTopic calculatorRepliesTopic(){ 
-    return new NewTopic(RES, 1, (short)1); 
+    return new NewTopic(RES, partitions, replicationFactor); 
   }
 }
@@ -0,0 +1,235 @@
+package com.wit.calculator.direct;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.kafka.CalculatorListener;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.serde.CalculatorRequestDeserializer;
+import com.wit.calculator.serde.CalculatorResponseSerializer;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import com.wit.common.wire.BinaryWire;
+import com.wit.common.wire.DirectFrames;
+import com.wit.common.wire.WireFormat;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves rest's {@code direct} transport ({@code calculator.direct.enabled=true}): a TCP
+ * port, {@code calculator.direct.port} on {@code calculator.direct.bind-address}
+ * (loopback unless set), where each connection carries a stream of {@link DirectFrames}
+ * requests. Every request is answered through {@link CalculatorListener#handle}, so the
+ * dedup store, metrics and logging are those of the Kafka path, and requests past their
+ * {@code Deadline} get no reply, as on Kafka. A connection's requests are answered
+ * concurrently, on virtual threads or a pool of {@code calculator.direct.threads}, so a slow one does not
+ * hold up those pipelined behind it; replies go out as they are ready, in the wire format
+ * each request came in, and are flushed once no other reply is waiting to be written. At
+ * most {@link #WINDOW} requests of a connection are in progress; past that it is not read
+ * until one is answered. The Kafka listener keeps running alongside.
+ */
+@Component
+@ConditionalOnProperty(name = "calculator.direct.enabled", havingValue = "true")
+public class DirectServer implements SmartLifecycle {
+
+  private static final Logger log = LoggerFactory.getLogger(DirectServer.class);
+
+  /** Requests of one connection being answered at a time. */
+  static final int WINDOW = 1024;
+
+  private final String bindAddress;
+  private final int port;
+  private final int threads;
+  private final boolean virtualThreads;
+  private final CalculatorListener handler;
+  private final WorkerMetrics metrics;
+  private final CalculatorRequestDeserializer deserializer = new CalculatorRequestDeserializer();
+  private final CalculatorResponseSerializer json = new CalculatorResponseSerializer();
+  private final CalculatorResponseSerializer binary = new CalculatorResponseSerializer();
+  private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+  private volatile ServerSocket server;
+  private volatile ExecutorService workers;
+
+  public DirectServer(@Value("${calculator.direct.bind-address:127.0.0.1}") String bindAddress,
+                      @Value("${calculator.direct.port:9091}") int port,
+                      @Value("${calculator.direct.threads:16}") int threads,
+                      @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                      ObjectProvider<CalculatorListener> listener,
+                      CalculationService calculationService,
+                      DedupStore dedup,
+                      WorkerMetrics metrics) {
+    this.bindAddress = bindAddress;
+    this.port = port;
+    this.threads = threads;
+    this.virtualThreads = virtualThreads;
+    // the record listener is not a bean when calculator.listener.batch=true
+    this.handler = listener.getIfAvailable(() -> new CalculatorListener(calculationService, dedup, metrics));
+    this.metrics = metrics;
+    deserializer.configure(Map.of(
+        JsonDeserializer.VALUE_DEFAULT_TYPE, CalculatorRequest.class.getName(),
+        JsonDeserializer.TRUSTED_PACKAGES, "com.wit.calculator.dto.*"), false);
+    json.configure(Map.of(WireFormat.CONFIG, "json"), false);
+    binary.configure(Map.of(WireFormat.CONFIG, "binary"), false);
+  }
+
+  @Override
+  public void start() {
+    try {
+      ServerSocket socket = new ServerSocket();
+      socket.bind(new InetSocketAddress(bindAddress, port));
+      server = socket;
+    } catch (IOException e) {
+      throw new IllegalStateException("Cannot listen on direct port " + bindAddress + ":" + port, e);
+    }
+    workers = virtualThreads
+        ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("direct-worker-", 0).factory())
+        : Executors.newFixedThreadPool(threads, Thread.ofPlatform().daemon().name("direct-worker-", 0).factory());
+    log.info("Direct transport listening on {}:{}", bindAddress, server.getLocalPort());
+    Thread.ofPlatform().daemon().name("direct-accept").start(this::accept);
+  }
+
+  /** The port actually bound, useful when {@code calculator.direct.port} is 0. */
+  public int port() {
+    ServerSocket socket = server;
+    return socket != null ? socket.getLocalPort() : port;
+  }
+
+  private void accept() {
+    ServerSocket socket = server;
+    while (socket != null && !socket.isClosed()) {
+      try {
+        Socket connection = socket.accept();
+        connections.add(connection);
+        Thread.Builder builder = virtualThreads ? Thread.ofVirtual() : Thread.ofPlatform().daemon();
+        builder.name("direct-" + connection.getPort()).start(() -> serve(connection));
+      } catch (IOException e) {
+        if (!socket.isClosed()) {
+          log.warn("Accepting a direct connection failed", e);
+        }
+      }
+    }
+  }
+
+  private void serve(Socket connection) {
+    Semaphore window = new Semaphore(WINDOW);
+    try (connection) {
+      connection.setTcpNoDelay(true);
+      var in = new DataInputStream(new BufferedInputStream(connection.getInputStream(), 1 << 16));
+      var out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream(), 1 << 16));
+      AtomicInteger waiting = new AtomicInteger();
+      DirectFrames.Request frame;
+      while ((frame = DirectFrames.readRequest(in)) != null) {
+        window.acquire();
+        DirectFrames.Request request = frame;
+        workers.execute(() -> {
+          try {
+            byte[] reply = answer(request);
+            if (reply != null) {
+              write(connection, out, waiting, request.correlation(), reply);
+            }
+          } finally {
+            window.release();
+          }
+        });
+      }
+      // the peer sent its last request; answer the ones still in progress before closing
+      window.acquire(WINDOW);
+    } catch (IOException | RejectedExecutionException e) {
+      if (isRunning()) {
+        log.debug("Direct connection from {} closed: {}", connection.getRemoteSocketAddress(), e.toString());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      connections.remove(connection);
+    }
+  }
+
+  /** Writes one reply; the last of the replies waiting for {@code out} flushes them all. */
+  private void write(Socket connection, DataOutputStream out, AtomicInteger waiting, long correlation, byte[] reply) {
+    waiting.incrementAndGet();
+    synchronized (out) {
+      boolean last = waiting.decrementAndGet() == 0;
+      try {
+        DirectFrames.writeReply(out, correlation, reply);
+        if (last) {
+          out.flush();
+        }
+      } catch (IOException e) {
+        if (!connection.isClosed()) {
+          log.debug("Replying on direct connection from {} failed: {}", connection.getRemoteSocketAddress(), e.toString());
+        }
+      }
+    }
+  }
+
+  /** The serialized reply, or {@code null} for a request whose deadline has passed. */
+  private byte[] answer(DirectFrames.Request frame) {
+    boolean isBinary = BinaryWire.isBinary(frame.payload());
+    CalculatorResponse response;
+    CalculatorRequest req;
+    try {
+      req = deserializer.deserialize(null, frame.payload());
+    } catch (RuntimeException e) {
+      log.warn("Malformed direct request, requestId={}: {}", frame.id(), e.getMessage());
+      response = new CalculatorResponse(frame.id(), "malformed request");
+      return (isBinary ? binary : json).serialize(null, response);
+    }
+    if (frame.deadline() > 0 && frame.deadline() <= System.currentTimeMillis()) {
+      metrics.expired(req != null ? req.getOperation() : null);
+      return null;
+    }
+    response = handler.handle(req, frame.id());
+    return (isBinary ? binary : json).serialize(null, response);
+  }
+
+  @Override
+  public void stop() {
+    ServerSocket socket = server;
+    server = null;
+    if (workers != null) {
+      workers.shutdownNow();
+    }
+    try {
+      if (socket != null) {
+        socket.close();
+      }
+    } catch (IOException e) {
+      log.debug("Closing the direct port failed", e);
+    }
+    for (Socket connection : connections) {
+      try {
+        connection.close();
+      } catch (IOException e) {
+        log.debug("Closing a direct connection failed", e);
+      }
+    }
+  }
+
+  @Override
+  public boolean isRunning() {
+    return server != null;
+  }
+}
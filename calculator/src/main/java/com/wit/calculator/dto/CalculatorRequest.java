@@ -1,12 +1,27 @@
 package com.wit.calculator.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
 
 public class CalculatorRequest {
     private String id;
     private BigDecimal a;
     private BigDecimal b;
     private String operation;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CalculatorRequest> items;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String expression;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Map<String, BigDecimal> variables;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer precision;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private RoundingMode rounding;
 
     public CalculatorRequest() { }
 
@@ -45,12 +60,58 @@ public class CalculatorRequest {
         this.operation = operation;
     }
 
+    /** Sub-requests of a {@code batch} operation, evaluated in order. */
+    public List<CalculatorRequest> getItems() {
+        return this.items;
+    }
+    public void setItems(List<CalculatorRequest> items) {
+        this.items = items;
+    }
+
+    /** Formula of an {@code eval} operation, such as {@code (a*b + c) / d}. */
+    public String getExpression() {
+        return this.expression;
+    }
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+
+    /** Values of the names used in {@link #getExpression()}. */
+    public Map<String, BigDecimal> getVariables() {
+        return this.variables;
+    }
+    public void setVariables(Map<String, BigDecimal> variables) {
+        this.variables = variables;
+    }
+
+    /**
+     * Significant digits of the result, 0 for exact where the operation allows it, or
+     * {@code null} for the operation's default.
+     */
+    public Integer getPrecision() {
+        return this.precision;
+    }
+    public void setPrecision(Integer precision) {
+        this.precision = precision;
+    }
+
+    /** How the result is rounded to its precision; {@code null} means {@code HALF_UP}. */
+    public RoundingMode getRounding() {
+        return this.rounding;
+    }
+    public void setRounding(RoundingMode rounding) {
+        this.rounding = rounding;
+    }
+
     @Override
     public String toString() {
         return "CalculatorRequest{id='" + this.id + 
                     "', a=" + this.a + 
                     ", b=" + this.b + 
                     ", operation='" + this.operation + 
-                    "'}";
+                    "'" + (this.items != null ? ", items=" + this.items.size() : "") +
+                    (this.expression != null ? ", expression='" + this.expression + "', variables=" + this.variables : "") +
+                    (this.precision != null || this.rounding != null ? ", precision=" + this.precision + ", rounding=" + this.rounding : "") +
+                    "}";
     }
 }
@@ -1,11 +1,16 @@
 package com.wit.calculator.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.math.BigDecimal;
+import java.util.List;
 
 public class CalculatorResponse {
     private String id;
     private BigDecimal result;
     private String error;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CalculatorResponse> items;
 
     public CalculatorResponse() { }
 
@@ -19,6 +24,11 @@ public class CalculatorResponse {
         this.error = error;
     }
 
+    public CalculatorResponse(String id, List<CalculatorResponse> items) {
+        this.id = id;
+        this.items = items;
+    }
+
     public String getId() {
         return this.id;
     }
@@ -41,12 +51,21 @@ public class CalculatorResponse {
         this.error = error;
     }
 
+    /** Per-item results of a {@code batch} operation, in request order. */
+    public List<CalculatorResponse> getItems() {
+        return items;
+    }
+    public void setItems(List<CalculatorResponse> items) {
+        this.items = items;
+    }
+
     @Override
     public String toString() {
         return "CalculatorResponse{id='" + id + 
                     "', result=" + result + 
                     ", error='" + error + 
-                    "'}";
+                    "'" + (items != null ? ", items=" + items.size() : "") +
+                    "}";
     }
 
 }
@@ -0,0 +1,80 @@
+package com.wit.calculator.expression;
+
+import com.wit.common.engine.CalculationEngine;
+import com.wit.common.engine.CalculationEngine.Outcome;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A parsed expression, immutable and safe to share between threads. Every binary
+ * operator goes through {@link CalculationEngine}, so {@code a / b} in an expression
+ * gives exactly what {@code /div?a=..&b=..} gives, scale and error message included.
+ */
+public final class CompiledExpression {
+
+  sealed interface Node permits Literal, Variable, Negate, Binary { }
+
+  record Literal(BigDecimal value) implements Node { }
+
+  record Variable(String name) implements Node { }
+
+  record Negate(Node operand) implements Node { }
+
+  /** {@code op} is the engine's operation name: sum, sub, mul or div. */
+  record Binary(String op, Node left, Node right) implements Node { }
+
+  private final String text;
+  private final Node root;
+  private final Set<String> variables;
+
+  CompiledExpression(String text, Node root, Set<String> variables) {
+    this.text = text;
+    this.root = root;
+    this.variables = variables;
+  }
+
+  public String text() {
+    return text;
+  }
+
+  /** Names the expression refers to; each needs a binding. */
+  public Set<String> variables() {
+    return variables;
+  }
+
+  public Outcome evaluate(Map<String, BigDecimal> bindings) {
+    for (String name : variables) {
+      if (bindings.get(name) == null) {
+        return new Outcome(null, "missing variable: " + name);
+      }
+    }
+    try {
+      return new Outcome(evaluate(root, bindings), null);
+    } catch (ExpressionException e) {
+      return new Outcome(null, e.getMessage());
+    }
+  }
+
+  private static BigDecimal evaluate(Node node, Map<String, BigDecimal> bindings) {
+    return switch (node) {
+      case Literal literal -> literal.value();
+      case Variable variable -> bindings.get(variable.name());
+      case Negate negate -> evaluate(negate.operand(), bindings).negate();
+      case Binary binary -> {
+        Outcome outcome = CalculationEngine.evaluate(binary.op(),
+            evaluate(binary.left(), bindings), evaluate(binary.right(), bindings));
+        if (outcome.isError()) {
+          throw new ExpressionException(outcome.error());
+        }
+        yield outcome.result();
+      }
+    };
+  }
+
+  @Override
+  public String toString() {
+    return text;
+  }
+}
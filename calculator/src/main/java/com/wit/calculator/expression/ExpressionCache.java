@@ -0,0 +1,44 @@
+package com.wit.calculator.expression;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of parsed expressions keyed by their text, so a formula sent over
+ * and over is parsed once. Expressions that fail to parse are not cached. Exposes
+ * {@code cache.*} metrics tagged {@code cache=calculator.expressions}.
+ */
+@Component
+public class ExpressionCache {
+
+  private final Cache<String, CompiledExpression> cache;
+
+  public ExpressionCache(long maxSize) {
+    this.cache = Caffeine.newBuilder().maximumSize(maxSize).recordStats().build();
+  }
+
+  @Autowired
+  public ExpressionCache(@Value("${calculator.expression.cache-size:1000}") long maxSize,
+                         ObjectProvider<MeterRegistry> meterRegistry) {
+    this(maxSize);
+    meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, cache, "calculator.expressions"));
+  }
+
+  /** @throws ExpressionException if the text is not a valid expression */
+  public CompiledExpression compile(String text) {
+    if (text == null) {
+      throw new ExpressionException("missing expression");
+    }
+    return cache.get(text, ExpressionParser::parse);
+  }
+
+  public long size() {
+    return cache.estimatedSize();
+  }
+}
@@ -0,0 +1,9 @@
+package com.wit.calculator.expression;
+
+/** An expression that cannot be parsed or evaluated; the message is returned to the caller. */
+public class ExpressionException extends IllegalArgumentException {
+
+  public ExpressionException(String message) {
+    super(message);
+  }
+}
@@ -0,0 +1,199 @@
+package com.wit.calculator.expression;
+
+import com.wit.calculator.expression.CompiledExpression.Binary;
+import com.wit.calculator.expression.CompiledExpression.Literal;
+import com.wit.calculator.expression.CompiledExpression.Negate;
+import com.wit.calculator.expression.CompiledExpression.Node;
+import com.wit.calculator.expression.CompiledExpression.Variable;
+import com.wit.common.engine.CalculationEngine;
+import com.wit.common.engine.CalculationEngine.Outcome;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Recursive-descent parser for arithmetic over decimals and named variables:
+ * <pre>
+ *   expression := term (('+' | '-') term)*
+ *   term       := unary (('*' | '/') unary)*
+ *   unary      := ('-' | '+') unary | primary
+ *   primary    := number | name | '(' expression ')'
+ * </pre>
+ * Operators of equal precedence associate to the left. Number literals keep their
+ * scale ({@code 1.50} stays {@code 1.50}), like the operands of the binary endpoints.
+ * Operations on two literals are folded at parse time unless they fail, so
+ * {@code 1 / 0} still reports its error when evaluated.
+ */
+public final class ExpressionParser {
+
+  public static final int MAX_LENGTH = 4096;
+  static final int MAX_DEPTH = 128;
+
+  private final String text;
+  private final Set<String> variables = new LinkedHashSet<>();
+  private int pos;
+  private int depth;
+
+  private ExpressionParser(String text) {
+    this.text = text;
+  }
+
+  /** @throws ExpressionException if the text is not a valid expression */
+  public static CompiledExpression parse(String text) {
+    if (text == null || text.isBlank()) {
+      throw new ExpressionException("missing expression");
+    }
+    if (text.length() > MAX_LENGTH) {
+      throw new ExpressionException("expression longer than " + MAX_LENGTH + " characters");
+    }
+    ExpressionParser parser = new ExpressionParser(text);
+    Node root = parser.expression();
+    parser.skipSpaces();
+    if (parser.pos < text.length()) {
+      throw parser.error("unexpected '" + text.charAt(parser.pos) + "'");
+    }
+    return new CompiledExpression(text, root, Collections.unmodifiableSet(parser.variables));
+  }
+
+  private Node expression() {
+    Node left = term();
+    while (true) {
+      if (accept('+')) {
+        left = binary("sum", left, term());
+      } else if (accept('-')) {
+        left = binary("sub", left, term());
+      } else {
+        return left;
+      }
+    }
+  }
+
+  private Node term() {
+    Node left = unary();
+    while (true) {
+      if (accept('*')) {
+        left = binary("mul", left, unary());
+      } else if (accept('/')) {
+        left = binary("div", left, unary());
+      } else {
+        return left;
+      }
+    }
+  }
+
+  private Node unary() {
+    if (++depth > MAX_DEPTH) {
+      throw error("expression nested deeper than " + MAX_DEPTH + " levels");
+    }
+    try {
+      if (accept('-')) {
+        Node operand = unary();
+        return operand instanceof Literal literal ? new Literal(literal.value().negate()) : new Negate(operand);
+      }
+      if (accept('+')) {
+        return unary();
+      }
+      return primary();
+    } finally {
+      depth--;
+    }
+  }
+
+  private Node primary() {
+    skipSpaces();
+    if (pos >= text.length()) {
+      throw error("unexpected end of expression");
+    }
+    char c = text.charAt(pos);
+    if (c == '(') {
+      pos++;
+      Node inner = expression();
+      if (!accept(')')) {
+        throw error("missing ')'");
+      }
+      return inner;
+    }
+    if (isDigit(c) || c == '.') {
+      return number();
+    }
+    if (isNameStart(c)) {
+      int start = pos;
+      while (pos < text.length() && isNamePart(text.charAt(pos))) {
+        pos++;
+      }
+      String name = text.substring(start, pos);
+      variables.add(name);
+      return new Variable(name);
+    }
+    throw error("unexpected '" + c + "'");
+  }
+
+  private Node number() {
+    int start = pos;
+    while (pos < text.length() && (isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) {
+      pos++;
+    }
+    if (pos < text.length() && (text.charAt(pos) == 'e' || text.charAt(pos) == 'E')) {
+      int exponent = pos + 1;
+      if (exponent < text.length() && (text.charAt(exponent) == '+' || text.charAt(exponent) == '-')) {
+        exponent++;
+      }
+      if (exponent < text.length() && isDigit(text.charAt(exponent))) {
+        pos = exponent;
+        while (pos < text.length() && isDigit(text.charAt(pos))) {
+          pos++;
+        }
+      }
+    }
+    String literal = text.substring(start, pos);
+    try {
+      return new Literal(new BigDecimal(literal));
+    } catch (NumberFormatException e) {
+      pos = start;
+      throw error("invalid number '" + literal + "'");
+    }
+  }
+
+  private static Node binary(String op, Node left, Node right) {
+    if (left instanceof Literal a && right instanceof Literal b) {
+      Outcome folded = CalculationEngine.evaluate(op, a.value(), b.value());
+      if (!folded.isError()) {
+        return new Literal(folded.result());
+      }
+    }
+    return new Binary(op, left, right);
+  }
+
+  private boolean accept(char expected) {
+    skipSpaces();
+    if (pos < text.length() && text.charAt(pos) == expected) {
+      pos++;
+      return true;
+    }
+    return false;
+  }
+
+  private void skipSpaces() {
+    while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+      pos++;
+    }
+  }
+
+  private ExpressionException error(String message) {
+    return new ExpressionException(message + " at position " + pos);
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  private static boolean isNameStart(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+  }
+
+  private static boolean isNamePart(char c) {
+    return isNameStart(c) || isDigit(c);
+  }
+}
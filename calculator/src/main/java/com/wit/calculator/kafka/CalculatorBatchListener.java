@@ -0,0 +1,145 @@
+package com.wit.calculator.kafka;
+
+import com.wit.calculator.config.KafkaTopicsConfig;
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import com.wit.common.id.RequestIds;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Opt-in replacement for {@link CalculatorListener} ({@code calculator.listener.batch=true}).
+ * Evaluates a whole poll in one pass and publishes all replies before a single flush,
+ * so the producer ships them as a few large batches instead of one send per record.
+ * Requests past their {@code Deadline} are skipped and redelivered ones answered from the
+ * {@link DedupStore}, like {@link CalculatorListener} does.
+ * <p>
+ * A reply the producer failed to send fails the listener at that record, so the
+ * container's error handler commits the records before it and redelivers the rest
+ * instead of committing past a lost reply.
+ */
+@Component
+@ConditionalOnProperty(name = "calculator.listener.batch", havingValue = "true")
+public class CalculatorBatchListener {
+
+  private static final Logger log = LoggerFactory.getLogger(CalculatorBatchListener.class);
+
+  private final CalculationService calculationService;
+  private final KafkaTemplate<String, CalculatorResponse> replyTemplate;
+  private final DedupStore dedup;
+  private final WorkerMetrics metrics;
+
+  public CalculatorBatchListener(CalculationService calculationService,
+                                 KafkaTemplate<String, CalculatorResponse> replyTemplate,
+                                 DedupStore dedup,
+                                 WorkerMetrics metrics) {
+    this.calculationService = calculationService;
+    this.replyTemplate = replyTemplate;
+    this.dedup = dedup;
+    this.metrics = metrics;
+  }
+
+  @KafkaListener(topics = KafkaTopicsConfig.REQ, groupId = "calc-worker", batch = "true")
+  public void handle(List<ConsumerRecord<String, CalculatorRequest>> records) {
+    if (log.isDebugEnabled()) {
+      log.debug("Received batch of {} calculation requests", records.size());
+    }
+
+    boolean mdc = log.isInfoEnabled();
+    List<ConsumerRecord<String, CalculatorRequest>> replied = new ArrayList<>(records.size());
+    List<CompletableFuture<SendResult<String, CalculatorResponse>>> sends = new ArrayList<>(records.size());
+    for (ConsumerRecord<String, CalculatorRequest> record : records) {
+      Header idHeader = record.headers().lastHeader(RequestIds.HEADER);
+      String id = idHeader != null ? RequestIds.fromHeader(idHeader.value()) : null;
+      String op = record.value() != null ? record.value().getOperation() : null;
+      metrics.lag(op, record.timestamp());
+      if (CalculatorListener.isExpired(record)) {
+        metrics.expired(op);
+        continue;
+      }
+      CalculatorResponse response = dedup.get(id, record.value());
+      if (response != null) {
+        metrics.duplicate(op);
+        replied.add(record);
+        sends.add(replyTemplate.send(buildReply(record, id, response)));
+        continue;
+      }
+      if (mdc) {
+        MDC.put("requestId", id);
+      }
+      long start = System.nanoTime();
+      try {
+        response = calculationService.calculate(record.value(), id);
+        metrics.compute(op, start, response.getError() == null);
+        dedup.put(id, record.value(), response);
+      } finally {
+        if (mdc) {
+          MDC.clear();
+        }
+      }
+      replied.add(record);
+      sends.add(replyTemplate.send(buildReply(record, id, response)));
+    }
+
+    // one flush per poll, of every pooled producer: the offsets are committed only after every reply left
+    replyTemplate.flush();
+    for (int i = 0; i < sends.size(); i++) {
+      try {
+        sends.get(i).join();
+      } catch (CompletionException e) {
+        ConsumerRecord<String, CalculatorRequest> record = replied.get(i);
+        throw new BatchListenerFailedException("reply to " + record.topic() + "-" + record.partition()
+            + "@" + record.offset() + " was not sent", e.getCause(), record);
+      }
+    }
+  }
+
+  static ProducerRecord<String, CalculatorResponse> buildReply(ConsumerRecord<String, CalculatorRequest> request,
+                                                               String id, CalculatorResponse response) {
+    Headers headers = request.headers();
+    String topic = headerAsString(headers, KafkaHeaders.REPLY_TOPIC);
+    Header partition = headers.lastHeader(KafkaHeaders.REPLY_PARTITION);
+
+    ProducerRecord<String, CalculatorResponse> reply = new ProducerRecord<>(
+        topic != null ? topic : KafkaTopicsConfig.RES,
+        partition != null ? ByteBuffer.wrap(partition.value()).getInt() : null,
+        request.key(),
+        response);
+
+    Header correlation = headers.lastHeader(KafkaHeaders.CORRELATION_ID);
+    if (correlation != null) {
+      reply.headers().add(KafkaHeaders.CORRELATION_ID, correlation.value());
+    }
+    if (id != null) {
+      reply.headers().add(RequestIds.HEADER, RequestIds.toHeader(id));
+    }
+    return reply;
+  }
+
+  private static String headerAsString(Headers headers, String name) {
+    Header header = headers.lastHeader(name);
+    return header != null ? new String(header.value(), StandardCharsets.UTF_8) : null;
+  }
+}
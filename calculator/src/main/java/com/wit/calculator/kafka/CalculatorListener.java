@@ -3,96 +3,95 @@ package com.wit.calculator.kafka;
 import com.wit.calculator.dto.CalculatorRequest;
 import com.wit.calculator.dto.CalculatorResponse;
 import com.wit.calculator.config.KafkaTopicsConfig;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import com.wit.common.deadline.Deadlines;
+import com.wit.common.id.RequestIds;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.messaging.handler.annotation.SendTo;
 import org.springframework.stereotype.Component;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
+
 
 @Component
+@ConditionalOnProperty(name = "calculator.listener.batch", havingValue = "false", matchIfMissing = true)
 public class CalculatorListener {
 
   private static final Logger log = LoggerFactory.getLogger(CalculatorListener.class);
 
-  @KafkaListener(topics = KafkaTopicsConfig.REQ, groupId = "calc-worker")
-  @SendTo(KafkaTopicsConfig.RES)
-  public CalculatorResponse handle(CalculatorRequest req, @Header(name="Request-Id") String id) {
-    MDC.put("requestId", id);
-    
-    if (req == null) {
-      log.warn("Received null request, requestId={}", id);
-      return new CalculatorResponse(id, "null request");
-    }
+  private final CalculationService calculationService;
+  private final DedupStore dedup;
+  private final WorkerMetrics metrics;
 
-    log.info("Received calculation request: operation={}, requestId={}", 
-              req.getOperation(), id);
+  public CalculatorListener(CalculationService calculationService, DedupStore dedup, WorkerMetrics metrics) {
+    this.calculationService = calculationService;
+    this.dedup = dedup;
+    this.metrics = metrics;
+  }
 
-    try {
-      final int SCALE = 10;
-      String op = req.getOperation();
-      BigDecimal a = req.getA();
-      BigDecimal b = req.getB();
+  /**
+   * Replies go to the {@code REPLY_TOPIC}/{@code REPLY_PARTITION} headers set by the
+   * requesting rest instance, so each instance only sees its own replies. Requests whose
+   * {@code Deadline} has passed are counted and get no reply: their caller already
+   * answered 503.
+   */
+  @KafkaListener(topics = KafkaTopicsConfig.REQ, groupId = "calc-worker")
+  @SendTo
+  public CalculatorResponse onRecord(ConsumerRecord<String, CalculatorRequest> record) {
+    CalculatorRequest req = record.value();
+    String op = req != null ? req.getOperation() : null;
+    metrics.lag(op, record.timestamp());
+    Header id = record.headers().lastHeader(RequestIds.HEADER);
+    if (isExpired(record)) {
+      metrics.expired(op);
+      if (log.isDebugEnabled()) {
+        log.debug("Skipping expired request, requestId={}", id != null ? RequestIds.fromHeader(id.value()) : null);
+      }
+      return null;
+    }
+    return handle(req, id != null ? RequestIds.fromHeader(id.value()) : null);
+  }
 
-      log.debug("Processing operation: {} with values a={}, b={}, requestId={}", op, a, b, id);
+  static boolean isExpired(ConsumerRecord<?, ?> record) {
+    Header deadline = record.headers().lastHeader(Deadlines.HEADER);
+    return deadline != null && Deadlines.isExpired(deadline.value(), System.currentTimeMillis());
+  }
 
-      if (a == null) {
-        log.warn("Missing operand 'a', requestId={}", id);
-        return new CalculatorResponse(id, "missing a");
-      }
-      if (b == null) {
-        log.warn("Missing operand 'b', requestId={}", id);
-        return new CalculatorResponse(id, "missing b");
-      }
-      if (op == null) {
-        log.warn("Missing operation, requestId={}", id);
-        return new CalculatorResponse(id, "missing operation");
+  /**
+   * Evaluates the request, or returns the reply already computed for {@code id} when the
+   * same request is delivered again; the caller still gets a reply, without the work.
+   */
+  public CalculatorResponse handle(CalculatorRequest req, String id) {
+    CalculatorResponse previous = dedup.get(id, req);
+    if (previous != null) {
+      metrics.duplicate(req != null ? req.getOperation() : null);
+      if (log.isDebugEnabled()) {
+        log.debug("Answering redelivered request from the dedup store, requestId={}", id);
       }
+      return previous;
+    }
 
-      CalculatorResponse result = switch (op) {
-        case "sum" -> {
-          BigDecimal res = a.add(b);
-          log.info("Sum calculation: {} + {} = {}, requestId={}", a, b, res, id);
-          yield new CalculatorResponse(id, res);
-        }
-        case "sub" -> {
-          BigDecimal res = a.subtract(b);
-          log.info("Subtraction calculation: {} - {} = {}, requestId={}", a, b, res, id);
-          yield new CalculatorResponse(id, res);
-        }
-        case "mul" -> {
-          BigDecimal res = a.multiply(b);
-          log.info("Multiplication calculation: {} * {} = {}, requestId={}", a, b, res, id);
-          yield new CalculatorResponse(id, res);
-        }
-        case "div" -> {
-          if (b.compareTo(BigDecimal.ZERO) == 0){
-            log.warn("Division by zero attempted: {} / {}, requestId={}", a, b, id);
-            yield new CalculatorResponse(id, "division by zero attempted");
-          } else {
-            BigDecimal res = a.divide(b, SCALE, RoundingMode.HALF_UP);
-            log.info("Division calculation: {} / {} = {}, requestId={}", a, b, res, id);
-            yield new CalculatorResponse(id, res);
-          }
-        }
-        default -> {
-          log.warn("Invalid operation requested: {}, requestId={}", op, id);
-          yield new CalculatorResponse(id, "invalid operation: " + op);
-        }
-      };
-      
-      
-      log.info("Calculation completed successfully, requestId={}", id);
-      return result;
-
-    } catch (Exception e) {
-      log.error("Error processing calculation: {}, requestId={}", e.getMessage(), id);
-      return new CalculatorResponse(id, "error: " + e.getMessage());
+    // every log line carries the id in its message; the MDC copy is only worth it when lines are written
+    boolean mdc = log.isInfoEnabled();
+    if (mdc) {
+      MDC.put("requestId", id);
+    }
+    long start = System.nanoTime();
+    try {
+      CalculatorResponse response = calculationService.calculate(req, id);
+      metrics.compute(req != null ? req.getOperation() : null, start, response.getError() == null);
+      dedup.put(id, req, response);
+      return response;
     } finally {
-      MDC.clear();
-    } 
+      if (mdc) {
+        MDC.clear();
+      }
+    }
   }
 }
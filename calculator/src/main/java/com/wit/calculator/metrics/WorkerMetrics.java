@@ -0,0 +1,64 @@
+package com.wit.calculator.metrics;
+
+import com.wit.calculator.service.CalculationService;
+import com.wit.common.engine.CalculationEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Worker-side timers, tagged by {@code operation}:
+ * <ul>
+ *   <li>{@code calculator.worker.lag}: from the record's timestamp (when rest produced it)
+ *       until the listener picked it up,</li>
+ *   <li>{@code calculator.worker.compute}: time spent evaluating it, tagged with
+ *       {@code outcome=success|error},</li>
+ *   <li>counter {@code calculator.worker.expired}: requests skipped because their
+ *       {@code Deadline} had passed when the worker picked them up,</li>
+ *   <li>counter {@code calculator.worker.duplicates}: redelivered requests answered from
+ *       the dedup store instead of being evaluated again.</li>
+ * </ul>
+ */
+@Component
+public class WorkerMetrics {
+
+  private final MeterRegistry registry;
+
+  public WorkerMetrics(MeterRegistry registry) {
+    this.registry = registry;
+  }
+
+  public void lag(String op, long recordTimestampMillis) {
+    long lag = System.currentTimeMillis() - recordTimestampMillis;
+    Timer.builder("calculator.worker.lag")
+        .description("Time between producing a request and the worker picking it up")
+        .tag("operation", operationTag(op))
+        .register(registry)
+        .record(Duration.ofMillis(Math.max(lag, 0)));
+  }
+
+  public void compute(String op, long startNanos, boolean success) {
+    Timer.builder("calculator.worker.compute")
+        .description("Time the worker spent evaluating a request")
+        .tag("operation", operationTag(op))
+        .tag("outcome", success ? "success" : "error")
+        .register(registry)
+        .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+  }
+
+  public void expired(String op) {
+    registry.counter("calculator.worker.expired", "operation", operationTag(op)).increment();
+  }
+
+  public void duplicate(String op) {
+    registry.counter("calculator.worker.duplicates", "operation", operationTag(op)).increment();
+  }
+
+  /** Operations come from the wire; anything unknown is folded into one tag value. */
+  static String operationTag(String op) {
+    return op != null && (CalculationEngine.OPERATIONS.contains(op) || CalculationService.BATCH.equals(op) || CalculationService.EVAL.equals(op)) ? op : "other";
+  }
+}
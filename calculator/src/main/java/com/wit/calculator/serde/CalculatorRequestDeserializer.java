@@ -0,0 +1,97 @@
+package com.wit.calculator.serde;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.common.id.RequestIds;
+import com.wit.common.wire.BinaryWire;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads requests in either wire format: {@link BinaryWire} messages are recognised
+ * by their first byte, anything else goes to Spring's {@link JsonDeserializer}.
+ * Binary requests take their id from the {@code Request-Id} header; {@code eval}
+ * requests carry their expression and variable bindings after the common fields, and
+ * {@link BinaryWire#MATH_VERSION} requests their precision and rounding mode.
+ */
+public class CalculatorRequestDeserializer implements Deserializer<CalculatorRequest> {
+
+  private static final String EVAL = "eval";
+
+  private final JsonDeserializer<CalculatorRequest> json = new JsonDeserializer<>();
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+    json.configure(configs, isKey);
+  }
+
+  @Override
+  public CalculatorRequest deserialize(String topic, byte[] data) {
+    return deserialize(topic, null, data);
+  }
+
+  @Override
+  public CalculatorRequest deserialize(String topic, Headers headers, byte[] data) {
+    if (data == null) {
+      return null;
+    }
+    if (!BinaryWire.isBinary(data)) {
+      return headers == null ? json.deserialize(topic, data) : json.deserialize(topic, headers, data);
+    }
+    try {
+      CalculatorRequest req = read(new BinaryWire.Reader(data), 0);
+      Header id = headers == null ? null : headers.lastHeader(RequestIds.HEADER);
+      if (id != null) {
+        req.setId(RequestIds.fromHeader(id.value()));
+      }
+      return req;
+    } catch (IllegalArgumentException e) {
+      throw new SerializationException("Can't deserialize binary request from topic " + topic, e);
+    }
+  }
+
+  private static CalculatorRequest read(BinaryWire.Reader reader, int depth) {
+    CalculatorRequest req = new CalculatorRequest();
+    req.setOperation(reader.readOperation());
+    req.setA(reader.readDecimal());
+    req.setB(reader.readDecimal());
+    if (reader.version() == BinaryWire.MATH_VERSION) {
+      req.setPrecision(reader.readPrecision());
+      req.setRounding(reader.readRounding());
+    }
+    int size = reader.readSize();
+    if (size >= 0) {
+      reader.checkDepth(depth + 1);
+      List<CalculatorRequest> items = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        items.add(read(reader, depth + 1));
+      }
+      req.setItems(items);
+    }
+    if (EVAL.equals(req.getOperation())) {
+      req.setExpression(reader.readString());
+      int variables = reader.readSize();
+      if (variables >= 0) {
+        Map<String, BigDecimal> bindings = new LinkedHashMap<>();
+        for (int i = 0; i < variables; i++) {
+          bindings.put(reader.readString(), reader.readDecimal());
+        }
+        req.setVariables(bindings);
+      }
+    }
+    return req;
+  }
+
+  @Override
+  public void close() {
+    json.close();
+  }
+}
@@ -0,0 +1,63 @@
+package com.wit.calculator.serde;
+
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.common.wire.BinaryWire;
+import com.wit.common.wire.WireFormat;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes replies as JSON or as {@link BinaryWire} messages, depending on the
+ * {@value WireFormat#CONFIG} producer property. The JSON path is Spring's
+ * {@link JsonSerializer} with the same configuration as before.
+ */
+public class CalculatorResponseSerializer implements Serializer<CalculatorResponse> {
+
+  private final JsonSerializer<CalculatorResponse> json = new JsonSerializer<>();
+  private WireFormat format = WireFormat.JSON;
+
+  @Override
+  public void configure(Map<String, ?> configs, boolean isKey) {
+    format = WireFormat.fromConfig(configs);
+    json.configure(configs, isKey);
+  }
+
+  @Override
+  public byte[] serialize(String topic, CalculatorResponse data) {
+    return serialize(topic, null, data);
+  }
+
+  @Override
+  public byte[] serialize(String topic, Headers headers, CalculatorResponse data) {
+    if (data == null) {
+      return null;
+    }
+    if (format == WireFormat.BINARY) {
+      BinaryWire.Writer writer = new BinaryWire.Writer();
+      write(writer, data);
+      return writer.toByteArray();
+    }
+    return headers == null ? json.serialize(topic, data) : json.serialize(topic, headers, data);
+  }
+
+  private static void write(BinaryWire.Writer writer, CalculatorResponse response) {
+    writer.writeDecimal(response.getResult())
+        .writeString(response.getError());
+    List<CalculatorResponse> items = response.getItems();
+    writer.writeSize(items == null ? 0 : items.size(), items != null);
+    if (items != null) {
+      for (CalculatorResponse item : items) {
+        write(writer, item);
+      }
+    }
+  }
+
+  @Override
+  public void close() {
+    json.close();
+  }
+}
@@ -0,0 +1,159 @@
+package com.wit.calculator.service;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.expression.ExpressionCache;
+import com.wit.calculator.expression.ExpressionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import com.wit.common.engine.CalculationEngine;
+import com.wit.common.engine.CalculationEngine.Outcome;
+import com.wit.common.logging.LogSampler;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates a single {@link CalculatorRequest}. Every failure is reported as an
+ * error response for that request only, so callers processing several requests
+ * keep going when one of them is invalid. A request's precision is capped at
+ * {@code calculator.math.max-precision} digits: the cost of sqrt, exp, ln and pow grows
+ * faster than linearly with it, so one request must not hold a listener thread for long.
+ */
+@Service
+public class CalculationService {
+
+  private static final Logger log = LoggerFactory.getLogger(CalculationService.class);
+
+  public static final String BATCH = "batch";
+  public static final String EVAL = "eval";
+
+  public static final int DEFAULT_MAX_PRECISION = 2000;
+
+  private final LogSampler successLogs;
+  private final ExpressionCache expressions;
+  private final int maxPrecision;
+
+  public CalculationService() {
+    this(1.0, new ExpressionCache(1000));
+  }
+
+  public CalculationService(double successSampleRate, ExpressionCache expressions) {
+    this(successSampleRate, expressions, DEFAULT_MAX_PRECISION);
+  }
+
+  /**
+   * @param successSampleRate share of successful calculations logged at INFO;
+   *                          rejections are always logged
+   * @param maxPrecision      largest precision a request may ask for
+   */
+  @Autowired
+  public CalculationService(@Value("${calculator.logging.success-sample-rate:1.0}") double successSampleRate,
+                            ExpressionCache expressions,
+                            @Value("${calculator.math.max-precision:" + DEFAULT_MAX_PRECISION + "}") int maxPrecision) {
+    this.successLogs = new LogSampler(successSampleRate);
+    this.expressions = expressions;
+    this.maxPrecision = maxPrecision;
+  }
+
+  public CalculatorResponse calculate(CalculatorRequest req, String id) {
+    if (req == null) {
+      log.warn("Received null request, requestId={}", id);
+      return new CalculatorResponse(id, "null request");
+    }
+
+    try {
+      if (BATCH.equals(req.getOperation())) {
+        return calculateBatch(req.getItems(), id);
+      }
+      if (EVAL.equals(req.getOperation())) {
+        return evaluateExpression(req, id);
+      }
+      return evaluate(req, id);
+    } catch (Exception e) {
+      log.error("Error processing calculation: {}, requestId={}", e.getMessage(), id);
+      return new CalculatorResponse(id, "error: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Evaluates every item of a batch with the same rules as a single request and
+   * returns the results in item order. Items cannot be batches themselves.
+   */
+  private CalculatorResponse calculateBatch(List<CalculatorRequest> items, String id) {
+    if (items == null) {
+      log.warn("Batch without items, requestId={}", id);
+      return new CalculatorResponse(id, "missing items");
+    }
+
+    if (log.isInfoEnabled() && successLogs.sample()) {
+      log.info("Received batch calculation request: items={}, requestId={}", items.size(), id);
+    }
+
+    List<CalculatorResponse> results = new ArrayList<>(items.size());
+    for (CalculatorRequest item : items) {
+      CalculatorResponse result = item == null ? new CalculatorResponse(id, "null request") : evaluate(item, id);
+      result.setId(null); // the batch response carries the id once
+      results.add(result);
+    }
+    return new CalculatorResponse(id, results);
+  }
+
+  /**
+   * Evaluates {@code expression} with the given {@code variables}; the parsed form
+   * comes from {@link ExpressionCache}, so a repeated formula is not parsed again.
+   */
+  private CalculatorResponse evaluateExpression(CalculatorRequest req, String id) {
+    Outcome outcome;
+    try {
+      Map<String, BigDecimal> variables = req.getVariables() != null ? req.getVariables() : Map.of();
+      outcome = expressions.compile(req.getExpression()).evaluate(variables);
+    } catch (ExpressionException e) {
+      outcome = new Outcome(null, e.getMessage());
+    }
+    if (outcome.isError()) {
+      log.warn("Expression rejected: {}, requestId={}", outcome.error(), id);
+      return new CalculatorResponse(id, outcome.error());
+    }
+
+    if (log.isInfoEnabled() && successLogs.sample()) {
+      log.info("Expression evaluated successfully: {} = {}, requestId={}", req.getExpression(), outcome.result(), id);
+    }
+    return new CalculatorResponse(id, outcome.result());
+  }
+
+  private CalculatorResponse evaluate(CalculatorRequest req, String id) {
+    if (log.isDebugEnabled()) {
+      log.debug("Processing operation: {} with values a={}, b={}, requestId={}",
+                req.getOperation(), req.getA(), req.getB(), id);
+    }
+
+    Outcome outcome = evaluate(req);
+    if (outcome.isError()) {
+      log.warn("Calculation rejected: {}, requestId={}", outcome.error(), id);
+      return new CalculatorResponse(id, outcome.error());
+    }
+
+    if (log.isInfoEnabled() && successLogs.sample()) {
+      log.info("Calculation completed successfully: {} {} {} = {}, requestId={}",
+                req.getA(), req.getOperation(), req.getB(), outcome.result(), id);
+    }
+    return new CalculatorResponse(id, outcome.result());
+  }
+
+  private Outcome evaluate(CalculatorRequest req) {
+    Integer precision = req.getPrecision();
+    if (precision != null && precision < 0) {
+      return new Outcome(null, "precision must not be negative");
+    }
+    if (precision != null && precision > maxPrecision) {
+      return new Outcome(null, "precision exceeds limit of " + maxPrecision);
+    }
+    return CalculationEngine.evaluate(req.getOperation(), req.getA(), req.getB(),
+        CalculationEngine.mathContext(precision, req.getRounding()));
+  }
+}
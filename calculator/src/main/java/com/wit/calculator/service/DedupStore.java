@@ -0,0 +1,93 @@
+package com.wit.calculator.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Bounded store of the replies this worker computed for recent {@code Request-Id}s.
+ * A request delivered again, after a rebalance, a retry or a seek, is answered with
+ * the stored reply instead of being evaluated a second time. The store is per worker
+ * instance: a request redelivered to another instance is computed there again, which
+ * only the {@code transactional} profile rules out. Each reply is stored with what was
+ * asked (operation, operands, precision, rounding, formula, items), and a delivery only
+ * gets it back when it asks the same: an id reused for another calculation, by a clash
+ * between generators or a misbehaving client, is evaluated rather than answered with
+ * somebody else's result. Exposes {@code cache.*} metrics tagged {@code cache=calculator.dedup}.
+ */
+@Component
+public class DedupStore {
+
+  private final Cache<String, Entry> replies;
+
+  public DedupStore(long maxSize, Duration ttl) {
+    this.replies = maxSize > 0
+        ? Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build()
+        : null;
+  }
+
+  @Autowired
+  public DedupStore(@Value("${calculator.dedup.enabled:true}") boolean enabled,
+                    @Value("${calculator.dedup.max-size:100000}") long maxSize,
+                    @Value("${calculator.dedup.ttl:5m}") Duration ttl,
+                    ObjectProvider<MeterRegistry> meterRegistry) {
+    this(enabled ? maxSize : 0, ttl);
+    if (replies != null) {
+      meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, replies, "calculator.dedup"));
+    }
+  }
+
+  /** A store that remembers nothing: every delivery is evaluated. */
+  public static DedupStore off() {
+    return new DedupStore(0, Duration.ZERO);
+  }
+
+  /** The reply already computed for this id and this same request, or {@code null}. */
+  public CalculatorResponse get(String id, CalculatorRequest req) {
+    if (replies == null || id == null) {
+      return null;
+    }
+    Entry entry = replies.getIfPresent(id);
+    return entry != null && Objects.equals(entry.request(), Fingerprint.of(req)) ? entry.response() : null;
+  }
+
+  public void put(String id, CalculatorRequest req, CalculatorResponse response) {
+    if (replies != null && id != null) {
+      replies.put(id, new Entry(Fingerprint.of(req), response));
+    }
+  }
+
+  private record Entry(Fingerprint request, CalculatorResponse response) { }
+
+  /**
+   * The parts of a request its reply depends on. Operands compare with their scale, as
+   * they arrived: a redelivery carries the very same ones.
+   */
+  private record Fingerprint(String operation, BigDecimal a, BigDecimal b, Integer precision, RoundingMode rounding,
+                             String expression, Map<String, BigDecimal> variables, List<Fingerprint> items) {
+
+    static Fingerprint of(CalculatorRequest req) {
+      if (req == null) {
+        return null;
+      }
+      List<Fingerprint> items = req.getItems() == null ? null
+          : req.getItems().stream().map(Fingerprint::of).toList();
+      return new Fingerprint(req.getOperation(), req.getA(), req.getB(), req.getPrecision(), req.getRounding(),
+          req.getExpression(), req.getVariables(), items);
+    }
+  }
+}
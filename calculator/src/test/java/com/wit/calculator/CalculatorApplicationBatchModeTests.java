@@ -0,0 +1,34 @@
+package com.wit.calculator;
+
+import com.wit.calculator.kafka.CalculatorBatchListener;
+import com.wit.calculator.kafka.CalculatorListener;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.ApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.kafka.listener.auto-startup=false",
+        "spring.kafka.bootstrap-servers=invalid:9092",
+        "calculator.listener.batch=true"
+})
+class CalculatorApplicationBatchModeTests {
+
+    @MockBean
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Autowired
+    private ApplicationContext context;
+
+    @Test
+    void batch_mode_replaces_the_record_listener() {
+        assertEquals(1, context.getBeansOfType(CalculatorBatchListener.class).size());
+        assertTrue(context.getBeansOfType(CalculatorListener.class).isEmpty());
+    }
+}
@@ -0,0 +1,34 @@
+package com.wit.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.kafka.config.ConcurrentKafkaListenerContainerFactory;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test")
+@SpringBootTest(properties = {
+        "spring.kafka.listener.auto-startup=false",
+        "spring.kafka.bootstrap-servers=invalid:9092",
+        "spring.threads.virtual.enabled=true"
+})
+class CalculatorApplicationVirtualThreadsTests {
+
+    @MockBean
+    private KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    @Autowired
+    private ConcurrentKafkaListenerContainerFactory<?, ?> kafkaListenerContainerFactory;
+
+    @Test
+    void listener_containers_use_virtual_threads() throws Exception {
+        AsyncTaskExecutor executor = kafkaListenerContainerFactory.getContainerProperties().getListenerTaskExecutor();
+        assertNotNull(executor);
+        assertTrue(executor.submit(() -> Thread.currentThread().isVirtual()).get());
+    }
+}
@@ -0,0 +1,32 @@
+package com.wit.calculator.config;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.serde.CalculatorRequestDeserializer;
+import com.wit.calculator.serde.CalculatorResponseSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CalculatorRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void dtos_can_be_bound_and_serializers_created_by_class_name() throws Exception {
+        new CalculatorRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (Class<?> dto : new Class<?>[] {CalculatorRequest.class, CalculatorResponse.class}) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(dto)
+                    .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints), dto.getName());
+        }
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(CalculatorRequest.class.getMethod("getOperation")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(CalculatorRequestDeserializer.class.getConstructor()).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(CalculatorResponseSerializer.class.getConstructor()).test(hints));
+    }
+}
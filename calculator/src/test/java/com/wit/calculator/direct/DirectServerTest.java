@@ -0,0 +1,119 @@
+package com.wit.calculator.direct;
+
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.kafka.CalculatorListener;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import com.wit.common.wire.BinaryWire;
+import com.wit.common.wire.DirectFrames;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.math.BigDecimal;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectServerTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final WorkerMetrics metrics = new WorkerMetrics(registry);
+    private DirectServer server;
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private void start(CalculatorListener listener) {
+        StaticListableBeanFactory beans = new StaticListableBeanFactory();
+        if (listener != null) {
+            beans.addBean("listener", listener);
+        }
+        server = new DirectServer("127.0.0.1", 0, 4, false, beans.getBeanProvider(CalculatorListener.class),
+                new CalculationService(), DedupStore.off(), metrics);
+        server.start();
+    }
+
+    @Test
+    void pipelined_requests_are_all_answered_on_one_connection() throws Exception {
+        start(null);
+        int requests = 1_000;
+        try (Socket socket = new Socket("localhost", server.port())) {
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            // everything is written before the first reply is read
+            for (int i = 0; i < requests; i++) {
+                byte[] payload = new BinaryWire.Writer().writeOperation("sum")
+                        .writeDecimal(BigDecimal.valueOf(i)).writeDecimal(BigDecimal.ONE).writeSize(0, false).toByteArray();
+                DirectFrames.writeRequest(out, i, String.format("%016x", i), 0, payload);
+            }
+            // one expired request in the middle of the stream gets no reply
+            DirectFrames.writeRequest(out, -1, "ffffffffffffffff", 1, json("sum", "1", "1"));
+            DirectFrames.writeRequest(out, requests, "0000000000abcdef", 0, json("div", "1", "0"));
+            out.flush();
+
+            // replies come back as they are ready, not necessarily in order
+            Set<Long> answered = new HashSet<>();
+            for (int i = 0; i <= requests; i++) {
+                DirectFrames.Reply reply = DirectFrames.readReply(in);
+                if (reply.correlation() == requests) {
+                    String body = new String(reply.payload(), StandardCharsets.UTF_8);
+                    assertTrue(body.contains("division by zero"), body);
+                } else {
+                    BinaryWire.Reader result = new BinaryWire.Reader(reply.payload());
+                    assertEquals(BigDecimal.valueOf(reply.correlation() + 1), result.readDecimal());
+                }
+                answered.add(reply.correlation());
+            }
+            assertEquals(requests + 1, answered.size());
+        }
+        assertEquals(1, registry.get("calculator.worker.expired").counter().count());
+    }
+
+    @Test
+    void a_slow_request_does_not_hold_up_the_ones_behind_it() throws Exception {
+        CountDownLatch slow = new CountDownLatch(1);
+        start(new CalculatorListener(new CalculationService(), DedupStore.off(), metrics) {
+            @Override
+            public CalculatorResponse handle(CalculatorRequest req, String id) {
+                if ("mul".equals(req.getOperation())) {
+                    try {
+                        slow.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.handle(req, id);
+            }
+        });
+        try (Socket socket = new Socket("localhost", server.port())) {
+            socket.setSoTimeout(5_000);
+            var out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DirectFrames.writeRequest(out, 1, "0000000000000001", 0, json("mul", "2", "3"));
+            DirectFrames.writeRequest(out, 2, "0000000000000002", 0, json("sum", "2", "3"));
+            out.flush();
+
+            assertEquals(2, DirectFrames.readReply(in).correlation());
+            slow.countDown();
+            assertEquals(1, DirectFrames.readReply(in).correlation());
+        }
+    }
+
+    private static byte[] json(String op, String a, String b) {
+        return ("{\"operation\":\"" + op + "\",\"a\":" + a + ",\"b\":" + b + "}").getBytes(StandardCharsets.UTF_8);
+    }
+}
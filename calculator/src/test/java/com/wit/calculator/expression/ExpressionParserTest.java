@@ -0,0 +1,86 @@
+package com.wit.calculator.expression;
+
+import com.wit.common.engine.CalculationEngine;
+import com.wit.common.engine.CalculationEngine.Outcome;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpressionParserTest {
+
+    private static BigDecimal eval(String expression, Map<String, BigDecimal> variables) {
+        Outcome outcome = ExpressionParser.parse(expression).evaluate(variables);
+        assertNull(outcome.error(), expression);
+        return outcome.result();
+    }
+
+    private static BigDecimal eval(String expression) {
+        return eval(expression, Map.of());
+    }
+
+    @Test
+    void precedence_associativity_and_parentheses() {
+        assertEquals(new BigDecimal("14"), eval("2 + 3 * 4"));
+        assertEquals(new BigDecimal("20"), eval("(2 + 3) * 4"));
+        assertEquals(new BigDecimal("5"), eval("10 - 3 - 2"));
+        assertEquals(new BigDecimal("-6"), eval("-(2 * 3)"));
+        assertEquals(new BigDecimal("8"), eval("--8"));
+        assertEquals(new BigDecimal("3E+2"), eval("3e2"));
+    }
+
+    @Test
+    void operators_match_the_binary_endpoints() {
+        var values = Map.of("a", new BigDecimal("1.50"), "b", new BigDecimal("3"),
+                "c", new BigDecimal("0.25"), "d", new BigDecimal("7"));
+
+        BigDecimal ab = CalculationEngine.evaluate("mul", values.get("a"), values.get("b")).result();
+        BigDecimal abc = CalculationEngine.evaluate("sum", ab, values.get("c")).result();
+        BigDecimal expected = CalculationEngine.evaluate("div", abc, values.get("d")).result();
+
+        BigDecimal actual = eval("(a*b + c) / d", values);
+        assertEquals(expected, actual);
+        assertEquals(CalculationEngine.DIVISION_SCALE, actual.scale());
+        assertEquals(new BigDecimal("0.6785714286"), actual); // 4.75 / 7, HALF_UP
+        assertEquals(new BigDecimal("4.50"), eval("a * b", values)); // scale kept like /mul
+    }
+
+    @Test
+    void errors_are_reported_like_the_binary_endpoints() {
+        assertEquals("division by zero attempted", ExpressionParser.parse("1 / (x - x)").evaluate(Map.of("x", BigDecimal.ONE)).error());
+        assertEquals("division by zero attempted", ExpressionParser.parse("1 / 0").evaluate(Map.of()).error());
+        assertEquals("missing variable: y", ExpressionParser.parse("x + y").evaluate(Map.of("x", BigDecimal.ONE)).error());
+    }
+
+    @Test
+    void literal_subexpressions_are_folded_and_variables_collected() {
+        CompiledExpression expression = ExpressionParser.parse("x * (2 + 3) - y");
+        assertEquals(Set.of("x", "y"), expression.variables());
+
+        CompiledExpression constant = ExpressionParser.parse("(1 + 2) * 4");
+        assertTrue(constant.variables().isEmpty());
+        assertEquals(new BigDecimal("12"), constant.evaluate(Map.of()).result());
+    }
+
+    @Test
+    void malformed_expressions_are_rejected_with_a_position() {
+        assertEquals("missing ')' at position 6", assertThrows(ExpressionException.class, () -> ExpressionParser.parse("(1 + 2")).getMessage());
+        assertEquals("unexpected '*' at position 4", assertThrows(ExpressionException.class, () -> ExpressionParser.parse("1 + * 2")).getMessage());
+        assertThrows(ExpressionException.class, () -> ExpressionParser.parse("1 2"));
+        assertThrows(ExpressionException.class, () -> ExpressionParser.parse("1.2.3"));
+        assertThrows(ExpressionException.class, () -> ExpressionParser.parse(" "));
+        assertThrows(ExpressionException.class, () -> ExpressionParser.parse("(".repeat(ExpressionParser.MAX_DEPTH + 1) + "1"));
+        assertThrows(ExpressionException.class, () -> ExpressionParser.parse("1+".repeat(ExpressionParser.MAX_LENGTH) + "1"));
+    }
+
+    @Test
+    void cache_parses_each_text_once_and_skips_invalid_ones() {
+        ExpressionCache cache = new ExpressionCache(10);
+        assertSame(cache.compile("a + b"), cache.compile("a + b"));
+        assertThrows(ExpressionException.class, () -> cache.compile("a +"));
+        assertEquals(1, cache.size());
+    }
+}
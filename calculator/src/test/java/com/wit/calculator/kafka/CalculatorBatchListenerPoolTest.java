@@ -0,0 +1,88 @@
+package com.wit.calculator.kafka;
+
+import com.wit.calculator.config.KafkaProducerConfig;
+import com.wit.calculator.config.KafkaTopicsConfig;
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.serde.CalculatorResponseSerializer;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.ProducerListener;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The batch listener's single flush has to cover every producer of the pool: the
+ * container commits the poll's offsets as soon as {@code handle} returns. With a
+ * linger far longer than the test, a reply still buffered in any producer would only
+ * be acknowledged a minute later.
+ */
+@EmbeddedKafka(partitions = 1, topics = KafkaTopicsConfig.RES)
+class CalculatorBatchListenerPoolTest {
+
+    private static final int POOL_SIZE = 3;
+    private static final int RECORDS = 12;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void every_reply_is_acknowledged_when_handle_returns(EmbeddedKafkaBroker broker) {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put(ProducerConfig.LINGER_MS_CONFIG, 60_000);
+        props.put(ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG, StringSerializer.class);
+        props.put(ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG, CalculatorResponseSerializer.class);
+        var factory = new DefaultKafkaProducerFactory<Object, Object>(props);
+        AtomicInteger acknowledged = new AtomicInteger();
+        ProducerListener<Object, Object> counting = new ProducerListener<>() {
+            @Override
+            public void onSuccess(ProducerRecord<Object, Object> record, RecordMetadata metadata) {
+                acknowledged.incrementAndGet();
+            }
+        };
+        var template = (KafkaTemplate<Object, Object>) new KafkaProducerConfig().kafkaTemplate(factory, counting, POOL_SIZE);
+        try {
+            var listener = new CalculatorBatchListener(new CalculationService(),
+                    (KafkaTemplate<String, CalculatorResponse>) (KafkaTemplate<?, ?>) template,
+                    DedupStore.off(), new WorkerMetrics(new SimpleMeterRegistry()));
+            List<ConsumerRecord<String, CalculatorRequest>> records = new ArrayList<>();
+            for (int i = 0; i < RECORDS; i++) {
+                records.add(record("id-" + i, new CalculatorRequest("id-" + i, BigDecimal.valueOf(i), BigDecimal.ONE, "sum")));
+            }
+
+            listener.handle(records);
+
+            assertEquals(RECORDS, acknowledged.get(), "replies still buffered when the offsets would be committed");
+        } finally {
+            template.destroy();
+            factory.destroy();
+        }
+    }
+
+    private static ConsumerRecord<String, CalculatorRequest> record(String id, CalculatorRequest req) {
+        var record = new ConsumerRecord<>(KafkaTopicsConfig.REQ, 0, 0L, id, req);
+        record.headers().add("Request-Id", id.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaHeaders.CORRELATION_ID, id.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaHeaders.REPLY_TOPIC, KafkaTopicsConfig.RES.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+}
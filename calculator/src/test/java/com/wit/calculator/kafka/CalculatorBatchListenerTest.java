@@ -0,0 +1,166 @@
+package com.wit.calculator.kafka;
+
+import com.wit.calculator.config.KafkaTopicsConfig;
+import com.wit.calculator.dto.CalculatorRequest;
+import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import com.wit.common.deadline.Deadlines;
+import com.wit.calculator.serde.CalculatorResponseSerializer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.MockProducer;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.RecordTooLargeException;
+import org.apache.kafka.common.serialization.StringSerializer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.BatchListenerFailedException;
+import org.springframework.kafka.mock.MockProducerFactory;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ActiveProfiles("test")
+class CalculatorBatchListenerTest {
+
+    private KafkaTemplate<String, CalculatorResponse> template;
+    private CalculatorBatchListener listener;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        template = Mockito.mock(KafkaTemplate.class);
+        Mockito.when(template.send(Mockito.<ProducerRecord<String, CalculatorResponse>>any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
+        listener = new CalculatorBatchListener(new CalculationService(), template, DedupStore.off(), new WorkerMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Test
+    void replies_keep_per_record_headers_and_isolate_errors() {
+        var ok = record("id-1", "corr-1", new CalculatorRequest("id-1", new BigDecimal("2"), new BigDecimal("3"), "sum"));
+        var divByZero = record("id-2", "corr-2", new CalculatorRequest("id-2", BigDecimal.TEN, BigDecimal.ZERO, "div"));
+        var missingA = record("id-3", "corr-3", new CalculatorRequest("id-3", null, BigDecimal.ONE, "mul"));
+        var nullValue = record("id-4", "corr-4", null);
+
+        listener.handle(List.of(ok, divByZero, missingA, nullValue));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorResponse>> sent = ArgumentCaptor.captor();
+        var order = inOrder(template);
+        order.verify(template, times(4)).send(sent.capture());
+        order.verify(template).flush();
+
+        List<ProducerRecord<String, CalculatorResponse>> replies = sent.getAllValues();
+        assertEquals(new BigDecimal("5"), replies.get(0).value().getResult());
+        assertEquals("division by zero attempted", replies.get(1).value().getError());
+        assertEquals("missing a", replies.get(2).value().getError());
+        assertEquals("null request", replies.get(3).value().getError());
+
+        for (int i = 0; i < replies.size(); i++) {
+            var reply = replies.get(i);
+            assertEquals(KafkaTopicsConfig.RES, reply.topic());
+            assertEquals("id-" + (i + 1), header(reply, "Request-Id"));
+            assertEquals("corr-" + (i + 1), header(reply, KafkaHeaders.CORRELATION_ID));
+        }
+    }
+
+    @Test
+    void replies_honour_reply_topic_and_partition_headers() {
+        var req = record("id-1", "corr-1", new CalculatorRequest("id-1", BigDecimal.ONE, BigDecimal.ONE, "sum"));
+        req.headers().add(KafkaHeaders.REPLY_TOPIC, "calculator.replies.client-2".getBytes(StandardCharsets.UTF_8));
+        req.headers().add(KafkaHeaders.REPLY_PARTITION, ByteBuffer.allocate(4).putInt(3).array());
+
+        listener.handle(List.of(req));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorResponse>> sent = ArgumentCaptor.captor();
+        verify(template).send(sent.capture());
+        assertEquals("calculator.replies.client-2", sent.getValue().topic());
+        assertEquals(3, sent.getValue().partition());
+        assertEquals("id-1", sent.getValue().key());
+    }
+
+    @Test
+    void expired_records_in_a_poll_are_skipped() {
+        var expired = record("id-1", "corr-1", new CalculatorRequest("id-1", BigDecimal.ONE, BigDecimal.ONE, "sum"));
+        expired.headers().add(Deadlines.HEADER, Deadlines.toHeader(System.currentTimeMillis() - 1_000));
+        var live = record("id-2", "corr-2", new CalculatorRequest("id-2", BigDecimal.ONE, BigDecimal.TWO, "sum"));
+
+        listener.handle(List.of(expired, live));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorResponse>> sent = ArgumentCaptor.captor();
+        verify(template, times(1)).send(sent.capture());
+        assertEquals("id-2", sent.getValue().key());
+        verify(template).flush();
+    }
+
+    @Test
+    void redelivered_records_are_replied_to_without_recomputing() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        var deduplicating = new CalculatorBatchListener(new CalculationService(), template,
+                new DedupStore(100, Duration.ofMinutes(1)), new WorkerMetrics(registry));
+        var req = new CalculatorRequest("id-1", BigDecimal.ONE, BigDecimal.TWO, "sum");
+
+        deduplicating.handle(List.of(record("id-1", "corr-1", req)));
+        deduplicating.handle(List.of(record("id-1", "corr-1", req)));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorResponse>> sent = ArgumentCaptor.captor();
+        verify(template, times(2)).send(sent.capture());
+        assertSame(sent.getAllValues().get(0).value(), sent.getAllValues().get(1).value());
+        assertEquals("corr-1", header(sent.getAllValues().get(1), KafkaHeaders.CORRELATION_ID));
+        assertEquals(1, registry.get("calculator.worker.compute").tags("operation", "sum", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("calculator.worker.duplicates").tag("operation", "sum").counter().count());
+    }
+
+    @Test
+    void a_reply_the_producer_failed_to_send_fails_the_poll_at_its_record() {
+        // the broker takes the first reply and refuses the second
+        var producer = new MockProducer<>(false, null, new StringSerializer(), new CalculatorResponseSerializer()) {
+            @Override
+            public synchronized void flush() {
+                completeNext();
+                errorNext(new RecordTooLargeException("reply too large"));
+            }
+        };
+        var failing = new CalculatorBatchListener(new CalculationService(),
+                new KafkaTemplate<>(new MockProducerFactory<>(() -> producer)),
+                DedupStore.off(), new WorkerMetrics(new SimpleMeterRegistry()));
+        var first = record("id-1", "corr-1", 10L, new CalculatorRequest("id-1", BigDecimal.ONE, BigDecimal.ONE, "sum"));
+        var second = record("id-2", "corr-2", 11L, new CalculatorRequest("id-2", BigDecimal.ONE, BigDecimal.TWO, "sum"));
+
+        var e = assertThrows(BatchListenerFailedException.class, () -> failing.handle(List.of(first, second)));
+
+        assertSame(second, e.getRecord());
+        assertInstanceOf(RecordTooLargeException.class, e.getCause().getCause());
+    }
+
+    private static ConsumerRecord<String, CalculatorRequest> record(String id, String correlation, CalculatorRequest req) {
+        return record(id, correlation, 0L, req);
+    }
+
+    private static ConsumerRecord<String, CalculatorRequest> record(String id, String correlation, long offset,
+                                                                    CalculatorRequest req) {
+        var record = new ConsumerRecord<>(KafkaTopicsConfig.REQ, 0, offset, id, req);
+        record.headers().add("Request-Id", id.getBytes(StandardCharsets.UTF_8));
+        record.headers().add(KafkaHeaders.CORRELATION_ID, correlation.getBytes(StandardCharsets.UTF_8));
+        return record;
+    }
+
+    private static String header(ProducerRecord<?, ?> record, String name) {
+        return new String(record.headers().lastHeader(name).value(), StandardCharsets.UTF_8);
+    }
+}
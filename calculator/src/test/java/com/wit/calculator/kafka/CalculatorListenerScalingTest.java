@@ -0,0 +1,165 @@
+package com.wit.calculator.kafka;
+
+import com.wit.calculator.config.KafkaTopicsConfig;
+import com.wit.calculator.dto.CalculatorRequest;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the real listener against a four-partition embedded broker with one and then
+ * four worker consumers. With four, each consumer owns one partition and all four
+ * process records at the same time: the first record of each waits until the other
+ * consumers are busy with theirs.
+ */
+@ActiveProfiles("test")
+@EmbeddedKafka(partitions = 4, topics = {KafkaTopicsConfig.REQ, KafkaTopicsConfig.RES})
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "calculator.kafka.partitions=4",
+        "spring.kafka.consumer.auto-offset-reset=earliest"
+})
+class CalculatorListenerScalingTest {
+
+    private static final int RECORDS = 40;
+    private static final int PARTITIONS = 4;
+
+    @Autowired
+    private KafkaListenerEndpointRegistry registry;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Autowired
+    private SimulatedWork work;
+
+    @Test
+    void partitions_are_processed_concurrently_by_worker_consumers() throws Exception {
+        var container = (ConcurrentMessageListenerContainer<?, ?>) registry.getListenerContainers().iterator().next();
+
+        consume(container, 1);
+        assertEquals(1, work.threads.size(), "one consumer");
+
+        consume(container, 4);
+        assertEquals(4, work.threads.size(), "records were not spread over all consumers");
+        assertTrue(work.concurrent, "the consumers did not all process records at the same time");
+        container.getContainers().forEach(child -> assertEquals(1, child.getAssignedPartitions().size()));
+    }
+
+    private void consume(ConcurrentMessageListenerContainer<?, ?> container, int consumers) throws Exception {
+        container.stop();
+        container.setConcurrency(consumers);
+        container.start();
+        awaitBalancedAssignment(container);
+
+        work.reset(RECORDS, consumers);
+        KafkaTemplate<String, CalculatorRequest> producer = producer();
+        for (int i = 0; i < RECORDS; i++) {
+            String id = UUID.randomUUID().toString();
+            var record = new ProducerRecord<>(KafkaTopicsConfig.REQ, i % PARTITIONS, id,
+                    new CalculatorRequest(id, BigDecimal.valueOf(i), BigDecimal.ONE, "sum"));
+            record.headers().add(KafkaHeaders.REPLY_TOPIC, KafkaTopicsConfig.RES.getBytes(StandardCharsets.UTF_8));
+            record.headers().add("Request-Id", id.getBytes(StandardCharsets.UTF_8));
+            producer.send(record);
+        }
+        producer.flush();
+
+        assertTrue(work.done.await(60, TimeUnit.SECONDS), "not all records were processed");
+    }
+
+    /** Waits until the group has settled with every consumer owning at least one partition. */
+    private static void awaitBalancedAssignment(ConcurrentMessageListenerContainer<?, ?> container) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(60);
+        while (System.nanoTime() < deadline) {
+            var children = container.getContainers();
+            boolean balanced = children.size() == container.getConcurrency()
+                    && children.stream().allMatch(c -> c.getAssignedPartitions() != null && !c.getAssignedPartitions().isEmpty())
+                    && children.stream().mapToInt(c -> c.getAssignedPartitions().size()).sum() == PARTITIONS;
+            if (balanced) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("consumer group did not settle");
+    }
+
+    private KafkaTemplate<String, CalculatorRequest> producer() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new JsonSerializer<>()));
+    }
+
+    /** Records which consumer threads processed records, and whether they all did so at once. */
+    static class SimulatedWork implements RecordInterceptor<Object, Object> {
+
+        volatile CountDownLatch done = new CountDownLatch(0);
+        volatile CountDownLatch together = new CountDownLatch(0);
+        volatile boolean concurrent = true;
+        final Set<String> threads = ConcurrentHashMap.newKeySet();
+
+        void reset(int records, int consumers) {
+            threads.clear();
+            concurrent = true;
+            together = new CountDownLatch(consumers);
+            done = new CountDownLatch(records);
+        }
+
+        @Override
+        public ConsumerRecord<Object, Object> intercept(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+            // a consumer's first record is held until every consumer is inside its own first record
+            if (threads.add(Thread.currentThread().getName())) {
+                together.countDown();
+                try {
+                    if (!together.await(10, TimeUnit.SECONDS)) {
+                        concurrent = false;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return record;
+        }
+
+        @Override
+        public void afterRecord(ConsumerRecord<Object, Object> record, Consumer<Object, Object> consumer) {
+            done.countDown();
+        }
+    }
+
+    @TestConfiguration
+    static class SimulatedWorkConfig {
+
+        @Bean
+        SimulatedWork simulatedWork() {
+            return new SimulatedWork();
+        }
+    }
+}
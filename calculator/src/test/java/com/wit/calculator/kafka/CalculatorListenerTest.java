@@ -1,12 +1,34 @@
 package com.wit.calculator.kafka;
 
+import com.wit.calculator.config.KafkaTopicsConfig;
 import com.wit.calculator.dto.CalculatorRequest;
 import com.wit.calculator.dto.CalculatorResponse;
+import com.wit.calculator.expression.ExpressionCache;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import com.wit.common.deadline.Deadlines;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
 
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,10 +38,12 @@ import org.springframework.test.context.ActiveProfiles;
 class CalculatorListenerTest {
 
     private CalculatorListener listener;
+    private SimpleMeterRegistry registry;
 
     @BeforeEach
     void setUp() {
-        listener = new CalculatorListener();
+        registry = new SimpleMeterRegistry();
+        listener = new CalculatorListener(new CalculationService(), DedupStore.off(), new WorkerMetrics(registry));
     }
 
     @Test
@@ -58,6 +82,19 @@ class CalculatorListenerTest {
         assertEquals(req.getId(), res.getId());
     }
 
+    @Test
+    void precision_and_rounding_are_honoured_up_to_the_limit() {
+        var req = new CalculatorRequest("id-20", BigDecimal.TWO, null, "sqrt");
+        req.setPrecision(8);
+        req.setRounding(RoundingMode.CEILING);
+        assertEquals(new BigDecimal("1.4142136"), listener.handle(req, req.getId()).getResult());
+
+        req.setPrecision(CalculationService.DEFAULT_MAX_PRECISION + 1);
+        var res = listener.handle(req, req.getId());
+        assertEquals("precision exceeds limit of " + CalculationService.DEFAULT_MAX_PRECISION, res.getError());
+        assertNull(res.getResult());
+    }
+
     @Test
     void division_by_zero() {
         var req = new CalculatorRequest("id-5", new BigDecimal("10"), BigDecimal.ZERO, "div");
@@ -94,6 +131,34 @@ class CalculatorListenerTest {
         assertEquals("missing operation", listener.handle(r3, r3.getId()).getError());
     }
 
+    @Test
+    void a_request_without_operation_and_b_is_answered() {
+        var single = new CalculatorRequest("id-9a", new BigDecimal("1"), null, null);
+        assertEquals("missing b", listener.handle(single, single.getId()).getError());
+
+        var batch = new CalculatorRequest("id-9b", null, null, "batch");
+        batch.setItems(java.util.List.of(new CalculatorRequest(null, new BigDecimal("1"), null, null)));
+        assertEquals("missing b", listener.handle(batch, batch.getId()).getItems().get(0).getError());
+    }
+
+    @Test
+    void an_unexpected_failure_is_answered_as_an_error() {
+        var failing = new ExpressionCache(10) {
+            @Override
+            public com.wit.calculator.expression.CompiledExpression compile(String text) {
+                throw new IllegalStateException("boom");
+            }
+        };
+        var broken = new CalculatorListener(new CalculationService(1.0, failing), DedupStore.off(), new WorkerMetrics(registry));
+        var req = new CalculatorRequest("id-9c", null, null, "eval");
+        req.setExpression("a + 1");
+
+        var res = broken.handle(req, req.getId());
+
+        assertEquals("error: boom", res.getError());
+        assertEquals(req.getId(), res.getId());
+    }
+
     @Test
     void high_precision_division() {
         var req = new CalculatorRequest("id-10", new BigDecimal("1"), new BigDecimal("3"), "div");
@@ -101,4 +166,133 @@ class CalculatorListenerTest {
         assertNull(res.getError());
         assertEquals(new BigDecimal("0.3333333333"), res.getResult());
     }
+
+    @Test
+    void batch_evaluates_items_in_order_with_per_item_errors() {
+        var req = new CalculatorRequest("id-11", null, null, "batch");
+        req.setItems(java.util.List.of(
+                new CalculatorRequest(null, new BigDecimal("2"), new BigDecimal("3"), "sum"),
+                new CalculatorRequest(null, new BigDecimal("10"), BigDecimal.ZERO, "div"),
+                new CalculatorRequest(null, null, new BigDecimal("1"), "mul"),
+                new CalculatorRequest(null, new BigDecimal("1"), new BigDecimal("3"), "div"),
+                new CalculatorRequest(null, new BigDecimal("1"), new BigDecimal("1"), "batch")));
+
+        var res = listener.handle(req, req.getId());
+
+        assertNull(res.getError());
+        assertEquals(req.getId(), res.getId());
+        var items = res.getItems();
+        assertEquals(5, items.size());
+        assertEquals(new BigDecimal("5"), items.get(0).getResult());
+        assertEquals("division by zero attempted", items.get(1).getError());
+        assertEquals("missing a", items.get(2).getError());
+        assertEquals(new BigDecimal("0.3333333333"), items.get(3).getResult());
+        assertEquals("invalid operation: batch", items.get(4).getError());
+    }
+
+    @Test
+    void batch_without_items() {
+        var req = new CalculatorRequest("id-12", null, null, "batch");
+        assertEquals("missing items", listener.handle(req, req.getId()).getError());
+    }
+
+    @Test
+    void records_are_timed_per_operation_with_queue_lag() {
+        var req = new CalculatorRequest(null, new BigDecimal("6"), new BigDecimal("7"), "mul");
+        var record = new ConsumerRecord<>(KafkaTopicsConfig.REQ, 0, 0L, System.currentTimeMillis() - 250,
+                TimestampType.CREATE_TIME, 0, 0, "id-13", req, new RecordHeaders(), Optional.empty());
+        record.headers().add("Request-Id", "id-13".getBytes(StandardCharsets.UTF_8));
+
+        var res = listener.onRecord(record);
+        listener.handle(new CalculatorRequest(null, BigDecimal.ONE, BigDecimal.ZERO, "div"), "id-14");
+        listener.handle(new CalculatorRequest(null, BigDecimal.ONE, BigDecimal.ONE, "nope"), "id-15");
+
+        assertEquals("id-13", res.getId());
+        Timer lag = registry.get("calculator.worker.lag").tag("operation", "mul").timer();
+        assertEquals(1, lag.count());
+        assertTrue(lag.totalTime(TimeUnit.MILLISECONDS) >= 250);
+        assertEquals(1, registry.get("calculator.worker.compute").tags("operation", "mul", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("calculator.worker.compute").tags("operation", "div", "outcome", "error").timer().count());
+        assertEquals(1, registry.get("calculator.worker.compute").tags("operation", "other", "outcome", "error").timer().count());
+    }
+
+    @Test
+    void expired_records_are_counted_and_get_no_reply() {
+        var req = new CalculatorRequest(null, new BigDecimal("6"), new BigDecimal("7"), "mul");
+        var expired = new ConsumerRecord<>(KafkaTopicsConfig.REQ, 0, 0L, "id-16", req);
+        expired.headers().add(Deadlines.HEADER, Deadlines.toHeader(System.currentTimeMillis() - 1_000));
+        var live = new ConsumerRecord<>(KafkaTopicsConfig.REQ, 0, 1L, "id-17", req);
+        live.headers().add(Deadlines.HEADER, Deadlines.toHeader(System.currentTimeMillis() + 60_000));
+
+        assertNull(listener.onRecord(expired));
+        assertEquals(new BigDecimal("42"), listener.onRecord(live).getResult());
+
+        assertEquals(1, registry.get("calculator.worker.expired").tag("operation", "mul").counter().count());
+        assertEquals(1, registry.get("calculator.worker.compute").tags("operation", "mul", "outcome", "success").timer().count());
+    }
+
+    @Test
+    void redelivered_requests_are_answered_from_the_dedup_store() {
+        var deduplicating = new CalculatorListener(new CalculationService(), new DedupStore(100, Duration.ofMinutes(1)),
+                new WorkerMetrics(registry));
+        var req = new CalculatorRequest(null, new BigDecimal("6"), new BigDecimal("7"), "mul");
+
+        var first = deduplicating.handle(req, "id-18");
+        var again = deduplicating.handle(req, "id-18");
+        var other = deduplicating.handle(req, "id-19");
+
+        assertSame(first, again);
+        assertEquals(new BigDecimal("42"), other.getResult());
+        assertEquals(2, registry.get("calculator.worker.compute").tags("operation", "mul", "outcome", "success").timer().count());
+        assertEquals(1, registry.get("calculator.worker.duplicates").tag("operation", "mul").counter().count());
+    }
+
+    @Test
+    void a_reused_id_with_different_operands_is_evaluated_again() {
+        var deduplicating = new CalculatorListener(new CalculationService(), new DedupStore(100, Duration.ofMinutes(1)),
+                new WorkerMetrics(registry));
+
+        var first = deduplicating.handle(new CalculatorRequest(null, new BigDecimal("6"), new BigDecimal("7"), "mul"), "id-20");
+        var clash = deduplicating.handle(new CalculatorRequest(null, new BigDecimal("6"), new BigDecimal("8"), "mul"), "id-20");
+        var precise = new CalculatorRequest(null, new BigDecimal("6"), new BigDecimal("8"), "mul");
+        precise.setPrecision(1);
+
+        assertEquals(new BigDecimal("42"), first.getResult());
+        assertEquals(new BigDecimal("48"), clash.getResult());
+        assertEquals(new BigDecimal("5E+1"), deduplicating.handle(precise, "id-20").getResult());
+        assertEquals(3, registry.get("calculator.worker.compute").tags("operation", "mul", "outcome", "success").timer().count());
+        assertTrue(registry.find("calculator.worker.duplicates").counters().isEmpty());
+    }
+
+    @Test
+    void eval_evaluates_the_formula_with_its_variables() {
+        var req = new CalculatorRequest("id-e", null, null, "eval");
+        req.setExpression("(a*b + c) / d");
+        req.setVariables(Map.of("a", new BigDecimal("2"), "b", new BigDecimal("3"),
+                "c", new BigDecimal("1"), "d", new BigDecimal("3")));
+        var res = listener.handle(req, req.getId());
+        assertNull(res.getError());
+        assertEquals(new BigDecimal("2.3333333333"), res.getResult());
+
+        req.setExpression("(a*b + c) /");
+        assertEquals("unexpected end of expression at position 11", listener.handle(req, req.getId()).getError());
+    }
+
+    @Test
+    void unsampled_successes_are_not_logged_but_rejections_are() {
+        Logger logger = (Logger) LoggerFactory.getLogger(CalculationService.class);
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            var quiet = new CalculatorListener(new CalculationService(0.0, new ExpressionCache(10)), DedupStore.off(), new WorkerMetrics(registry));
+            quiet.handle(new CalculatorRequest("id-s", new BigDecimal("2"), new BigDecimal("3"), "sum"), "id-s");
+            quiet.handle(new CalculatorRequest("id-d", new BigDecimal("1"), BigDecimal.ZERO, "div"), "id-d");
+
+            assertTrue(appender.list.stream().noneMatch(e -> e.getLevel() == Level.INFO));
+            assertEquals(1, appender.list.stream().filter(e -> e.getLevel() == Level.WARN).count());
+        } finally {
+            logger.detachAppender(appender);
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package com.wit.calculator.kafka;
+
+import com.wit.calculator.CalculatorApplication;
+import com.wit.calculator.config.KafkaTopicsConfig;
+import com.wit.calculator.dto.CalculatorRequest;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerInterceptor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.listener.RecordInterceptor;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+import org.springframework.kafka.test.EmbeddedKafkaBroker;
+import org.springframework.kafka.test.context.EmbeddedKafka;
+import org.springframework.kafka.test.utils.KafkaTestUtils;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the worker with the {@code transactional} profile on a two-partition embedded
+ * broker and forces two rebalances while requests are flowing: a second worker joins
+ * the group, then stalls in the middle of its first reply's transaction for longer than
+ * {@code max.poll.interval.ms}, so that it is dropped from the group and its partition's
+ * uncommitted records are delivered again to the first worker. Read
+ * {@code read_committed}, every request must have exactly one reply, whichever worker
+ * answered it and however often it was delivered.
+ */
+@ActiveProfiles({"test", "transactional"})
+@EmbeddedKafka(partitions = 2, topics = {KafkaTopicsConfig.REQ, KafkaTopicsConfig.RES},
+        brokerProperties = {"transaction.state.log.replication.factor=1", "transaction.state.log.min.isr=1"})
+@SpringBootTest(properties = {
+        "spring.kafka.bootstrap-servers=${spring.embedded.kafka.brokers}",
+        "calculator.kafka.partitions=2",
+        "spring.kafka.consumer.auto-offset-reset=earliest"
+})
+class CalculatorTransactionalReplyTest {
+
+    private static final int REQUESTS = 300;
+
+    @Autowired
+    private EmbeddedKafkaBroker broker;
+
+    @Test
+    void every_request_gets_exactly_one_committed_reply_across_rebalances() throws Exception {
+        KafkaTemplate<String, CalculatorRequest> producer = producer();
+        try (Consumer<String, String> replies = committedReplies()) {
+            send(producer, 0, REQUESTS / 3);
+            try (ConfigurableApplicationContext secondWorker = startSecondWorker()) {
+                awaitAssignment(secondWorker);
+                send(producer, REQUESTS / 3, 2 * REQUESTS / 3);
+                assertTrue(StallFirstReply.STALLED.await(60, TimeUnit.SECONDS), "the second worker never replied");
+                // closing waits for the stalled transaction, which then fails to commit
+            }
+            send(producer, 2 * REQUESTS / 3, REQUESTS);
+
+            Map<String, Integer> repliesPerRequest = new HashMap<>();
+            long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+            while (repliesPerRequest.size() < REQUESTS && System.nanoTime() < deadline) {
+                count(replies, repliesPerRequest);
+            }
+            // anything committed twice would show up right after the first copy
+            count(replies, repliesPerRequest);
+
+            assertEquals(REQUESTS, repliesPerRequest.size(), "requests without a committed reply");
+            repliesPerRequest.forEach((id, replyCount) -> assertEquals(1, replyCount, "replies to " + id));
+            assertTrue(Deliveries.PER_REQUEST.values().stream().anyMatch(n -> n.get() > 1),
+                    "no request was delivered twice, so nothing was deduplicated");
+        }
+    }
+
+    private void send(KafkaTemplate<String, CalculatorRequest> producer, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String id = UUID.randomUUID().toString();
+            var record = new ProducerRecord<>(KafkaTopicsConfig.REQ, id,
+                    new CalculatorRequest(id, BigDecimal.valueOf(i), BigDecimal.ONE, "sum"));
+            record.headers().add(KafkaHeaders.REPLY_TOPIC, KafkaTopicsConfig.RES.getBytes(StandardCharsets.UTF_8));
+            record.headers().add(KafkaHeaders.CORRELATION_ID, id.getBytes(StandardCharsets.UTF_8));
+            record.headers().add("Request-Id", id.getBytes(StandardCharsets.UTF_8));
+            producer.send(record);
+        }
+        producer.flush();
+    }
+
+    private static void count(Consumer<String, String> replies, Map<String, Integer> repliesPerRequest) {
+        for (ConsumerRecord<String, String> reply : replies.poll(Duration.ofMillis(500))) {
+            Header correlation = reply.headers().lastHeader(KafkaHeaders.CORRELATION_ID);
+            assertNotNull(correlation, "reply without correlation id");
+            repliesPerRequest.merge(new String(correlation.value(), StandardCharsets.UTF_8), 1, Integer::sum);
+        }
+    }
+
+    private ConfigurableApplicationContext startSecondWorker() {
+        return new SpringApplicationBuilder(CalculatorApplication.class, Deliveries.class)
+                .profiles("test", "transactional")
+                .run("--spring.kafka.bootstrap-servers=" + broker.getBrokersAsString(),
+                        "--calculator.kafka.partitions=2",
+                        "--spring.kafka.consumer.auto-offset-reset=earliest",
+                        "--spring.main.web-application-type=none",
+                        "--spring.kafka.consumer.properties.max.poll.interval.ms=2000",
+                        "--spring.kafka.producer.properties.interceptor.classes=" + StallFirstReply.class.getName(),
+                        "--spring.docker.compose.enabled=false");
+    }
+
+    private static void awaitAssignment(ConfigurableApplicationContext worker) throws InterruptedException {
+        var container = worker.getBean(KafkaListenerEndpointRegistry.class).getListenerContainers().iterator().next();
+        long deadline = System.nanoTime() + Duration.ofSeconds(60).toNanos();
+        while (System.nanoTime() < deadline) {
+            var assigned = container.getAssignedPartitions();
+            if (assigned != null && !assigned.isEmpty()) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("second worker was never assigned a partition");
+    }
+
+    private Consumer<String, String> committedReplies() {
+        Map<String, Object> props = KafkaTestUtils.consumerProps("reply-audit", "false", broker);
+        props.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+        props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        Consumer<String, String> consumer = new DefaultKafkaConsumerFactory<>(props,
+                new StringDeserializer(), new StringDeserializer()).createConsumer();
+        consumer.subscribe(List.of(KafkaTopicsConfig.RES));
+        return consumer;
+    }
+
+    /** Holds up the first reply sent through it for longer than the second worker's poll interval. */
+    public static class StallFirstReply implements ProducerInterceptor<Object, Object> {
+
+        static final CountDownLatch STALLED = new CountDownLatch(1);
+
+        @Override
+        public ProducerRecord<Object, Object> onSend(ProducerRecord<Object, Object> record) {
+            if (STALLED.getCount() > 0) {
+                STALLED.countDown();
+                try {
+                    Thread.sleep(5_000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return record;
+        }
+
+        @Override
+        public void onAcknowledgement(RecordMetadata metadata, Exception exception) {
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void configure(Map<String, ?> configs) {
+        }
+    }
+
+    /** Counts how often each request reached a worker's listener, in either worker. */
+    @TestConfiguration
+    static class Deliveries {
+
+        static final Map<String, AtomicInteger> PER_REQUEST = new ConcurrentHashMap<>();
+
+        @Bean
+        RecordInterceptor<Object, Object> deliveryCounter() {
+            return (record, consumer) -> {
+                Header id = record.headers().lastHeader("Request-Id");
+                if (id != null) {
+                    PER_REQUEST.computeIfAbsent(new String(id.value(), StandardCharsets.UTF_8), k -> new AtomicInteger())
+                            .incrementAndGet();
+                }
+                return record;
+            };
+        }
+    }
+
+    private KafkaTemplate<String, CalculatorRequest> producer() {
+        Map<String, Object> props = KafkaTestUtils.producerProps(broker);
+        props.put(JsonSerializer.ADD_TYPE_INFO_HEADERS, false);
+        return new KafkaTemplate<>(new DefaultKafkaProducerFactory<>(props, new StringSerializer(), new JsonSerializer<>()));
+    }
+}
@@ -0,0 +1,30 @@
+package com.wit.common.deadline;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Encoding of the {@value #HEADER} Kafka header: the wall-clock time, in epoch
+ * milliseconds, after which nobody waits for the answer any more. rest sets it from its
+ * reply timeout and the worker skips requests that are past it, so rest and calculator
+ * hosts are expected to keep their clocks in sync (NTP).
+ */
+public final class Deadlines {
+
+    public static final String HEADER = "Deadline";
+
+    private Deadlines() { }
+
+    public static byte[] toHeader(long epochMillis) {
+        return ByteBuffer.allocate(Long.BYTES).putLong(epochMillis).array();
+    }
+
+    /** The deadline in the header, or {@link Long#MAX_VALUE} (none) if the value is malformed. */
+    public static long fromHeader(byte[] value) {
+        return value != null && value.length == Long.BYTES ? ByteBuffer.wrap(value).getLong() : Long.MAX_VALUE;
+    }
+
+    /** Whether a request with this header value can no longer be answered in time; no header never expires. */
+    public static boolean isExpired(byte[] value, long nowMillis) {
+        return value != null && fromHeader(value) < nowMillis;
+    }
+}
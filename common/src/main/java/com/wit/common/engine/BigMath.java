@@ -0,0 +1,266 @@
+package com.wit.common.engine;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+/**
+ * Square root, exponential, logarithm and power of {@link BigDecimal}s, correctly
+ * rounded to a {@link MathContext} for sqrt, and to within one unit in the last place
+ * for the others. Each stays fast at thousands of digits:
+ * <ul>
+ *   <li>{@link #sqrt} takes an integer square root by Newton iteration that doubles its
+ *       precision at every step, so the cost is a few full-size divisions,</li>
+ *   <li>{@link #exp} halves its argument until the Taylor series converges in about
+ *       √(digits) terms, then squares the sum back up, all in binary fixed point so no
+ *       step pays for decimal rounding,</li>
+ *   <li>{@link #ln} runs Newton's iteration on {@link #exp}, doubling the precision at
+ *       every step from a {@code double} estimate,</li>
+ *   <li>{@link #remainder} reduces the power of ten between its operands' scales
+ *       modulo the divisor rather than building the quotient, which has as many digits
+ *       as the two exponents are apart.</li>
+ * </ul>
+ * All methods expect a context with a precision of at least 1.
+ */
+public final class BigMath {
+
+    /** exp's argument must be smaller than this in magnitude: e^(10^9) has 434 million digits. */
+    public static final BigDecimal MAX_EXP_ARGUMENT = BigDecimal.valueOf(1_000_000_000);
+
+    private static final int REMAINDER_QUOTIENT_DIGITS = 1_000;
+
+    private static final double LOG2_10 = Math.log(10) / Math.log(2);
+
+    private BigMath() { }
+
+    /** @throws ArithmeticException if {@code x} is negative */
+    public static BigDecimal sqrt(BigDecimal x, MathContext mc) {
+        if (x.signum() < 0) {
+            throw new ArithmeticException("square root of a negative number");
+        }
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        // sqrt(u * 10^-s) = sqrt(u * 10^t) * 10^-((s + t) / 2), with u * 10^t wide enough for the
+        // requested digits plus two guard digits, and s + t even
+        BigInteger unscaled = x.unscaledValue();
+        int scale = x.scale();
+        long t = Math.max(0, 2L * (mc.getPrecision() + 2) - x.precision());
+        if (((scale + t) & 1) != 0) {
+            t++;
+        }
+        BigInteger wide = unscaled.multiply(BigInteger.TEN.pow((int) t));
+        BigInteger root = isqrt(wide);
+        int rootScale = (int) ((scale + t) / 2);
+        if (root.multiply(root).equals(wide)) {
+            BigDecimal exact = new BigDecimal(root, rootScale).round(mc).stripTrailingZeros();
+            // plain integers only up to the requested digits: the root of 1E+20000000 stays 1E+10000000
+            return exact.scale() < 0 && exact.precision() - exact.scale() <= mc.getPrecision() ? exact.setScale(0) : exact;
+        }
+        // the root lies strictly between root and root + 1: a trailing 1 rounds the same way it would
+        return new BigDecimal(root.multiply(BigInteger.TEN).add(BigInteger.ONE), rootScale + 1).round(mc);
+    }
+
+    /**
+     * {@link BigDecimal#remainder}: {@code a - n * b} with {@code n} the quotient truncated
+     * toward zero. Where that quotient would run to more than {@value #REMAINDER_QUOTIENT_DIGITS}
+     * digits, the same value is computed without it, at the larger of the two scales.
+     *
+     * @throws ArithmeticException if {@code b} is zero
+     */
+    public static BigDecimal remainder(BigDecimal a, BigDecimal b) {
+        if (b.signum() == 0) {
+            throw new ArithmeticException("division by zero attempted");
+        }
+        long quotientDigits = ((long) a.precision() - a.scale()) - ((long) b.precision() - b.scale());
+        return quotientDigits <= REMAINDER_QUOTIENT_DIGITS ? a.remainder(b) : remainderByPowers(a, b);
+    }
+
+    static BigDecimal remainderByPowers(BigDecimal a, BigDecimal b) {
+        // at the common scale s: a = ua * 10^(s - sa) and b = ub * 10^(s - sb), both integers
+        int scale = Math.max(a.scale(), b.scale());
+        BigInteger divisor = b.unscaledValue().abs().multiply(BigInteger.TEN.pow(scale - b.scale()));
+        BigInteger shift = BigInteger.TEN.modPow(BigInteger.valueOf((long) scale - a.scale()), divisor);
+        BigInteger r = a.unscaledValue().abs().mod(divisor).multiply(shift).mod(divisor);
+        return new BigDecimal(a.signum() < 0 ? r.negate() : r, scale);
+    }
+
+    /** @throws ArithmeticException if {@code |x|} is not below {@link #MAX_EXP_ARGUMENT} */
+    public static BigDecimal exp(BigDecimal x, MathContext mc) {
+        if (x.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        if (x.abs().compareTo(MAX_EXP_ARGUMENT) >= 0) {
+            throw new ArithmeticException("exponent too large");
+        }
+        // exp(x) = exp(x / 2^k)^(2^k); after halving, |r| < 2^-m and the series needs about
+        // bits / m terms, so m ~ sqrt(bits) balances the terms against the k squarings
+        int bits = (int) (mc.getPrecision() * LOG2_10);
+        int m = Math.max(4, (int) Math.sqrt(bits));
+        int magnitude = Math.max(0, (int) Math.ceil(log10(x.abs()) * LOG2_10) + 1);
+        int k = magnitude + m;
+        // every squaring doubles the relative error: k bits of guard, plus a few for the series
+        int w = bits + k + 32;
+
+        // binary fixed point with w fractional bits: shifts instead of decimal rounding
+        BigInteger one = BigInteger.ONE.shiftLeft(w);
+        BigInteger r = x.multiply(new BigDecimal(one)).setScale(0, RoundingMode.HALF_EVEN).toBigInteger().shiftRight(k);
+        BigInteger sum = one;
+        BigInteger term = one;
+        for (int n = 1; term.signum() != 0; n++) {
+            term = term.multiply(r).shiftRight(w).divide(BigInteger.valueOf(n));
+            sum = sum.add(term);
+        }
+
+        // squaring as floating point, sum * 2^exponent, keeping w significant bits
+        long exponent = -w;
+        for (int i = 0; i < k; i++) {
+            sum = sum.multiply(sum);
+            exponent *= 2;
+            int excess = sum.bitLength() - w;
+            sum = sum.shiftRight(excess);
+            exponent += excess;
+        }
+        MathContext work = new MathContext(mc.getPrecision() + 5, RoundingMode.HALF_EVEN);
+        return new BigDecimal(sum).multiply(powerOfTwo(exponent, work), work).round(mc);
+    }
+
+    /** 2^n, exact for small non-negative n, else to {@code mc}. */
+    private static BigDecimal powerOfTwo(long n, MathContext mc) {
+        if (n >= 0 && n < 64) {
+            return new BigDecimal(BigInteger.ONE.shiftLeft((int) n));
+        }
+        if (Math.abs(n) <= 999_999_999) {
+            return BigDecimal.TWO.pow((int) n, mc);
+        }
+        // beyond what BigDecimal.pow takes: 2^n = (2^(n/2))^2, times or divided by 2 for odd n
+        BigDecimal half = BigDecimal.TWO.pow((int) (n / 2), mc);
+        BigDecimal square = half.multiply(half, mc);
+        if (n % 2 == 0) {
+            return square;
+        }
+        return n > 0 ? square.multiply(BigDecimal.TWO, mc) : square.divide(BigDecimal.TWO, mc);
+    }
+
+    /** @throws ArithmeticException if {@code x} is not positive */
+    public static BigDecimal ln(BigDecimal x, MathContext mc) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("logarithm of a non-positive number");
+        }
+        if (x.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ZERO;
+        }
+        // ln(x) = ln(m) + e * ln(10) with m in [0.3, 3.3), so the two terms never cancel out
+        int e = (int) Math.round(log10(x));
+        BigDecimal m = x.movePointLeft(e);
+
+        // digits of ln(m) lost to leading zeros when m is close to 1
+        BigDecimal distance = m.subtract(BigDecimal.ONE);
+        int leadingZeros = distance.signum() == 0 ? 0 : Math.max(0, distance.scale() - distance.precision());
+        int eDigits = e == 0 ? 0 : (int) Math.log10(Math.abs(e)) + 1;
+        MathContext work = new MathContext(mc.getPrecision() + leadingZeros + eDigits + 5, RoundingMode.HALF_EVEN);
+
+        BigDecimal result = lnNear1(m, work);
+        if (e != 0) {
+            result = result.add(ln10(work).multiply(BigDecimal.valueOf(e), work), work);
+        }
+        return result.round(mc);
+    }
+
+    /**
+     * {@code x^y}. An integer exponent is computed by repeated squaring, any other as
+     * {@code exp(y * ln(x))}.
+     *
+     * @throws ArithmeticException for 0 to a negative power, or a negative base with a
+     *                             non-integer exponent
+     */
+    public static BigDecimal pow(BigDecimal x, BigDecimal y, MathContext mc) {
+        if (x.signum() == 0) {
+            if (y.signum() < 0) {
+                throw new ArithmeticException("division by zero attempted");
+            }
+            return y.signum() == 0 ? BigDecimal.ONE : BigDecimal.ZERO;
+        }
+        if (isInteger(y) && y.abs().compareTo(BigDecimal.valueOf(999_999_999)) <= 0) {
+            return x.pow(y.intValueExact(), mc);
+        }
+        if (x.signum() < 0) {
+            throw new ArithmeticException("negative base needs an integer exponent");
+        }
+        // exp amplifies the absolute error of y * ln(x) by the size of the result: guard its integer digits
+        double estimate = Math.abs(y.doubleValue() * log10(x) * Math.log(10));
+        int guard = Double.isFinite(estimate) && estimate >= 1 ? (int) Math.log10(estimate) + 1 : 0;
+        MathContext work = new MathContext(mc.getPrecision() + guard + 5, RoundingMode.HALF_EVEN);
+        return exp(y.multiply(ln(x, work), work), mc);
+    }
+
+    static boolean isInteger(BigDecimal v) {
+        return v.signum() == 0 || v.scale() <= 0 || v.stripTrailingZeros().scale() <= 0;
+    }
+
+    /** Floor of the square root, by Newton iteration from a root of the top half of the bits. */
+    static BigInteger isqrt(BigInteger n) {
+        if (n.bitLength() <= 52) {
+            // the double root can be one off near perfect squares
+            long v = n.longValue();
+            long r = (long) Math.sqrt(v);
+            while (r * r > v) {
+                r--;
+            }
+            while ((r + 1) * (r + 1) <= v) {
+                r++;
+            }
+            return BigInteger.valueOf(r);
+        }
+        // sqrt(n) ~ sqrt(n >> 2h) << h: half the bits come from the smaller root
+        int h = (n.bitLength() - 52) / 4 + 1;
+        BigInteger s = isqrt(n.shiftRight(2 * h)).add(BigInteger.ONE).shiftLeft(h);
+        // from above, Newton's steps decrease monotonically to the floor
+        while (true) {
+            BigInteger next = s.add(n.divide(s)).shiftRight(1);
+            if (next.compareTo(s) >= 0) {
+                return s;
+            }
+            s = next;
+        }
+    }
+
+    /** ln(m) for m in [0.3, 3.3) by Newton's iteration y += m * exp(-y) - 1, doubling the digits each step. */
+    private static BigDecimal lnNear1(BigDecimal m, MathContext mc) {
+        // log1p keeps the estimate's relative accuracy when m is within a hair of 1
+        BigDecimal y = new BigDecimal(Math.log1p(m.subtract(BigDecimal.ONE).doubleValue()));
+        // the error squares at every step, so a step at 2p digits only needs p correct ones
+        int precision = 14;
+        while (precision < mc.getPrecision()) {
+            precision = Math.min(2 * precision, mc.getPrecision());
+            MathContext step = new MathContext(precision + 3, RoundingMode.HALF_EVEN);
+            y = y.add(m.multiply(exp(y.negate(), step), step).subtract(BigDecimal.ONE), step);
+        }
+        return y;
+    }
+
+    private record Constant(int precision, BigDecimal value) { }
+
+    private static volatile Constant ln10 = new Constant(0, BigDecimal.ZERO);
+
+    /** ln(10), computed again only when more digits are asked for than ever before. */
+    private static BigDecimal ln10(MathContext mc) {
+        Constant known = ln10;
+        if (known.precision() < mc.getPrecision()) {
+            // 10 = 2.5 * 2^2, and both 2.5 and 2 are in lnNear1's range
+            MathContext work = new MathContext(mc.getPrecision() + 3, RoundingMode.HALF_EVEN);
+            BigDecimal ln2 = lnNear1(BigDecimal.TWO, work);
+            known = new Constant(mc.getPrecision(),
+                    lnNear1(new BigDecimal("2.5"), work).add(ln2.multiply(BigDecimal.TWO), work));
+            ln10 = known;
+        }
+        return known.value().round(mc);
+    }
+
+    /** log10(x) to double precision, for any magnitude. */
+    private static double log10(BigDecimal x) {
+        int exponent = x.precision() - x.scale() - 1;
+        return exponent + Math.log10(x.movePointLeft(exponent).doubleValue());
+    }
+}
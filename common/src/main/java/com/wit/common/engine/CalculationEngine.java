@@ -0,0 +1,189 @@
+package com.wit.common.engine;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.Set;
+
+/**
+ * The calculator's arithmetic. The worker uses it for every request it consumes and
+ * rest uses it for requests it computes in-process, so both paths produce the same
+ * results and the same error strings.
+ * <p>
+ * A {@link MathContext} with precision 0 keeps sum, sub, mul and mod exact and div at
+ * {@link #DIVISION_SCALE} decimals, rounded with the context's rounding mode; pow, sqrt,
+ * exp and ln, which have no exact result in general, then round to
+ * {@link #DEFAULT_PRECISION} digits. A positive precision rounds every result to that
+ * many significant digits. sqrt, exp and ln take only {@code a}.
+ * <p>
+ * Operands must lie within 10<sup>±{@value #MAX_EXPONENT}</sup> and carry at most
+ * {@value #MAX_EXPONENT} decimals. A short literal such as {@code 1E+20000000} would
+ * otherwise turn an exact sum, quotient or square root into a result of millions of
+ * digits, whatever precision was asked for.
+ */
+public final class CalculationEngine {
+
+    public static final int DIVISION_SCALE = 10;
+
+    /** Significant digits of pow, sqrt, exp and ln when the request asks for none: IEEE 754 decimal128's. */
+    public static final int DEFAULT_PRECISION = 34;
+
+    public static final Set<String> OPERATIONS = Set.of("sum", "sub", "mul", "div", "pow", "mod", "sqrt", "exp", "ln");
+
+    /** The operations that ignore {@code b}. */
+    public static final Set<String> UNARY = Set.of("sqrt", "exp", "ln");
+
+    /** Largest decimal exponent, and largest scale, of an operand. */
+    public static final int MAX_EXPONENT = 100_000;
+
+    private static final MathContext EXACT = new MathContext(0, RoundingMode.HALF_UP);
+
+    private static final int LONG_DIGITS = 18;
+    private static final long[] POW10 = new long[LONG_DIGITS + 1];
+
+    static {
+        POW10[0] = 1;
+        for (int i = 1; i <= LONG_DIGITS; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    private CalculationEngine() { }
+
+    public static Outcome evaluate(String op, BigDecimal a, BigDecimal b) {
+        return evaluate(op, a, b, EXACT);
+    }
+
+    public static Outcome evaluate(String op, BigDecimal a, BigDecimal b, MathContext mc) {
+        String invalid = validate(op, a, b);
+        if (invalid != null) {
+            return Outcome.failed(invalid);
+        }
+
+        // the exact operations skip the MathContext overloads: subtract's negates b first
+        boolean exact = mc.getPrecision() == 0;
+        try {
+            return switch (op) {
+                case "sum" -> Outcome.ok(exact ? a.add(b) : a.add(b, mc));
+                case "sub" -> Outcome.ok(exact ? a.subtract(b) : a.subtract(b, mc));
+                case "mul" -> Outcome.ok(exact ? a.multiply(b) : a.multiply(b, mc));
+                case "div" -> b.signum() == 0
+                        ? Outcome.failed("division by zero attempted")
+                        : Outcome.ok(exact ? divide(a, b, mc.getRoundingMode()) : a.divide(b, mc));
+                case "mod" -> b.signum() == 0
+                        ? Outcome.failed("division by zero attempted")
+                        : Outcome.ok(BigMath.remainder(a, b).round(mc));
+                case "pow" -> Outcome.ok(BigMath.pow(a, b, approximate(mc)));
+                case "sqrt" -> Outcome.ok(BigMath.sqrt(a, approximate(mc)));
+                case "exp" -> Outcome.ok(BigMath.exp(a, approximate(mc)));
+                case "ln" -> Outcome.ok(BigMath.ln(a, approximate(mc)));
+                default -> Outcome.failed("invalid operation: " + op);
+            };
+        } catch (ArithmeticException e) {
+            return Outcome.failed("error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * The error {@link #evaluate} would answer for these inputs before computing anything,
+     * or {@code null} if they are valid, so callers that refuse a request up front report
+     * it in the same words.
+     */
+    public static String validate(String op, BigDecimal a, BigDecimal b) {
+        if (a == null) {
+            return "missing a";
+        }
+        if (b == null && !isUnary(op)) {
+            return "missing b";
+        }
+        if (op == null) {
+            return "missing operation";
+        }
+        if (!OPERATIONS.contains(op)) {
+            return "invalid operation: " + op;
+        }
+        if (outOfRange(a) || (!isUnary(op) && outOfRange(b))) {
+            return "operand out of range: exponents and scales are limited to " + MAX_EXPONENT;
+        }
+        return null;
+    }
+
+    /**
+     * A context of {@code precision} significant digits, 0 for exact, rounding with
+     * {@code rounding}; {@code null}s fall back to 0 and {@code HALF_UP}.
+     *
+     * @throws IllegalArgumentException if {@code precision} is negative
+     */
+    public static MathContext mathContext(Integer precision, RoundingMode rounding) {
+        if (precision == null && rounding == null) {
+            return EXACT;
+        }
+        return new MathContext(precision == null ? 0 : precision, rounding == null ? RoundingMode.HALF_UP : rounding);
+    }
+
+    /** {@code Set.of} refuses {@code contains(null)}, and a request may come without an operation. */
+    private static boolean isUnary(String op) {
+        return op != null && UNARY.contains(op);
+    }
+
+    /** An exponent (of the leading digit) or a scale beyond {@link #MAX_EXPONENT}; zero is 0E+n, whatever n. */
+    private static boolean outOfRange(BigDecimal v) {
+        return v.signum() != 0
+                && (Math.abs((long) v.scale()) > MAX_EXPONENT || Math.abs((long) v.precision() - v.scale() - 1) > MAX_EXPONENT);
+    }
+
+    private static MathContext approximate(MathContext mc) {
+        return mc.getPrecision() == 0 ? new MathContext(DEFAULT_PRECISION, mc.getRoundingMode()) : mc;
+    }
+
+    /**
+     * {@code a.divide(b, DIVISION_SCALE, rounding)}, computed on {@code long} for
+     * {@code HALF_UP} when both operands have at most 18 digits and a scale from 0 to 18,
+     * with the same unscaled value and scale. sum, sub and mul need no such path: {@code BigDecimal} already
+     * computes them on its compact {@code long}, but its scaled division does not.
+     */
+    private static BigDecimal divide(BigDecimal a, BigDecimal b, RoundingMode rounding) {
+        // a / b = (ua / ub) * 10^(sb - sa), so the quotient at DIVISION_SCALE is ua * 10^shift / ub
+        int shift = DIVISION_SCALE - a.scale() + b.scale();
+        if (rounding == RoundingMode.HALF_UP && fitsLong(a) && fitsLong(b) && shift >= 0 && shift <= LONG_DIGITS) {
+            try {
+                long dividend = Math.multiplyExact(unscaled(a), POW10[shift]);
+                long divisor = unscaled(b);
+                long quotient = dividend / divisor;
+                long remainder = Math.abs(dividend % divisor);
+                if (remainder != 0 && remainder >= Math.abs(divisor) - remainder) {
+                    quotient += (dividend ^ divisor) < 0 ? -1 : 1;
+                }
+                return BigDecimal.valueOf(quotient, DIVISION_SCALE);
+            } catch (ArithmeticException overflow) {
+                // fall back to BigDecimal
+            }
+        }
+        return a.divide(b, DIVISION_SCALE, rounding);
+    }
+
+    private static boolean fitsLong(BigDecimal v) {
+        return v.scale() >= 0 && v.scale() <= LONG_DIGITS && v.precision() <= LONG_DIGITS;
+    }
+
+    private static long unscaled(BigDecimal v) {
+        // a scale-0 BigDecimal hands out its compact long directly; unscaledValue() would build a BigInteger
+        return v.scale() == 0 ? v.longValue() : v.scaleByPowerOfTen(v.scale()).longValue();
+    }
+
+    /** Either a result or an error message, never both. */
+    public record Outcome(BigDecimal result, String error) {
+
+        static Outcome ok(BigDecimal result) {
+            return new Outcome(result, null);
+        }
+
+        static Outcome failed(String error) {
+            return new Outcome(null, error);
+        }
+
+        public boolean isError() {
+            return error != null;
+        }
+    }
+}
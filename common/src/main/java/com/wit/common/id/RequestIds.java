@@ -0,0 +1,52 @@
+package com.wit.common.id;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HexFormat;
+
+/**
+ * Encoding of the {@value #HEADER} Kafka header. Ids made of exactly 16 lowercase hex
+ * digits (a 64-bit number, as issued by rest's time-ordered generator) travel as their
+ * 8 raw bytes; any other id, such as a UUID, travels as UTF-8. Readers accept both, so
+ * an 8-byte header is always read as a 64-bit id.
+ */
+public final class RequestIds {
+
+    public static final String HEADER = "Request-Id";
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private RequestIds() { }
+
+    /** The canonical text form of a 64-bit id: 16 lowercase hex digits, ordered like the numbers. */
+    public static String format(long id) {
+        return HEX.toHexDigits(id);
+    }
+
+    public static byte[] toHeader(String id) {
+        if (isNumeric(id)) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(HexFormat.fromHexDigitsToLong(id)).array();
+        }
+        return id.getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static String fromHeader(byte[] value) {
+        if (value.length == Long.BYTES) {
+            return format(ByteBuffer.wrap(value).getLong());
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isNumeric(String id) {
+        if (id.length() != 16) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
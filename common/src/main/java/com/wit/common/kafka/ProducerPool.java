@@ -0,0 +1,123 @@
+package com.wit.common.kafka;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.core.ProducerPostProcessor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Hands out the shared producers of several copies of one factory in turn, so sends
+ * from many threads are spread over several producers, each with its own buffer,
+ * sender thread and connections, instead of all contending for one. The first member
+ * is the given factory itself and stays owned by whoever created it; {@link #destroy()}
+ * closes only the copies. A template's own {@code flush()} reaches only the one producer
+ * it is handed, so whoever needs every send out calls {@link #flush()} instead. Transactional factories are never pooled: a transaction
+ * has to stay on the producer that began it.
+ */
+public final class ProducerPool<K, V> implements ProducerFactory<K, V>, DisposableBean {
+
+    private final List<ProducerFactory<K, V>> members;
+    private final AtomicInteger next = new AtomicInteger();
+
+    private ProducerPool(List<ProducerFactory<K, V>> members) {
+        this.members = members;
+    }
+
+    /**
+     * A pool of {@code size} producers built from {@code factory}, or the factory
+     * itself when {@code size} is 1 or less, the factory is transactional or it cannot
+     * be copied.
+     */
+    public static <K, V> ProducerFactory<K, V> of(ProducerFactory<K, V> factory, int size) {
+        if (size <= 1 || factory.transactionCapable() || !(factory instanceof DefaultKafkaProducerFactory<K, V>)) {
+            return factory;
+        }
+        List<ProducerFactory<K, V>> members = new ArrayList<>(size);
+        members.add(factory);
+        Object clientId = factory.getConfigurationProperties().get("client.id");
+        for (int i = 1; i < size; i++) {
+            Map<String, Object> overrides = new HashMap<>();
+            if (clientId != null) {
+                // two producers with one client.id would clash on their JMX metrics
+                overrides.put("client.id", clientId + "-" + i);
+            }
+            members.add(factory.copyWithConfigurationOverride(overrides));
+        }
+        return new ProducerPool<>(List.copyOf(members));
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    @Override
+    public Producer<K, V> createProducer() {
+        return members.get(Math.floorMod(next.getAndIncrement(), members.size())).createProducer();
+    }
+
+    @Override
+    public Producer<K, V> createNonTransactionalProducer() {
+        return createProducer();
+    }
+
+    @Override
+    public Map<String, Object> getConfigurationProperties() {
+        return members.get(0).getConfigurationProperties();
+    }
+
+    @Override
+    public Supplier<Serializer<K>> getKeySerializerSupplier() {
+        return members.get(0).getKeySerializerSupplier();
+    }
+
+    @Override
+    public Supplier<Serializer<V>> getValueSerializerSupplier() {
+        return members.get(0).getValueSerializerSupplier();
+    }
+
+    @Override
+    public Duration getPhysicalCloseTimeout() {
+        return members.get(0).getPhysicalCloseTimeout();
+    }
+
+    @Override
+    public List<Listener<K, V>> getListeners() {
+        return members.get(0).getListeners();
+    }
+
+    @Override
+    public List<ProducerPostProcessor<K, V>> getPostProcessors() {
+        return members.get(0).getPostProcessors();
+    }
+
+    /** Blocks until the records sent through every member have been sent and acknowledged. */
+    public void flush() {
+        for (ProducerFactory<K, V> member : members) {
+            try (Producer<K, V> producer = member.createProducer()) {
+                producer.flush();
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        members.forEach(ProducerFactory::reset);
+    }
+
+    @Override
+    public void destroy() {
+        for (ProducerFactory<K, V> member : members.subList(1, members.size())) {
+            ((DefaultKafkaProducerFactory<K, V>) member).destroy();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.wit.common.kafka;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Named sets of producer settings for request and reply traffic, chosen with
+ * {@code calculator.kafka.producer.profile}:
+ * <ul>
+ *   <li>{@code default} leaves the client's own defaults alone,</li>
+ *   <li>{@code low-latency} sends every record as soon as it is handed over, uncompressed,
+ *       and waits for the leader only,</li>
+ *   <li>{@code high-throughput} lingers a few milliseconds to fill large lz4-compressed
+ *       batches and waits for all in-sync replicas.</li>
+ * </ul>
+ * A profile never overrides a setting that was configured explicitly, so
+ * {@code spring.kafka.producer.*} and the {@code transactional} profile's {@code acks=all}
+ * always win.
+ */
+public enum ProducerProfile {
+
+    DEFAULT(Map.of()),
+    LOW_LATENCY(Map.of(
+            "linger.ms", "0",
+            "batch.size", "16384",
+            "compression.type", "none",
+            "acks", "1")),
+    HIGH_THROUGHPUT(Map.of(
+            "linger.ms", "10",
+            "batch.size", "262144",
+            "compression.type", "lz4",
+            "acks", "all"));
+
+    private final Map<String, Object> settings;
+
+    ProducerProfile(Map<String, Object> settings) {
+        this.settings = settings;
+    }
+
+    /** Parses {@code default}, {@code low-latency} or {@code high-throughput}, in any case. */
+    public static ProducerProfile fromConfig(String name) {
+        String key = name == null ? "" : name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+        for (ProducerProfile profile : values()) {
+            if (profile.name().equals(key)) {
+                return profile;
+            }
+        }
+        throw new IllegalArgumentException("unknown producer profile: " + name);
+    }
+
+    public Map<String, Object> settings() {
+        return settings;
+    }
+
+    /** This profile's settings for the keys {@code configured} does not already set. */
+    public Map<String, Object> missingFrom(Map<String, Object> configured) {
+        Map<String, Object> missing = new LinkedHashMap<>();
+        settings.forEach((key, value) -> {
+            if (!configured.containsKey(key)) {
+                missing.put(key, value);
+            }
+        });
+        return missing;
+    }
+
+    /** The name used in configuration, such as {@code low-latency}. */
+    public String configName() {
+        return name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,30 @@
+package com.wit.common.logging;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a routine per-request log line is written. A rate of 1 keeps
+ * every line, 0 drops them all and 0.01 keeps about one in a hundred. Warnings and
+ * errors are never passed through a sampler.
+ */
+public final class LogSampler {
+
+    public static final LogSampler ALWAYS = new LogSampler(1.0);
+
+    private final double rate;
+
+    public LogSampler(double rate) {
+        if (rate < 0 || rate > 1 || Double.isNaN(rate)) {
+            throw new IllegalArgumentException("sample rate must be between 0 and 1: " + rate);
+        }
+        this.rate = rate;
+    }
+
+    public boolean sample() {
+        return rate >= 1.0 || (rate > 0 && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public double rate() {
+        return rate;
+    }
+}
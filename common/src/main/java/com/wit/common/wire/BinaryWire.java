@@ -0,0 +1,300 @@
+package com.wit.common.wire;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Building blocks of the {@link WireFormat#BINARY} format. A message starts with
+ * {@link #MAGIC} (a byte no JSON document starts with) and {@link #VERSION}, followed
+ * by the fields of the message in a fixed order:
+ * <ul>
+ *   <li>operations are one opcode byte; unknown names follow {@link #OP_LITERAL} as a string,</li>
+ *   <li>decimals are a tag byte, then the scale and the unscaled value as zig-zag varints,
+ *       or the scale and the two's-complement bytes when the value does not fit a long,</li>
+ *   <li>strings and list sizes are varints of {@code length + 1}, with 0 meaning null.</li>
+ * </ul>
+ * Version {@link #MATH_VERSION} adds a precision and a rounding mode to each request,
+ * a varint of {@code precision + 1} and a byte of {@code ordinal + 1}, 0 meaning none,
+ * and opcodes for pow, mod, sqrt, exp and ln. Writers only use it for messages that
+ * carry a precision, a rounding mode or one of these operations, so readers that only
+ * know version 1 keep working for everything else.
+ * <p>
+ * The request id is not part of the payload; it travels in the {@code Request-Id} header.
+ * <p>
+ * Messages also arrive from outside, over Kafka and the worker's direct port, so the
+ * {@link Reader} trusts no length: a string or decimal longer than the bytes left, or a
+ * list with more elements than bytes left (every element takes at least one), fails
+ * before anything is allocated for it. Readers of nested items stop at {@link #MAX_DEPTH}.
+ */
+public final class BinaryWire {
+
+    public static final byte MAGIC = (byte) 0xCA;
+    public static final byte VERSION = 1;
+    public static final byte MATH_VERSION = 2;
+
+    /** How deeply items may nest: a batch holds plain calculations, with room to spare. */
+    public static final int MAX_DEPTH = 8;
+
+    static final byte OP_LITERAL = 0x7F;
+    private static final String[] OPCODES = {null, "sum", "sub", "mul", "div", "batch", "eval",
+            "pow", "mod", "sqrt", "exp", "ln"};
+    /** Opcodes from this one on only exist in {@link #MATH_VERSION}. */
+    private static final int FIRST_MATH_OPCODE = 7;
+
+    private static final byte DECIMAL_NULL = 0;
+    private static final byte DECIMAL_LONG = 1;
+    private static final byte DECIMAL_BIG = 2;
+
+    private BinaryWire() { }
+
+    public static boolean isBinary(byte[] data) {
+        return data != null && data.length > 0 && data[0] == MAGIC;
+    }
+
+    /** Whether {@code op} has an opcode only in {@link #MATH_VERSION}, and is spelled out in version 1. */
+    public static boolean isMathOperation(String op) {
+        for (int code = FIRST_MATH_OPCODE; code < OPCODES.length; code++) {
+            if (OPCODES[code].equals(op)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int opcodes(byte version) {
+        return version == VERSION ? FIRST_MATH_OPCODE : OPCODES.length;
+    }
+
+    /** Appends to a growing byte array; {@link #toByteArray()} returns the message. */
+    public static final class Writer {
+
+        private final int opcodes;
+        private byte[] buf = new byte[64];
+        private int pos;
+
+        public Writer() {
+            this(VERSION);
+        }
+
+        public Writer(byte version) {
+            this.opcodes = opcodes(version);
+            writeByte(MAGIC);
+            writeByte(version);
+        }
+
+        public Writer writeOperation(String op) {
+            for (int code = 0; code < opcodes; code++) {
+                if (op == null ? OPCODES[code] == null : op.equals(OPCODES[code])) {
+                    return writeByte((byte) code);
+                }
+            }
+            writeByte(OP_LITERAL);
+            return writeString(op);
+        }
+
+        public Writer writeDecimal(BigDecimal value) {
+            if (value == null) {
+                return writeByte(DECIMAL_NULL);
+            }
+            BigInteger unscaled = value.unscaledValue();
+            if (unscaled.bitLength() < Long.SIZE) {
+                writeByte(DECIMAL_LONG);
+                writeZigZag(value.scale());
+                return writeZigZag(unscaled.longValue());
+            }
+            byte[] bytes = unscaled.toByteArray();
+            writeByte(DECIMAL_BIG);
+            writeZigZag(value.scale());
+            writeVarLong(bytes.length);
+            return writeBytes(bytes);
+        }
+
+        public Writer writeString(String value) {
+            if (value == null) {
+                return writeVarLong(0);
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length + 1L);
+            return writeBytes(bytes);
+        }
+
+        public Writer writePrecision(Integer precision) {
+            return writeVarLong(precision == null ? 0 : precision + 1L);
+        }
+
+        public Writer writeRounding(RoundingMode rounding) {
+            return writeByte(rounding == null ? 0 : (byte) (rounding.ordinal() + 1));
+        }
+
+        /** Writes a list size, or null; the caller writes the elements. */
+        public Writer writeSize(int size, boolean present) {
+            return writeVarLong(present ? size + 1L : 0);
+        }
+
+        public byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+
+        private Writer writeZigZag(long value) {
+            return writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        private Writer writeVarLong(long value) {
+            while ((value & ~0x7FL) != 0) {
+                writeByte((byte) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            return writeByte((byte) value);
+        }
+
+        private Writer writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buf, pos, bytes.length);
+            pos += bytes.length;
+            return this;
+        }
+
+        private Writer writeByte(byte b) {
+            ensure(1);
+            buf[pos++] = b;
+            return this;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+    }
+
+    /** Reads the fields of one message in the order they were written. */
+    public static final class Reader {
+
+        private final byte[] data;
+        private final byte version;
+        private int pos;
+
+        /** @throws IllegalArgumentException if the data is not a binary message of a known version */
+        public Reader(byte[] data) {
+            if (!isBinary(data) || data.length < 2) {
+                throw new IllegalArgumentException("not a binary calculator message");
+            }
+            if (data[1] != VERSION && data[1] != MATH_VERSION) {
+                throw new IllegalArgumentException("unsupported binary message version " + data[1]);
+            }
+            this.data = data;
+            this.version = data[1];
+            this.pos = 2;
+        }
+
+        public byte version() {
+            return version;
+        }
+
+        public String readOperation() {
+            byte code = readByte();
+            if (code == OP_LITERAL) {
+                return readString();
+            }
+            if (code < 0 || code >= opcodes(version)) {
+                throw new IllegalArgumentException("unknown opcode " + code);
+            }
+            return OPCODES[code];
+        }
+
+        public BigDecimal readDecimal() {
+            byte tag = readByte();
+            return switch (tag) {
+                case DECIMAL_NULL -> null;
+                case DECIMAL_LONG -> {
+                    int scale = (int) readZigZag();
+                    yield BigDecimal.valueOf(readZigZag(), scale);
+                }
+                case DECIMAL_BIG -> {
+                    int scale = (int) readZigZag();
+                    yield new BigDecimal(new BigInteger(readBytes(readLength(readVarLong()))), scale);
+                }
+                default -> throw new IllegalArgumentException("unknown decimal tag " + tag);
+            };
+        }
+
+        public String readString() {
+            long length = readVarLong();
+            return length == 0 ? null : new String(readBytes(readLength(length - 1)), StandardCharsets.UTF_8);
+        }
+
+        public Integer readPrecision() {
+            long precision = readVarLong();
+            return precision == 0 ? null : (int) (precision - 1);
+        }
+
+        public RoundingMode readRounding() {
+            byte rounding = readByte();
+            if (rounding < 0 || rounding > RoundingMode.values().length) {
+                throw new IllegalArgumentException("unknown rounding mode " + rounding);
+            }
+            return rounding == 0 ? null : RoundingMode.values()[rounding - 1];
+        }
+
+        /**
+         * @return the list size, or -1 for a null list
+         * @throws IllegalArgumentException if fewer bytes are left than the size announces elements
+         */
+        public int readSize() {
+            long size = readVarLong();
+            return size == 0 ? -1 : readLength(size - 1);
+        }
+
+        /** Checks that nested items at {@code depth} (1 for a message's own items) are allowed. */
+        public void checkDepth(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw new IllegalArgumentException("items nested deeper than " + MAX_DEPTH);
+            }
+        }
+
+        /** A length read from the message, at most the number of bytes left. */
+        private int readLength(long length) {
+            if (length < 0 || length > data.length - pos) {
+                throw new IllegalArgumentException("length " + Long.toUnsignedString(length)
+                        + " exceeds the " + (data.length - pos) + " bytes left");
+            }
+            return (int) length;
+        }
+
+        private long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        private long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < Long.SIZE; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("malformed varint");
+        }
+
+        private byte[] readBytes(int length) {
+            if (length < 0 || pos + length > data.length) {
+                throw new IllegalArgumentException("truncated binary message");
+            }
+            byte[] bytes = Arrays.copyOfRange(data, pos, pos + length);
+            pos += length;
+            return bytes;
+        }
+
+        private byte readByte() {
+            if (pos >= data.length) {
+                throw new IllegalArgumentException("truncated binary message");
+            }
+            return data[pos++];
+        }
+    }
+}
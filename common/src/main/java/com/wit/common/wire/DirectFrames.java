@@ -0,0 +1,94 @@
+package com.wit.common.wire;
+
+import com.wit.common.id.RequestIds;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Frames of the direct transport, a TCP connection from rest to the worker that
+ * carries many requests at once. Every frame starts with its length, then the
+ * connection's correlation number for the request; replies may come back in any
+ * order. Request frames carry what Kafka puts in headers, the {@code Request-Id} and
+ * the {@code Deadline} (0 for none). The payload is a request or reply in either
+ * {@link WireFormat}.
+ * <pre>
+ * request: int length | long correlation | long deadline | byte idLength | id | payload
+ * reply:   int length | long correlation | payload
+ * </pre>
+ */
+public final class DirectFrames {
+
+    /** Larger frames are refused rather than buffered. */
+    public static final int MAX_FRAME = 16 << 20;
+
+    public record Request(long correlation, String id, long deadline, byte[] payload) { }
+
+    public record Reply(long correlation, byte[] payload) { }
+
+    private DirectFrames() { }
+
+    public static void writeRequest(DataOutputStream out, long correlation, String id, long deadline, byte[] payload)
+            throws IOException {
+        byte[] idBytes = id == null ? new byte[0] : RequestIds.toHeader(id);
+        if (idBytes.length > 255) {
+            throw new IllegalArgumentException("request id too long: " + id);
+        }
+        out.writeInt(8 + 8 + 1 + idBytes.length + payload.length);
+        out.writeLong(correlation);
+        out.writeLong(deadline);
+        out.writeByte(idBytes.length);
+        out.write(idBytes);
+        out.write(payload);
+    }
+
+    /** The next request, or {@code null} when the peer closed the connection between frames. */
+    public static Request readRequest(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        long correlation = in.readLong();
+        long deadline = in.readLong();
+        int idLength = in.readUnsignedByte();
+        if (length < 17 + idLength) {
+            throw new IOException("request frame too short: " + length);
+        }
+        byte[] idBytes = new byte[idLength];
+        in.readFully(idBytes);
+        byte[] payload = new byte[length - 17 - idLength];
+        in.readFully(payload);
+        return new Request(correlation, idLength == 0 ? null : RequestIds.fromHeader(idBytes), deadline, payload);
+    }
+
+    public static void writeReply(DataOutputStream out, long correlation, byte[] payload) throws IOException {
+        out.writeInt(8 + payload.length);
+        out.writeLong(correlation);
+        out.write(payload);
+    }
+
+    /** The next reply, or {@code null} when the peer closed the connection between frames. */
+    public static Reply readReply(DataInputStream in) throws IOException {
+        int length = readLength(in);
+        if (length < 0) {
+            return null;
+        }
+        long correlation = in.readLong();
+        byte[] payload = new byte[length - 8];
+        in.readFully(payload);
+        return new Reply(correlation, payload);
+    }
+
+    private static int readLength(DataInputStream in) throws IOException {
+        int first = in.read();
+        if (first < 0) {
+            return -1;
+        }
+        int length = (first << 24) | (in.readUnsignedByte() << 16) | (in.readUnsignedByte() << 8) | in.readUnsignedByte();
+        if (length < 8 || length > MAX_FRAME) {
+            throw new IOException("invalid frame length " + length);
+        }
+        return length;
+    }
+}
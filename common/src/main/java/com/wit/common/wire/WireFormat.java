@@ -0,0 +1,22 @@
+package com.wit.common.wire;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Encoding of calculator messages on the Kafka topics. Producers write the format
+ * named by {@value #CONFIG} in their Kafka properties; consumers read both, so
+ * producers can be switched one at a time.
+ */
+public enum WireFormat {
+
+    JSON,
+    BINARY;
+
+    public static final String CONFIG = "calculator.wire-format";
+
+    public static WireFormat fromConfig(Map<String, ?> configs) {
+        Object value = configs.get(CONFIG);
+        return value == null ? JSON : valueOf(value.toString().trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,29 @@
+package com.wit.common.deadline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadlinesTest {
+
+    @Test
+    void deadline_round_trips_as_eight_bytes() {
+        byte[] header = Deadlines.toHeader(1_760_000_000_123L);
+        assertEquals(8, header.length);
+        assertEquals(1_760_000_000_123L, Deadlines.fromHeader(header));
+    }
+
+    @Test
+    void only_a_deadline_in_the_past_is_expired() {
+        byte[] header = Deadlines.toHeader(1_000L);
+        assertFalse(Deadlines.isExpired(header, 999L));
+        assertFalse(Deadlines.isExpired(header, 1_000L));
+        assertTrue(Deadlines.isExpired(header, 1_001L));
+    }
+
+    @Test
+    void missing_or_malformed_headers_never_expire() {
+        assertFalse(Deadlines.isExpired(null, Long.MAX_VALUE));
+        assertFalse(Deadlines.isExpired(new byte[] {1, 2, 3}, Long.MAX_VALUE - 1));
+    }
+}
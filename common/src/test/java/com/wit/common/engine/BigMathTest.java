@@ -0,0 +1,144 @@
+package com.wit.common.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BigMathTest {
+
+    // 60 digits of each, from the usual tables
+    private static final String SQRT_2 = "1.41421356237309504880168872420969807856967187537694807317668";
+    private static final String E = "2.71828182845904523536028747135266249775724709369995957496697";
+    private static final String LN_2 = "0.693147180559945309417232121458176568075500134360255254120680";
+    private static final String LN_10 = "2.30258509299404568401799145468436420760110148862877297603333";
+
+    private static final MathContext FIFTY = new MathContext(50, RoundingMode.HALF_EVEN);
+
+    @Test
+    void known_constants_to_fifty_digits() {
+        assertEquals(new BigDecimal(SQRT_2).round(FIFTY), BigMath.sqrt(BigDecimal.TWO, FIFTY));
+        assertEquals(new BigDecimal(E).round(FIFTY), BigMath.exp(BigDecimal.ONE, FIFTY));
+        assertEquals(new BigDecimal(LN_2).round(FIFTY), BigMath.ln(BigDecimal.TWO, FIFTY));
+        assertEquals(new BigDecimal(LN_10).round(FIFTY), BigMath.ln(BigDecimal.TEN, FIFTY));
+    }
+
+    @Test
+    void sqrt_is_correctly_rounded_like_bigdecimal_sqrt() {
+        Random random = new Random(42);
+        RoundingMode[] modes = {RoundingMode.HALF_UP, RoundingMode.HALF_EVEN, RoundingMode.DOWN, RoundingMode.CEILING};
+        for (int i = 0; i < 2_000; i++) {
+            BigDecimal x = new BigDecimal(new BigInteger(1 + random.nextInt(200), random), random.nextInt(100) - 50);
+            MathContext mc = new MathContext(1 + random.nextInt(120), modes[i % modes.length]);
+            assertEquals(0, x.sqrt(mc).compareTo(BigMath.sqrt(x, mc)), () -> "sqrt(" + x + ") at " + mc);
+        }
+    }
+
+    @Test
+    void exact_roots_come_back_exact() {
+        assertEquals(new BigDecimal("12"), BigMath.sqrt(new BigDecimal("144"), FIFTY));
+        assertEquals(new BigDecimal("0.05"), BigMath.sqrt(new BigDecimal("0.0025"), FIFTY));
+        assertEquals(new BigDecimal("100000"), BigMath.sqrt(new BigDecimal("1E10"), FIFTY));
+    }
+
+    @Test
+    void exact_roots_of_huge_numbers_keep_their_exponent() {
+        MathContext mc = new MathContext(34);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertEquals(new BigDecimal("1E+10000000"), BigMath.sqrt(new BigDecimal("1E+20000000"), mc));
+            assertEquals(new BigDecimal("3E+10000000"), BigMath.sqrt(new BigDecimal("9E+20000000"), mc));
+        });
+    }
+
+    @Test
+    void remainder_without_the_quotient_agrees_with_bigdecimal_remainder() {
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            BigDecimal a = new BigDecimal(new BigInteger(1 + random.nextInt(120), random), random.nextInt(60) - 30);
+            BigDecimal b = new BigDecimal(new BigInteger(1 + random.nextInt(60), random).add(BigInteger.ONE), random.nextInt(60) - 30);
+            if (random.nextBoolean()) {
+                a = a.negate();
+            }
+            if (random.nextBoolean()) {
+                b = b.negate();
+            }
+            BigDecimal actual = BigMath.remainderByPowers(a, b);
+            assertEquals(0, a.remainder(b).compareTo(actual), a + " % " + b);
+            assertEquals(Math.max(a.scale(), b.scale()), actual.scale());
+        }
+    }
+
+    @Test
+    void integer_square_root_is_the_floor() {
+        Random random = new Random(7);
+        for (int i = 0; i < 2_000; i++) {
+            BigInteger n = new BigInteger(1 + random.nextInt(400), random);
+            BigInteger r = BigMath.isqrt(n);
+            assertTrue(r.multiply(r).compareTo(n) <= 0 && r.add(BigInteger.ONE).pow(2).compareTo(n) > 0, n::toString);
+        }
+        BigInteger k = BigInteger.valueOf(67_108_863);
+        assertEquals(k.subtract(BigInteger.ONE), BigMath.isqrt(k.multiply(k).subtract(BigInteger.ONE)));
+    }
+
+    @Test
+    void exp_and_ln_invert_each_other_within_an_ulp() {
+        Random random = new Random(3);
+        MathContext mc = new MathContext(60);
+        for (int i = 0; i < 200; i++) {
+            BigDecimal x = new BigDecimal(new BigInteger(1 + random.nextInt(100), random), random.nextInt(60) - 20);
+            if (x.signum() == 0) {
+                continue;
+            }
+            BigDecimal back = BigMath.exp(BigMath.ln(x, new MathContext(80)), mc);
+            assertWithinUlps(x.round(mc), back, 1);
+        }
+    }
+
+    @Test
+    void exp_of_large_arguments_keeps_its_relative_accuracy() {
+        MathContext mc = new MathContext(50);
+        BigDecimal x = new BigDecimal("12345.6789");
+        assertWithinUlps(BigDecimal.ONE.round(mc), BigMath.exp(x, mc).multiply(BigMath.exp(x.negate(), mc), mc), 2);
+        double e700 = BigMath.exp(BigDecimal.valueOf(700), mc).doubleValue();
+        assertEquals(Math.exp(700), e700, Math.ulp(Math.exp(700)) * 2);
+        assertTrue(BigMath.exp(new BigDecimal("-999999999"), mc).signum() > 0);
+    }
+
+    @Test
+    void ln_keeps_its_digits_near_one() {
+        MathContext mc = new MathContext(40);
+        // ln(1 + h) = h - h^2/2 + ..., so 40 digits need the h^2 term
+        BigDecimal h = new BigDecimal("1E-30");
+        BigDecimal expected = h.subtract(h.pow(2).divide(BigDecimal.TWO), mc);
+        assertEquals(0, expected.compareTo(BigMath.ln(BigDecimal.ONE.add(h), mc)));
+    }
+
+    @Test
+    void pow_with_fractional_exponents() {
+        MathContext mc = new MathContext(40);
+        assertWithinUlps(new BigDecimal(SQRT_2).round(mc), BigMath.pow(BigDecimal.TWO, new BigDecimal("0.5"), mc), 1);
+        assertWithinUlps(BigDecimal.ONE.divide(new BigDecimal(SQRT_2), mc), BigMath.pow(BigDecimal.TWO, new BigDecimal("-0.5"), mc), 1);
+        assertEquals(new BigDecimal("0.001"), BigMath.pow(BigDecimal.TEN, new BigDecimal("-3"), mc));
+        assertEquals(BigDecimal.ONE, BigMath.pow(BigDecimal.ZERO, BigDecimal.ZERO, mc));
+    }
+
+    @Test
+    void large_precisions_agree_with_bigdecimal_sqrt_and_with_each_other() {
+        MathContext mc = new MathContext(3_000);
+        assertEquals(BigDecimal.valueOf(3).sqrt(mc), BigMath.sqrt(BigDecimal.valueOf(3), mc));
+        // e^(ln 10) = 10
+        assertWithinUlps(BigDecimal.TEN.round(mc), BigMath.exp(BigMath.ln(BigDecimal.TEN, new MathContext(3_010)), mc), 1);
+    }
+
+    private static void assertWithinUlps(BigDecimal expected, BigDecimal actual, int ulps) {
+        BigDecimal difference = expected.subtract(actual).abs();
+        assertTrue(difference.compareTo(expected.ulp().multiply(BigDecimal.valueOf(ulps))) <= 0,
+                () -> "expected " + expected + " but was " + actual);
+    }
+}
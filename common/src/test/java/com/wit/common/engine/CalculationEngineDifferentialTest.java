@@ -0,0 +1,126 @@
+package com.wit.common.engine;
+
+import net.jqwik.api.*;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Property-based differential test of {@link CalculationEngine}: every result must have
+ * the unscaled value and scale of the plain {@code BigDecimal} operation and, when both
+ * operands fit in a {@code long} (at most 18 digits, scale 0 to 18), of the same
+ * calculation done with {@code long} arithmetic.
+ */
+class CalculationEngineDifferentialTest {
+
+    private static final int MAX_DIGITS = 18;
+
+    @Property(tries = 5000)
+    void results_match_bigdecimal_and_long_arithmetic(@ForAll("operations") String op,
+                                                      @ForAll("operands") BigDecimal a,
+                                                      @ForAll("operands") BigDecimal b) {
+        Assume.that(!op.equals("div") || b.signum() != 0);
+        BigDecimal actual = CalculationEngine.evaluate(op, a, b).result();
+
+        BigDecimal expected = switch (op) {
+            case "sum" -> a.add(b);
+            case "sub" -> a.subtract(b);
+            case "mul" -> a.multiply(b);
+            default -> a.divide(b, CalculationEngine.DIVISION_SCALE, RoundingMode.HALF_UP);
+        };
+        assertIdentical(expected, actual);
+
+        if (fits(a) && fits(b)) {
+            primitive(op, a, b).ifPresent(primitive -> assertIdentical(primitive, actual));
+        }
+    }
+
+    @Example
+    void division_rounds_half_up_away_from_zero() {
+        assertDivision("0.0000000001", "1", "20000000000");
+        assertDivision("-0.0000000001", "-1", "20000000000");
+        assertDivision("-0.6666666667", "2", "-3");
+        assertDivision("0.0000000000", "1", "30000000000");
+    }
+
+    private static void assertDivision(String expected, String a, String b) {
+        BigDecimal x = new BigDecimal(a);
+        BigDecimal y = new BigDecimal(b);
+        assertIdentical(new BigDecimal(expected), CalculationEngine.evaluate("div", x, y).result());
+        assertIdentical(new BigDecimal(expected), primitive("div", x, y).orElseThrow());
+    }
+
+    @Provide
+    Arbitrary<String> operations() {
+        return Arbitraries.of("sum", "sub", "mul", "div");
+    }
+
+    @Provide
+    Arbitrary<BigDecimal> operands() {
+        Arbitrary<BigInteger> unscaled = Arbitraries.oneOf(
+                Arbitraries.longs().between(-1000, 1000).map(BigInteger::valueOf),
+                Arbitraries.longs().between(-999_999_999_999_999_999L, 999_999_999_999_999_999L).map(BigInteger::valueOf),
+                Arbitraries.longs().map(BigInteger::valueOf),
+                Arbitraries.bigIntegers().between(BigInteger.TEN.pow(18).negate(), BigInteger.TEN.pow(30)));
+        Arbitrary<Integer> scale = Arbitraries.oneOf(
+                Arbitraries.integers().between(0, 4),
+                Arbitraries.integers().between(-3, 22));
+        return Combinators.combine(unscaled, scale).as(BigDecimal::new);
+    }
+
+    private static boolean fits(BigDecimal v) {
+        return v.scale() >= 0 && v.scale() <= MAX_DIGITS && v.precision() <= MAX_DIGITS;
+    }
+
+    private static void assertIdentical(BigDecimal expected, BigDecimal actual) {
+        assertEquals(expected.unscaledValue(), actual.unscaledValue(), () -> expected + " vs " + actual);
+        assertEquals(expected.scale(), actual.scale(), () -> expected + " vs " + actual);
+    }
+
+    /** The calculation on unscaled {@code long}s; empty when an intermediate overflows. */
+    private static Optional<BigDecimal> primitive(String op, BigDecimal a, BigDecimal b) {
+        long ua = a.unscaledValue().longValueExact();
+        long ub = b.unscaledValue().longValueExact();
+        int scale = Math.max(a.scale(), b.scale());
+        try {
+            return Optional.of(switch (op) {
+                case "sum" -> BigDecimal.valueOf(Math.addExact(align(ua, a.scale(), scale), align(ub, b.scale(), scale)), scale);
+                case "sub" -> BigDecimal.valueOf(Math.subtractExact(align(ua, a.scale(), scale), align(ub, b.scale(), scale)), scale);
+                case "mul" -> BigDecimal.valueOf(Math.multiplyExact(ua, ub), a.scale() + b.scale());
+                default -> {
+                    // a / b at scale s is ua * 10^(s - sa + sb) / ub, rounded half away from zero
+                    int shift = CalculationEngine.DIVISION_SCALE - a.scale() + b.scale();
+                    long dividend = shift >= 0 ? Math.multiplyExact(ua, pow10(shift)) : ua;
+                    long divisor = shift >= 0 ? ub : Math.multiplyExact(ub, pow10(-shift));
+                    long quotient = dividend / divisor;
+                    long remainder = Math.abs(dividend % divisor);
+                    if (remainder != 0 && remainder >= Math.abs(divisor) - remainder) {
+                        quotient += (dividend ^ divisor) < 0 ? -1 : 1;
+                    }
+                    yield BigDecimal.valueOf(quotient, CalculationEngine.DIVISION_SCALE);
+                }
+            });
+        } catch (ArithmeticException overflow) {
+            return Optional.empty();
+        }
+    }
+
+    private static long align(long unscaled, int from, int to) {
+        return Math.multiplyExact(unscaled, pow10(to - from));
+    }
+
+    private static long pow10(int exponent) {
+        if (exponent > MAX_DIGITS) {
+            throw new ArithmeticException("10^" + exponent + " overflows long");
+        }
+        long result = 1;
+        for (int i = 0; i < exponent; i++) {
+            result *= 10;
+        }
+        return result;
+    }
+}
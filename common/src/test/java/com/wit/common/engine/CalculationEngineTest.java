@@ -0,0 +1,95 @@
+package com.wit.common.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalculationEngineTest {
+
+    @Test
+    void operations_keep_bigdecimal_scale_rules() {
+        assertEquals(new BigDecimal("3.50"), CalculationEngine.evaluate("sum", new BigDecimal("1.5"), new BigDecimal("2.00")).result());
+        assertEquals(new BigDecimal("-1"), CalculationEngine.evaluate("sub", BigDecimal.ONE, BigDecimal.TWO).result());
+        assertEquals(new BigDecimal("3.00"), CalculationEngine.evaluate("mul", new BigDecimal("1.5"), new BigDecimal("2.0")).result());
+        assertEquals(new BigDecimal("0.3333333333"), CalculationEngine.evaluate("div", BigDecimal.ONE, new BigDecimal("3")).result());
+    }
+
+    @Test
+    void invalid_input_is_reported_as_an_error() {
+        assertEquals("missing a", CalculationEngine.evaluate("sum", null, BigDecimal.ONE).error());
+        assertEquals("missing b", CalculationEngine.evaluate("sum", BigDecimal.ONE, null).error());
+        assertEquals("missing operation", CalculationEngine.evaluate(null, BigDecimal.ONE, BigDecimal.ONE).error());
+        assertEquals("missing b", CalculationEngine.evaluate(null, BigDecimal.ONE, null).error());
+        assertEquals("invalid operation: xor", CalculationEngine.validate("xor", BigDecimal.ONE, BigDecimal.ONE));
+        assertNull(CalculationEngine.validate("sqrt", BigDecimal.ONE, null));
+        assertEquals("invalid operation: xor", CalculationEngine.evaluate("xor", BigDecimal.ONE, BigDecimal.ONE).error());
+        assertEquals("division by zero attempted", CalculationEngine.evaluate("div", BigDecimal.ONE, new BigDecimal("0.00")).error());
+    }
+
+    @Test
+    void arithmetic_failures_become_errors() {
+        var outcome = CalculationEngine.evaluate("pow", new BigDecimal("-2"), new BigDecimal("0.5"));
+        assertTrue(outcome.isError());
+        assertTrue(outcome.error().startsWith("error: "));
+    }
+
+    @Test
+    void operands_beyond_the_exponent_limit_are_refused_before_any_work() {
+        String refused = "operand out of range: exponents and scales are limited to " + CalculationEngine.MAX_EXPONENT;
+        assertEquals(refused, CalculationEngine.evaluate("mul", new BigDecimal("1E-2147483647"), new BigDecimal("1E-10")).error());
+        assertEquals(refused, CalculationEngine.evaluate("sqrt", new BigDecimal("1E+20000000"), null).error());
+        assertEquals(refused, CalculationEngine.evaluate("mod", new BigDecimal("1E+20000000"), new BigDecimal("7")).error());
+        assertEquals(refused, CalculationEngine.evaluate("sum", BigDecimal.ONE, new BigDecimal("1E-100001")).error());
+        // b is not looked at by unary operations, and zero has no magnitude whatever its scale
+        assertNull(CalculationEngine.evaluate("sqrt", new BigDecimal("4"), new BigDecimal("1E+20000000")).error());
+        assertNull(CalculationEngine.evaluate("sum", new BigDecimal("0E+20000000"), BigDecimal.ONE).error());
+    }
+
+    @Test
+    void the_largest_operands_are_answered_quickly_and_compactly() {
+        BigDecimal huge = new BigDecimal("1E+" + CalculationEngine.MAX_EXPONENT);
+        BigDecimal tiny = new BigDecimal("3E-" + CalculationEngine.MAX_EXPONENT);
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            // 10^6 = 1 (mod 7) and 100000 = 6 * 16666 + 4, so 10^100000 = 10^4 = 4 (mod 7)
+            assertEquals(new BigDecimal("4"), CalculationEngine.evaluate("mod", huge, new BigDecimal("7")).result());
+            // 200000 digits apart: 91 * 10^199998 = 1 (mod 3)
+            assertEquals(0, new BigDecimal("1E-" + CalculationEngine.MAX_EXPONENT)
+                    .compareTo(CalculationEngine.evaluate("mod", new BigDecimal("9.1E+99999"), tiny).result()));
+            assertEquals(new BigDecimal("1E+50000"), CalculationEngine.evaluate("sqrt", huge, null).result());
+        });
+    }
+
+    @Test
+    void a_precision_rounds_every_operation_to_that_many_digits() {
+        MathContext five = new MathContext(5, RoundingMode.DOWN);
+        assertEquals(new BigDecimal("1.2345"), CalculationEngine.evaluate("sum", new BigDecimal("1.23456"), BigDecimal.ZERO, five).result());
+        assertEquals(new BigDecimal("0.33333"), CalculationEngine.evaluate("div", BigDecimal.ONE, new BigDecimal("3"), five).result());
+        assertEquals(new BigDecimal("1.4142"), CalculationEngine.evaluate("sqrt", BigDecimal.TWO, null, five).result());
+        assertEquals(new BigDecimal("0.6666666666"),
+                CalculationEngine.evaluate("div", BigDecimal.TWO, new BigDecimal("3"), CalculationEngine.mathContext(null, RoundingMode.DOWN)).result());
+    }
+
+    @Test
+    void math_operations_default_to_34_digits() {
+        assertEquals(new BigDecimal("1.414213562373095048801688724209698"), CalculationEngine.evaluate("sqrt", BigDecimal.TWO, null).result());
+        assertEquals(new BigDecimal("2.718281828459045235360287471352662"), CalculationEngine.evaluate("exp", BigDecimal.ONE, null).result());
+        assertEquals(new BigDecimal("0.6931471805599453094172321214581766"), CalculationEngine.evaluate("ln", BigDecimal.TWO, null).result());
+        assertEquals(new BigDecimal("1024"), CalculationEngine.evaluate("pow", BigDecimal.TWO, BigDecimal.TEN).result());
+        assertEquals(new BigDecimal("1.5"), CalculationEngine.evaluate("mod", new BigDecimal("7.5"), new BigDecimal("-2")).result());
+    }
+
+    @Test
+    void math_domain_errors_are_reported() {
+        assertEquals("division by zero attempted", CalculationEngine.evaluate("mod", BigDecimal.ONE, BigDecimal.ZERO).error());
+        assertEquals("error: square root of a negative number", CalculationEngine.evaluate("sqrt", BigDecimal.ONE.negate(), null).error());
+        assertEquals("error: logarithm of a non-positive number", CalculationEngine.evaluate("ln", BigDecimal.ZERO, null).error());
+        assertEquals("error: negative base needs an integer exponent",
+                CalculationEngine.evaluate("pow", BigDecimal.ONE.negate(), new BigDecimal("0.5")).error());
+        assertEquals("error: exponent too large", CalculationEngine.evaluate("exp", new BigDecimal("1E10"), null).error());
+    }
+}
@@ -0,0 +1,33 @@
+package com.wit.common.id;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestIdsTest {
+
+    @Test
+    void numeric_ids_travel_as_eight_bytes() {
+        String id = RequestIds.format(0x0123456789abcdefL);
+        assertEquals("0123456789abcdef", id);
+
+        byte[] header = RequestIds.toHeader(id);
+        assertEquals(8, header.length);
+        assertEquals(id, RequestIds.fromHeader(header));
+        assertEquals("ffffffffffffffff", RequestIds.fromHeader(RequestIds.toHeader(RequestIds.format(-1L))));
+    }
+
+    @Test
+    void other_ids_travel_as_utf8() {
+        String uuid = UUID.randomUUID().toString();
+        assertArrayEquals(uuid.getBytes(StandardCharsets.UTF_8), RequestIds.toHeader(uuid));
+        assertEquals(uuid, RequestIds.fromHeader(RequestIds.toHeader(uuid)));
+
+        // upper case and non-hex ids of the same length are not reinterpreted
+        assertEquals("0123456789ABCDEF", RequestIds.fromHeader(RequestIds.toHeader("0123456789ABCDEF")));
+        assertEquals("id-13", RequestIds.fromHeader(RequestIds.toHeader("id-13")));
+    }
+}
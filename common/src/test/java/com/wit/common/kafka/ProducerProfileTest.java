@@ -0,0 +1,82 @@
+package com.wit.common.kafka;
+
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.core.ProducerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProducerProfileTest {
+
+    @Test
+    void parses_configuration_names() {
+        assertEquals(ProducerProfile.DEFAULT, ProducerProfile.fromConfig("default"));
+        assertEquals(ProducerProfile.LOW_LATENCY, ProducerProfile.fromConfig("low-latency"));
+        assertEquals(ProducerProfile.HIGH_THROUGHPUT, ProducerProfile.fromConfig(" HIGH_THROUGHPUT "));
+        assertEquals("high-throughput", ProducerProfile.HIGH_THROUGHPUT.configName());
+        assertThrows(IllegalArgumentException.class, () -> ProducerProfile.fromConfig("fastest"));
+    }
+
+    @Test
+    void explicit_settings_win_over_the_profile() {
+        Map<String, Object> configured = Map.of("acks", "all", "transactional.id", "calculator-1");
+
+        Map<String, Object> applied = ProducerProfile.LOW_LATENCY.missingFrom(configured);
+
+        assertFalse(applied.containsKey("acks"));
+        assertEquals("0", applied.get("linger.ms"));
+        assertEquals("none", applied.get("compression.type"));
+        assertTrue(ProducerProfile.DEFAULT.missingFrom(configured).isEmpty());
+    }
+
+    @Test
+    void pool_hands_out_its_producers_in_turn() {
+        var factory = factory(false);
+        var pool = (ProducerPool<String, String>) ProducerPool.of(factory, 3);
+        try {
+            List<Producer<String, String>> handedOut = new ArrayList<>();
+            for (int i = 0; i < 6; i++) {
+                handedOut.add(pool.createProducer());
+            }
+
+            assertEquals(3, pool.size());
+            assertEquals(3, handedOut.stream().distinct().count());
+            for (int i = 0; i < 3; i++) {
+                assertSame(handedOut.get(i), handedOut.get(i + 3));
+            }
+            assertEquals(factory.getConfigurationProperties(), pool.getConfigurationProperties());
+        } finally {
+            pool.destroy();
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void transactional_or_single_producers_are_not_pooled() {
+        var factory = factory(true);
+        try {
+            assertSame(factory, ProducerPool.of(factory, 4));
+            var plain = factory(false);
+            assertSame(plain, ProducerPool.of(plain, 1));
+        } finally {
+            factory.destroy();
+        }
+    }
+
+    private static DefaultKafkaProducerFactory<String, String> factory(boolean transactional) {
+        // producers only connect on their first send
+        Map<String, Object> configs = new HashMap<>(Map.of("bootstrap.servers", "localhost:9"));
+        var factory = new DefaultKafkaProducerFactory<>(configs, new StringSerializer(), new StringSerializer());
+        if (transactional) {
+            factory.setTransactionIdPrefix("tx-");
+        }
+        return factory;
+    }
+}
@@ -0,0 +1,30 @@
+package com.wit.common.logging;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogSamplerTest {
+
+    @Test
+    void rate_one_keeps_every_line_and_rate_zero_none() {
+        assertTrue(IntStream.range(0, 1000).allMatch(i -> LogSampler.ALWAYS.sample()));
+        LogSampler never = new LogSampler(0);
+        assertTrue(IntStream.range(0, 1000).noneMatch(i -> never.sample()));
+    }
+
+    @Test
+    void fractional_rate_keeps_roughly_that_share() {
+        LogSampler sampler = new LogSampler(0.1);
+        long kept = IntStream.range(0, 100_000).filter(i -> sampler.sample()).count();
+        assertTrue(kept > 8_000 && kept < 12_000, "kept " + kept);
+    }
+
+    @Test
+    void rate_outside_zero_to_one_is_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new LogSampler(1.5));
+        assertThrows(IllegalArgumentException.class, () -> new LogSampler(-0.1));
+    }
+}
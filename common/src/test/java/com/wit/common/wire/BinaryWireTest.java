@@ -0,0 +1,176 @@
+package com.wit.common.wire;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinaryWireTest {
+
+    @Test
+    void decimals_keep_value_and_scale() {
+        List<BigDecimal> values = List.of(BigDecimal.ZERO, new BigDecimal("0.000"), new BigDecimal("-1"),
+                new BigDecimal("2.50"), new BigDecimal("1E+3"), new BigDecimal(Long.MAX_VALUE),
+                new BigDecimal(Long.MIN_VALUE), new BigDecimal("-123456789012345678901234567890.123456789"));
+
+        BinaryWire.Writer writer = new BinaryWire.Writer();
+        values.forEach(writer::writeDecimal);
+        writer.writeDecimal(null);
+
+        BinaryWire.Reader reader = new BinaryWire.Reader(writer.toByteArray());
+        for (BigDecimal value : values) {
+            BigDecimal read = reader.readDecimal();
+            assertEquals(value, read);
+            assertEquals(value.scale(), read.scale());
+        }
+        assertNull(reader.readDecimal());
+    }
+
+    @Test
+    void known_operations_take_one_byte_and_others_are_spelled_out() {
+        byte[] known = new BinaryWire.Writer().writeOperation("div").toByteArray();
+        assertEquals(3, known.length);
+
+        BinaryWire.Writer writer = new BinaryWire.Writer()
+                .writeOperation("sum").writeOperation("batch").writeOperation("pow").writeOperation(null);
+        BinaryWire.Reader reader = new BinaryWire.Reader(writer.toByteArray());
+        assertEquals("sum", reader.readOperation());
+        assertEquals("batch", reader.readOperation());
+        assertEquals("pow", reader.readOperation());
+        assertNull(reader.readOperation());
+    }
+
+    @Test
+    void math_operations_take_one_byte_in_the_math_version_only() {
+        for (String op : List.of("pow", "mod", "sqrt", "exp", "ln")) {
+            assertTrue(BinaryWire.isMathOperation(op), op);
+            byte[] coded = new BinaryWire.Writer(BinaryWire.MATH_VERSION).writeOperation(op).toByteArray();
+            assertEquals(3, coded.length, op);
+            assertEquals(op, new BinaryWire.Reader(coded).readOperation());
+
+            byte[] spelled = new BinaryWire.Writer().writeOperation(op).toByteArray();
+            assertEquals(3 + 1 + op.length(), spelled.length, op);
+            assertEquals(op, new BinaryWire.Reader(spelled).readOperation());
+        }
+        assertFalse(BinaryWire.isMathOperation("sum"));
+        assertFalse(BinaryWire.isMathOperation(null));
+
+        byte[] mathOpcodeInFirstVersion = new BinaryWire.Writer(BinaryWire.MATH_VERSION).writeOperation("ln").toByteArray();
+        mathOpcodeInFirstVersion[1] = BinaryWire.VERSION;
+        assertThrows(IllegalArgumentException.class, () -> new BinaryWire.Reader(mathOpcodeInFirstVersion).readOperation());
+    }
+
+    @Test
+    void strings_and_sizes_distinguish_null_from_empty() {
+        BinaryWire.Writer writer = new BinaryWire.Writer()
+                .writeString(null).writeString("").writeString("división")
+                .writeSize(0, false).writeSize(0, true).writeSize(300, true);
+        for (int i = 0; i < 300; i++) {
+            writer.writeString(null);
+        }
+
+        BinaryWire.Reader reader = new BinaryWire.Reader(writer.toByteArray());
+        assertNull(reader.readString());
+        assertEquals("", reader.readString());
+        assertEquals("división", reader.readString());
+        assertEquals(-1, reader.readSize());
+        assertEquals(0, reader.readSize());
+        assertEquals(300, reader.readSize());
+    }
+
+    @Test
+    void math_version_carries_precision_and_rounding() {
+        BinaryWire.Writer writer = new BinaryWire.Writer(BinaryWire.MATH_VERSION)
+                .writePrecision(null).writePrecision(0).writePrecision(1000)
+                .writeRounding(null).writeRounding(RoundingMode.HALF_EVEN);
+
+        BinaryWire.Reader reader = new BinaryWire.Reader(writer.toByteArray());
+        assertEquals(BinaryWire.MATH_VERSION, reader.version());
+        assertNull(reader.readPrecision());
+        assertEquals(0, reader.readPrecision());
+        assertEquals(1000, reader.readPrecision());
+        assertNull(reader.readRounding());
+        assertEquals(RoundingMode.HALF_EVEN, reader.readRounding());
+        assertEquals(BinaryWire.VERSION, new BinaryWire.Reader(new BinaryWire.Writer().toByteArray()).version());
+    }
+
+    @Test
+    void json_and_foreign_data_are_not_taken_for_binary() {
+        assertFalse(BinaryWire.isBinary("{\"a\":1}".getBytes()));
+        assertFalse(BinaryWire.isBinary(new byte[0]));
+        assertThrows(IllegalArgumentException.class, () -> new BinaryWire.Reader(new byte[]{BinaryWire.MAGIC, 99}));
+
+        byte[] truncated = new BinaryWire.Writer().writeString("hello").toByteArray();
+        BinaryWire.Reader reader = new BinaryWire.Reader(Arrays.copyOf(truncated, truncated.length - 1));
+        assertThrows(IllegalArgumentException.class, reader::readString);
+    }
+
+    @Test
+    void lengths_beyond_the_bytes_left_fail_before_allocating() {
+        // a few bytes claiming a list of two billion elements, a string and a decimal of as many bytes
+        byte[] list = new BinaryWire.Writer().writeSize(Integer.MAX_VALUE - 1, true).toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> new BinaryWire.Reader(list).readSize());
+
+        byte[] string = new BinaryWire.Writer().writeSize(Integer.MAX_VALUE - 1, true).toByteArray();
+        assertThrows(IllegalArgumentException.class, () -> new BinaryWire.Reader(string).readString());
+
+        byte[] decimal = {BinaryWire.MAGIC, BinaryWire.VERSION, 2, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        assertThrows(IllegalArgumentException.class, () -> new BinaryWire.Reader(decimal).readDecimal());
+
+        byte[] hugeVarint = {BinaryWire.MAGIC, BinaryWire.VERSION, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+        assertThrows(IllegalArgumentException.class, () -> new BinaryWire.Reader(hugeVarint).readSize());
+
+        BinaryWire.Reader fits = new BinaryWire.Reader(new BinaryWire.Writer().writeSize(1, true).writeString(null).toByteArray());
+        assertEquals(1, fits.readSize());
+    }
+
+    @Test
+    void items_nest_only_so_deep() {
+        BinaryWire.Reader reader = new BinaryWire.Reader(new BinaryWire.Writer().toByteArray());
+        reader.checkDepth(BinaryWire.MAX_DEPTH);
+        assertThrows(IllegalArgumentException.class, () -> reader.checkDepth(BinaryWire.MAX_DEPTH + 1));
+    }
+
+    @Test
+    void format_is_read_from_producer_config() {
+        assertEquals(WireFormat.JSON, WireFormat.fromConfig(Map.of()));
+        assertEquals(WireFormat.BINARY, WireFormat.fromConfig(Map.of(WireFormat.CONFIG, "binary")));
+    }
+
+    @Test
+    void direct_frames_round_trip_back_to_back() throws Exception {
+        var bytes = new ByteArrayOutputStream();
+        var out = new DataOutputStream(bytes);
+        DirectFrames.writeRequest(out, 7, "0123456789abcdef", 1_700_000_000_000L, new byte[]{1, 2, 3});
+        DirectFrames.writeRequest(out, 8, null, 0, new byte[0]);
+        DirectFrames.writeReply(out, 7, new byte[]{4, 5});
+
+        var in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        DirectFrames.Request first = DirectFrames.readRequest(in);
+        assertEquals(7, first.correlation());
+        assertEquals("0123456789abcdef", first.id());
+        assertEquals(1_700_000_000_000L, first.deadline());
+        assertArrayEquals(new byte[]{1, 2, 3}, first.payload());
+        DirectFrames.Request second = DirectFrames.readRequest(in);
+        assertNull(second.id());
+        assertEquals(0, second.payload().length);
+        DirectFrames.Reply reply = DirectFrames.readReply(in);
+        assertEquals(7, reply.correlation());
+        assertArrayEquals(new byte[]{4, 5}, reply.payload());
+        assertNull(DirectFrames.readReply(in), "end of stream between frames");
+
+        byte[] oversized = {0x7f, 0, 0, 0};
+        assertThrows(IOException.class, () -> DirectFrames.readReply(new DataInputStream(new ByteArrayInputStream(oversized))));
+    }
+}
@@ -0,0 +1,103 @@
+package com.wit.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.HdrHistogram.Histogram;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The outcome of one run. Latencies are in milliseconds and measured from the time
+ * each request was due to be sent, so a stalled client or server shows up as the
+ * waiting time of every request it held back (no coordinated omission).
+ * {@code service*} is measured from the actual send, for comparison. Requests that
+ * got no reply count as timeouts: rest's 503 after its reply timeout, or no response
+ * at all within the client's own timeout. Rejections are admission control's 429/503
+ * with a {@code Retry-After}.
+ */
+public record LoadReport(String configuration,
+                         double offeredRate,
+                         double seconds,
+                         long sent,
+                         long succeeded,
+                         long timeouts,
+                         long rejected,
+                         long errors,
+                         double throughput,
+                         double timeoutRate,
+                         double p50,
+                         double p90,
+                         double p99,
+                         double p999,
+                         double max,
+                         double serviceP50,
+                         double serviceP99) {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    /** Builds the report from histograms recorded in microseconds. */
+    static LoadReport of(String configuration, double offeredRate, double seconds, long sent, long succeeded,
+                         long timeouts, long rejected, long errors, Histogram response, Histogram service) {
+        return new LoadReport(configuration, offeredRate, seconds, sent, succeeded, timeouts, rejected, errors,
+                succeeded / seconds, sent == 0 ? 0 : (double) timeouts / sent,
+                millis(response.getValueAtPercentile(50)), millis(response.getValueAtPercentile(90)),
+                millis(response.getValueAtPercentile(99)), millis(response.getValueAtPercentile(99.9)),
+                millis(response.getMaxValue()),
+                millis(service.getValueAtPercentile(50)), millis(service.getValueAtPercentile(99)));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("%nConfiguration : %s%n", configuration);
+        out.printf("Offered rate  : %.0f req/s for %.1f s, %d requests%n", offeredRate, seconds, sent);
+        out.printf("Throughput    : %.1f successful req/s%n", throughput);
+        out.printf("Outcomes      : %d ok, %d timeouts (%.3f%%), %d rejected, %d errors%n",
+                succeeded, timeouts, timeoutRate * 100, rejected, errors);
+        out.printf("Latency (ms)  : p50 %.2f  p90 %.2f  p99 %.2f  p99.9 %.2f  max %.2f%n", p50, p90, p99, p999, max);
+        out.printf("Service (ms)  : p50 %.2f  p99 %.2f  (from the actual send, not corrected)%n", serviceP50, serviceP99);
+    }
+
+    public void write(Path file) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        JSON.writeValue(file.toFile(), this);
+    }
+
+    public static LoadReport read(Path file) throws IOException {
+        return JSON.readValue(file.toFile(), LoadReport.class);
+    }
+
+    /**
+     * What got worse than {@code baseline} by more than {@code thresholdPercent}:
+     * throughput, p99 and p99.9 relative to the baseline's, and the timeout rate by
+     * a hundredth of that in percentage points (0.1 points with a threshold of 10),
+     * since a baseline without timeouts would make any relative change infinite.
+     */
+    public List<String> regressionsAgainst(LoadReport baseline, double thresholdPercent) {
+        List<String> regressions = new ArrayList<>();
+        double factor = thresholdPercent / 100;
+        if (throughput < baseline.throughput * (1 - factor)) {
+            regressions.add(String.format("throughput %.1f req/s, baseline %.1f", throughput, baseline.throughput));
+        }
+        if (p99 > baseline.p99 * (1 + factor)) {
+            regressions.add(String.format("p99 %.2f ms, baseline %.2f", p99, baseline.p99));
+        }
+        if (p999 > baseline.p999 * (1 + factor)) {
+            regressions.add(String.format("p99.9 %.2f ms, baseline %.2f", p999, baseline.p999));
+        }
+        if (timeoutRate > baseline.timeoutRate + factor / 100) {
+            regressions.add(String.format("timeout rate %.3f%%, baseline %.3f%%", timeoutRate * 100, baseline.timeoutRate * 100));
+        }
+        return regressions;
+    }
+}
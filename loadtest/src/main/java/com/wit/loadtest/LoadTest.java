@@ -0,0 +1,248 @@
+package com.wit.loadtest;
+
+import com.wit.benchmarks.support.EmbeddedStack;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Offers HTTP requests to rest at a constant rate, with the worker behind it on an
+ * embedded broker, and reports what clients would have seen. The load is an open
+ * model: request {@code i} is due at {@code start + i / rate} whether or not earlier
+ * ones have been answered, and its latency is measured from that due time rather
+ * than from when it was actually sent, so a pause anywhere (server, broker, GC, this
+ * client) counts against every request it delayed. Measuring from the actual send,
+ * as a closed-loop client does, hides exactly those pauses; that figure is reported
+ * separately as service time.
+ *
+ * <p>Options: {@code --rate=} requests per second, {@code --duration=} measured time
+ * and {@code --warmup=} unmeasured time before it ({@code 60s}, {@code 2m}),
+ * {@code --mix=} and {@code --digits=} (see {@link OperationMix}), {@code --timeout=}
+ * the client's own give-up time, {@code --out=} where to write the JSON result, and
+ * {@code --baseline=} a previous result to compare with, failing with exit code 1 if
+ * anything got worse by more than {@code --threshold=} percent. Other arguments are
+ * passed to {@link EmbeddedStack}, e.g. {@code rest:calculator.transport=direct}.
+ *
+ * <pre>
+ * mvn -pl loadtest exec:exec -Dloadtest.args="--rate=1000 --duration=2m --mix=sum:3,div:1 --digits=8,64"
+ * </pre>
+ */
+public final class LoadTest {
+
+    private static final Duration PROGRESS = Duration.ofSeconds(5);
+
+    private final HttpClient http = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5)).build();
+    private final String base;
+    private final OperationMix mix;
+    private final Duration timeout;
+
+    // every reply, for the progress lines
+    private final Recorder progress = new Recorder(3);
+    // replies to requests due after the warmup, for the report
+    private final Recorder response = new Recorder(3);
+    private final Recorder service = new Recorder(3);
+    private final LongAdder sent = new LongAdder();
+    private final LongAdder succeeded = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong inFlight = new AtomicLong();
+
+    private LoadTest(int port, OperationMix mix, Duration timeout) {
+        this.base = "http://localhost:" + port;
+        this.mix = mix;
+        this.timeout = timeout;
+    }
+
+    public static void main(String[] args) throws Exception {
+        double rate = 500;
+        Duration duration = Duration.ofSeconds(60);
+        Duration warmup = Duration.ofSeconds(15);
+        Duration timeout = Duration.ofSeconds(30);
+        String mixSpec = "sum:1,sub:1,mul:1,div:1";
+        String digits = "4,32";
+        Path out = Path.of("target", "loadtest-result.json");
+        Path baseline = null;
+        double threshold = 10;
+        List<String> stackProperties = new ArrayList<>();
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--rate=")) {
+                rate = Double.parseDouble(value);
+            } else if (arg.startsWith("--duration=")) {
+                duration = DurationStyle.detectAndParse(value);
+            } else if (arg.startsWith("--warmup=")) {
+                warmup = DurationStyle.detectAndParse(value);
+            } else if (arg.startsWith("--timeout=")) {
+                timeout = DurationStyle.detectAndParse(value);
+            } else if (arg.startsWith("--mix=")) {
+                mixSpec = value;
+            } else if (arg.startsWith("--digits=")) {
+                digits = value;
+            } else if (arg.startsWith("--out=")) {
+                out = Path.of(value);
+            } else if (arg.startsWith("--baseline=")) {
+                baseline = Path.of(value);
+            } else if (arg.startsWith("--threshold=")) {
+                threshold = Double.parseDouble(value);
+            } else if (arg.startsWith("--")) {
+                throw new IllegalArgumentException("unknown option " + arg);
+            } else {
+                stackProperties.add(arg);
+            }
+        }
+        if (rate <= 0) {
+            throw new IllegalArgumentException("--rate must be above 0");
+        }
+        OperationMix mix = OperationMix.parse(mixSpec, digits);
+        String configuration = (stackProperties.isEmpty() ? "defaults" : String.join(" ", stackProperties))
+                + "; " + mix;
+
+        LoadReport report;
+        try (EmbeddedStack stack = EmbeddedStack.start(stackProperties.toArray(String[]::new))) {
+            System.out.printf("Offering %.0f req/s for %d s after %d s of warmup: %s%n", rate, duration.toSeconds(),
+                    warmup.toSeconds(), configuration);
+            report = new LoadTest(stack.restPort(), mix, timeout).run(configuration, rate, warmup, duration);
+        }
+        report.print(System.out);
+        report.write(out);
+        System.out.println("Written to " + out.toAbsolutePath());
+
+        int status = 0;
+        if (baseline != null && Files.exists(baseline)) {
+            LoadReport previous = LoadReport.read(baseline);
+            if (previous.offeredRate() != report.offeredRate()) {
+                System.out.printf("The baseline was offered %.0f req/s, not %.0f; throughput is not comparable%n",
+                        previous.offeredRate(), report.offeredRate());
+            }
+            List<String> regressions = report.regressionsAgainst(previous, threshold);
+            if (regressions.isEmpty()) {
+                System.out.printf("No regression beyond %.0f%% against %s%n", threshold, baseline);
+            } else {
+                System.out.printf("Worse than %s by more than %.0f%%:%n", baseline, threshold);
+                regressions.forEach(regression -> System.out.println("  " + regression));
+                status = 1;
+            }
+        } else if (baseline != null) {
+            System.out.println("No baseline at " + baseline + " yet, nothing to compare with");
+        }
+        System.exit(status);
+    }
+
+    private LoadReport run(String configuration, double rate, Duration warmup, Duration duration) throws InterruptedException {
+        double interval = 1_000_000_000 / rate;
+        long total = (long) ((warmup.toNanos() + duration.toNanos()) / interval);
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+
+        ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "loadtest-progress");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(() -> progress(start, measureFrom), PROGRESS.toMillis(), PROGRESS.toMillis(),
+                TimeUnit.MILLISECONDS);
+        try {
+            Random random = new Random();
+            for (long i = 0; i < total; i++) {
+                long due = start + (long) (i * interval);
+                long wait;
+                while ((wait = due - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                send(mix.next(random), due, due >= measureFrom);
+            }
+            // a request still out after the client's timeout will complete exceptionally
+            long giveUp = System.nanoTime() + timeout.toNanos() + TimeUnit.SECONDS.toNanos(1);
+            while (inFlight.get() > 0 && System.nanoTime() < giveUp) {
+                Thread.sleep(10);
+            }
+        } finally {
+            reporter.shutdownNow();
+        }
+
+        Histogram responseTimes = response.getIntervalHistogram();
+        Histogram serviceTimes = service.getIntervalHistogram();
+        return LoadReport.of(configuration, rate, duration.toNanos() / 1e9, sent.sum(), succeeded.sum(),
+                timeouts.sum(), rejected.sum(), errors.sum(), responseTimes, serviceTimes);
+    }
+
+    private void send(String pathAndQuery, long due, boolean measured) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(base + pathAndQuery)).timeout(timeout).GET().build();
+        if (measured) {
+            sent.increment();
+        }
+        inFlight.incrementAndGet();
+        long sentAt = System.nanoTime();
+        http.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((reply, failure) -> {
+            long now = System.nanoTime();
+            inFlight.decrementAndGet();
+            Outcome outcome = classify(reply, failure);
+            // rejections and errors come back early and would flatter the percentiles
+            if (outcome == Outcome.OK || outcome == Outcome.TIMEOUT) {
+                long micros = (now - due) / 1000;
+                progress.recordValue(micros);
+                if (measured) {
+                    response.recordValue(micros);
+                    service.recordValue((now - sentAt) / 1000);
+                }
+            }
+            if (measured) {
+                switch (outcome) {
+                    case OK -> succeeded.increment();
+                    case TIMEOUT -> timeouts.increment();
+                    case REJECTED -> rejected.increment();
+                    case ERROR -> errors.increment();
+                }
+            }
+        });
+    }
+
+    private enum Outcome { OK, TIMEOUT, REJECTED, ERROR }
+
+    private static Outcome classify(HttpResponse<?> reply, Throwable failure) {
+        if (failure != null) {
+            Throwable cause = failure instanceof CompletionException ? failure.getCause() : failure;
+            return cause instanceof HttpTimeoutException ? Outcome.TIMEOUT : Outcome.ERROR;
+        }
+        if (reply.headers().firstValue("Retry-After").isPresent()) {
+            return Outcome.REJECTED;
+        }
+        return switch (reply.statusCode()) {
+            case 200 -> Outcome.OK;
+            // rest's answer when the worker didn't reply within calculator.kafka.reply-timeout
+            case 503 -> Outcome.TIMEOUT;
+            default -> Outcome.ERROR;
+        };
+    }
+
+    private void progress(long start, long measureFrom) {
+        Histogram interval = progress.getIntervalHistogram();
+        long now = System.nanoTime();
+        System.out.printf("%6.0fs%s  %7.1f replies/s  p50 %8.2f ms  p99 %8.2f ms  max %8.2f ms  in flight %d%n",
+                (now - start) / 1e9, now < measureFrom ? " (warmup)" : "         ",
+                interval.getTotalCount() / (PROGRESS.toNanos() / 1e9),
+                interval.getValueAtPercentile(50) / 1000.0, interval.getValueAtPercentile(99) / 1000.0,
+                interval.getMaxValue() / 1000.0, inFlight.get());
+    }
+}
@@ -0,0 +1,101 @@
+package com.wit.loadtest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Which calculations the load consists of: operations with relative weights
+ * ({@code sum:4,div:1}) and operand sizes in digits ({@code 4,32}), each picked at random
+ * per request. Operands are random, so the result cache and coalescing rarely help.
+ * Divisors are never zero, {@code pow} exponents stay below 10, {@code exp} arguments
+ * below 100, and {@code sqrt} and {@code ln} arguments are positive, so every request
+ * has an answer.
+ */
+public final class OperationMix {
+
+    private static final List<String> OPERATIONS = List.of("sum", "sub", "mul", "div", "pow", "mod", "sqrt", "exp", "ln");
+
+    private final String[] operations;
+    private final int[] cumulativeWeights;
+    private final int[] digits;
+
+    private OperationMix(String[] operations, int[] cumulativeWeights, int[] digits) {
+        this.operations = operations;
+        this.cumulativeWeights = cumulativeWeights;
+        this.digits = digits;
+    }
+
+    /** Parses {@code op:weight,...} and a comma-separated list of operand digit counts. */
+    public static OperationMix parse(String mix, String digitCounts) {
+        List<String> ops = new ArrayList<>();
+        List<Integer> weights = new ArrayList<>();
+        int total = 0;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            String op = parts[0].trim();
+            if (!OPERATIONS.contains(op)) {
+                throw new IllegalArgumentException("unknown operation in mix: " + op + ", expected one of " + OPERATIONS);
+            }
+            int weight = parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1;
+            if (weight < 0) {
+                throw new IllegalArgumentException("negative weight for " + op);
+            }
+            if (weight > 0) {
+                total += weight;
+                ops.add(op);
+                weights.add(total);
+            }
+        }
+        if (ops.isEmpty()) {
+            throw new IllegalArgumentException("the mix has no operation with a weight above 0: " + mix);
+        }
+        int[] sizes = Arrays.stream(digitCounts.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+        for (int size : sizes) {
+            if (size < 1) {
+                throw new IllegalArgumentException("operands need at least 1 digit");
+            }
+        }
+        return new OperationMix(ops.toArray(String[]::new), weights.stream().mapToInt(Integer::intValue).toArray(), sizes);
+    }
+
+    /** The path and query of the next request, e.g. {@code /div?a=1234&b=87}. */
+    public String next(Random random) {
+        int pick = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        int i = 0;
+        while (cumulativeWeights[i] <= pick) {
+            i++;
+        }
+        String op = operations[i];
+        int size = digits[random.nextInt(digits.length)];
+        String a = number(random, size);
+        return switch (op) {
+            case "sqrt", "ln" -> "/" + op + "?a=" + a;
+            case "exp" -> "/exp?a=" + random.nextInt(100);
+            case "pow" -> "/pow?a=" + a + "&b=" + random.nextInt(10);
+            default -> "/" + op + "?a=" + a + "&b=" + number(random, size);
+        };
+    }
+
+    /** A positive integer of exactly {@code digits} digits. */
+    private static String number(Random random, int digits) {
+        StringBuilder number = new StringBuilder(digits);
+        number.append((char) ('1' + random.nextInt(9)));
+        for (int i = 1; i < digits; i++) {
+            number.append((char) ('0' + random.nextInt(10)));
+        }
+        return number.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        int previous = 0;
+        for (int i = 0; i < operations.length; i++) {
+            text.append(i > 0 ? "," : "").append(operations[i]).append(':').append(cumulativeWeights[i] - previous);
+            previous = cumulativeWeights[i];
+        }
+        return text + " with " + Arrays.toString(digits) + "-digit operands";
+    }
+}
@@ -1,9 +1,12 @@
 package com.wit.rest;
 
+import com.wit.rest.config.RestRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(RestRuntimeHints.class)
 public class RestApplication {
 
 	public static void main(String[] args) {
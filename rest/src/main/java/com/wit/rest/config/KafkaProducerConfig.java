@@ -1,46 +1,109 @@
 package com.wit.rest.config;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.kafka.DefaultKafkaProducerFactoryCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
 import org.springframework.kafka.core.ProducerFactory;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.apache.kafka.common.header.internals.RecordHeader;
-import org.springframework.kafka.support.KafkaHeaders;
 import org.springframework.kafka.core.ConsumerFactory;
 import org.springframework.kafka.listener.ConcurrentMessageListenerContainer;
 import org.springframework.kafka.listener.ContainerProperties;
 import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.support.TopicPartitionOffset;
+import com.wit.common.deadline.Deadlines;
+import com.wit.common.id.RequestIds;
+import com.wit.common.kafka.ProducerPool;
+import com.wit.common.kafka.ProducerProfile;
 import com.wit.rest.dto.CalculatorRequest;
 import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.transport.CorrelatingReplyingTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 
 @Configuration
 public class KafkaProducerConfig {
 
+    private static final Logger log = LoggerFactory.getLogger(KafkaProducerConfig.class);
+
+    /**
+     * Applies {@code calculator.kafka.producer.profile} to Boot's producer factory,
+     * under whatever {@code spring.kafka.producer.*} sets explicitly.
+     */
+    @Bean
+    public DefaultKafkaProducerFactoryCustomizer producerProfileCustomizer(
+                            @Value("${calculator.kafka.producer.profile:default}") String profileName) {
+        ProducerProfile profile = ProducerProfile.fromConfig(profileName);
+        return factory -> {
+            var settings = profile.missingFrom(factory.getConfigurationProperties());
+            log.info("Producer profile {}: {}", profile.configName(), settings);
+            factory.updateConfigs(settings);
+        };
+    }
+
+    /**
+     * Builds the replying template. Each rest instance must only read its own replies,
+     * so run every instance with either its own {@code calculator.kafka.reply-topic}
+     * or its own {@code calculator.kafka.reply-partition} of the shared topic. The
+     * {@code REPLY_TOPIC}/{@code REPLY_PARTITION} headers name the same topic and
+     * partition as this container, and the worker replies to whatever those headers
+     * say. Waiting callers and their timeouts are kept by {@link CorrelatingReplyingTemplate}.
+     * With {@code calculator.kafka.producer.pool-size} above 1, requests are sent
+     * through that many producers in turn. Not built for the {@code direct} transport,
+     * so no reply container runs then.
+     */
     @Bean
+    @ConditionalOnProperty(name = "calculator.transport", havingValue = "kafka", matchIfMissing = true)
     public ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> replyingKafkaTemplate(
                             ProducerFactory<String, CalculatorRequest> producerFactory,
-                            ConsumerFactory<String, CalculatorResponse> consumerFactory) {
-        var containerProps = new ContainerProperties(KafkaTopicsConfig.RES);
+                            ConsumerFactory<String, CalculatorResponse> consumerFactory,
+                            @Value("${calculator.kafka.reply-topic:" + KafkaTopicsConfig.RES + "}") String replyTopic,
+                            @Value("${calculator.kafka.reply-partition:-1}") int replyPartition,
+                            @Value("${calculator.kafka.reply-timeout:5s}") Duration replyTimeout,
+                            @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads,
+                            @Value("${calculator.kafka.producer.pool-size:1}") int poolSize,
+                            RequestMetrics metrics) {
+        var containerProps = replyPartition >= 0
+                ? new ContainerProperties(new TopicPartitionOffset(replyTopic, replyPartition))
+                : new ContainerProperties(replyTopic);
+        if (virtualThreads) {
+            // the reply container is built by hand, so Boot's virtual-thread setup does not reach it
+            var executor = new SimpleAsyncTaskExecutor("kafka-replies-");
+            executor.setVirtualThreads(true);
+            containerProps.setListenerTaskExecutor(executor);
+        }
         var repliesContainer = new ConcurrentMessageListenerContainer<>(consumerFactory, containerProps);
 
         repliesContainer.setAutoStartup(true);
-        return new ReplyingKafkaTemplate<>(producerFactory, repliesContainer);
+        var template = new CorrelatingReplyingTemplate(ProducerPool.of(producerFactory, poolSize), repliesContainer,
+                replyTopic, replyPartition, metrics);
+        template.setDefaultReplyTimeout(replyTimeout);
+        return template;
     }
 
+    /**
+     * Keys the record by {@code Request-Id} so requests spread over the partitions of
+     * {@link KafkaTopicsConfig#REQ}, and adds the request's {@code Deadline} so the
+     * worker can skip it once nobody waits for it. Reply routing headers are added by
+     * the template.
+     */
     public static ProducerRecord<String, CalculatorRequest> buildRecord(CalculatorRequest req, String id){
         if (req == null) {
             throw new IllegalArgumentException("CalculatorRequest cannot be null");
         }
 
-        ProducerRecord<String, CalculatorRequest> record = new ProducerRecord<>(KafkaTopicsConfig.REQ, req);
+        ProducerRecord<String, CalculatorRequest> record = new ProducerRecord<>(KafkaTopicsConfig.REQ, id, req);
 
-        record.headers().add(new RecordHeader( 
-            KafkaHeaders.REPLY_TOPIC, KafkaTopicsConfig.RES.getBytes(StandardCharsets.UTF_8)));
-        record.headers().add(new RecordHeader(
-            "Request-Id", id.getBytes(StandardCharsets.UTF_8)));
+        record.headers().add(new RecordHeader(RequestIds.HEADER, RequestIds.toHeader(id)));
+        if (req.getDeadline() > 0) {
+            record.headers().add(new RecordHeader(Deadlines.HEADER, Deadlines.toHeader(req.getDeadline())));
+        }
         return record;
     }
-
 }
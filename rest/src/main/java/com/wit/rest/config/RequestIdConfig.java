@@ -0,0 +1,43 @@
+package com.wit.rest.config;
+
+import com.wit.rest.id.RequestIdGenerator;
+import com.wit.rest.id.TimeOrderedRequestIdGenerator;
+import com.wit.rest.id.UuidRequestIdGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class RequestIdConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(RequestIdConfig.class);
+
+    /**
+     * Time-ordered ids by default, which need every rest instance to have its own
+     * {@code calculator.request-id.node} (0-1023): two generators on one node issue the
+     * same ids in the same millisecond, and a node picked at random would clash between
+     * instances far too often (about one chance in six with 20 of them). Without a node,
+     * rest falls back to {@code uuid} ids, which need none; a node outside 0-1023 fails startup.
+     */
+    @Bean
+    public RequestIdGenerator requestIdGenerator(
+                            @Value("${calculator.request-id.generator:time}") RequestIdGenerator.Kind kind,
+                            @Value("${calculator.request-id.node:#{null}}") Integer node) {
+        if (kind == RequestIdGenerator.Kind.UUID) {
+            return new UuidRequestIdGenerator();
+        }
+        if (node == null) {
+            log.warn("calculator.request-id.node (CALCULATOR_REQUEST_ID_NODE) is not set, issuing UUID request ids; "
+                    + "give every rest instance its own node between 0 and {} for time-ordered ids",
+                    TimeOrderedRequestIdGenerator.MAX_NODE);
+            return new UuidRequestIdGenerator();
+        }
+        if (node < 0 || node > TimeOrderedRequestIdGenerator.MAX_NODE) {
+            throw new IllegalStateException("calculator.request-id.node (CALCULATOR_REQUEST_ID_NODE) must be between 0 and "
+                    + TimeOrderedRequestIdGenerator.MAX_NODE + ": " + node);
+        }
+        return new TimeOrderedRequestIdGenerator(node);
+    }
+}
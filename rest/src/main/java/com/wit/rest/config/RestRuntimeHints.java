@@ -0,0 +1,33 @@
+package com.wit.rest.config;
+
+import com.wit.rest.dto.BatchItem;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.dto.EvalRequest;
+import com.wit.rest.serde.CalculatorRequestSerializer;
+import com.wit.rest.serde.CalculatorResponseDeserializer;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * What a native image of {@code rest} needs beyond what Spring's AOT processing finds on
+ * its own: Jackson binding for the DTOs, which also travel through Kafka's JSON
+ * serializer and the {@code /stream} reader rather than only through controller
+ * signatures, and the constructors of the Kafka serializers, which the Kafka client
+ * instantiates from their class names in {@code application.properties}.
+ */
+public class RestRuntimeHints implements RuntimeHintsRegistrar {
+
+    private final BindingReflectionHintsRegistrar bindings = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindings.registerReflectionHints(hints.reflection(),
+                CalculatorRequest.class, CalculatorResponse.class, BatchItem.class, EvalRequest.class);
+        hints.reflection()
+                .registerType(CalculatorRequestSerializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS)
+                .registerType(CalculatorResponseDeserializer.class, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS);
+    }
+}
@@ -0,0 +1,374 @@
+package com.wit.rest.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wit.common.engine.CalculationEngine;
+import com.wit.rest.dto.BatchItem;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.id.RequestIdGenerator;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.service.CalculatorService;
+import com.wit.rest.service.OverloadedException;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * One {@code POST /stream} exchange. The calling thread reads the NDJSON body line by
+ * line and hands each calculation to {@link CalculatorService} without waiting for it;
+ * a writer thread writes every result line as soon as its calculation completes, so
+ * results come back in completion order, tagged with their input line number.
+ * <p>
+ * At most {@code window} lines are in flight at a time: the reader takes a slot before
+ * sending a line and the writer frees it only once that line's result is written. Memory
+ * is therefore bounded by the window whatever the input size, and a slow reader of the
+ * response slows down the upload instead of piling up results. A line longer than
+ * {@code maxLineLength} characters is not buffered: it is skipped up to its end and
+ * answered with an error line.
+ */
+final class CalculationStream {
+
+    static final String STREAM = "stream";
+
+    /** Without new results for this long, buffered result lines are flushed to the client. */
+    private static final long FLUSH_AFTER_MILLIS = 10;
+
+    private static final Result END = new Result(0, null, null);
+
+    private final CalculatorService calculatorService;
+    private final RequestIdGenerator requestIds;
+    private final RequestMetrics metrics;
+    private final ObjectMapper mapper;
+    private final int window;
+    private final int maxLineLength;
+    private final Duration requestTimeout;
+
+    CalculationStream(CalculatorService calculatorService, RequestIdGenerator requestIds, RequestMetrics metrics,
+                      ObjectMapper mapper, int window, int maxLineLength, Duration requestTimeout) {
+        if (window < 1) {
+            throw new IllegalArgumentException("stream window must be at least 1, was " + window);
+        }
+        if (maxLineLength < 1) {
+            throw new IllegalArgumentException("stream line length must be at least 1, was " + maxLineLength);
+        }
+        this.calculatorService = calculatorService;
+        this.requestIds = requestIds;
+        this.metrics = metrics;
+        this.mapper = mapper;
+        this.window = window;
+        this.maxLineLength = maxLineLength;
+        this.requestTimeout = requestTimeout;
+    }
+
+    /**
+     * Streams every calculation of {@code in} and its result to {@code out}, returning once
+     * all result lines are written.
+     *
+     * @return the number of result lines written
+     * @throws IOException if reading the body or writing the results failed; lines already
+     *                     sent are still waited for, so nothing is left in flight
+     */
+    long run(InputStream in, OutputStream out) throws IOException {
+        Semaphore slots = new Semaphore(window);
+        BlockingQueue<Result> completed = new LinkedBlockingQueue<>();
+        ResultWriter writer = new ResultWriter(mapper.createGenerator(out), completed, slots);
+        Thread writerThread = Thread.ofVirtual().name("calculation-stream-writer").start(writer);
+
+        IOException readFailure = null;
+        try (LineReader reader = new LineReader(new InputStreamReader(in, StandardCharsets.UTF_8), maxLineLength)) {
+            long line = 0;
+            String text;
+            while (writer.failure == null && (text = reader.readLine()) != null) {
+                line++;
+                if (text == LineReader.TOO_LONG) {
+                    slots.acquireUninterruptibly();
+                    metrics.invalidInput(STREAM);
+                    completed.add(new Result(line, null, "line longer than " + maxLineLength + " characters"));
+                } else if (!text.isBlank()) {
+                    slots.acquireUninterruptibly();
+                    submit(line, text, completed);
+                }
+            }
+        } catch (IOException e) {
+            readFailure = e;
+        } finally {
+            // every slot is back once the last in-flight result has been written or dropped
+            slots.acquireUninterruptibly(window);
+            completed.add(END);
+            joinUninterruptibly(writerThread);
+        }
+
+        if (readFailure != null) {
+            throw readFailure;
+        }
+        if (writer.failure != null) {
+            throw writer.failure;
+        }
+        return writer.written;
+    }
+
+    private void submit(long line, String text, BlockingQueue<Result> completed) {
+        CalculatorRequest req;
+        try {
+            req = parse(text);
+        } catch (InvalidLineException e) {
+            metrics.invalidInput(STREAM);
+            completed.add(new Result(line, null, e.getMessage()));
+            return;
+        }
+
+        CompletableFuture<CalculatorResponse> reply;
+        try {
+            reply = calculatorService.calculate(req);
+        } catch (RuntimeException e) {
+            reply = CompletableFuture.failedFuture(e);
+        }
+        reply.whenComplete((response, e) -> completed.add(e == null ? toResult(line, response) : toResult(line, e)));
+    }
+
+    private CalculatorRequest parse(String text) {
+        BatchItem item;
+        try {
+            item = mapper.readValue(text, BatchItem.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidLineException("invalid line: " + e.getOriginalMessage());
+        }
+        String op = item == null ? null : item.getOp();
+        BigDecimal a;
+        BigDecimal b;
+        try {
+            a = item == null || item.getA() == null ? null : new BigDecimal(item.getA());
+            b = item == null || item.getB() == null ? null : new BigDecimal(item.getB());
+        } catch (NumberFormatException nfe) {
+            throw new InvalidLineException(CalculatorController.invalidNumber(nfe));
+        }
+        CalculatorRequest req = new CalculatorRequest(requestIds.next(), a, b, op);
+        if (item != null) {
+            try {
+                req.setPrecision(MathParams.precision(item.getPrecision()));
+                req.setRounding(MathParams.rounding(item.getRounding()));
+            } catch (IllegalArgumentException e) {
+                throw new InvalidLineException(e.getMessage());
+            }
+        }
+        // refused here in the worker's words, so a line and the same /batch item fail alike
+        String invalid = CalculationEngine.validate(op, a, b);
+        if (invalid != null) {
+            throw new InvalidLineException(invalid);
+        }
+        req.setDeadline(System.currentTimeMillis() + requestTimeout.toMillis());
+        return req;
+    }
+
+    private Result toResult(long line, CalculatorResponse response) {
+        if (response.getError() != null) {
+            metrics.error(STREAM, "worker");
+            return new Result(line, null, response.getError());
+        }
+        return new Result(line, response.getResult(), null);
+    }
+
+    private Result toResult(long line, Throwable t) {
+        Throwable e = unwrap(t);
+        if (e instanceof OverloadedException overloaded) {
+            metrics.rejected(STREAM, overloaded.reason().name().toLowerCase(Locale.ROOT));
+            return new Result(line, null, e.getMessage());
+        }
+        if (e instanceof TimeoutException || e instanceof KafkaReplyTimeoutException) {
+            metrics.timeout(STREAM);
+            return new Result(line, null, "Calculator didn't answer in " + CalculatorController.describe(requestTimeout));
+        }
+        metrics.error(STREAM, "internal");
+        return new Result(line, null, "timeout/error: " + e.getMessage());
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+
+    private static void joinUninterruptibly(Thread thread) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                thread.join();
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Result(long line, BigDecimal result, String error) { }
+
+    private static final class InvalidLineException extends RuntimeException {
+        InvalidLineException(String message) {
+            super(message, null, false, false);
+        }
+    }
+
+    /**
+     * Reads lines like {@link java.io.BufferedReader#readLine()}, ended by {@code \n} or
+     * {@code \r\n}, but keeps at most {@code maxLength} characters of one: a longer line
+     * is read to its end and returned as {@link #TOO_LONG}.
+     */
+    private static final class LineReader implements AutoCloseable {
+
+        // compared by identity
+        @SuppressWarnings("StringOperationCanBeSimplified")
+        static final String TOO_LONG = new String("too long");
+
+        private final Reader in;
+        private final int maxLength;
+        private final char[] chunk = new char[8192];
+        private final StringBuilder line = new StringBuilder();
+        private int position;
+        private int limit;
+
+        LineReader(Reader in, int maxLength) {
+            this.in = in;
+            this.maxLength = maxLength;
+        }
+
+        /** The next line without its terminator, {@link #TOO_LONG}, or {@code null} at the end. */
+        String readLine() throws IOException {
+            line.setLength(0);
+            boolean tooLong = false;
+            boolean ended = false;
+            while (!ended) {
+                if (position == limit) {
+                    limit = in.read(chunk);
+                    position = 0;
+                    if (limit < 0) {
+                        limit = 0;
+                        if (line.isEmpty() && !tooLong) {
+                            return null;
+                        }
+                        break;
+                    }
+                }
+                int start = position;
+                while (position < limit && chunk[position] != '\n') {
+                    position++;
+                }
+                int length = position - start;
+                if (position < limit) {
+                    position++;
+                    ended = true;
+                }
+                if (!tooLong && line.length() + length <= maxLength + 1) {
+                    // one more than allowed, for the \r of a \r\n
+                    line.append(chunk, start, length);
+                } else {
+                    tooLong = true;
+                }
+            }
+            if (!line.isEmpty() && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            return tooLong || line.length() > maxLength ? TOO_LONG : line.toString();
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    /**
+     * Drains completed results into the response. Lines are buffered and flushed once no
+     * new result arrived for {@link #FLUSH_AFTER_MILLIS}. After a write failure, results
+     * are still taken and their slots freed, so the reader never waits on a dead client.
+     */
+    private static final class ResultWriter implements Runnable {
+
+        private final JsonGenerator json;
+        private final BlockingQueue<Result> completed;
+        private final Semaphore slots;
+        private volatile IOException failure;
+        private volatile long written;
+
+        ResultWriter(JsonGenerator json, BlockingQueue<Result> completed, Semaphore slots) {
+            this.json = json;
+            this.completed = completed;
+            this.slots = slots;
+            json.setRootValueSeparator(null);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Result result;
+                while ((result = next()) != END) {
+                    if (failure == null) {
+                        write(result);
+                    }
+                    slots.release();
+                }
+                if (failure == null) {
+                    json.flush();
+                }
+            } catch (IOException e) {
+                failure = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private Result next() throws InterruptedException {
+            Result result = completed.poll(FLUSH_AFTER_MILLIS, TimeUnit.MILLISECONDS);
+            if (result == null) {
+                if (failure == null) {
+                    try {
+                        json.flush();
+                    } catch (IOException e) {
+                        failure = e;
+                    }
+                }
+                result = completed.take();
+            }
+            return result;
+        }
+
+        private void write(Result result) {
+            try {
+                json.writeStartObject();
+                json.writeNumberField("line", result.line());
+                if (result.error() != null) {
+                    json.writeStringField("error", result.error());
+                } else {
+                    json.writeNumberField("result", result.result());
+                }
+                json.writeEndObject();
+                json.writeRaw('\n');
+                written++;
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -1,19 +1,44 @@
 package com.wit.rest.controller;
 
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wit.common.logging.LogSampler;
+import com.wit.rest.dto.BatchItem;
 import com.wit.rest.dto.CalculatorRequest;
 import com.wit.rest.dto.CalculatorResponse;
-import com.wit.rest.config.KafkaProducerConfig;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
+import com.wit.rest.dto.EvalRequest;
+import com.wit.rest.id.RequestIdGenerator;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.service.CalculatorService;
+import com.wit.rest.service.OverloadedException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.kafka.requestreply.RequestReplyFuture;
-import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
 import org.springframework.web.bind.annotation.*;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.util.concurrent.TimeUnit;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeoutException;
 
 @RestController
@@ -22,87 +47,457 @@ public class CalculatorController {
 
     private static final Logger log = LoggerFactory.getLogger(CalculatorController.class);
 
-    private final ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate;
+    private static final String BATCH = "batch";
+    private static final String EVAL = "eval";
 
-    public CalculatorController(ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate) {
-        this.rrTemplate = rrTemplate;
+    private final CalculatorService calculatorService;
+    private final RequestMetrics metrics;
+    private final RequestIdGenerator requestIds;
+    private final Duration requestTimeout;
+    private final int maxBatchSize;
+    private final LogSampler successLogs;
+    private final ObjectMapper objectMapper;
+    private final int streamWindow;
+    private final int streamMaxLineLength;
+
+    public CalculatorController(CalculatorService calculatorService,
+                                RequestMetrics metrics,
+                                RequestIdGenerator requestIds,
+                                @Value("${calculator.kafka.reply-timeout:5s}") Duration requestTimeout,
+                                @Value("${calculator.batch.max-size:1000}") int maxBatchSize,
+                                @Value("${calculator.logging.success-sample-rate:1.0}") double successSampleRate,
+                                ObjectMapper objectMapper,
+                                @Value("${calculator.stream.window:256}") int streamWindow,
+                                @Value("${calculator.stream.max-line-length:65536}") int streamMaxLineLength) {
+        this.calculatorService = calculatorService;
+        this.metrics = metrics;
+        this.requestIds = requestIds;
+        this.requestTimeout = requestTimeout;
+        this.maxBatchSize = maxBatchSize;
+        this.successLogs = new LogSampler(successSampleRate);
+        this.objectMapper = objectMapper;
+        this.streamWindow = streamWindow;
+        this.streamMaxLineLength = streamMaxLineLength;
     }
 
     @GetMapping("/sum")
-    public ResponseEntity<?> sum(@RequestParam String a, @RequestParam String b) throws Exception {
-        return handle("sum", a, b);
+    public CompletableFuture<ResponseEntity<?>> sum(@RequestParam String a, @RequestParam String b,
+                                                    @RequestParam(required = false) String precision,
+                                                    @RequestParam(required = false) String rounding) {
+        return handle("sum", a, b, precision, rounding);
     }
 
     @GetMapping({"/sub", "/subtraction"})
-    public ResponseEntity<?> sub(@RequestParam String a, @RequestParam String b) throws Exception {
-        return handle("sub", a, b);
+    public CompletableFuture<ResponseEntity<?>> sub(@RequestParam String a, @RequestParam String b,
+                                                    @RequestParam(required = false) String precision,
+                                                    @RequestParam(required = false) String rounding) {
+        return handle("sub", a, b, precision, rounding);
     }
 
     @GetMapping({"/mul", "/multiplication"})
-    public ResponseEntity<?> mul(@RequestParam String a, @RequestParam String b) throws Exception {
-        return handle("mul", a, b);
+    public CompletableFuture<ResponseEntity<?>> mul(@RequestParam String a, @RequestParam String b,
+                                                    @RequestParam(required = false) String precision,
+                                                    @RequestParam(required = false) String rounding) {
+        return handle("mul", a, b, precision, rounding);
     }
 
     @GetMapping({"/div", "/division"})
-    public ResponseEntity<?> div(@RequestParam String a, @RequestParam String b) throws Exception {
-        return handle("div", a, b);
+    public CompletableFuture<ResponseEntity<?>> div(@RequestParam String a, @RequestParam String b,
+                                                    @RequestParam(required = false) String precision,
+                                                    @RequestParam(required = false) String rounding) {
+        return handle("div", a, b, precision, rounding);
     }
 
-    private ResponseEntity<?> handle(String op, String a, String b) throws Exception {
-        String id = java.util.UUID.randomUUID().toString();
-        MDC.put("requestId", id);
-        
-        final BigDecimal aBD;
-        final BigDecimal bBD;
+    /** {@code a^b}; a non-integer {@code b} needs a positive {@code a}. */
+    @GetMapping({"/pow", "/power"})
+    public CompletableFuture<ResponseEntity<?>> pow(@RequestParam String a, @RequestParam String b,
+                                                    @RequestParam(required = false) String precision,
+                                                    @RequestParam(required = false) String rounding) {
+        return handle("pow", a, b, precision, rounding);
+    }
+
+    /** Remainder of {@code a / b} truncated towards zero, with the sign of {@code a}. */
+    @GetMapping({"/mod", "/modulo"})
+    public CompletableFuture<ResponseEntity<?>> mod(@RequestParam String a, @RequestParam String b,
+                                                    @RequestParam(required = false) String precision,
+                                                    @RequestParam(required = false) String rounding) {
+        return handle("mod", a, b, precision, rounding);
+    }
+
+    @GetMapping("/sqrt")
+    public CompletableFuture<ResponseEntity<?>> sqrt(@RequestParam String a,
+                                                     @RequestParam(required = false) String precision,
+                                                     @RequestParam(required = false) String rounding) {
+        return handle("sqrt", a, null, precision, rounding);
+    }
+
+    @GetMapping("/exp")
+    public CompletableFuture<ResponseEntity<?>> exp(@RequestParam String a,
+                                                    @RequestParam(required = false) String precision,
+                                                    @RequestParam(required = false) String rounding) {
+        return handle("exp", a, null, precision, rounding);
+    }
+
+    @GetMapping("/ln")
+    public CompletableFuture<ResponseEntity<?>> ln(@RequestParam String a,
+                                                   @RequestParam(required = false) String precision,
+                                                   @RequestParam(required = false) String rounding) {
+        return handle("ln", a, null, precision, rounding);
+    }
+
+    /**
+     * Evaluates up to {@code calculator.batch.max-size} calculations with a single
+     * Kafka round trip. Answers 200 with one {@code result} or {@code error} entry per
+     * item, in request order; items with unparsable operands never reach the worker.
+     * The body is read item by item and refused at the first item past the limit, so an
+     * oversized batch is never bound as a whole.
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public CompletableFuture<ResponseEntity<?>> batch(HttpServletRequest request) {
+        String id = requestIds.next();
+        long start = System.nanoTime();
+        boolean mdc = log.isInfoEnabled();
+        if (mdc) {
+            MDC.put("requestId", id);
+        }
 
         try {
-            aBD = new BigDecimal(a);
-            bBD = new BigDecimal(b);
-        } catch (NumberFormatException nfe) {
-            log.error("Invalid numeric input: a='{}', b='{}', requestId={}", a, b, id);
-            CalculatorResponse err = new CalculatorResponse();
-            err.setId(id);
-            err.setError("invalid number format" + nfe.getMessage());
-            return ResponseEntity.badRequest()
-                    .header("Request-Id", id)
-                    .body(err);
+            List<BatchItem> items;
+            try {
+                items = readBatch(request.getInputStream());
+            } catch (JsonProcessingException e) {
+                metrics.invalidInput(BATCH);
+                return timed(BATCH, start, ResponseEntity.badRequest()
+                        .header("Request-Id", id)
+                        .body(Map.of("error", "invalid batch: " + e.getOriginalMessage())));
+            }
+            if (items == null) {
+                log.warn("Batch of more than {} items rejected, requestId={}", maxBatchSize, id);
+                metrics.invalidInput(BATCH);
+                return timed(BATCH, start, ResponseEntity.badRequest()
+                        .header("Request-Id", id)
+                        .body(Map.of("error", "batch exceeds limit of " + maxBatchSize + " items")));
+            }
+            if (items.isEmpty()) {
+                metrics.invalidInput(BATCH);
+                return timed(BATCH, start, ResponseEntity.badRequest()
+                        .header("Request-Id", id)
+                        .body(Map.of("error", "empty batch")));
+            }
+
+            Object[] results = new Object[items.size()];
+            List<Integer> sentIndexes = new ArrayList<>(items.size());
+            List<CalculatorRequest> sent = new ArrayList<>(items.size());
+            for (int i = 0; i < items.size(); i++) {
+                BatchItem item = items.get(i);
+                try {
+                    BigDecimal aBD = item == null || item.getA() == null ? null : new BigDecimal(item.getA());
+                    BigDecimal bBD = item == null || item.getB() == null ? null : new BigDecimal(item.getB());
+                    CalculatorRequest calculation = new CalculatorRequest(null, aBD, bBD, item == null ? null : item.getOp());
+                    if (item != null) {
+                        calculation.setPrecision(MathParams.precision(item.getPrecision()));
+                        calculation.setRounding(MathParams.rounding(item.getRounding()));
+                    }
+                    sent.add(calculation);
+                    sentIndexes.add(i);
+                } catch (NumberFormatException nfe) {
+                    metrics.invalidInput(BATCH);
+                    results[i] = Map.of("error", invalidNumber(nfe));
+                } catch (IllegalArgumentException e) {
+                    metrics.invalidInput(BATCH);
+                    results[i] = Map.of("error", e.getMessage());
+                }
+            }
+
+            if (sent.isEmpty()) {
+                return timed(BATCH, start, ResponseEntity.ok()
+                        .header("Request-Id", id)
+                        .body(Map.of("results", Arrays.asList(results))));
+            }
+
+            CalculatorRequest req = new CalculatorRequest(id, null, null, BATCH);
+            req.setItems(sent);
+            req.setDeadline(deadline());
+
+            if (log.isDebugEnabled()) {
+                log.debug("Sending batch of {} items, requestId={}", sent.size(), id);
+            }
+            return timed(BATCH, start, calculatorService.calculate(req)
+                    .<ResponseEntity<?>>thenApply(reply -> toBatchResponse(reply, results, sentIndexes, id))
+                    .exceptionally(e -> toErrorResponse(e, BATCH, id)));
+
+        } catch (Exception e) {
+            return timed(BATCH, start, toErrorResponse(e, BATCH, id));
+        } finally {
+            if (mdc) {
+                MDC.clear();
+            }
         }
+    }
 
-        CalculatorRequest req = new CalculatorRequest();
-        req.setId(id);
-        req.setOperation(op);
-        req.setA(aBD);
-        req.setB(bBD);
+    /**
+     * The items of a {@code /batch} body, an empty list for an empty or {@code null} body,
+     * or {@code null} as soon as an item past {@code maxBatchSize} turns up.
+     */
+    private List<BatchItem> readBatch(InputStream body) throws IOException {
+        try (JsonParser parser = objectMapper.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == null || token == JsonToken.VALUE_NULL) {
+                return List.of();
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "expected an array of items");
+            }
+            List<BatchItem> items = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                if (items.size() == maxBatchSize) {
+                    return null;
+                }
+                items.add(parser.readValueAs(BatchItem.class));
+            }
+            return items;
+        }
+    }
 
-        log.debug("Created CalculatorRequest: {}, requestId={}", req, id);
+    /**
+     * Evaluates a formula such as {@code (a*b + c) / d} with one Kafka round trip. The
+     * worker parses it once and caches the parsed form; every operator follows the
+     * rules of the matching endpoint, so {@code /} divides to scale 10, HALF_UP.
+     */
+    @PostMapping("/eval")
+    public CompletableFuture<ResponseEntity<?>> eval(@RequestBody EvalRequest body) {
+        String id = requestIds.next();
+        long start = System.nanoTime();
+        boolean mdc = log.isInfoEnabled();
+        if (mdc) {
+            MDC.put("requestId", id);
+        }
 
         try {
-            log.info("Sending request to Kafka, requestId={}", id);
-            RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future =
-                rrTemplate.sendAndReceive(KafkaProducerConfig.buildRecord(req, id));
+            if (body == null || body.getExpression() == null || body.getExpression().isBlank()) {
+                metrics.invalidInput(EVAL);
+                return timed(EVAL, start, ResponseEntity.badRequest()
+                        .header("Request-Id", id)
+                        .body(Map.of("error", "missing expression")));
+            }
 
-            ConsumerRecord<String, CalculatorResponse> reply = future.get(5, java.util.concurrent.TimeUnit.SECONDS);
+            Map<String, BigDecimal> variables = new LinkedHashMap<>();
+            if (body.getVariables() != null) {
+                for (Map.Entry<String, String> variable : body.getVariables().entrySet()) {
+                    BigDecimal value = parseDecimal(variable.getValue());
+                    if (value == null) {
+                        log.error("Invalid value of variable '{}': '{}', requestId={}", variable.getKey(), variable.getValue(), id);
+                        metrics.invalidInput(EVAL);
+                        return timed(EVAL, start, ResponseEntity.badRequest()
+                                .header("Request-Id", id)
+                                .body(Map.of("error", "invalid number format for variable '" + variable.getKey() + "'")));
+                    }
+                    variables.put(variable.getKey(), value);
+                }
+            }
 
-            CalculatorResponse response = reply.value();
-            log.info("Received response from Kafka: {}, requestId={}", response, id);
+            CalculatorRequest req = new CalculatorRequest(id, null, null, EVAL);
+            req.setExpression(body.getExpression());
+            req.setVariables(variables);
+            req.setDeadline(deadline());
 
-            if (response.getError() != null) {
-                return ResponseEntity.status(400) // Bad Request
-                    .header("Request-Id", id)
-                    .body(Map.of("error", response.getError()));
+            return timed(EVAL, start, calculatorService.calculate(req)
+                    .<ResponseEntity<?>>thenApply(reply -> toResponse(reply, EVAL, id))
+                    .exceptionally(e -> toErrorResponse(e, EVAL, id)));
+
+        } catch (Exception e) {
+            return timed(EVAL, start, toErrorResponse(e, EVAL, id));
+        } finally {
+            if (mdc) {
+                MDC.clear();
+            }
+        }
+    }
+
+    /**
+     * Pushes any number of calculations through one request: each line of the NDJSON
+     * body is a {@code {"op","a","b"}} item like those of {@code /batch}, and each result
+     * is streamed back as its own line, {@code {"line":n,"result":...}} or
+     * {@code {"line":n,"error":...}}, as soon as it completes. At most
+     * {@code calculator.stream.window} lines are in flight at once, and none is kept past
+     * {@code calculator.stream.max-line-length} characters, so memory stays flat
+     * whatever the input size. Unlike the other endpoints, this one holds its servlet
+     * thread until the whole body has been answered.
+     */
+    @PostMapping(value = "/stream", consumes = MediaType.APPLICATION_NDJSON_VALUE,
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public void stream(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String id = requestIds.next();
+        long start = System.nanoTime();
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        response.setHeader("Request-Id", id);
+
+        int status = 500;
+        try {
+            long lines = new CalculationStream(calculatorService, requestIds, metrics, objectMapper,
+                    streamWindow, streamMaxLineLength, requestTimeout).run(request.getInputStream(), response.getOutputStream());
+            status = 200;
+            log.info("Streamed {} results, requestId={}", lines, id);
+        } catch (IOException e) {
+            log.warn("Stream aborted: {}, requestId={}", e.getMessage(), id);
+            throw e;
+        } finally {
+            metrics.request(CalculationStream.STREAM, start, status);
+        }
+    }
+
+    /**
+     * Hands the calculation to {@link CalculatorService} and returns without waiting
+     * for the answer. The servlet thread is released as soon as the record is handed
+     * to the producer; the response is written when the worker's reply arrives, on the
+     * reply container thread, or right away on a result cache hit. {@code b} is
+     * {@code null} for the operations that take only {@code a}.
+     */
+    private CompletableFuture<ResponseEntity<?>> handle(String op, String a, String b, String precision, String rounding) {
+        String id = requestIds.next();
+        long start = System.nanoTime();
+        // every log line carries the id in its message; the MDC copy is only worth it when lines are written
+        boolean mdc = log.isInfoEnabled();
+        if (mdc) {
+            MDC.put("requestId", id);
+        }
+
+        try {
+            final BigDecimal aBD;
+            final BigDecimal bBD;
+
+            final Integer digits;
+            final RoundingMode roundingMode;
+
+            try {
+                aBD = new BigDecimal(a);
+                bBD = b == null ? null : new BigDecimal(b);
+            } catch (NumberFormatException nfe) {
+                log.error("Invalid numeric input: a='{}', b='{}', requestId={}", a, b, id);
+                return timed(op, start, invalidInput(op, id, invalidNumber(nfe)));
+            }
+            try {
+                digits = MathParams.precision(precision);
+                roundingMode = MathParams.rounding(rounding);
+            } catch (IllegalArgumentException e) {
+                log.error("Invalid math parameters: precision='{}', rounding='{}', requestId={}", precision, rounding, id);
+                return timed(op, start, invalidInput(op, id, e.getMessage()));
+            }
+
+            CalculatorRequest req = new CalculatorRequest();
+            req.setId(id);
+            req.setOperation(op);
+            req.setA(aBD);
+            req.setB(bBD);
+            req.setPrecision(digits);
+            req.setRounding(roundingMode);
+            req.setDeadline(deadline());
+
+            log.debug("Created CalculatorRequest: {}, requestId={}", req, id);
+
+            return timed(op, start, calculatorService.calculate(req)
+                    .<ResponseEntity<?>>thenApply(reply -> toResponse(reply, op, id))
+                    .exceptionally(e -> toErrorResponse(e, op, id)));
+
+        } catch (Exception e) {
+            return timed(op, start, toErrorResponse(e, op, id));
+        } finally {
+            if (mdc) {
+                MDC.clear();
             }
-            
-            return ResponseEntity.ok()
+        }
+    }
+
+    private ResponseEntity<?> invalidInput(String op, String id, String error) {
+        CalculatorResponse err = new CalculatorResponse();
+        err.setId(id);
+        err.setError(error);
+        metrics.invalidInput(op);
+        return ResponseEntity.badRequest()
                 .header("Request-Id", id)
-                .body(Map.of("result", response.getResult()));
+                .body(err);
+    }
 
-        } catch (TimeoutException e) {
-            log.error("Timeout waiting for calculator response: {}, requestId={}", e.getMessage(), id);
-            return ResponseEntity.status(503)  // Service Unavailable
+    /** When the caller stops waiting: the worker skips the request after this instant. */
+    private long deadline() {
+        return System.currentTimeMillis() + requestTimeout.toMillis();
+    }
+
+    private CompletableFuture<ResponseEntity<?>> timed(String op, long start, ResponseEntity<?> response) {
+        return timed(op, start, CompletableFuture.completedFuture(response));
+    }
+
+    private CompletableFuture<ResponseEntity<?>> timed(String op, long start, CompletableFuture<ResponseEntity<?>> response) {
+        return response.whenComplete((r, e) -> metrics.request(op, start, r != null ? r.getStatusCode().value() : 500));
+    }
+
+    private ResponseEntity<?> toResponse(CalculatorResponse response, String op, String id) {
+        if (response.getError() != null) {
+            metrics.error(op, "worker");
+            log.warn("Calculation rejected: {}, requestId={}", response.getError(), id);
+            return ResponseEntity.status(400) // Bad Request
                 .header("Request-Id", id)
-                .body(Map.of("error", "Calculator didn't answer in 5 seconds"));
+                .body(Map.of("error", response.getError()));
+        }
 
-        } catch (Exception e) {
+        if (log.isInfoEnabled() && successLogs.sample()) {
+            log.info("Received response: {}, requestId={}", response, id);
+        }
+        return ResponseEntity.ok()
+            .header("Request-Id", id)
+            .body(Map.of("result", response.getResult()));
+    }
+
+    private ResponseEntity<?> toBatchResponse(CalculatorResponse response, Object[] results,
+                                              List<Integer> sentIndexes, String id) {
+        if (response.getError() != null) {
+            log.warn("Batch rejected: {}, requestId={}", response.getError(), id);
+            return ResponseEntity.status(400) // Bad Request
+                .header("Request-Id", id)
+                .body(Map.of("error", response.getError()));
+        }
+        if (log.isInfoEnabled() && successLogs.sample()) {
+            log.info("Received batch response: {}, requestId={}", response, id);
+        }
+
+        List<CalculatorResponse> items = response.getItems();
+        if (items == null || items.size() != sentIndexes.size()) {
+            throw new IllegalStateException("batch reply has " + (items == null ? 0 : items.size())
+                    + " items, expected " + sentIndexes.size());
+        }
+
+        for (int i = 0; i < items.size(); i++) {
+            CalculatorResponse item = items.get(i);
+            results[sentIndexes.get(i)] = item.getError() != null
+                    ? Map.of("error", item.getError())
+                    : Map.of("result", item.getResult());
+        }
+        return ResponseEntity.ok()
+            .header("Request-Id", id)
+            .body(Map.of("results", Arrays.asList(results)));
+    }
+
+    private ResponseEntity<?> toErrorResponse(Throwable t, String op, String id) {
+        MDC.put("requestId", id);
+        try {
+            Throwable e = unwrap(t);
+            if (e instanceof OverloadedException overloaded) {
+                metrics.rejected(op, overloaded.reason().name().toLowerCase(Locale.ROOT));
+                log.warn("Request rejected: {}, requestId={}", e.getMessage(), id);
+                return ResponseEntity.status(overloaded.reason().status())
+                    .header("Request-Id", id)
+                    .header(HttpHeaders.RETRY_AFTER, Long.toString(overloaded.retryAfterSeconds()))
+                    .body(Map.of("error", e.getMessage()));
+            }
+            if (e instanceof TimeoutException || e instanceof KafkaReplyTimeoutException) {
+                metrics.timeout(op);
+                log.error("Timeout waiting for calculator response: {}, requestId={}", e.getMessage(), id);
+                return ResponseEntity.status(503)  // Service Unavailable
+                    .header("Request-Id", id)
+                    .body(Map.of("error", "Calculator didn't answer in " + describe(requestTimeout)));
+            }
+
+            metrics.error(op, "internal");
             log.error("Error processing request: {}, requestId={}", e.getMessage(), id);
             CalculatorResponse errorResponse = new CalculatorResponse();
             errorResponse.setId(id);
@@ -110,10 +505,34 @@ public class CalculatorController {
             return ResponseEntity.status(500) // Internal Server Error
                 .header("Request-Id", id)
                 .body(errorResponse);
-                
         } finally {
             MDC.clear();
         }
     }
-}
 
+    static String invalidNumber(NumberFormatException nfe) {
+        return "invalid number format: " + nfe.getMessage();
+    }
+
+    static String describe(Duration timeout) {
+        return timeout.toMillis() % 1000 == 0 ? timeout.toSeconds() + " seconds" : timeout.toMillis() + " ms";
+    }
+
+    private static BigDecimal parseDecimal(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            return new BigDecimal(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable t) {
+        while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null) {
+            t = t.getCause();
+        }
+        return t;
+    }
+}
@@ -0,0 +1,52 @@
+package com.wit.rest.controller;
+
+import java.math.RoundingMode;
+import java.util.Locale;
+
+/**
+ * Parses the optional {@code precision} and {@code rounding} of a calculation, as
+ * given to the single endpoints, {@code /batch} items and {@code /stream} lines.
+ * Both are checked here so a malformed value is a 400 without a Kafka round trip;
+ * the precision limit is the worker's to enforce.
+ */
+final class MathParams {
+
+    private MathParams() { }
+
+    /** @throws IllegalArgumentException if {@code text} is not a non-negative integer */
+    static Integer precision(String text) {
+        if (text == null) {
+            return null;
+        }
+        int precision;
+        try {
+            precision = Integer.parseInt(text.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("invalid precision: " + text);
+        }
+        return precision(precision);
+    }
+
+    static Integer precision(Integer precision) {
+        if (precision != null && precision < 0) {
+            throw new IllegalArgumentException("precision must not be negative");
+        }
+        return precision;
+    }
+
+    /** @throws IllegalArgumentException if {@code text} names no {@link RoundingMode}, in any case */
+    static RoundingMode rounding(String text) {
+        if (text == null) {
+            return null;
+        }
+        try {
+            RoundingMode rounding = RoundingMode.valueOf(text.trim().toUpperCase(Locale.ROOT));
+            if (rounding == RoundingMode.UNNECESSARY) {
+                throw new IllegalArgumentException();
+            }
+            return rounding;
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("invalid rounding mode: " + text);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.wit.rest.dto;
+
+/**
+ * One calculation of a {@code POST /batch} body. Operands and the rounding mode are
+ * kept as text so an unparsable value is reported for that item alone, as the single
+ * endpoints do.
+ */
+public class BatchItem {
+    private String op;
+    private String a;
+    private String b;
+    private Integer precision;
+    private String rounding;
+
+    public BatchItem() { }
+
+    public BatchItem(String op, String a, String b) {
+        this.op = op;
+        this.a = a;
+        this.b = b;
+    }
+
+    public String getOp() {
+        return this.op;
+    }
+    public void setOp(String op) {
+        this.op = op;
+    }
+
+    public String getA() {
+        return this.a;
+    }
+    public void setA(String a) {
+        this.a = a;
+    }
+
+    public String getB() {
+        return this.b;
+    }
+    public void setB(String b) {
+        this.b = b;
+    }
+
+    public Integer getPrecision() {
+        return this.precision;
+    }
+    public void setPrecision(Integer precision) {
+        this.precision = precision;
+    }
+
+    public String getRounding() {
+        return this.rounding;
+    }
+    public void setRounding(String rounding) {
+        this.rounding = rounding;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchItem{op='" + this.op + 
+                    "', a=" + this.a + 
+                    ", b=" + this.b + 
+                    (this.precision != null || this.rounding != null ? ", precision=" + this.precision + ", rounding=" + this.rounding : "") +
+                    "}";
+    }
+}
@@ -1,12 +1,17 @@
 package com.wit.rest.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.math.BigDecimal;
+import java.util.List;
 
 
 public class CalculatorResponse {
     private String id;
     private BigDecimal result;
     private String error;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private List<CalculatorResponse> items;
 
     public CalculatorResponse() { }
 
@@ -41,11 +46,20 @@ public class CalculatorResponse {
         this.error = error;
     }
 
+    /** Per-item results of a {@code batch} operation, in request order. */
+    public List<CalculatorResponse> getItems() {
+        return items;
+    }
+    public void setItems(List<CalculatorResponse> items) {
+        this.items = items;
+    }
+
     @Override
     public String toString() {
         return "CalculatorResponse{id='" + id + 
                     "', result=" + result + 
                     ", error='" + error + 
-                    "'}";
+                    "'" + (items != null ? ", items=" + items.size() : "") +
+                    "}";
     }
 }
@@ -0,0 +1,41 @@
+package com.wit.rest.dto;
+
+import java.util.Map;
+
+/**
+ * Body of {@code POST /eval}: a formula over named variables, such as
+ * {@code (a*b + c) / d}, and the value of each name. Values are kept as text so an
+ * unparsable number is reported as the binary endpoints report it.
+ */
+public class EvalRequest {
+    private String expression;
+    private Map<String, String> variables;
+
+    public EvalRequest() { }
+
+    public EvalRequest(String expression, Map<String, String> variables) {
+        this.expression = expression;
+        this.variables = variables;
+    }
+
+    public String getExpression() {
+        return this.expression;
+    }
+    public void setExpression(String expression) {
+        this.expression = expression;
+    }
+
+    public Map<String, String> getVariables() {
+        return this.variables;
+    }
+    public void setVariables(Map<String, String> variables) {
+        this.variables = variables;
+    }
+
+    @Override
+    public String toString() {
+        return "EvalRequest{expression='" + this.expression +
+                    "', variables=" + this.variables +
+                    "}";
+    }
+}
@@ -0,0 +1,13 @@
+package com.wit.rest.id;
+
+/**
+ * Issues the {@code Request-Id} of each calculation. Ids must be unique across every
+ * rest instance writing to the same topics; they are returned to the HTTP caller and
+ * travel in the Kafka header and the JSON payload.
+ */
+public interface RequestIdGenerator {
+
+    enum Kind { TIME, UUID }
+
+    String next();
+}
@@ -0,0 +1,12 @@
+package com.wit.rest.id;
+
+import java.util.UUID;
+
+/** Random UUIDs, as rest issued before ids became time-ordered. */
+public final class UuidRequestIdGenerator implements RequestIdGenerator {
+
+    @Override
+    public String next() {
+        return UUID.randomUUID().toString();
+    }
+}
@@ -0,0 +1,100 @@
+package com.wit.rest.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for each stage a calculation goes through in rest, all tagged by {@code operation}:
+ * <ul>
+ *   <li>{@code calculator.http.requests}: from the controller receiving the request until the
+ *       response is ready, tagged with the HTTP {@code status},</li>
+ *   <li>{@code calculator.kafka.produce}: until the broker acknowledged the request record,</li>
+ *   <li>{@code calculator.kafka.reply}: from sending until the worker's reply arrived or the
+ *       wait failed, tagged with {@code outcome=success|timeout|error} and
+ *       {@code transport=kafka|direct} (the name predates the direct transport),</li>
+ *   <li>counters {@code calculator.requests.invalid}, {@code calculator.requests.timeouts},
+ *       {@code calculator.requests.errors} (tagged with {@code source=worker|internal}) and
+ *       {@code calculator.requests.rejected} (tagged with {@code reason=limit|deadline}),</li>
+ *   <li>counter {@code calculator.kafka.late-replies}: worker replies, over either transport,
+ *       that arrived after their caller had timed out, untagged.</li>
+ * </ul>
+ */
+@Component
+public class RequestMetrics {
+
+    private static final Set<String> OPERATIONS = Set.of("sum", "sub", "mul", "div", "pow", "mod", "sqrt", "exp", "ln", "batch", "eval", "stream");
+
+    private final MeterRegistry registry;
+
+    public RequestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void request(String op, long startNanos, int status) {
+        Timer.builder("calculator.http.requests")
+                .description("Time from receiving a calculation request to having its response")
+                .tag("operation", operationTag(op))
+                .tag("status", Integer.toString(status))
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void kafkaProduce(String op, long startNanos) {
+        Timer.builder("calculator.kafka.produce")
+                .description("Time until the request record was acknowledged by the broker")
+                .tag("operation", operationTag(op))
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void kafkaReply(String transport, String op, long startNanos, String outcome) {
+        Timer.builder("calculator.kafka.reply")
+                .description("Time from sending a request until the worker's reply arrived")
+                .tag("operation", operationTag(op))
+                .tag("outcome", outcome)
+                .tag("transport", transport)
+                .register(registry)
+                .record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void lateReply() {
+        registry.counter("calculator.kafka.late-replies").increment();
+    }
+
+    public void invalidInput(String op) {
+        counter("calculator.requests.invalid", op).increment();
+    }
+
+    public void timeout(String op) {
+        counter("calculator.requests.timeouts", op).increment();
+    }
+
+    public void rejected(String op, String reason) {
+        Counter.builder("calculator.requests.rejected")
+                .tag("operation", operationTag(op))
+                .tag("reason", reason)
+                .register(registry)
+                .increment();
+    }
+
+    public void error(String op, String source) {
+        Counter.builder("calculator.requests.errors")
+                .tag("operation", operationTag(op))
+                .tag("source", source)
+                .register(registry)
+                .increment();
+    }
+
+    private Counter counter(String name, String op) {
+        return Counter.builder(name).tag("operation", operationTag(op)).register(registry);
+    }
+
+    private static String operationTag(String op) {
+        return op != null && OPERATIONS.contains(op) ? op : "other";
+    }
+}
@@ -0,0 +1,97 @@
+package com.wit.rest.serde;
+
+import com.wit.common.wire.BinaryWire;
+import com.wit.common.wire.WireFormat;
+import com.wit.rest.dto.CalculatorRequest;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Serializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes requests as JSON or as {@link BinaryWire} messages, depending on the
+ * {@value WireFormat#CONFIG} producer property. The JSON path is Spring's
+ * {@link JsonSerializer} with the same configuration as before. Binary {@code eval}
+ * requests carry their expression and variable bindings after the common fields. A
+ * request with a precision, a rounding mode or an operation beyond the basic four, its
+ * own or an item's, is written in {@link BinaryWire#MATH_VERSION}; every other request
+ * stays in the first version.
+ */
+public class CalculatorRequestSerializer implements Serializer<CalculatorRequest> {
+
+    private static final String EVAL = "eval";
+
+    private final JsonSerializer<CalculatorRequest> json = new JsonSerializer<>();
+    private WireFormat format = WireFormat.JSON;
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        format = WireFormat.fromConfig(configs);
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public byte[] serialize(String topic, CalculatorRequest data) {
+        return serialize(topic, null, data);
+    }
+
+    @Override
+    public byte[] serialize(String topic, Headers headers, CalculatorRequest data) {
+        if (data == null) {
+            return null;
+        }
+        if (format == WireFormat.BINARY) {
+            boolean math = needsMathVersion(data);
+            BinaryWire.Writer writer = new BinaryWire.Writer(math ? BinaryWire.MATH_VERSION : BinaryWire.VERSION);
+            write(writer, data, math);
+            return writer.toByteArray();
+        }
+        return headers == null ? json.serialize(topic, data) : json.serialize(topic, headers, data);
+    }
+
+    private static boolean needsMathVersion(CalculatorRequest req) {
+        if (req.getPrecision() != null || req.getRounding() != null || BinaryWire.isMathOperation(req.getOperation())) {
+            return true;
+        }
+        if (req.getItems() != null) {
+            for (CalculatorRequest item : req.getItems()) {
+                if (item != null && needsMathVersion(item)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static void write(BinaryWire.Writer writer, CalculatorRequest req, boolean math) {
+        writer.writeOperation(req.getOperation())
+                .writeDecimal(req.getA())
+                .writeDecimal(req.getB());
+        if (math) {
+            writer.writePrecision(req.getPrecision()).writeRounding(req.getRounding());
+        }
+        List<CalculatorRequest> items = req.getItems();
+        writer.writeSize(items == null ? 0 : items.size(), items != null);
+        if (items != null) {
+            for (CalculatorRequest item : items) {
+                write(writer, item, math);
+            }
+        }
+        if (EVAL.equals(req.getOperation())) {
+            writer.writeString(req.getExpression());
+            Map<String, BigDecimal> variables = req.getVariables();
+            writer.writeSize(variables == null ? 0 : variables.size(), variables != null);
+            if (variables != null) {
+                variables.forEach((name, value) -> writer.writeString(name).writeDecimal(value));
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,75 @@
+package com.wit.rest.serde;
+
+import com.wit.common.id.RequestIds;
+import com.wit.common.wire.BinaryWire;
+import com.wit.rest.dto.CalculatorResponse;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads worker replies in either wire format: {@link BinaryWire} messages are
+ * recognised by their first byte, anything else goes to Spring's {@link JsonDeserializer}.
+ * Binary replies take their id from the {@code Request-Id} header when the worker set one.
+ */
+public class CalculatorResponseDeserializer implements Deserializer<CalculatorResponse> {
+
+    private final JsonDeserializer<CalculatorResponse> json = new JsonDeserializer<>();
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+        json.configure(configs, isKey);
+    }
+
+    @Override
+    public CalculatorResponse deserialize(String topic, byte[] data) {
+        return deserialize(topic, null, data);
+    }
+
+    @Override
+    public CalculatorResponse deserialize(String topic, Headers headers, byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (!BinaryWire.isBinary(data)) {
+            return headers == null ? json.deserialize(topic, data) : json.deserialize(topic, headers, data);
+        }
+        try {
+            CalculatorResponse response = read(new BinaryWire.Reader(data), 0);
+            Header id = headers == null ? null : headers.lastHeader(RequestIds.HEADER);
+            if (id != null) {
+                response.setId(RequestIds.fromHeader(id.value()));
+            }
+            return response;
+        } catch (IllegalArgumentException e) {
+            throw new SerializationException("Can't deserialize binary reply from topic " + topic, e);
+        }
+    }
+
+    private static CalculatorResponse read(BinaryWire.Reader reader, int depth) {
+        CalculatorResponse response = new CalculatorResponse();
+        response.setResult(reader.readDecimal());
+        response.setError(reader.readString());
+        int size = reader.readSize();
+        if (size >= 0) {
+            reader.checkDepth(depth + 1);
+            List<CalculatorResponse> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(read(reader, depth + 1));
+            }
+            response.setItems(items);
+        }
+        return response;
+    }
+
+    @Override
+    public void close() {
+        json.close();
+    }
+}
@@ -0,0 +1,128 @@
+package com.wit.rest.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounds the requests waiting for a worker reply, so a worker that falls behind makes
+ * rest turn callers away at once instead of producing records that time out later.
+ * <ul>
+ *   <li>{@code OFF}: no limit.</li>
+ *   <li>{@code STATIC} (default): at most {@code calculator.admission.max-in-flight}.</li>
+ *   <li>{@code ADAPTIVE}: the limit starts there, shrinks by 10% for every reply slower
+ *       than {@code calculator.admission.target-latency} (or timed out) and grows by one
+ *       for every faster reply while it is in use, never below
+ *       {@code calculator.admission.min-in-flight}.</li>
+ * </ul>
+ * In every mode but {@code OFF}, requests are also refused while the average round trip
+ * is at least 90% of the reply timeout: they would not finish in time. One request per
+ * reply timeout still goes through so the average can recover.
+ */
+@Component
+public class AdmissionControl {
+
+    public enum Mode { OFF, STATIC, ADAPTIVE }
+
+    private final Mode mode;
+    private final int maxInFlight;
+    private final int minInFlight;
+    private final long targetLatencyNanos;
+    private final long deadlineNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong latencyNanos = new AtomicLong();
+    private final AtomicLong lastProbeNanos = new AtomicLong(System.nanoTime());
+    private volatile double limit;
+
+    public AdmissionControl(@Value("${calculator.admission.mode:static}") Mode mode,
+                            @Value("${calculator.admission.max-in-flight:1000}") int maxInFlight,
+                            @Value("${calculator.admission.min-in-flight:8}") int minInFlight,
+                            @Value("${calculator.admission.target-latency:250ms}") Duration targetLatency,
+                            @Value("${calculator.kafka.reply-timeout:5s}") Duration replyTimeout,
+                            ObjectProvider<MeterRegistry> meterRegistry) {
+        this.mode = mode;
+        this.maxInFlight = maxInFlight;
+        this.minInFlight = Math.min(minInFlight, maxInFlight);
+        this.targetLatencyNanos = targetLatency.toNanos();
+        this.deadlineNanos = replyTimeout.toNanos();
+        this.limit = maxInFlight;
+        if (mode != Mode.OFF) {
+            meterRegistry.ifAvailable(registry -> {
+                Gauge.builder("calculator.admission.in-flight", inFlight, AtomicInteger::get)
+                        .description("Requests waiting for a worker reply")
+                        .register(registry);
+                Gauge.builder("calculator.admission.limit", this, AdmissionControl::limit)
+                        .description("Requests allowed to wait for a worker reply at once")
+                        .register(registry);
+            });
+        }
+    }
+
+    public static AdmissionControl off() {
+        return new AdmissionControl(Mode.OFF, Integer.MAX_VALUE, 0, Duration.ZERO, Duration.ZERO, null);
+    }
+
+    /**
+     * Takes a slot for one request to the worker; hand it back with {@link #release}.
+     *
+     * @throws OverloadedException if the request must not be sent
+     */
+    public void acquire() {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        long latency = latencyNanos.get();
+        if (latency >= deadlineNanos - deadlineNanos / 10 && !probe()) {
+            throw new OverloadedException(OverloadedException.Reason.DEADLINE, Duration.ofNanos(deadlineNanos),
+                    "Calculator is answering slower than the reply timeout");
+        }
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= limit()) {
+                throw new OverloadedException(OverloadedException.Reason.LIMIT, Duration.ofNanos(latency),
+                        "Too many calculations in flight (" + current + ")");
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+    }
+
+    /** Returns the slot of a request that got its reply, or failed, after {@code nanos}. */
+    public void release(long nanos, boolean timedOut) {
+        if (mode == Mode.OFF) {
+            return;
+        }
+        int current = inFlight.decrementAndGet();
+        latencyNanos.updateAndGet(avg -> avg == 0 ? nanos : avg + (nanos - avg) / 8);
+        if (mode == Mode.ADAPTIVE) {
+            adapt(timedOut || nanos > targetLatencyNanos, current);
+        }
+    }
+
+    public int inFlight() {
+        return inFlight.get();
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    private synchronized void adapt(boolean slow, int inFlightNow) {
+        if (slow) {
+            limit = Math.max(minInFlight, limit * 0.9);
+        } else if (inFlightNow + 1 >= limit / 2) {
+            limit = Math.min(maxInFlight, limit + 1);
+        }
+    }
+
+    private boolean probe() {
+        long now = System.nanoTime();
+        long last = lastProbeNanos.get();
+        return now - last >= deadlineNanos && lastProbeNanos.compareAndSet(last, now);
+    }
+}
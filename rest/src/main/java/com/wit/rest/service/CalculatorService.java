@@ -0,0 +1,185 @@
+package com.wit.rest.service;
+
+import com.wit.common.engine.CalculationEngine;
+import com.wit.common.engine.CalculationEngine.Outcome;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.transport.CalculatorTransport;
+import com.wit.rest.transport.CalculatorTransport.Exchange;
+import com.wit.rest.transport.PendingReplies;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Gets a {@link CalculatorResponse} for a request: computed in-process when the
+ * {@link RoutingPolicy} allows it, from the {@link ResultCache} when the same
+ * calculation was answered before, otherwise from the worker over the configured
+ * {@link CalculatorTransport}, Kafka unless {@code calculator.transport} says otherwise. Requests
+ * with their own precision or rounding mode always go to the worker, which enforces
+ * the precision limit, and are neither cached nor coalesced.
+ * Identical calculations that arrive while one is already on its way to the worker
+ * wait for that reply instead of sending another record. Records are only sent while
+ * {@link AdmissionControl} has room for them. The returned future fails with an
+ * {@link OverloadedException} when it has not, and with the transport's error (e.g. a
+ * reply timeout) if the worker could not be reached.
+ */
+@Service
+public class CalculatorService {
+
+    private static final Logger log = LoggerFactory.getLogger(CalculatorService.class);
+
+    private final CalculatorTransport transport;
+    private final ResultCache resultCache;
+    private final RoutingPolicy routingPolicy;
+    private final AdmissionControl admission;
+    private final RequestMetrics metrics;
+    private final boolean coalescing;
+    private final Duration replyTimeout;
+    private final Map<ResultKey, CompletableFuture<CalculatorResponse>> inFlight = new ConcurrentHashMap<>();
+    private final PendingReplies<CalculatorResponse> callerTimeouts =
+            new PendingReplies<>("coalesced", () -> new TimeoutException("no reply in time"));
+
+    public CalculatorService(CalculatorTransport transport,
+                             ResultCache resultCache,
+                             RoutingPolicy routingPolicy,
+                             AdmissionControl admission,
+                             RequestMetrics metrics,
+                             @Value("${calculator.coalescing.enabled:true}") boolean coalescing,
+                             @Value("${calculator.kafka.reply-timeout:5s}") Duration replyTimeout) {
+        this.transport = transport;
+        this.resultCache = resultCache;
+        this.routingPolicy = routingPolicy;
+        this.admission = admission;
+        this.metrics = metrics;
+        this.coalescing = coalescing;
+        this.replyTimeout = replyTimeout;
+    }
+
+    public CompletableFuture<CalculatorResponse> calculate(CalculatorRequest req) {
+        String id = req.getId();
+        boolean defaultMath = req.getPrecision() == null && req.getRounding() == null;
+        if (defaultMath && routingPolicy.isLocal(req.getOperation(), req.getA(), req.getB())) {
+            log.debug("Computing in-process, requestId={}", id);
+            return CompletableFuture.completedFuture(computeLocally(req));
+        }
+
+        ResultKey key = defaultMath ? ResultKey.of(req.getOperation(), req.getA(), req.getB()) : null;
+
+        CalculatorResponse cached = resultCache.get(key, id);
+        if (cached != null) {
+            log.debug("Answered from result cache, requestId={}", id);
+            return CompletableFuture.completedFuture(cached);
+        }
+        if (!coalescing || key == null) {
+            return send(req, key);
+        }
+
+        CompletableFuture<CalculatorResponse> flight = new CompletableFuture<>();
+        CompletableFuture<CalculatorResponse> pending = inFlight.putIfAbsent(key, flight);
+        if (pending != null) {
+            log.debug("Joined in-flight calculation, requestId={}", id);
+            return forCaller(pending, id);
+        }
+
+        send(req, key).whenComplete((response, error) -> {
+            // the result is already cached here, so no later caller can miss both
+            inFlight.remove(key, flight);
+            if (error != null) {
+                flight.completeExceptionally(error);
+            } else {
+                flight.complete(response);
+            }
+        });
+        return forCaller(flight, id);
+    }
+
+    private CompletableFuture<CalculatorResponse> send(CalculatorRequest req, ResultKey key) {
+        if (req.getDeadline() > 0 && req.getDeadline() <= System.currentTimeMillis()) {
+            return CompletableFuture.failedFuture(new TimeoutException("deadline passed before the request was sent"));
+        }
+        try {
+            admission.acquire();
+        } catch (OverloadedException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Sending request over {}, requestId={}", transport.name(), req.getId());
+        }
+        String op = req.getOperation();
+        long start = System.nanoTime();
+        Exchange exchange;
+        try {
+            exchange = transport.send(req);
+        } catch (RuntimeException e) {
+            // failed rather than thrown, so a coalesced call still leaves inFlight and fails its callers
+            admission.release(System.nanoTime() - start, false);
+            metrics.kafkaReply(transport.name(), op, start, "error");
+            return CompletableFuture.failedFuture(e);
+        }
+        if (exchange.sent() != null) {
+            exchange.sent().thenRun(() -> metrics.kafkaProduce(op, start));
+        }
+        return exchange.reply()
+                .whenComplete((response, error) -> {
+                    String outcome = replyOutcome(error);
+                    admission.release(System.nanoTime() - start, outcome.equals("timeout"));
+                    metrics.kafkaReply(transport.name(), op, start, outcome);
+                })
+                .thenApply(response -> {
+                    routingPolicy.recordKafkaLatency(System.nanoTime() - start);
+                    resultCache.put(key, response);
+                    return response;
+                });
+    }
+
+    private static String replyOutcome(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        return cause instanceof KafkaReplyTimeoutException || cause instanceof TimeoutException ? "timeout" : "error";
+    }
+
+    private static CalculatorResponse computeLocally(CalculatorRequest req) {
+        Outcome outcome = CalculationEngine.evaluate(req.getOperation(), req.getA(), req.getB());
+        CalculatorResponse response = new CalculatorResponse(req.getId(), outcome.result());
+        response.setError(outcome.error());
+        return response;
+    }
+
+    /**
+     * Every caller waits on its own copy with its own deadline, so a caller that times
+     * out or goes away leaves the shared call and the other callers untouched. The
+     * deadlines sit in a timer wheel, like the transports' own, and leave it with the reply.
+     * The copy answers with the caller's own id, not that of the request that was sent.
+     */
+    private CompletableFuture<CalculatorResponse> forCaller(CompletableFuture<CalculatorResponse> flight, String id) {
+        CompletableFuture<CalculatorResponse> copy = flight.thenApply(response -> withId(response, id));
+        long ticket = callerTimeouts.register(copy, replyTimeout);
+        flight.whenComplete((response, error) -> callerTimeouts.remove(ticket));
+        return copy;
+    }
+
+    private static CalculatorResponse withId(CalculatorResponse response, String id) {
+        if (response == null || Objects.equals(response.getId(), id)) {
+            return response;
+        }
+        CalculatorResponse copy = new CalculatorResponse(id, response.getResult());
+        copy.setError(response.getError());
+        copy.setItems(response.getItems());
+        return copy;
+    }
+}
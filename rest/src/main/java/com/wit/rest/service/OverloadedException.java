@@ -0,0 +1,45 @@
+package com.wit.rest.service;
+
+import java.time.Duration;
+
+/**
+ * A calculation that {@link AdmissionControl} refused to send to the worker. The
+ * controller answers it with {@link Reason#status()} and a {@code Retry-After} header.
+ */
+public class OverloadedException extends RuntimeException {
+
+    public enum Reason {
+        /** The in-flight limit is reached: 429 Too Many Requests. */
+        LIMIT(429),
+        /** The worker answers slower than the reply timeout, so the request would time out anyway: 503. */
+        DEADLINE(503);
+
+        private final int status;
+
+        Reason(int status) {
+            this.status = status;
+        }
+
+        public int status() {
+            return status;
+        }
+    }
+
+    private final Reason reason;
+    private final Duration retryAfter;
+
+    public OverloadedException(Reason reason, Duration retryAfter, String message) {
+        super(message, null, false, false);
+        this.reason = reason;
+        this.retryAfter = retryAfter;
+    }
+
+    public Reason reason() {
+        return reason;
+    }
+
+    /** Whole seconds, at least one, as sent in {@code Retry-After}. */
+    public long retryAfterSeconds() {
+        return Math.max(1, (retryAfter.toMillis() + 999) / 1000);
+    }
+}
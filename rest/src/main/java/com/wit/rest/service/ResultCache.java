@@ -0,0 +1,62 @@
+package com.wit.rest.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.wit.rest.dto.CalculatorResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+
+/**
+ * Bounded, expiring cache of worker answers, including deterministic errors such
+ * as division by zero. Only the result or error is kept: every hit is a new response
+ * carrying the id of the request it answers. Exposes {@code cache.gets}, {@code cache.evictions} and
+ * {@code cache.size} metrics tagged {@code cache=calculator.results}.
+ */
+@Component
+public class ResultCache {
+
+    private final Cache<ResultKey, Answer> cache;
+
+    public ResultCache(@Value("${calculator.cache.enabled:true}") boolean enabled,
+                       @Value("${calculator.cache.max-size:10000}") long maxSize,
+                       @Value("${calculator.cache.ttl:10m}") Duration ttl,
+                       ObjectProvider<MeterRegistry> meterRegistry) {
+        this.cache = enabled
+                ? Caffeine.newBuilder().maximumSize(maxSize).expireAfterWrite(ttl).recordStats().build()
+                : null;
+        if (this.cache != null) {
+            meterRegistry.ifAvailable(registry -> CaffeineCacheMetrics.monitor(registry, this.cache, "calculator.results"));
+        }
+    }
+
+    /** The cached answer as a response to request {@code id}, or {@code null} on a miss. */
+    CalculatorResponse get(ResultKey key, String id) {
+        Answer answer = cache == null || key == null ? null : cache.getIfPresent(key);
+        if (answer == null) {
+            return null;
+        }
+        CalculatorResponse response = new CalculatorResponse(id, answer.result());
+        response.setError(answer.error());
+        return response;
+    }
+
+    void put(ResultKey key, CalculatorResponse response) {
+        if (cache != null && key != null && response != null) {
+            cache.put(key, new Answer(response.getResult(), response.getError()));
+        }
+    }
+
+    public void clear() {
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    private record Answer(BigDecimal result, String error) { }
+}
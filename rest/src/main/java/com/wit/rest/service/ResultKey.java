@@ -0,0 +1,26 @@
+package com.wit.rest.service;
+
+import java.math.BigDecimal;
+
+/**
+ * Cache key of a binary calculation. Operands are stripped of trailing zeros so
+ * that {@code 1.0} and {@code 1.00} share an entry, and the scale the worker would
+ * give the result is part of the key, so a hit returns exactly what the worker
+ * would have computed ({@code 1.0 + 2} is {@code 3.0}, {@code 1.00 + 2} is {@code 3.00}).
+ */
+record ResultKey(String op, BigDecimal a, BigDecimal b, int resultScale) {
+
+    /** Returns the key of a cacheable calculation, or {@code null} if it must not be cached. */
+    static ResultKey of(String op, BigDecimal a, BigDecimal b) {
+        if (op == null || a == null || b == null) {
+            return null;
+        }
+        return switch (op) {
+            case "sum", "sub" -> new ResultKey(op, a.stripTrailingZeros(), b.stripTrailingZeros(), Math.max(a.scale(), b.scale()));
+            case "mul" -> new ResultKey(op, a.stripTrailingZeros(), b.stripTrailingZeros(), a.scale() + b.scale());
+            // division always rounds to a fixed scale, so only the values matter
+            case "div" -> new ResultKey(op, a.stripTrailingZeros(), b.stripTrailingZeros(), 0);
+            default -> null;
+        };
+    }
+}
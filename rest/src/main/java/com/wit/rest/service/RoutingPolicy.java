@@ -0,0 +1,88 @@
+package com.wit.rest.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Decides whether a calculation is computed in-process or sent to the worker.
+ * <ul>
+ *   <li>{@code KAFKA} (default): everything goes to the worker.</li>
+ *   <li>{@code LOCAL}: eligible calculations are computed in-process.</li>
+ *   <li>{@code ADAPTIVE}: eligible calculations are computed in-process while the
+ *       recent Kafka round trip is slower than {@code calculator.routing.kafka-latency-threshold}.
+ *       Meanwhile one of them goes to the worker every {@code calculator.routing.probe-interval},
+ *       so the average keeps being fed and routing returns to Kafka once it has recovered.</li>
+ * </ul>
+ * A calculation is eligible when its operation is in {@code calculator.routing.local-operations}
+ * and neither operand has more than {@code calculator.routing.max-local-digits} digits.
+ */
+@Component
+public class RoutingPolicy {
+
+    public enum Mode { KAFKA, LOCAL, ADAPTIVE }
+
+    private final Mode mode;
+    private final Set<String> localOperations;
+    private final int maxLocalDigits;
+    private final long latencyThresholdNanos;
+    private final long probeIntervalNanos;
+    private final LongSupplier nanoClock;
+    private final AtomicLong kafkaLatencyNanos = new AtomicLong();
+    private final AtomicLong nextProbe;
+
+    @Autowired
+    public RoutingPolicy(@Value("${calculator.routing.mode:kafka}") Mode mode,
+                         @Value("${calculator.routing.local-operations:sum,sub,mul}") Set<String> localOperations,
+                         @Value("${calculator.routing.max-local-digits:34}") int maxLocalDigits,
+                         @Value("${calculator.routing.kafka-latency-threshold:5ms}") Duration latencyThreshold,
+                         @Value("${calculator.routing.probe-interval:1s}") Duration probeInterval) {
+        this(mode, localOperations, maxLocalDigits, latencyThreshold, probeInterval, System::nanoTime);
+    }
+
+    RoutingPolicy(Mode mode, Set<String> localOperations, int maxLocalDigits, Duration latencyThreshold,
+                  Duration probeInterval, LongSupplier nanoClock) {
+        this.mode = mode;
+        this.localOperations = Set.copyOf(localOperations);
+        this.maxLocalDigits = maxLocalDigits;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.probeIntervalNanos = probeInterval.toNanos();
+        this.nanoClock = nanoClock;
+        this.nextProbe = new AtomicLong(nanoClock.getAsLong() + probeIntervalNanos);
+    }
+
+    public boolean isLocal(String op, BigDecimal a, BigDecimal b) {
+        if (mode == Mode.KAFKA || op == null || a == null || b == null) {
+            return false;
+        }
+        if (!localOperations.contains(op) || a.precision() > maxLocalDigits || b.precision() > maxLocalDigits) {
+            return false;
+        }
+        if (mode == Mode.LOCAL) {
+            return true;
+        }
+        return kafkaLatencyNanos.get() > latencyThresholdNanos && !probeDue();
+    }
+
+    /** Whether this calculation should measure Kafka again; true for one caller per probe interval. */
+    private boolean probeDue() {
+        long now = nanoClock.getAsLong();
+        long due = nextProbe.get();
+        return now - due >= 0 && nextProbe.compareAndSet(due, now + probeIntervalNanos);
+    }
+
+    /** Feeds one measured Kafka round trip into the moving average used by {@code ADAPTIVE}. */
+    public void recordKafkaLatency(long nanos) {
+        kafkaLatencyNanos.updateAndGet(avg -> avg == 0 ? nanos : avg + (nanos - avg) / 8);
+    }
+
+    public Duration kafkaLatency() {
+        return Duration.ofNanos(kafkaLatencyNanos.get());
+    }
+}
@@ -0,0 +1,31 @@
+package com.wit.rest.transport;
+
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * How requests reach the worker and its replies come back, chosen with
+ * {@code calculator.transport}: {@code kafka} ({@link KafkaTransport}) or {@code direct}
+ * ({@link DirectTransport}). Either way the worker answers through the same
+ * {@code CalculatorListener.handle}, so results do not depend on the transport.
+ */
+public interface CalculatorTransport {
+
+    /** {@code kafka} or {@code direct}, the {@code transport} tag of the reply metrics. */
+    String name();
+
+    /**
+     * Sends the request. The reply future fails with a {@code TimeoutException} (or
+     * Kafka's {@code KafkaReplyTimeoutException}) when no reply arrives in time.
+     */
+    Exchange send(CalculatorRequest req);
+
+    /**
+     * @param sent  completes once the request left this instance (acknowledged by the
+     *              broker for Kafka), or {@code null} when the transport cannot tell
+     * @param reply the worker's reply
+     */
+    record Exchange(CompletableFuture<?> sent, CompletableFuture<CalculatorResponse> reply) { }
+}
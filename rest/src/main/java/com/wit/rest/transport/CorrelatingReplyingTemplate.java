@@ -0,0 +1,135 @@
+package com.wit.rest.transport;
+
+import com.wit.common.kafka.ProducerPool;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.KafkaException;
+import org.springframework.kafka.core.ProducerFactory;
+import org.springframework.kafka.listener.GenericMessageListenerContainer;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.kafka.support.SendResult;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link ReplyingKafkaTemplate} that keeps its waiting callers in {@link PendingReplies}
+ * rather than the template's own map and scheduler: the correlation id is an 8-byte
+ * counter instead of a random UUID, and a timeout is a slot in a timer wheel instead of
+ * a scheduled task that stays queued for the whole reply timeout even after the reply
+ * came. Timeouts fail with the template's usual {@link KafkaReplyTimeoutException}.
+ * Replies that arrive after their caller gave up are counted and dropped without the
+ * error log line (and record dump) the template writes for each of them by default.
+ * The {@code REPLY_TOPIC}/{@code REPLY_PARTITION} headers name {@code replyTopic} and,
+ * when not negative, {@code replyPartition}: the topic and partition the reply
+ * container reads.
+ */
+public class CorrelatingReplyingTemplate extends ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> {
+
+    private static final Logger log = LoggerFactory.getLogger(CorrelatingReplyingTemplate.class);
+
+    private final PendingReplies<ConsumerRecord<String, CalculatorResponse>> pending =
+            new PendingReplies<>("kafka-replies", () -> new KafkaReplyTimeoutException("Reply timed out"));
+    private final byte[] replyTopic;
+    private final byte[] replyPartition;
+    private final RequestMetrics metrics;
+
+    public CorrelatingReplyingTemplate(ProducerFactory<String, CalculatorRequest> producerFactory,
+                                       GenericMessageListenerContainer<String, CalculatorResponse> repliesContainer,
+                                       String replyTopic,
+                                       int replyPartition,
+                                       RequestMetrics metrics) {
+        super(producerFactory, repliesContainer);
+        this.replyTopic = replyTopic.getBytes(StandardCharsets.UTF_8);
+        this.replyPartition = replyPartition >= 0 ? ByteBuffer.allocate(4).putInt(replyPartition).array() : null;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> sendAndReceive(
+            ProducerRecord<String, CalculatorRequest> record, Duration replyTimeout) {
+        if (!isRunning()) {
+            throw new IllegalStateException("Template has not been started");
+        }
+        var future = new ReplyFuture();
+        long correlation = pending.register(future, replyTimeout != null ? replyTimeout : getDefaultReplyTimeout());
+        Headers headers = record.headers();
+        headers.add(KafkaHeaders.CORRELATION_ID, ByteBuffer.allocate(8).putLong(correlation).array());
+        headers.add(KafkaHeaders.REPLY_TOPIC, replyTopic);
+        if (replyPartition != null) {
+            headers.add(KafkaHeaders.REPLY_PARTITION, replyPartition);
+        }
+        CompletableFuture<SendResult<String, CalculatorRequest>> sent;
+        try {
+            sent = send(record);
+        } catch (RuntimeException e) {
+            pending.remove(correlation);
+            throw e;
+        }
+        future.sentBy(sent);
+        sent.whenComplete((result, error) -> {
+            if (error != null) {
+                CompletableFuture<ConsumerRecord<String, CalculatorResponse>> caller = pending.remove(correlation);
+                if (caller != null) {
+                    caller.completeExceptionally(new KafkaException("Send failed", error));
+                }
+            }
+        });
+        return future;
+    }
+
+    @Override
+    public void onMessage(List<ConsumerRecord<String, CalculatorResponse>> records) {
+        for (ConsumerRecord<String, CalculatorResponse> record : records) {
+            Header header = record.headers().lastHeader(KafkaHeaders.CORRELATION_ID);
+            CompletableFuture<ConsumerRecord<String, CalculatorResponse>> caller =
+                    header != null && header.value().length == 8 ? pending.remove(ByteBuffer.wrap(header.value()).getLong()) : null;
+            if (caller == null) {
+                metrics.lateReply();
+                if (log.isDebugEnabled()) {
+                    log.debug("Dropping late reply, requestId={}", record.key());
+                }
+                continue;
+            }
+            Exception error = checkForErrors(record);
+            if (error != null) {
+                caller.completeExceptionally(error);
+            } else {
+                caller.complete(record);
+            }
+        }
+    }
+
+    /** Callers currently waiting for a reply. */
+    public int pendingReplies() {
+        return pending.size();
+    }
+
+    @Override
+    public void destroy() {
+        super.destroy();
+        if (getProducerFactory() instanceof ProducerPool<?, ?> pool) {
+            pool.destroy();
+        }
+    }
+
+    /** Exposes the send future, which only subclasses of {@link RequestReplyFuture} may set. */
+    private static final class ReplyFuture extends RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> {
+        void sentBy(CompletableFuture<SendResult<String, CalculatorRequest>> sent) {
+            setSendFuture(sent);
+        }
+    }
+}
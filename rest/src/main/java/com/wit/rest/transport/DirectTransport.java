@@ -0,0 +1,216 @@
+package com.wit.rest.transport;
+
+import com.wit.common.wire.DirectFrames;
+import com.wit.common.wire.WireFormat;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.serde.CalculatorRequestSerializer;
+import com.wit.rest.serde.CalculatorResponseDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Sends requests straight to the worker's direct server ({@code calculator.direct.enabled}
+ * on the worker) over {@code calculator.direct.connections} persistent TCP connections,
+ * without a broker in between. Requests are pipelined: each connection carries any
+ * number of them at once, framed by {@link DirectFrames}, and replies are matched to
+ * their callers by correlation number through one {@link PendingReplies} table, which
+ * also times them out. Payloads use the configured
+ * {@link WireFormat}. A connection that breaks fails the requests waiting on it and is
+ * opened again by the next request that picks it; only requests picking that same
+ * connection wait while it connects. There is no redelivery: a request
+ * lost with its connection is an error for its caller, not a retry.
+ */
+@Component
+@ConditionalOnProperty(name = "calculator.transport", havingValue = "direct")
+public class DirectTransport implements CalculatorTransport, DisposableBean {
+
+    private static final Logger log = LoggerFactory.getLogger(DirectTransport.class);
+
+    private final InetSocketAddress address;
+    private final Duration replyTimeout;
+    private final RequestMetrics metrics;
+    private final CalculatorRequestSerializer serializer = new CalculatorRequestSerializer();
+    private final CalculatorResponseDeserializer deserializer = new CalculatorResponseDeserializer();
+    private final PendingReplies<CalculatorResponse> pending =
+            new PendingReplies<>("direct-replies", () -> new TimeoutException("no reply from the worker in time"));
+    private final AtomicReferenceArray<Link> links;
+    // one lock per connection, held while it is opened
+    private final Object[] connecting;
+    private final AtomicInteger next = new AtomicInteger();
+    private volatile boolean closed;
+
+    public DirectTransport(@Value("${calculator.direct.address:localhost:9091}") String address,
+                           @Value("${calculator.direct.connections:2}") int connections,
+                           @Value("${calculator.kafka.reply-timeout:5s}") Duration replyTimeout,
+                           @Value("${spring.kafka.producer.properties.calculator.wire-format:json}") String wireFormat,
+                           RequestMetrics metrics) {
+        int colon = address.lastIndexOf(':');
+        if (colon < 0 || connections < 1) {
+            throw new IllegalArgumentException("calculator.direct.address must be host:port and connections at least 1");
+        }
+        this.address = InetSocketAddress.createUnresolved(address.substring(0, colon),
+                Integer.parseInt(address.substring(colon + 1)));
+        this.replyTimeout = replyTimeout;
+        this.metrics = metrics;
+        this.links = new AtomicReferenceArray<>(connections);
+        this.connecting = new Object[connections];
+        for (int i = 0; i < connections; i++) {
+            connecting[i] = new Object();
+        }
+        serializer.configure(Map.of(WireFormat.CONFIG, wireFormat), false);
+        deserializer.configure(Map.of(
+                JsonDeserializer.VALUE_DEFAULT_TYPE, CalculatorResponse.class.getName(),
+                JsonDeserializer.TRUSTED_PACKAGES, "com.wit.rest.dto.*"), false);
+    }
+
+    @Override
+    public String name() {
+        return "direct";
+    }
+
+    @Override
+    public Exchange send(CalculatorRequest req) {
+        byte[] payload = serializer.serialize(null, req);
+        int slot = Math.floorMod(next.getAndIncrement(), links.length());
+        CompletableFuture<CalculatorResponse> reply;
+        try {
+            reply = link(slot).send(req.getId(), req.getDeadline(), payload);
+        } catch (IOException e) {
+            reply = CompletableFuture.failedFuture(new UncheckedIOException("worker unreachable at " + address, e));
+        }
+        String id = req.getId();
+        return new Exchange(null, reply.thenApply(response -> {
+            // binary replies leave the id out, as they do on Kafka
+            if (response.getId() == null) {
+                response.setId(id);
+            }
+            return response;
+        }));
+    }
+
+    private Link link(int slot) throws IOException {
+        Link link = links.get(slot);
+        if (link != null && !link.broken) {
+            return link;
+        }
+        synchronized (connecting[slot]) {
+            link = links.get(slot);
+            if (link == null || link.broken) {
+                if (closed) {
+                    throw new IOException("transport closed");
+                }
+                link = new Link(slot);
+                links.set(slot, link);
+                // destroy() may have run while this connection was being opened
+                if (closed) {
+                    link.close(new IOException("transport closed"));
+                    throw new IOException("transport closed");
+                }
+            }
+            return link;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        closed = true;
+        for (int slot = 0; slot < links.length(); slot++) {
+            Link link = links.get(slot);
+            if (link != null) {
+                link.close(new IOException("transport closed"));
+            }
+        }
+    }
+
+    /** One connection and the thread reading its replies. Its callers are registered with the link as owner. */
+    private final class Link {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private volatile boolean broken;
+
+        Link(int slot) throws IOException {
+            socket = new Socket();
+            socket.setTcpNoDelay(true);
+            socket.connect(new InetSocketAddress(address.getHostString(), address.getPort()),
+                    (int) Math.min(Integer.MAX_VALUE, replyTimeout.toMillis()));
+            out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream(), 1 << 16));
+            var in = new DataInputStream(new BufferedInputStream(socket.getInputStream(), 1 << 16));
+            Thread.ofPlatform().daemon().name("direct-replies-" + slot).start(() -> readReplies(in));
+        }
+
+        CompletableFuture<CalculatorResponse> send(String id, long deadline, byte[] payload) {
+            CompletableFuture<CalculatorResponse> reply = new CompletableFuture<>();
+            long correlation = pending.register(reply, replyTimeout, this);
+            try {
+                synchronized (out) {
+                    DirectFrames.writeRequest(out, correlation, id, deadline, payload);
+                    out.flush();
+                }
+            } catch (IOException e) {
+                close(e);
+            }
+            if (broken) {
+                // the connection went down after this request was registered but before close() saw it
+                pending.failAll(this, new UncheckedIOException(new IOException("connection to the worker lost")));
+            }
+            return reply;
+        }
+
+        private void readReplies(DataInputStream in) {
+            IOException failure = new IOException("connection closed by the worker");
+            try {
+                DirectFrames.Reply frame;
+                while ((frame = DirectFrames.readReply(in)) != null) {
+                    CompletableFuture<CalculatorResponse> reply = pending.remove(frame.correlation());
+                    if (reply == null) {
+                        metrics.lateReply();
+                        continue;
+                    }
+                    try {
+                        reply.complete(deserializer.deserialize(null, frame.payload()));
+                    } catch (RuntimeException e) {
+                        reply.completeExceptionally(e);
+                    }
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+            close(failure);
+        }
+
+        void close(IOException cause) {
+            broken = true;
+            try {
+                socket.close();
+            } catch (IOException e) {
+                log.debug("Closing direct connection to {} failed", address, e);
+            }
+            int waiting = pending.failAll(this, new UncheckedIOException(cause));
+            if (waiting > 0 && !closed) {
+                log.warn("Direct connection to {} lost with {} requests waiting: {}", address, waiting, cause.toString());
+            }
+        }
+    }
+}
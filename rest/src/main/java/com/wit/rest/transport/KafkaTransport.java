@@ -0,0 +1,37 @@
+package com.wit.rest.transport;
+
+import com.wit.rest.config.KafkaProducerConfig;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+import org.springframework.stereotype.Component;
+
+/**
+ * Request-reply over {@code calculator.requests} and the reply topic, through the
+ * {@link ReplyingKafkaTemplate} built in {@link KafkaProducerConfig}. The default.
+ */
+@Component
+@ConditionalOnProperty(name = "calculator.transport", havingValue = "kafka", matchIfMissing = true)
+public class KafkaTransport implements CalculatorTransport {
+
+    private final ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate;
+
+    public KafkaTransport(ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate) {
+        this.rrTemplate = rrTemplate;
+    }
+
+    @Override
+    public String name() {
+        return "kafka";
+    }
+
+    @Override
+    public Exchange send(CalculatorRequest req) {
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future =
+                rrTemplate.sendAndReceive(KafkaProducerConfig.buildRecord(req, req.getId()));
+        return new Exchange(future.getSendFuture(), future.thenApply(ConsumerRecord::value));
+    }
+}
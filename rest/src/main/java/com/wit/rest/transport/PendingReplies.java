@@ -0,0 +1,294 @@
+package com.wit.rest.transport;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Callers waiting for a reply, each under a correlation number handed out by
+ * {@link #register} and with its own timeout. The table is split into 64 stripes, picked
+ * by the correlation number, each with its own lock, an open-addressing table of
+ * {@code long} keys and a hashed timer wheel of 512 buckets: registering and removing a
+ * caller is a short critical section on one stripe and one small allocation, and a
+ * timeout is a link in the wheel rather than a task queued on a scheduler. One daemon
+ * thread advances the wheels by one bucket per tick and fails the callers whose time
+ * is up with {@code timeoutError}, so a timeout fires between one and two ticks late.
+ * The thread stops while the table is empty and starts again with the next caller.
+ */
+public final class PendingReplies<T> {
+
+    /** Resolution of the timeouts when none is given. */
+    public static final Duration DEFAULT_TICK = Duration.ofMillis(10);
+
+    private static final int STRIPES = 64;
+    private static final int WHEEL = 512;
+
+    private final String name;
+    private final long tickNanos;
+    private final Supplier<? extends Throwable> timeoutError;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    // a random start, so replies still on their way to an earlier instance cannot match a caller of this one
+    private final AtomicLong correlations = new AtomicLong(ThreadLocalRandom.current().nextLong());
+    private final AtomicBoolean ticking = new AtomicBoolean();
+    private final long origin = System.nanoTime();
+
+    public PendingReplies(String name, Supplier<? extends Throwable> timeoutError) {
+        this(name, DEFAULT_TICK, timeoutError);
+    }
+
+    public PendingReplies(String name, Duration tick, Supplier<? extends Throwable> timeoutError) {
+        if (tick.toNanos() <= 0) {
+            throw new IllegalArgumentException("tick must be positive");
+        }
+        this.name = name;
+        this.tickNanos = tick.toNanos();
+        this.timeoutError = timeoutError;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    /** Registers {@code future} until it is removed or {@code timeout} passes, and returns its correlation number. */
+    public long register(CompletableFuture<T> future, Duration timeout) {
+        return register(future, timeout, null);
+    }
+
+    /**
+     * As {@link #register(CompletableFuture, Duration)}, remembering {@code owner} (e.g. the
+     * connection the request went out on) for {@link #failAll}.
+     */
+    public long register(CompletableFuture<T> future, Duration timeout, Object owner) {
+        long correlation = correlations.incrementAndGet();
+        if (correlation == 0) {
+            correlation = correlations.incrementAndGet();
+        }
+        long due = (System.nanoTime() - origin + timeout.toNanos() + tickNanos - 1) / tickNanos;
+        Stripe stripe = stripes[(int) correlation & (STRIPES - 1)];
+        synchronized (stripe) {
+            // never behind the ticker, or the caller would wait a whole turn of the wheel
+            stripe.add(new Entry(correlation, Math.max(due, stripe.processed + 1), future, owner));
+        }
+        if (!ticking.get() && ticking.compareAndSet(false, true)) {
+            Thread.ofPlatform().daemon().name(name + "-timeouts").start(this::tick);
+        }
+        return correlation;
+    }
+
+    /**
+     * Removes the caller registered under {@code correlation} and returns its future for
+     * the reply, or {@code null} when it has already timed out or been answered.
+     */
+    @SuppressWarnings("unchecked")
+    public CompletableFuture<T> remove(long correlation) {
+        Stripe stripe = stripes[(int) correlation & (STRIPES - 1)];
+        Entry entry;
+        synchronized (stripe) {
+            entry = stripe.remove(correlation);
+        }
+        return entry != null ? (CompletableFuture<T>) entry.future : null;
+    }
+
+    /** Fails every caller registered with {@code owner} with {@code cause} and returns how many there were. */
+    public int failAll(Object owner, Throwable cause) {
+        List<Entry> failed = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                stripe.removeOwnedBy(owner, failed);
+            }
+        }
+        failed.forEach(entry -> entry.future.completeExceptionally(cause));
+        return failed.size();
+    }
+
+    /** Callers currently waiting. */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.count;
+            }
+        }
+        return size;
+    }
+
+    private void tick() {
+        List<Entry> expired = new ArrayList<>();
+        long done = -1;
+        while (true) {
+            long now = (System.nanoTime() - origin) / tickNanos;
+            if (done >= now) {
+                LockSupport.parkNanos(origin + (now + 1) * tickNanos - System.nanoTime());
+                continue;
+            }
+            int left = 0;
+            for (Stripe stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.expire(now, expired);
+                    left += stripe.count;
+                }
+            }
+            done = now;
+            for (Entry entry : expired) {
+                entry.future.completeExceptionally(timeoutError.get());
+            }
+            expired.clear();
+            if (left == 0) {
+                ticking.set(false);
+                // a caller registered after the count above may have seen the flag still set
+                if (size() == 0 || !ticking.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static final class Entry {
+        final long correlation;
+        final long due;
+        final CompletableFuture<?> future;
+        final Object owner;
+        Entry prev;
+        Entry next;
+
+        Entry(long correlation, long due, CompletableFuture<?> future, Object owner) {
+            this.correlation = correlation;
+            this.due = due;
+            this.future = future;
+            this.owner = owner;
+        }
+    }
+
+    /**
+     * One stripe: entries by correlation number in a linear-probing table (0 marks a free
+     * slot and is never handed out), and the same entries threaded through the
+     * wheel bucket of the tick they are due in.
+     */
+    private static final class Stripe {
+        long[] keys = new long[16];
+        Entry[] entries = new Entry[16];
+        int count;
+        final Entry[] wheel = new Entry[WHEEL];
+        long processed = -1;
+
+        void add(Entry entry) {
+            if ((count + 1) * 2 > keys.length) {
+                resize();
+            }
+            int mask = keys.length - 1;
+            int i = slot(entry.correlation, mask);
+            while (keys[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            keys[i] = entry.correlation;
+            entries[i] = entry;
+            count++;
+
+            int bucket = (int) (entry.due & (WHEEL - 1));
+            entry.next = wheel[bucket];
+            if (entry.next != null) {
+                entry.next.prev = entry;
+            }
+            wheel[bucket] = entry;
+        }
+
+        Entry remove(long correlation) {
+            int mask = keys.length - 1;
+            for (int i = slot(correlation, mask); keys[i] != 0; i = (i + 1) & mask) {
+                if (keys[i] == correlation) {
+                    Entry entry = entries[i];
+                    clear(i);
+                    unlink(entry);
+                    return entry;
+                }
+            }
+            return null;
+        }
+
+        /** Moves the entries due by {@code now} to {@code expired}, visiting each bucket passed since the last call. */
+        void expire(long now, List<Entry> expired) {
+            long from = Math.max(processed + 1, now - WHEEL + 1);
+            for (long tick = from; tick <= now; tick++) {
+                Entry entry = wheel[(int) (tick & (WHEEL - 1))];
+                while (entry != null) {
+                    Entry next = entry.next;
+                    if (entry.due <= now) {
+                        remove(entry.correlation);
+                        expired.add(entry);
+                    }
+                    entry = next;
+                }
+            }
+            processed = now;
+        }
+
+        void removeOwnedBy(Object owner, List<Entry> removed) {
+            int first = removed.size();
+            for (Entry entry : entries) {
+                if (entry != null && entry.owner == owner) {
+                    removed.add(entry);
+                }
+            }
+            // removing shifts entries between slots, so they are taken out by key afterwards
+            for (int i = first; i < removed.size(); i++) {
+                remove(removed.get(i).correlation);
+            }
+        }
+
+        /** Empties slot {@code i}, moving later entries of the same probe run back into the gap. */
+        private void clear(int i) {
+            int mask = keys.length - 1;
+            for (int j = (i + 1) & mask; keys[j] != 0; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                if (((j - home) & mask) >= ((j - i) & mask)) {
+                    keys[i] = keys[j];
+                    entries[i] = entries[j];
+                    i = j;
+                }
+            }
+            keys[i] = 0;
+            entries[i] = null;
+            count--;
+        }
+
+        private void unlink(Entry entry) {
+            if (entry.prev != null) {
+                entry.prev.next = entry.next;
+            } else {
+                wheel[(int) (entry.due & (WHEEL - 1))] = entry.next;
+            }
+            if (entry.next != null) {
+                entry.next.prev = entry.prev;
+            }
+            entry.prev = null;
+            entry.next = null;
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Entry[] oldEntries = entries;
+            keys = new long[oldKeys.length * 2];
+            entries = new Entry[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int k = 0; k < oldKeys.length; k++) {
+                if (oldKeys[k] != 0) {
+                    int i = slot(oldKeys[k], mask);
+                    while (keys[i] != 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[k];
+                    entries[i] = oldEntries[k];
+                }
+            }
+        }
+
+        private static int slot(long correlation, int mask) {
+            return (int) ((correlation * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.wit.rest;
+
+import com.wit.rest.config.KafkaTopicsConfig;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.when;
+
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "spring.threads.virtual.enabled=true")
+class RestApplicationVirtualThreadsTests {
+
+    @Autowired
+    private TestRestTemplate http;
+
+    @MockBean
+    private ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate;
+
+    @Test
+    void requests_run_on_virtual_threads_with_request_id_in_mdc() {
+        AtomicBoolean virtual = new AtomicBoolean();
+        AtomicReference<String> mdcId = new AtomicReference<>();
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenAnswer(inv -> {
+                    virtual.set(Thread.currentThread().isVirtual());
+                    mdcId.set(MDC.get("requestId"));
+                    CalculatorResponse reply = new CalculatorResponse();
+                    reply.setResult(new BigDecimal("3"));
+                    var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+                    future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, reply));
+                    return future;
+                });
+
+        ResponseEntity<String> response = http.getForEntity("/sum?a=1&b=2", String.class);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertTrue(virtual.get());
+        assertEquals(response.getHeaders().getFirst("Request-Id"), mdcId.get());
+    }
+}
@@ -0,0 +1,49 @@
+package com.wit.rest.config;
+
+import com.wit.rest.id.RequestIdGenerator;
+import com.wit.rest.id.TimeOrderedRequestIdGenerator;
+import com.wit.rest.id.UuidRequestIdGenerator;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.convert.ApplicationConversionService;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestIdConfigTest {
+
+    private final RequestIdConfig config = new RequestIdConfig();
+
+    @Test
+    void time_ids_without_a_node_fall_back_to_uuids() {
+        assertInstanceOf(UuidRequestIdGenerator.class, config.requestIdGenerator(RequestIdGenerator.Kind.TIME, null));
+    }
+
+    @Test
+    void an_empty_node_property_starts_with_uuids() {
+        new ApplicationContextRunner()
+                .withInitializer(context -> context.getBeanFactory().setConversionService(new ApplicationConversionService()))
+                .withUserConfiguration(RequestIdConfig.class)
+                .withPropertyValues("calculator.request-id.node=")
+                .run(context -> assertInstanceOf(UuidRequestIdGenerator.class, context.getBean(RequestIdGenerator.class)));
+    }
+
+    @Test
+    void a_node_out_of_range_fails_startup() {
+        for (int node : new int[] {-1, TimeOrderedRequestIdGenerator.MAX_NODE + 1}) {
+            IllegalStateException e = assertThrows(IllegalStateException.class,
+                    () -> config.requestIdGenerator(RequestIdGenerator.Kind.TIME, node));
+            assertTrue(e.getMessage().contains("calculator.request-id.node"), e.getMessage());
+        }
+    }
+
+    @Test
+    void time_ids_use_the_configured_node() {
+        var generator = (TimeOrderedRequestIdGenerator) config.requestIdGenerator(RequestIdGenerator.Kind.TIME, 12);
+        assertEquals(12, generator.node());
+    }
+
+    @Test
+    void uuid_ids_need_no_node() {
+        assertInstanceOf(UuidRequestIdGenerator.class, config.requestIdGenerator(RequestIdGenerator.Kind.UUID, null));
+    }
+}
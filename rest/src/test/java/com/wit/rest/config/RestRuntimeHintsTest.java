@@ -0,0 +1,34 @@
+package com.wit.rest.config;
+
+import com.wit.rest.dto.BatchItem;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.dto.EvalRequest;
+import com.wit.rest.serde.CalculatorRequestSerializer;
+import com.wit.rest.serde.CalculatorResponseDeserializer;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RestRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    @Test
+    void dtos_can_be_bound_and_serializers_created_by_class_name() throws Exception {
+        new RestRuntimeHints().registerHints(hints, getClass().getClassLoader());
+
+        for (Class<?> dto : new Class<?>[] {CalculatorRequest.class, CalculatorResponse.class, BatchItem.class, EvalRequest.class}) {
+            assertTrue(RuntimeHintsPredicates.reflection().onType(dto)
+                    .withMemberCategory(MemberCategory.INVOKE_DECLARED_CONSTRUCTORS).test(hints), dto.getName());
+        }
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(CalculatorResponse.class.getMethod("getResult")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(CalculatorRequestSerializer.class.getConstructor()).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection()
+                .onConstructor(CalculatorResponseDeserializer.class.getConstructor()).test(hints));
+    }
+}
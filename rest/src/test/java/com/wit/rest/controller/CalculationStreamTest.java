@@ -0,0 +1,246 @@
+package com.wit.rest.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wit.rest.config.KafkaTopicsConfig;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.id.TimeOrderedRequestIdGenerator;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.service.AdmissionControl;
+import com.wit.rest.service.CalculatorService;
+import com.wit.rest.service.ResultCache;
+import com.wit.rest.service.RoutingPolicy;
+import com.wit.rest.transport.KafkaTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.core.DefaultKafkaConsumerFactory;
+import org.springframework.kafka.core.DefaultKafkaProducerFactory;
+import org.springframework.kafka.listener.ContainerProperties;
+import org.springframework.kafka.listener.KafkaMessageListenerContainer;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pushes a large NDJSON body through {@link CalculationStream} and
+ * {@link CalculatorService}, with replies answered on another thread the way the reply
+ * container does. No more than the window may ever be sent without its result having
+ * been written. Override the size with {@code -Dstream.lines=...}.
+ */
+class CalculationStreamTest {
+
+    private static final int LINES = Integer.getInteger("stream.lines", 200_000);
+    private static final int WINDOW = 256;
+    private static final int MAX_LINE = 1024;
+    // result lines Jackson may hold in its 8000-byte output buffer before they reach the stream
+    private static final int BUFFERED_RESULTS = 8000 / 20;
+
+    private final ExecutorService replyThread = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void stopReplies() {
+        replyThread.shutdownNow();
+    }
+
+    @Test
+    void streams_many_lines_with_no_more_than_the_window_outstanding() throws Exception {
+        ResultCounter results = new ResultCounter();
+        ReplyingStub rrTemplate = new ReplyingStub(replyThread, () -> results.results);
+        CalculationStream stream = new CalculationStream(service(rrTemplate), new TimeOrderedRequestIdGenerator(0),
+                new RequestMetrics(new SimpleMeterRegistry()), new ObjectMapper(), WINDOW, MAX_LINE, Duration.ofSeconds(5));
+
+        long written = stream.run(new GeneratedBody(LINES), results);
+
+        assertEquals(LINES, written);
+        assertEquals(LINES, results.results);
+        assertEquals((long) LINES * (LINES + 1) / 2, results.lineSum, "every line answered exactly once");
+        assertEquals(0, results.errors);
+        assertTrue(rrTemplate.maxInFlight.get() <= WINDOW, "in flight: " + rrTemplate.maxInFlight.get());
+        // sent, but its result not yet written: in flight, queued for the writer, or in the generator's buffer
+        assertTrue(rrTemplate.maxUnwritten.get() <= WINDOW + BUFFERED_RESULTS, "unwritten: " + rrTemplate.maxUnwritten.get());
+    }
+
+    @Test
+    void a_line_past_the_limit_is_answered_with_an_error_without_being_kept() throws Exception {
+        CalculationStream stream = new CalculationStream(service(new ReplyingStub(replyThread, () -> 0)),
+                new TimeOrderedRequestIdGenerator(0), new RequestMetrics(new SimpleMeterRegistry()),
+                new ObjectMapper(), WINDOW, MAX_LINE, Duration.ofSeconds(5));
+        String longLine = "{\"op\":\"sum\",\"a\":\"" + "9".repeat(10 * MAX_LINE) + "\",\"b\":\"1\"}";
+        String body = "{\"op\":\"sum\",\"a\":\"1\",\"b\":\"2\"}\r\n" + longLine + "\n{\"op\":\"sum\",\"a\":\"3\",\"b\":\"4\"}";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        assertEquals(3, stream.run(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), out));
+
+        String results = out.toString(StandardCharsets.UTF_8);
+        assertTrue(results.contains("{\"line\":1,\"result\":3}"), results);
+        assertTrue(results.contains("{\"line\":2,\"error\":\"line longer than " + MAX_LINE + " characters\"}"), results);
+        assertTrue(results.contains("{\"line\":3,\"result\":7}"), results);
+    }
+
+    @Test
+    void results_are_flushed_before_the_body_ends() throws Exception {
+        CalculationStream stream = new CalculationStream(service(new ReplyingStub(replyThread, () -> 0)),
+                new TimeOrderedRequestIdGenerator(0), new RequestMetrics(new SimpleMeterRegistry()),
+                new ObjectMapper(), WINDOW, MAX_LINE, Duration.ofSeconds(5));
+        ResultCounter results = new ResultCounter();
+        byte[] firstLine = "{\"op\":\"sum\",\"a\":\"1\",\"b\":\"2\"}\n".getBytes(StandardCharsets.UTF_8);
+
+        // the body only ends once the first result has reached the client, or after 5 seconds
+        boolean[] answeredBeforeEnd = new boolean[1];
+        InputStream body = new InputStream() {
+            private final ByteArrayInputStream first = new ByteArrayInputStream(firstLine);
+
+            @Override
+            public int read() {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (first.available() > 0) {
+                    return first.read(b, off, len);
+                }
+                long deadline = System.currentTimeMillis() + 5_000;
+                while (results.results == 0 && System.currentTimeMillis() < deadline) {
+                    Thread.onSpinWait();
+                }
+                answeredBeforeEnd[0] = results.results == 1;
+                return -1;
+            }
+        };
+
+        assertEquals(1, stream.run(body, results));
+        assertTrue(answeredBeforeEnd[0]);
+    }
+
+    private static CalculatorService service(ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate) {
+        var beans = new StaticListableBeanFactory(Map.of());
+        RoutingPolicy kafkaOnly = new RoutingPolicy(RoutingPolicy.Mode.KAFKA, Set.of(), 34, Duration.ofMillis(5), Duration.ofSeconds(1));
+        ResultCache noCache = new ResultCache(false, 0, Duration.ofMinutes(1), beans.getBeanProvider(MeterRegistry.class));
+        return new CalculatorService(new KafkaTransport(rrTemplate), noCache, kafkaOnly, AdmissionControl.off(),
+                new RequestMetrics(new SimpleMeterRegistry()), false, Duration.ofSeconds(5));
+    }
+
+    /** {@code {"op":"sum","a":"<n>","b":"1"}} for n = 1..lines, produced as it is read. */
+    private static final class GeneratedBody extends InputStream {
+        private final int lines;
+        private byte[] current = new byte[0];
+        private int position;
+        private int line;
+
+        GeneratedBody(int lines) {
+            this.lines = lines;
+        }
+
+        @Override
+        public int read() {
+            if (position == current.length) {
+                if (line == lines) {
+                    return -1;
+                }
+                line++;
+                current = ("{\"op\":\"sum\",\"a\":\"" + line + "\",\"b\":\"1\"}\n").getBytes(StandardCharsets.US_ASCII);
+                position = 0;
+            }
+            return current[position++];
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            int n = 0;
+            while (n < len) {
+                int next = read();
+                if (next < 0) {
+                    return n == 0 ? -1 : n;
+                }
+                b[off + n++] = (byte) next;
+            }
+            return n;
+        }
+    }
+
+    /** Checks each result line as it is written, keeping only totals. */
+    private static final class ResultCounter extends OutputStream {
+        private final ByteArrayOutputStream current = new ByteArrayOutputStream();
+        private volatile long results;
+        private long errors;
+        private long lineSum;
+
+        @Override
+        public void write(int b) {
+            if (b != '\n') {
+                current.write(b);
+                return;
+            }
+            String text = current.toString(StandardCharsets.US_ASCII);
+            current.reset();
+            // {"line":n,"result":r} where r is n + 1
+            int comma = text.indexOf(',');
+            long line = Long.parseLong(text.substring("{\"line\":".length(), comma));
+            String rest = text.substring(comma + 1);
+            if (rest.equals("\"result\":" + (line + 1) + "}")) {
+                lineSum += line;
+            } else {
+                errors++;
+            }
+            results++;
+        }
+    }
+
+    /**
+     * Answers every sum on a separate thread, tracking the most requests in flight at once
+     * and the most sent while their results were not yet written, as counted by {@code written}.
+     */
+    private static final class ReplyingStub extends ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> {
+        private final ExecutorService replyThread;
+        private final LongSupplier written;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+        private final AtomicLong sent = new AtomicLong();
+        private final AtomicLong maxUnwritten = new AtomicLong();
+
+        ReplyingStub(ExecutorService replyThread, LongSupplier written) {
+            super(new DefaultKafkaProducerFactory<>(Map.of()),
+                    new KafkaMessageListenerContainer<>(new DefaultKafkaConsumerFactory<>(Map.of()),
+                            new ContainerProperties(KafkaTopicsConfig.RES)));
+            this.replyThread = replyThread;
+            this.written = written;
+            setAutoStartup(false);
+        }
+
+        @Override
+        public RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> sendAndReceive(
+                ProducerRecord<String, CalculatorRequest> record) {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            maxUnwritten.accumulateAndGet(sent.incrementAndGet() - written.getAsLong(), Math::max);
+            var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+            CalculatorRequest req = record.value();
+            replyThread.execute(() -> {
+                CalculatorResponse reply = new CalculatorResponse(req.getId(), req.getA().add(req.getB()));
+                inFlight.decrementAndGet();
+                future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, record.key(), reply));
+            });
+            return future;
+        }
+    }
+}
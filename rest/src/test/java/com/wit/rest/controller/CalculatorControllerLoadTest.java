@@ -0,0 +1,86 @@
+package com.wit.rest.controller;
+
+import com.wit.rest.config.KafkaTopicsConfig;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Drives far more concurrent calculations than there are Tomcat worker threads.
+ * Replies are held back until every request has reached Kafka, which would
+ * deadlock if a request still parked its servlet thread while waiting.
+ */
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "server.tomcat.threads.max=8")
+class CalculatorControllerLoadTest {
+
+    private static final int IN_FLIGHT = 200;
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate;
+
+    @Test
+    void in_flight_requests_are_not_capped_by_servlet_threads() throws Exception {
+        Queue<RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>> pending =
+                new ConcurrentLinkedQueue<>();
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenAnswer(inv -> {
+                    var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+                    pending.add(future);
+                    return future;
+                });
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < IN_FLIGHT; i++) {
+            HttpRequest request = HttpRequest.newBuilder(
+                    URI.create("http://localhost:" + port + "/sum?a=" + i + "&b=1")).GET().build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+
+        // every request reaches Kafka while none of them has been answered yet
+        verify(rrTemplate, timeout(10_000).times(IN_FLIGHT))
+                .sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        assertTrue(responses.stream().noneMatch(CompletableFuture::isDone));
+
+        CalculatorResponse reply = new CalculatorResponse();
+        reply.setResult(BigDecimal.ONE);
+        pending.forEach(f -> f.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, reply)));
+
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            HttpResponse<String> r = response.get(10, TimeUnit.SECONDS);
+            assertEquals(200, r.statusCode());
+            assertTrue(r.headers().firstValue("Request-Id").isPresent());
+        }
+    }
+}
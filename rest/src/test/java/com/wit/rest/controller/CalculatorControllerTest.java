@@ -1,67 +1,131 @@
 package com.wit.rest.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wit.common.deadline.Deadlines;
 import com.wit.rest.config.KafkaTopicsConfig;
+import com.wit.rest.config.RequestIdConfig;
 import com.wit.rest.dto.CalculatorRequest;
 import com.wit.rest.dto.CalculatorResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.apache.kafka.clients.producer.ProducerRecord;
 import org.hamcrest.Matchers;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.service.AdmissionControl;
+import com.wit.rest.service.CalculatorService;
+import com.wit.rest.service.ResultCache;
+import com.wit.rest.service.RoutingPolicy;
+import com.wit.rest.transport.KafkaTransport;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
 import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
 import org.springframework.kafka.requestreply.RequestReplyFuture;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
 import java.math.BigDecimal;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.math.RoundingMode;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
-import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyLong;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 import org.springframework.test.context.ActiveProfiles;
 
 @ActiveProfiles("test")
 @WebMvcTest(CalculatorController.class)
+@Import({CalculatorService.class, KafkaTransport.class, ResultCache.class, RoutingPolicy.class, AdmissionControl.class, RequestMetrics.class, SimpleMeterRegistry.class,
+        RequestIdConfig.class})
 class CalculatorControllerTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ResultCache resultCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private AdmissionControl admission;
+
     @MockBean
     private ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate;
 
+    @BeforeEach
+    void clearCache() {
+        resultCache.clear();
+    }
+
     @Test
     void invalid_number_returns_400_and_request_id() throws Exception {
-        mockMvc.perform(get("/sum")
-                .param("a", "abc")
-                .param("b", "3"))
+        double invalid = count("calculator.requests.invalid", "sum");
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/sum")
+                        .param("a", "abc")
+                        .param("b", "3"))
+                        .andReturn()))
                 .andExpect(status().isBadRequest())
                 .andExpect(header().exists("Request-Id"))
                 .andExpect(jsonPath("$.error", Matchers.containsString("invalid number format")));
+
+        assertEquals(invalid + 1, count("calculator.requests.invalid", "sum"));
+        assertTrue(meterRegistry.get("calculator.http.requests").tags("operation", "sum", "status", "400").timer().count() >= 1);
     }
 
     @Test
     void kafka_timeout_returns_503_and_request_id() throws Exception {
-        @SuppressWarnings("unchecked")
-        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future =
-                Mockito.mock(RequestReplyFuture.class);
+        double timeouts = count("calculator.requests.timeouts", "sum");
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.completeExceptionally(new KafkaReplyTimeoutException("Kafka timeout"));
 
         when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
                 .thenReturn(future);
 
-        when(future.get(anyLong(), any(TimeUnit.class)))
-                .thenThrow(new TimeoutException("Kafka timeout"));
-
-        mockMvc.perform(get("/sum").param("a", "1").param("b", "2"))
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/sum").param("a", "1").param("b", "2"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
                 .andExpect(status().isServiceUnavailable()) // 503
                 .andExpect(header().exists("Request-Id"))
                 .andExpect(jsonPath("$.error").value("Calculator didn't answer in 5 seconds"));
+
+        assertEquals(timeouts + 1, count("calculator.requests.timeouts", "sum"));
+        assertTrue(meterRegistry.get("calculator.kafka.reply").tag("outcome", "timeout").timer().count() >= 1);
+    }
+
+    @Test
+    void kafka_send_failure_returns_500_and_request_id() throws Exception {
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.completeExceptionally(new IllegalStateException("broker down"));
+
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenReturn(future);
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/sum").param("a", "1").param("b", "2"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
+                .andExpect(status().isInternalServerError())
+                .andExpect(header().exists("Request-Id"))
+                .andExpect(jsonPath("$.error").value("timeout/error: broker down"));
     }
 
     @Test
@@ -72,16 +136,15 @@ class CalculatorControllerTest {
         ConsumerRecord<String, CalculatorResponse> record =
                 new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse);
 
-        @SuppressWarnings("unchecked")
-        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future =
-                Mockito.mock(RequestReplyFuture.class);
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(record);
 
         when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
                 .thenReturn(future);
-        when(future.get(anyLong(), any(TimeUnit.class)))
-                .thenReturn(record);
 
-        mockMvc.perform(get("/sum").param("a", "10").param("b", "5"))
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/sum").param("a", "10").param("b", "5"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
                 .andExpect(status().isOk())
                 .andExpect(header().exists("Request-Id"))
                 .andExpect(jsonPath("$.result").value(15));
@@ -95,16 +158,15 @@ class CalculatorControllerTest {
         ConsumerRecord<String, CalculatorResponse> record =
                 new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse);
 
-        @SuppressWarnings("unchecked")
-        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future =
-                Mockito.mock(RequestReplyFuture.class);
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(record);
 
         when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
                 .thenReturn(future);
-        when(future.get(anyLong(), any(TimeUnit.class)))
-                .thenReturn(record);
 
-        mockMvc.perform(get("/div").param("a", "10").param("b", "5"))
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/div").param("a", "10").param("b", "5"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
                 .andExpect(status().isOk())
                 .andExpect(header().exists("Request-Id"))
                 .andExpect(jsonPath("$.result").value(2));
@@ -118,16 +180,15 @@ class CalculatorControllerTest {
         ConsumerRecord<String, CalculatorResponse> record =
                 new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse);
 
-        @SuppressWarnings("unchecked")
-        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future =
-                Mockito.mock(RequestReplyFuture.class);
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(record);
 
         when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
                 .thenReturn(future);
-        when(future.get(anyLong(), any(TimeUnit.class)))
-                .thenReturn(record);
 
-        mockMvc.perform(get("/div").param("a", "10").param("b", "0"))
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/div").param("a", "10").param("b", "0"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
                 .andExpect(status().isBadRequest())
                 .andExpect(header().exists("Request-Id"))
                 .andExpect(jsonPath("$.error").value("division by zero attempted"));
@@ -141,18 +202,321 @@ class CalculatorControllerTest {
         ConsumerRecord<String, CalculatorResponse> record =
                 new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse);
 
-        @SuppressWarnings("unchecked")
-        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future =
-                Mockito.mock(RequestReplyFuture.class);
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(record);
 
         when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
                 .thenReturn(future);
-        when(future.get(anyLong(), any(TimeUnit.class)))
-                .thenReturn(record);
 
-        mockMvc.perform(get("/mul").param("a", "10").param("b", "5"))
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/mul").param("a", "10").param("b", "5"))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
                 .andExpect(status().isOk())
                 .andExpect(header().exists("Request-Id"))
                 .andExpect(jsonPath("$.result").value(50));
     }
+
+    @Test
+    void request_record_is_keyed_by_request_id() throws Exception {
+        CalculatorResponse mockResponse = new CalculatorResponse();
+        mockResponse.setResult(new BigDecimal("3"));
+
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorRequest>> sent = ArgumentCaptor.captor();
+        when(rrTemplate.sendAndReceive(sent.capture())).thenReturn(future);
+
+        String requestId = mockMvc.perform(asyncDispatch(mockMvc.perform(get("/sum").param("a", "1").param("b", "2"))
+                        .andReturn()))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Request-Id");
+
+        assertEquals(requestId, sent.getValue().key());
+        assertEquals(KafkaTopicsConfig.REQ, sent.getValue().topic());
+    }
+
+    @Test
+    void request_record_carries_the_reply_timeout_as_deadline() throws Exception {
+        CalculatorResponse mockResponse = new CalculatorResponse();
+        mockResponse.setResult(new BigDecimal("8"));
+
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorRequest>> sent = ArgumentCaptor.captor();
+        when(rrTemplate.sendAndReceive(sent.capture())).thenReturn(future);
+
+        long before = System.currentTimeMillis();
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/div").param("a", "16").param("b", "2"))
+                        .andReturn()))
+                .andExpect(status().isOk());
+        long after = System.currentTimeMillis();
+
+        long deadline = Deadlines.fromHeader(sent.getValue().headers().lastHeader(Deadlines.HEADER).value());
+        assertTrue(deadline >= before + 5_000 && deadline <= after + 5_000, "deadline " + deadline);
+    }
+
+    @Test
+    void identical_requests_in_flight_share_one_record_but_keep_their_own_request_id() throws Exception {
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenReturn(future);
+
+        MvcResult first = mockMvc.perform(get("/mul").param("a", "6").param("b", "7"))
+                .andExpect(request().asyncStarted()).andReturn();
+        MvcResult second = mockMvc.perform(get("/mul").param("a", "6").param("b", "7"))
+                .andExpect(request().asyncStarted()).andReturn();
+
+        CalculatorResponse mockResponse = new CalculatorResponse();
+        mockResponse.setResult(new BigDecimal("42"));
+        future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse));
+
+        String firstId = mockMvc.perform(asyncDispatch(first))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value(42))
+                .andReturn().getResponse().getHeader("Request-Id");
+        String secondId = mockMvc.perform(asyncDispatch(second))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value(42))
+                .andReturn().getResponse().getHeader("Request-Id");
+
+        assertNotEquals(firstId, secondId);
+        verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void sqrt_sends_precision_and_rounding_to_the_worker() throws Exception {
+        CalculatorResponse mockResponse = new CalculatorResponse();
+        mockResponse.setResult(new BigDecimal("1.41421"));
+
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorRequest>> sent = ArgumentCaptor.captor();
+        when(rrTemplate.sendAndReceive(sent.capture())).thenReturn(future);
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(get("/sqrt").param("a", "2")
+                                .param("precision", "6").param("rounding", "down"))
+                        .andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.result").value(1.41421));
+
+        CalculatorRequest req = sent.getValue().value();
+        assertEquals("sqrt", req.getOperation());
+        assertEquals(null, req.getB());
+        assertEquals(6, req.getPrecision());
+        assertEquals(RoundingMode.DOWN, req.getRounding());
+    }
+
+    @Test
+    void malformed_precision_or_rounding_returns_400_without_kafka() throws Exception {
+        for (var params : List.of(Map.of("precision", "-1"), Map.of("precision", "many"), Map.of("rounding", "sideways"))) {
+            var request = get("/pow").param("a", "2").param("b", "0.5");
+            params.forEach(request::param);
+            mockMvc.perform(asyncDispatch(mockMvc.perform(request).andReturn()))
+                    .andExpect(status().isBadRequest())
+                    .andExpect(jsonPath("$.error", Matchers.containsString(params.keySet().iterator().next())));
+        }
+        verify(rrTemplate, times(0)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void batch_returns_ordered_results_and_per_item_errors() throws Exception {
+        CalculatorResponse sumResult = new CalculatorResponse();
+        sumResult.setResult(new BigDecimal("5"));
+        CalculatorResponse divByZero = new CalculatorResponse();
+        divByZero.setError("division by zero attempted");
+        CalculatorResponse mockResponse = new CalculatorResponse();
+        mockResponse.setItems(List.of(sumResult, divByZero));
+
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, mockResponse));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorRequest>> sent = ArgumentCaptor.captor();
+        when(rrTemplate.sendAndReceive(sent.capture())).thenReturn(future);
+
+        String body = """
+                [{"op":"sum","a":"2","b":"3"},{"op":"mul","a":"abc","b":"3"},{"op":"div","a":10,"b":0}]
+                """;
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Request-Id"))
+                .andExpect(jsonPath("$.results.length()").value(3))
+                .andExpect(jsonPath("$.results[0].result").value(5))
+                .andExpect(jsonPath("$.results[1].error", Matchers.containsString("invalid number format")))
+                .andExpect(jsonPath("$.results[2].error").value("division by zero attempted"));
+
+        CalculatorRequest req = sent.getValue().value();
+        assertEquals("batch", req.getOperation());
+        assertEquals(2, req.getItems().size());
+        assertEquals("div", req.getItems().get(1).getOperation());
+    }
+
+    @Test
+    void batch_over_the_size_limit_returns_400() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i <= 1000; i++) {
+            body.append(i == 0 ? "" : ",").append("{\"op\":\"sum\",\"a\":\"1\",\"b\":\"2\"}");
+        }
+        body.append("]");
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body.toString()))
+                        .andReturn()))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().exists("Request-Id"))
+                .andExpect(jsonPath("$.error").value("batch exceeds limit of 1000 items"));
+    }
+
+    @Test
+    void batch_is_refused_at_the_first_item_past_the_limit_without_reading_on() throws Exception {
+        StringBuilder body = new StringBuilder("[");
+        for (int i = 0; i <= 1000; i++) {
+            body.append("{\"op\":\"sum\",\"a\":\"1\",\"b\":\"2\"},");
+        }
+        // never parsed: the limit was already exceeded
+        body.append("this is not JSON");
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body.toString()))
+                        .andReturn()))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("batch exceeds limit of 1000 items"));
+
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/batch")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("[{\"op\":\"sum\",\"a\":\"1\",\"b\":\"2\"}, oops]"))
+                        .andReturn()))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().exists("Request-Id"))
+                .andExpect(jsonPath("$.error", Matchers.startsWith("invalid batch: ")));
+    }
+
+    @Test
+    void eval_sends_the_whole_formula_in_one_request() throws Exception {
+        CalculatorResponse reply = new CalculatorResponse();
+        reply.setResult(new BigDecimal("0.6785714286"));
+        RequestReplyFuture<String, CalculatorRequest, CalculatorResponse> future = new RequestReplyFuture<>();
+        future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, reply));
+
+        ArgumentCaptor<ProducerRecord<String, CalculatorRequest>> sent = ArgumentCaptor.captor();
+        when(rrTemplate.sendAndReceive(sent.capture())).thenReturn(future);
+
+        String body = """
+                {"expression":"(a*b + c) / d","variables":{"a":"1.50","b":3,"c":"0.25","d":"7"}}
+                """;
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/eval")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(body))
+                        .andExpect(request().asyncStarted())
+                        .andReturn()))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Request-Id"))
+                .andExpect(jsonPath("$.result").value(0.6785714286));
+
+        verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        CalculatorRequest req = sent.getValue().value();
+        assertEquals("eval", req.getOperation());
+        assertEquals("(a*b + c) / d", req.getExpression());
+        assertEquals(new BigDecimal("1.50"), req.getVariables().get("a"));
+        assertEquals(new BigDecimal("3"), req.getVariables().get("b"));
+    }
+
+    @Test
+    void eval_with_unparsable_variable_returns_400_without_kafka() throws Exception {
+        mockMvc.perform(asyncDispatch(mockMvc.perform(post("/eval")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"expression\":\"x + 1\",\"variables\":{\"x\":\"abc\"}}"))
+                        .andReturn()))
+                .andExpect(status().isBadRequest())
+                .andExpect(header().exists("Request-Id"))
+                .andExpect(jsonPath("$.error").value("invalid number format for variable 'x'"));
+
+        verify(rrTemplate, times(0)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void stream_answers_every_line_with_its_line_number() throws Exception {
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenAnswer(inv -> {
+                    CalculatorRequest req = inv.<ProducerRecord<String, CalculatorRequest>>getArgument(0).value();
+                    CalculatorResponse reply = new CalculatorResponse();
+                    if (req.getOperation().equals("div")) {
+                        reply.setError("division by zero attempted");
+                    } else {
+                        reply.setResult(req.getA().add(req.getB()));
+                    }
+                    var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+                    future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, reply));
+                    return future;
+                });
+
+        String body = """
+                {"op":"sum","a":"2","b":"3"}
+                {"op":"sum","a":"abc","b":"3"}
+
+                {"op":"xor","a":"2","b":"3"}
+                {"op":"div","a":"1","b":"0"}
+                not json
+                {"op":"sum","a":"1"}
+                """;
+        MvcResult result = mockMvc.perform(post("/stream")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Request-Id"))
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andReturn();
+
+        var lines = new ObjectMapper().readerFor(Map.class).<Map<String, Object>>readValues(result.getResponse().getContentAsString()).readAll();
+        Map<Integer, Map<String, Object>> byLine = new TreeMap<>();
+        lines.forEach(line -> byLine.put((Integer) line.get("line"), line));
+
+        assertEquals(List.of(1, 2, 4, 5, 6, 7), List.copyOf(byLine.keySet()));
+        assertEquals(5, byLine.get(1).get("result"));
+        assertTrue(((String) byLine.get(2).get("error")).startsWith("invalid number format: "));
+        assertEquals("invalid operation: xor", byLine.get(4).get("error"));
+        assertEquals("division by zero attempted", byLine.get(5).get("error"));
+        assertTrue(((String) byLine.get(6).get("error")).startsWith("invalid line"));
+        assertEquals("missing b", byLine.get(7).get("error"));
+
+        verify(rrTemplate, times(2)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        assertEquals(4, meterRegistry.get("calculator.requests.invalid").tag("operation", "stream").counter().count());
+    }
+
+    @Test
+    void full_admission_returns_429_with_retry_after_without_kafka() throws Exception {
+        int slots = admission.limit();
+        for (int i = 0; i < slots; i++) {
+            admission.acquire();
+        }
+        try {
+            mockMvc.perform(asyncDispatch(mockMvc.perform(get("/mul").param("a", "6").param("b", "7"))
+                            .andExpect(request().asyncStarted())
+                            .andReturn()))
+                    .andExpect(status().isTooManyRequests())
+                    .andExpect(header().exists("Request-Id"))
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(jsonPath("$.error", Matchers.containsString("Too many calculations in flight")));
+        } finally {
+            for (int i = 0; i < slots; i++) {
+                admission.release(0, false);
+            }
+        }
+
+        verify(rrTemplate, times(0)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        assertEquals(1, meterRegistry.get("calculator.requests.rejected").tags("operation", "mul", "reason", "limit").counter().count());
+    }
+
+    private double count(String name, String op) {
+        var counter = meterRegistry.find(name).tag("operation", op).counter();
+        return counter != null ? counter.count() : 0;
+    }
 }
@@ -0,0 +1,106 @@
+package com.wit.rest.id;
+
+import com.wit.common.id.RequestIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimeOrderedRequestIdGeneratorTest {
+
+    private static final int THREADS = 32;
+    private static final int IDS_PER_THREAD = 50_000;
+
+    @Test
+    void ids_are_unique_and_increasing_per_thread_under_contention() throws Exception {
+        // two instances running side by side, each with its own node
+        var generators = List.of(new TimeOrderedRequestIdGenerator(1), new TimeOrderedRequestIdGenerator(2));
+        Set<String> seen = ConcurrentHashMap.newKeySet();
+        CountDownLatch go = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < THREADS; t++) {
+                RequestIdGenerator generator = generators.get(t % 2);
+                results.add(pool.submit((Callable<Boolean>) () -> {
+                    go.await();
+                    String previous = "";
+                    boolean increasing = true;
+                    for (int i = 0; i < IDS_PER_THREAD; i++) {
+                        String id = generator.next();
+                        increasing &= id.compareTo(previous) > 0;
+                        seen.add(id);
+                        previous = id;
+                    }
+                    return increasing;
+                }));
+            }
+            go.countDown();
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get(), "ids of one thread went backwards");
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(THREADS * IDS_PER_THREAD, seen.size());
+    }
+
+    @Test
+    void a_clock_stepping_back_does_not_repeat_ids() {
+        AtomicLong now = new AtomicLong(TimeOrderedRequestIdGenerator.EPOCH_MILLIS + 1_000);
+        var generator = new TimeOrderedRequestIdGenerator(7, now::get);
+
+        Set<Long> ids = new HashSet<>();
+        long previous = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (i == 10_000) {
+                now.addAndGet(-500);
+            }
+            long id = generator.nextLong();
+            assertTrue(id > previous);
+            assertEquals(7, id & TimeOrderedRequestIdGenerator.MAX_NODE, "node bits changed");
+            assertTrue(ids.add(id));
+            previous = id;
+        }
+    }
+
+    @Test
+    void two_generators_on_the_same_node_issue_the_same_ids() {
+        // why every instance needs its own node: the node bits are all that tell them apart
+        AtomicLong now = new AtomicLong(TimeOrderedRequestIdGenerator.EPOCH_MILLIS + 1_000);
+        var one = new TimeOrderedRequestIdGenerator(3, now::get);
+        var other = new TimeOrderedRequestIdGenerator(3, now::get);
+        var elsewhere = new TimeOrderedRequestIdGenerator(4, now::get);
+
+        long first = one.nextLong();
+        assertEquals(first, other.nextLong());
+        assertNotEquals(first, elsewhere.nextLong());
+    }
+
+    @Test
+    void text_form_is_sixteen_hex_digits_carried_in_eight_header_bytes() {
+        String id = new TimeOrderedRequestIdGenerator(0).next();
+        assertTrue(id.matches("[0-9a-f]{16}"), id);
+        assertEquals(8, RequestIds.toHeader(id).length);
+        assertEquals(id, RequestIds.fromHeader(RequestIds.toHeader(id)));
+    }
+
+    @Test
+    void node_outside_ten_bits_is_rejected() {
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedRequestIdGenerator(1024));
+        assertThrows(IllegalArgumentException.class, () -> new TimeOrderedRequestIdGenerator(-1));
+    }
+}
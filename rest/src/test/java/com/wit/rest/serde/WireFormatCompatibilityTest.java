@@ -0,0 +1,206 @@
+package com.wit.rest.serde;
+
+import com.wit.calculator.serde.CalculatorRequestDeserializer;
+import com.wit.calculator.serde.CalculatorResponseSerializer;
+import com.wit.common.engine.CalculationEngine;
+import com.wit.common.wire.BinaryWire;
+import com.wit.common.wire.WireFormat;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.JsonDeserializer;
+import org.springframework.kafka.support.serializer.JsonSerializer;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * rest's producer and the worker's consumer (and the other way round) with the
+ * properties from application.properties, in every combination a rolling switch of
+ * {@code CALCULATOR_WIRE_FORMAT} goes through.
+ */
+class WireFormatCompatibilityTest {
+
+    private static final String TOPIC = "topic";
+
+    @Test
+    void worker_reads_requests_in_both_formats() {
+        CalculatorRequest item = new CalculatorRequest(null, new BigDecimal("1.50"), new BigDecimal("-2"), "pow");
+        CalculatorRequest req = new CalculatorRequest("id-1", null, null, "batch");
+        req.setItems(List.of(item, new CalculatorRequest(null, BigDecimal.TEN, new BigDecimal("3E+2"), "div")));
+
+        for (WireFormat format : WireFormat.values()) {
+            var headers = new RecordHeaders();
+            headers.add("Request-Id", "id-1".getBytes(StandardCharsets.UTF_8));
+            byte[] bytes = requestSerializer(format).serialize(TOPIC, headers, req);
+
+            com.wit.calculator.dto.CalculatorRequest read = requestDeserializer().deserialize(TOPIC, headers, bytes);
+            assertEquals("id-1", read.getId(), format.name());
+            assertEquals("batch", read.getOperation());
+            assertEquals(2, read.getItems().size());
+            assertEquals("pow", read.getItems().get(0).getOperation());
+            assertEquals(new BigDecimal("1.50"), read.getItems().get(0).getA());
+            assertEquals(new BigDecimal("3E+2"), read.getItems().get(1).getB());
+            assertNull(read.getItems().get(0).getItems());
+        }
+    }
+
+    @Test
+    void worker_reads_eval_requests_in_both_formats() {
+        CalculatorRequest req = new CalculatorRequest("id-3", null, null, "eval");
+        req.setExpression("(a*b + c) / d");
+        req.setVariables(Map.of("a", new BigDecimal("1.50"), "d", new BigDecimal("-7E+3")));
+
+        for (WireFormat format : WireFormat.values()) {
+            var headers = new RecordHeaders();
+            byte[] bytes = requestSerializer(format).serialize(TOPIC, headers, req);
+
+            com.wit.calculator.dto.CalculatorRequest read = requestDeserializer().deserialize(TOPIC, headers, bytes);
+            assertEquals("eval", read.getOperation(), format.name());
+            assertEquals("(a*b + c) / d", read.getExpression());
+            assertEquals(req.getVariables(), read.getVariables());
+        }
+    }
+
+    @Test
+    void worker_reads_precision_and_rounding_in_both_formats() {
+        CalculatorRequest item = new CalculatorRequest(null, BigDecimal.TWO, null, "sqrt");
+        item.setPrecision(100);
+        item.setRounding(RoundingMode.DOWN);
+        CalculatorRequest req = new CalculatorRequest("id-4", null, null, "batch");
+        req.setItems(List.of(item, new CalculatorRequest(null, BigDecimal.ONE, BigDecimal.TWO, "sum")));
+
+        for (WireFormat format : WireFormat.values()) {
+            byte[] bytes = requestSerializer(format).serialize(TOPIC, new RecordHeaders(), req);
+
+            com.wit.calculator.dto.CalculatorRequest read = requestDeserializer().deserialize(TOPIC, new RecordHeaders(), bytes);
+            assertEquals(100, read.getItems().get(0).getPrecision(), format.name());
+            assertEquals(RoundingMode.DOWN, read.getItems().get(0).getRounding());
+            assertNull(read.getItems().get(1).getPrecision());
+            assertNull(read.getItems().get(1).getRounding());
+            assertEquals(BigDecimal.TWO, read.getItems().get(1).getB());
+        }
+    }
+
+    @Test
+    void requests_without_precision_stay_in_the_first_binary_version() {
+        CalculatorRequest plain = new CalculatorRequest("id-5", BigDecimal.ONE, BigDecimal.TWO, "sum");
+        assertEquals(BinaryWire.VERSION, requestSerializer(WireFormat.BINARY).serialize(TOPIC, plain)[1]);
+
+        plain.setPrecision(20);
+        assertEquals(BinaryWire.MATH_VERSION, requestSerializer(WireFormat.BINARY).serialize(TOPIC, plain)[1]);
+    }
+
+    @Test
+    void worker_reads_every_operation_in_both_formats_with_one_byte_opcodes() {
+        for (String op : CalculationEngine.OPERATIONS) {
+            CalculatorRequest req = new CalculatorRequest("id-6", BigDecimal.TWO, BigDecimal.ONE, op);
+            for (WireFormat format : WireFormat.values()) {
+                byte[] bytes = requestSerializer(format).serialize(TOPIC, req);
+
+                com.wit.calculator.dto.CalculatorRequest read = requestDeserializer().deserialize(TOPIC, new RecordHeaders(), bytes);
+                assertEquals(op, read.getOperation(), format.name());
+                assertEquals(BigDecimal.TWO, read.getA());
+                assertEquals(BigDecimal.ONE, read.getB());
+                assertNull(read.getPrecision());
+            }
+
+            byte[] binary = requestSerializer(WireFormat.BINARY).serialize(TOPIC, req);
+            boolean math = BinaryWire.isMathOperation(op);
+            assertEquals(math ? BinaryWire.MATH_VERSION : BinaryWire.VERSION, binary[1], op);
+            // magic, version, opcode, a and b (tag, scale, value each), then no precision and rounding, no items
+            assertEquals(3 + 3 + 3 + (math ? 2 : 0) + 1, binary.length, op);
+        }
+    }
+
+    @Test
+    void rest_reads_replies_in_both_formats() {
+        var result = new com.wit.calculator.dto.CalculatorResponse("id-2", new BigDecimal("0.3333333333"));
+        var error = new com.wit.calculator.dto.CalculatorResponse("id-2", "division by zero attempted");
+
+        for (WireFormat format : WireFormat.values()) {
+            var headers = new RecordHeaders();
+            headers.add("Request-Id", "id-2".getBytes(StandardCharsets.UTF_8));
+
+            CalculatorResponse readResult = responseDeserializer().deserialize(TOPIC, headers,
+                    responseSerializer(format).serialize(TOPIC, headers, result));
+            assertEquals(new BigDecimal("0.3333333333"), readResult.getResult(), format.name());
+            assertNull(readResult.getError());
+            assertEquals("id-2", readResult.getId());
+
+            CalculatorResponse readError = responseDeserializer().deserialize(TOPIC, headers,
+                    responseSerializer(format).serialize(TOPIC, headers, error));
+            assertEquals("division by zero attempted", readError.getError());
+            assertNull(readError.getResult());
+        }
+    }
+
+    @Test
+    void worker_refuses_binary_batches_nested_too_deeply() {
+        CalculatorRequest nested = new CalculatorRequest(null, BigDecimal.ONE, BigDecimal.ONE, "sum");
+        for (int depth = 0; depth < BinaryWire.MAX_DEPTH; depth++) {
+            CalculatorRequest outer = new CalculatorRequest(null, null, null, "batch");
+            outer.setItems(List.of(nested));
+            nested = outer;
+        }
+        byte[] allowed = requestSerializer(WireFormat.BINARY).serialize(TOPIC, nested);
+        assertEquals("batch", requestDeserializer().deserialize(TOPIC, new RecordHeaders(), allowed).getOperation());
+
+        CalculatorRequest tooDeep = new CalculatorRequest(null, null, null, "batch");
+        tooDeep.setItems(List.of(nested));
+        byte[] refused = requestSerializer(WireFormat.BINARY).serialize(TOPIC, tooDeep);
+        assertThrows(SerializationException.class,
+                () -> requestDeserializer().deserialize(TOPIC, new RecordHeaders(), refused));
+    }
+
+    @Test
+    void binary_messages_are_smaller_and_carry_no_id() {
+        CalculatorRequest req = new CalculatorRequest("0f8fad5b-d9cb-469f-a165-70867728950e",
+                new BigDecimal("12.5"), new BigDecimal("7"), "sum");
+
+        byte[] json = requestSerializer(WireFormat.JSON).serialize(TOPIC, req);
+        byte[] binary = requestSerializer(WireFormat.BINARY).serialize(TOPIC, req);
+
+        assertTrue(binary.length * 5 < json.length, binary.length + " vs " + json.length);
+        assertFalse(new String(binary, StandardCharsets.ISO_8859_1).contains("0f8fad5b"));
+    }
+
+    private static CalculatorRequestSerializer requestSerializer(WireFormat format) {
+        var serializer = new CalculatorRequestSerializer();
+        serializer.configure(Map.of(WireFormat.CONFIG, format.name(), JsonSerializer.ADD_TYPE_INFO_HEADERS, false), false);
+        return serializer;
+    }
+
+    private static CalculatorResponseSerializer responseSerializer(WireFormat format) {
+        var serializer = new CalculatorResponseSerializer();
+        serializer.configure(Map.of(WireFormat.CONFIG, format.name(), JsonSerializer.ADD_TYPE_INFO_HEADERS, false), false);
+        return serializer;
+    }
+
+    private static CalculatorRequestDeserializer requestDeserializer() {
+        var deserializer = new CalculatorRequestDeserializer();
+        deserializer.configure(consumerConfig("com.wit.calculator.dto.*", com.wit.calculator.dto.CalculatorRequest.class), false);
+        return deserializer;
+    }
+
+    private static CalculatorResponseDeserializer responseDeserializer() {
+        var deserializer = new CalculatorResponseDeserializer();
+        deserializer.configure(consumerConfig("com.wit.rest.dto.*", CalculatorResponse.class), false);
+        return deserializer;
+    }
+
+    private static Map<String, Object> consumerConfig(String trustedPackages, Class<?> defaultType) {
+        Map<String, Object> configs = new HashMap<>();
+        configs.put(JsonDeserializer.TRUSTED_PACKAGES, trustedPackages);
+        configs.put(JsonDeserializer.VALUE_DEFAULT_TYPE, defaultType.getName());
+        return configs;
+    }
+}
@@ -0,0 +1,174 @@
+package com.wit.rest.service;
+
+import com.wit.rest.config.KafkaTopicsConfig;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.transport.KafkaTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Runs {@link CalculatorService} against a stub worker that answers late, or not at
+ * all, and checks that {@link AdmissionControl} stops sending records to it.
+ */
+class AdmissionControlTest {
+
+    private static final RoutingPolicy KAFKA_ONLY =
+            new RoutingPolicy(RoutingPolicy.Mode.KAFKA, Set.of(), 34, Duration.ofMillis(5), Duration.ofSeconds(1));
+
+    private ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate;
+    private ScheduledExecutorService worker;
+    private final AtomicInteger operand = new AtomicInteger();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        rrTemplate = Mockito.mock(ReplyingKafkaTemplate.class);
+        worker = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdownNow();
+    }
+
+    @Test
+    void static_limit_rejects_with_429_while_the_worker_holds_every_slot() throws Exception {
+        List<RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>> pending = new ArrayList<>();
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenAnswer(inv -> {
+            var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+            pending.add(future);
+            return future;
+        });
+        AdmissionControl admission = admission(AdmissionControl.Mode.STATIC, 4, 4, Duration.ofSeconds(5));
+        CalculatorService service = service(admission, Duration.ofSeconds(5));
+
+        for (int i = 0; i < 4; i++) {
+            assertFalse(service.calculate(request()).isDone());
+        }
+        OverloadedException rejected = overloaded(service.calculate(request()));
+        assertEquals(OverloadedException.Reason.LIMIT, rejected.reason());
+        assertEquals(429, rejected.reason().status());
+        assertEquals(1, rejected.retryAfterSeconds());
+        verify(rrTemplate, times(4)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+
+        pending.get(0).complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, result()));
+        assertEquals(3, admission.inFlight());
+        assertFalse(service.calculate(request()).isDone());
+        verify(rrTemplate, times(5)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void adaptive_limit_shrinks_while_replies_are_slower_than_the_target() throws Exception {
+        replyAfter(Duration.ofMillis(20));
+        AdmissionControl admission = admission(AdmissionControl.Mode.ADAPTIVE, 100, 4, Duration.ofSeconds(5));
+        CalculatorService service = service(admission, Duration.ofSeconds(5));
+
+        for (int i = 0; i < 30; i++) {
+            service.calculate(request()).get(5, TimeUnit.SECONDS);
+        }
+
+        assertEquals(4, admission.limit());
+        assertEquals(0, admission.inFlight());
+    }
+
+    @Test
+    void requests_that_would_outlive_the_reply_timeout_get_503_without_reaching_kafka() throws Exception {
+        Duration replyTimeout = Duration.ofMillis(100);
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenAnswer(inv -> {
+            var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+            worker.schedule(() -> future.completeExceptionally(new KafkaReplyTimeoutException("timeout")),
+                    replyTimeout.toMillis() + 20, TimeUnit.MILLISECONDS);
+            return future;
+        });
+        AdmissionControl admission = admission(AdmissionControl.Mode.STATIC, 100, 4, replyTimeout);
+        CalculatorService service = service(admission, replyTimeout);
+
+        assertThrows(ExecutionException.class, () -> service.calculate(request()).get(5, TimeUnit.SECONDS));
+
+        // the first request after the timeout probes the worker, the others are turned away
+        CompletableFuture<CalculatorResponse> probe = service.calculate(request());
+        OverloadedException rejected = overloaded(service.calculate(request()));
+        assertEquals(OverloadedException.Reason.DEADLINE, rejected.reason());
+        assertEquals(503, rejected.reason().status());
+        verify(rrTemplate, times(2)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        assertThrows(ExecutionException.class, () -> probe.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void off_sends_everything() {
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenAnswer(inv -> new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>());
+        CalculatorService service = service(AdmissionControl.off(), Duration.ofSeconds(5));
+
+        for (int i = 0; i < 50; i++) {
+            assertFalse(service.calculate(request()).isDone());
+        }
+        verify(rrTemplate, times(50)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    private void replyAfter(Duration delay) {
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenAnswer(inv -> {
+            var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+            worker.schedule(() -> future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, result())),
+                    delay.toMillis(), TimeUnit.MILLISECONDS);
+            return future;
+        });
+    }
+
+    private CalculatorService service(AdmissionControl admission, Duration replyTimeout) {
+        var beans = new StaticListableBeanFactory();
+        var cache = new ResultCache(false, 0, Duration.ZERO, beans.getBeanProvider(MeterRegistry.class));
+        return new CalculatorService(new KafkaTransport(rrTemplate), cache, KAFKA_ONLY, admission,
+                new RequestMetrics(new SimpleMeterRegistry()), false, replyTimeout);
+    }
+
+    private static AdmissionControl admission(AdmissionControl.Mode mode, int max, int min, Duration replyTimeout) {
+        return new AdmissionControl(mode, max, min, Duration.ofMillis(5), replyTimeout,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+    }
+
+    private static OverloadedException overloaded(CompletableFuture<CalculatorResponse> future) {
+        ExecutionException e = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        return assertInstanceOf(OverloadedException.class, e.getCause());
+    }
+
+    /** Distinct operands, so neither the result cache nor coalescing hides a request. */
+    private CalculatorRequest request() {
+        return new CalculatorRequest("id", BigDecimal.valueOf(operand.incrementAndGet()), BigDecimal.ONE, "sum");
+    }
+
+    private static CalculatorResponse result() {
+        CalculatorResponse response = new CalculatorResponse();
+        response.setResult(BigDecimal.ONE);
+        return response;
+    }
+}
@@ -0,0 +1,231 @@
+package com.wit.rest.service;
+
+import com.wit.rest.config.KafkaTopicsConfig;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.transport.KafkaTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.requestreply.KafkaReplyTimeoutException;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+import org.springframework.kafka.requestreply.RequestReplyFuture;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CalculatorServiceTest {
+
+    private static final RoutingPolicy KAFKA_ONLY =
+            new RoutingPolicy(RoutingPolicy.Mode.KAFKA, Set.of(), 34, Duration.ofMillis(5), Duration.ofSeconds(1));
+
+    private ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate;
+    private SimpleMeterRegistry registry;
+    private RequestMetrics metrics;
+    private CalculatorService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        rrTemplate = Mockito.mock(ReplyingKafkaTemplate.class);
+        registry = new SimpleMeterRegistry();
+        metrics = new RequestMetrics(registry);
+        var beans = new StaticListableBeanFactory(Map.of("meterRegistry", registry));
+        ResultCache cache = new ResultCache(true, 100, Duration.ofMinutes(1), beans.getBeanProvider(MeterRegistry.class));
+        service = new CalculatorService(new KafkaTransport(rrTemplate), cache, KAFKA_ONLY, AdmissionControl.off(), metrics, true, Duration.ofSeconds(5));
+    }
+
+    @Test
+    void equal_operands_with_the_same_result_scale_share_an_entry() throws Exception {
+        replyWith(result("3.0"));
+
+        assertEquals(new BigDecimal("3.0"), service.calculate(request("sum", "1.0", "2")).get().getResult());
+        assertEquals(new BigDecimal("3.0"), service.calculate(request("sum", "1", "2.0")).get().getResult());
+
+        verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("result", "miss").functionCounter().count());
+    }
+
+    @Test
+    void a_cache_hit_answers_with_the_callers_own_id() throws Exception {
+        CalculatorResponse first = new CalculatorResponse("id-first", new BigDecimal("5"));
+        replyWith(first);
+        assertEquals("id-first", service.calculate(new CalculatorRequest("id-first", BigDecimal.TWO, new BigDecimal("3"), "sum")).get().getId());
+
+        CalculatorResponse hit = service.calculate(new CalculatorRequest("id-second", BigDecimal.TWO, new BigDecimal("3"), "sum")).get();
+
+        assertEquals("id-second", hit.getId());
+        assertEquals(new BigDecimal("5"), hit.getResult());
+        assertEquals("id-first", first.getId());
+        verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void a_different_result_scale_is_a_different_entry() throws Exception {
+        replyWith(result("3.0"));
+        service.calculate(request("sum", "1.0", "2")).get();
+        replyWith(result("3.00"));
+
+        assertEquals(new BigDecimal("3.00"), service.calculate(request("sum", "1.00", "2")).get().getResult());
+        verify(rrTemplate, times(2)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void division_ignores_operand_scale_and_caches_errors() throws Exception {
+        CalculatorResponse divByZero = new CalculatorResponse();
+        divByZero.setError("division by zero attempted");
+        replyWith(divByZero);
+
+        service.calculate(request("div", "1", "0")).get();
+        assertEquals("division by zero attempted", service.calculate(request("div", "1.000", "0.0")).get().getError());
+
+        verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void timeouts_are_not_cached() throws Exception {
+        var timedOut = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+        timedOut.completeExceptionally(new KafkaReplyTimeoutException("timeout"));
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenReturn(timedOut);
+        assertTrue(service.calculate(request("mul", "2", "3")).isCompletedExceptionally());
+
+        replyWith(result("6"));
+        assertEquals(new BigDecimal("6"), service.calculate(request("mul", "2", "3")).get().getResult());
+    }
+
+    @Test
+    void identical_concurrent_calculations_send_one_record() throws Exception {
+        int callers = 32;
+        var reply = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenReturn(reply);
+
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<CompletableFuture<CalculatorResponse>>> submitted = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                String id = "id-" + i;
+                submitted.add(pool.submit(() -> {
+                    start.await();
+                    return service.calculate(new CalculatorRequest(id, new BigDecimal("7"), new BigDecimal("3"), "sub"));
+                }));
+            }
+            start.countDown();
+            List<CompletableFuture<CalculatorResponse>> results = new ArrayList<>();
+            for (Future<CompletableFuture<CalculatorResponse>> f : submitted) {
+                results.add(f.get(5, TimeUnit.SECONDS));
+            }
+
+            reply.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, result("4")));
+            for (int i = 0; i < callers; i++) {
+                CalculatorResponse response = results.get(i).get(5, TimeUnit.SECONDS);
+                assertEquals(new BigDecimal("4"), response.getResult());
+                assertEquals("id-" + i, response.getId());
+            }
+            verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void each_caller_times_out_on_its_own_deadline() throws Exception {
+        var reply = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenReturn(reply);
+        var cache = new ResultCache(true, 100, Duration.ofMinutes(1), new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        service = new CalculatorService(new KafkaTransport(rrTemplate), cache, KAFKA_ONLY, AdmissionControl.off(), metrics, true, Duration.ofMillis(300));
+
+        CompletableFuture<CalculatorResponse> early = service.calculate(request("sum", "1", "1"));
+        Thread.sleep(200);
+        CompletableFuture<CalculatorResponse> late = service.calculate(request("sum", "1", "1"));
+
+        ExecutionException timedOut = assertThrows(ExecutionException.class, () -> early.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, timedOut.getCause());
+        assertFalse(late.isDone());
+
+        reply.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, result("2")));
+        assertEquals(new BigDecimal("2"), late.get(5, TimeUnit.SECONDS).getResult());
+        verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void a_failed_call_is_not_joined_by_later_callers() throws Exception {
+        var failed = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+        failed.completeExceptionally(new IllegalStateException("broker down"));
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenReturn(failed);
+        assertThrows(ExecutionException.class, () -> service.calculate(request("sum", "4", "4")).get());
+
+        replyWith(result("8"));
+        assertEquals(new BigDecimal("8"), service.calculate(request("sum", "4", "4")).get().getResult());
+    }
+
+    @Test
+    void a_send_that_throws_fails_its_callers_and_is_not_joined_later() throws Exception {
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenThrow(new IllegalStateException("Template has not been started"));
+        ExecutionException failed = assertThrows(ExecutionException.class,
+                () -> service.calculate(request("sum", "5", "5")).get(5, TimeUnit.SECONDS));
+        assertInstanceOf(IllegalStateException.class, failed.getCause());
+
+        var reply = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+        reply.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, result("10")));
+        Mockito.doReturn(reply).when(rrTemplate).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+        assertEquals(new BigDecimal("10"), service.calculate(request("sum", "5", "5")).get(5, TimeUnit.SECONDS).getResult());
+        verify(rrTemplate, times(2)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    @Test
+    void local_routing_answers_eligible_calculations_without_kafka() throws Exception {
+        var local = new RoutingPolicy(RoutingPolicy.Mode.LOCAL, Set.of("sum"), 34, Duration.ofMillis(5), Duration.ofSeconds(1));
+        var cache = new ResultCache(true, 100, Duration.ofMinutes(1), new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        service = new CalculatorService(new KafkaTransport(rrTemplate), cache, local, AdmissionControl.off(), metrics, true, Duration.ofSeconds(5));
+
+        CalculatorResponse response = service.calculate(request("sum", "1.5", "2")).get();
+        assertEquals(new BigDecimal("3.5"), response.getResult());
+        assertEquals("id", response.getId());
+
+        replyWith(result("3.00"));
+        service.calculate(request("mul", "1.5", "2")).get();
+        verify(rrTemplate, times(1)).sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any());
+    }
+
+    private void replyWith(CalculatorResponse response) {
+        var future = new RequestReplyFuture<String, CalculatorRequest, CalculatorResponse>();
+        future.complete(new ConsumerRecord<>(KafkaTopicsConfig.RES, 0, 0L, null, response));
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any())).thenReturn(future);
+    }
+
+    private static CalculatorResponse result(String value) {
+        CalculatorResponse response = new CalculatorResponse();
+        response.setResult(new BigDecimal(value));
+        return response;
+    }
+
+    private static CalculatorRequest request(String op, String a, String b) {
+        return new CalculatorRequest("id", new BigDecimal(a), new BigDecimal(b), op);
+    }
+}
@@ -0,0 +1,128 @@
+package com.wit.rest.service;
+
+import com.wit.calculator.direct.DirectServer;
+import com.wit.calculator.kafka.CalculatorListener;
+import com.wit.calculator.metrics.WorkerMetrics;
+import com.wit.calculator.service.CalculationService;
+import com.wit.calculator.service.DedupStore;
+import com.wit.common.wire.WireFormat;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import com.wit.rest.transport.CalculatorTransport;
+import com.wit.rest.transport.DirectTransport;
+import com.wit.rest.transport.KafkaTransport;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.kafka.requestreply.ReplyingKafkaTemplate;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.when;
+
+/**
+ * Computes the same calculations in-process and on a running worker, reached through
+ * its {@link DirectServer} so that they take the worker's own path (serde, listener,
+ * {@link CalculationService}) in each wire format, and requires identical results
+ * (value and scale) and error strings.
+ */
+class LocalRoutingDifferentialTest {
+
+    private static final List<String> OPERATIONS = List.of("sum", "sub", "mul", "div", "pow", "mod", "sqrt", "xor");
+
+    private static DirectServer workerServer;
+
+    @BeforeAll
+    static void startWorker() {
+        workerServer = new DirectServer("127.0.0.1", 0, 4, false,
+                new StaticListableBeanFactory().getBeanProvider(CalculatorListener.class),
+                new CalculationService(), DedupStore.off(), new WorkerMetrics(new SimpleMeterRegistry()));
+        workerServer.start();
+    }
+
+    @AfterAll
+    static void stopWorker() {
+        workerServer.stop();
+    }
+
+    @ParameterizedTest
+    @EnumSource(WireFormat.class)
+    void local_and_worker_answers_are_identical(WireFormat format) throws Exception {
+        CalculatorService local = service(RoutingPolicy.Mode.LOCAL, new KafkaTransport(unused()));
+        DirectTransport transport = new DirectTransport("localhost:" + workerServer.port(), 2, Duration.ofSeconds(5),
+                format.name(), new RequestMetrics(new SimpleMeterRegistry()));
+        CalculatorService worker = service(RoutingPolicy.Mode.KAFKA, transport);
+
+        try {
+            compare(format, local, worker);
+        } finally {
+            transport.destroy();
+        }
+    }
+
+    private static void compare(WireFormat format, CalculatorService local, CalculatorService worker) throws Exception {
+        for (CalculatorRequest req : corpus()) {
+            CalculatorResponse expected = worker.calculate(req).get();
+            CalculatorResponse actual = local.calculate(req).get();
+
+            String what = req.getA() + " " + req.getOperation() + " " + req.getB();
+            assertEquals(expected.getError(), actual.getError(), what);
+            assertEquals(expected.getResult(), actual.getResult(), what);
+            if (format == WireFormat.JSON) {
+                assertEquals(expected.getId(), actual.getId(), what);
+            }
+        }
+    }
+
+    private static CalculatorService service(RoutingPolicy.Mode mode, CalculatorTransport transport) {
+        var policy = new RoutingPolicy(mode, Set.copyOf(OPERATIONS), Integer.MAX_VALUE, Duration.ZERO, Duration.ofSeconds(1));
+        var cache = new ResultCache(false, 0, Duration.ZERO, new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        return new CalculatorService(transport, cache, policy, AdmissionControl.off(), new RequestMetrics(new SimpleMeterRegistry()), false, Duration.ofSeconds(5));
+    }
+
+    /** The local service's transport, which every calculation of the corpus must bypass. */
+    @SuppressWarnings("unchecked")
+    private static ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> unused() {
+        ReplyingKafkaTemplate<String, CalculatorRequest, CalculatorResponse> rrTemplate = Mockito.mock(ReplyingKafkaTemplate.class);
+        when(rrTemplate.sendAndReceive(Mockito.<ProducerRecord<String, CalculatorRequest>>any()))
+                .thenThrow(new AssertionError("sent to the worker instead of computed locally"));
+        return rrTemplate;
+    }
+
+    private static List<CalculatorRequest> corpus() {
+        List<BigDecimal> operands = new ArrayList<>(List.of(
+                BigDecimal.ZERO, new BigDecimal("0.000"), BigDecimal.ONE, new BigDecimal("-1"),
+                new BigDecimal("2.50"), new BigDecimal("1E+3"), new BigDecimal("-0.0001"),
+                new BigDecimal("99999999999999999999999999.999999"), new BigDecimal("3")));
+        Random random = new Random(42);
+        for (int i = 0; i < 40; i++) {
+            operands.add(new BigDecimal(new BigInteger(random.nextInt(80) + 1, random), random.nextInt(20) - 5)
+                    .multiply(random.nextBoolean() ? BigDecimal.ONE : BigDecimal.ONE.negate()));
+        }
+
+        List<CalculatorRequest> requests = new ArrayList<>();
+        int n = 0;
+        for (BigDecimal a : operands) {
+            for (BigDecimal b : operands) {
+                for (String op : OPERATIONS) {
+                    requests.add(new CalculatorRequest(String.format("%016x", n++), a, b, op));
+                }
+            }
+        }
+        return requests;
+    }
+}
@@ -0,0 +1,67 @@
+package com.wit.rest.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoutingPolicyTest {
+
+    private static final BigDecimal SMALL = new BigDecimal("12.5");
+    private static final BigDecimal LONG = new BigDecimal("1234567890.1234567890");
+
+    @Test
+    void kafka_mode_never_routes_locally() {
+        var policy = new RoutingPolicy(RoutingPolicy.Mode.KAFKA, Set.of("sum"), 34, Duration.ZERO, Duration.ofSeconds(1));
+        assertFalse(policy.isLocal("sum", SMALL, SMALL));
+    }
+
+    @Test
+    void local_mode_routes_by_operation_and_digit_count() {
+        var policy = new RoutingPolicy(RoutingPolicy.Mode.LOCAL, Set.of("sum", "mul"), 10, Duration.ZERO, Duration.ofSeconds(1));
+
+        assertTrue(policy.isLocal("sum", SMALL, SMALL));
+        assertTrue(policy.isLocal("mul", SMALL, SMALL));
+        assertFalse(policy.isLocal("div", SMALL, SMALL));
+        assertFalse(policy.isLocal("sum", SMALL, LONG));
+        assertFalse(policy.isLocal("sum", null, SMALL));
+    }
+
+    @Test
+    void adaptive_mode_routes_locally_only_while_kafka_is_slow() {
+        var policy = new RoutingPolicy(RoutingPolicy.Mode.ADAPTIVE, Set.of("sum"), 34, Duration.ofMillis(5), Duration.ofSeconds(1));
+        assertFalse(policy.isLocal("sum", SMALL, SMALL));
+
+        policy.recordKafkaLatency(Duration.ofMillis(20).toNanos());
+        assertTrue(policy.isLocal("sum", SMALL, SMALL));
+
+        for (int i = 0; i < 50; i++) {
+            policy.recordKafkaLatency(Duration.ofMillis(1).toNanos());
+        }
+        assertFalse(policy.isLocal("sum", SMALL, SMALL));
+    }
+
+    @Test
+    void adaptive_mode_probes_kafka_while_local_and_returns_once_it_recovers() {
+        long[] now = {0};
+        var policy = new RoutingPolicy(RoutingPolicy.Mode.ADAPTIVE, Set.of("sum"), 34, Duration.ofMillis(5),
+                Duration.ofSeconds(1), () -> now[0]);
+        policy.recordKafkaLatency(Duration.ofMillis(20).toNanos());
+
+        // local calls feed no latency, so only the probes can bring routing back to Kafka
+        int probes = 0;
+        while (policy.kafkaLatency().compareTo(Duration.ofMillis(5)) > 0) {
+            assertTrue(policy.isLocal("sum", SMALL, SMALL));
+            now[0] += Duration.ofSeconds(1).toNanos();
+            assertFalse(policy.isLocal("sum", SMALL, SMALL), "the probe");
+            assertTrue(policy.isLocal("sum", SMALL, SMALL), "one probe per interval");
+            policy.recordKafkaLatency(Duration.ofMillis(1).toNanos());
+            probes++;
+        }
+        assertFalse(policy.isLocal("sum", SMALL, SMALL));
+        assertTrue(probes > 1, "probes: " + probes);
+    }
+}
@@ -0,0 +1,171 @@
+package com.wit.rest.transport;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.wit.common.wire.DirectFrames;
+import com.wit.rest.dto.CalculatorRequest;
+import com.wit.rest.dto.CalculatorResponse;
+import com.wit.rest.metrics.RequestMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectTransportTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ServerSocket worker;
+    private DirectTransport transport;
+
+    @AfterEach
+    void close() throws IOException {
+        if (transport != null) {
+            transport.destroy();
+        }
+        worker.close();
+    }
+
+    @Test
+    void replies_in_any_order_reach_their_callers() throws Exception {
+        int requests = 50;
+        startWorker(socket -> {
+            List<DirectFrames.Request> received = new ArrayList<>();
+            var in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < requests; i++) {
+                received.add(DirectFrames.readRequest(in));
+            }
+            var out = new DataOutputStream(socket.getOutputStream());
+            for (DirectFrames.Request request : received.reversed()) {
+                DirectFrames.writeReply(out, request.correlation(), sumOf(request));
+            }
+            out.flush();
+        });
+        transport = transport(Duration.ofSeconds(5));
+
+        List<CompletableFuture<CalculatorResponse>> replies = new ArrayList<>();
+        for (int i = 0; i < requests; i++) {
+            replies.add(transport.send(request("id-" + i, i)).reply());
+        }
+        for (int i = 0; i < requests; i++) {
+            CalculatorResponse response = replies.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(BigDecimal.valueOf(i + 1), response.getResult());
+            assertEquals("id-" + i, response.getId());
+        }
+    }
+
+    @Test
+    void an_unanswered_request_times_out_and_its_late_reply_is_counted() throws Exception {
+        startWorker(socket -> {
+            var in = new DataInputStream(socket.getInputStream());
+            DirectFrames.Request request = DirectFrames.readRequest(in);
+            Thread.sleep(400);
+            var out = new DataOutputStream(socket.getOutputStream());
+            DirectFrames.writeReply(out, request.correlation(), sumOf(request));
+            out.flush();
+            in.read();
+        });
+        transport = transport(Duration.ofMillis(150));
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> transport.send(request("slow", 1)).reply().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, error.getCause());
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.counter("calculator.kafka.late-replies").count() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, registry.counter("calculator.kafka.late-replies").count());
+    }
+
+    @Test
+    void a_lost_connection_fails_its_requests_and_the_next_one_reconnects() throws Exception {
+        startWorker(socket -> {
+            var in = new DataInputStream(socket.getInputStream());
+            DirectFrames.Request request = DirectFrames.readRequest(in);
+            if (request.id().equals("dropped")) {
+                return;
+            }
+            var out = new DataOutputStream(socket.getOutputStream());
+            DirectFrames.writeReply(out, request.correlation(), sumOf(request));
+            out.flush();
+            in.read();
+        });
+        transport = transport(Duration.ofSeconds(5));
+
+        ExecutionException error = assertThrows(ExecutionException.class,
+                () -> transport.send(request("dropped", 1)).reply().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(UncheckedIOException.class, error.getCause());
+
+        // the broken connection may still look open for a moment: retry until it was replaced
+        CalculatorResponse response = null;
+        for (int attempt = 0; attempt < 50 && response == null; attempt++) {
+            try {
+                response = transport.send(request("after", 2)).reply().get(5, TimeUnit.SECONDS);
+            } catch (ExecutionException e) {
+                Thread.sleep(20);
+            }
+        }
+        assertNotNull(response);
+        assertEquals(BigDecimal.valueOf(3), response.getResult());
+    }
+
+    private DirectTransport transport(Duration replyTimeout) {
+        return new DirectTransport("localhost:" + worker.getLocalPort(), 1, replyTimeout, "json",
+                new RequestMetrics(registry));
+    }
+
+    private interface Connection {
+        void serve(Socket socket) throws Exception;
+    }
+
+    /** Accepts any number of connections, each handled by {@code connection} on its own thread. */
+    private void startWorker(Connection connection) throws IOException {
+        worker = new ServerSocket(0);
+        Thread.ofPlatform().daemon().start(() -> {
+            while (!worker.isClosed()) {
+                try {
+                    Socket socket = worker.accept();
+                    Thread.ofPlatform().daemon().start(() -> {
+                        try (socket) {
+                            connection.serve(socket);
+                        } catch (Exception ignored) {
+                            // the test closed the connection
+                        }
+                    });
+                } catch (IOException ignored) {
+                    // the test closed the server
+                }
+            }
+        });
+    }
+
+    /** A JSON reply with a + b of the JSON request in {@code frame}. */
+    private static byte[] sumOf(DirectFrames.Request frame) throws IOException {
+        JsonNode req = MAPPER.readTree(frame.payload());
+        BigDecimal sum = req.get("a").decimalValue().add(req.get("b").decimalValue());
+        return ("{\"id\":\"" + req.get("id").asText() + "\",\"result\":" + sum + "}").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static CalculatorRequest request(String id, int a) {
+        return new CalculatorRequest(id, BigDecimal.valueOf(a), BigDecimal.ONE, "sum");
+    }
+}
@@ -0,0 +1,104 @@
+package com.wit.rest.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PendingRepliesTest {
+
+    private final PendingReplies<String> pending =
+            new PendingReplies<>("test", Duration.ofMillis(5), () -> new TimeoutException("timed out"));
+
+    @Test
+    void a_reply_reaches_its_caller_once() throws Exception {
+        CompletableFuture<String> caller = new CompletableFuture<>();
+        long correlation = pending.register(caller, Duration.ofSeconds(5));
+
+        pending.remove(correlation).complete("reply");
+
+        assertEquals("reply", caller.get());
+        assertNull(pending.remove(correlation));
+        assertEquals(0, pending.size());
+    }
+
+    @Test
+    void an_unanswered_caller_times_out_after_its_timeout() throws Exception {
+        CompletableFuture<String> caller = new CompletableFuture<>();
+        long start = System.nanoTime();
+        long correlation = pending.register(caller, Duration.ofMillis(100));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+        long waited = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertInstanceOf(TimeoutException.class, error.getCause());
+        assertTrue(waited >= 100, "timed out after " + waited + " ms");
+        assertNull(pending.remove(correlation));
+    }
+
+    @Test
+    void a_failed_owner_fails_only_its_own_callers() {
+        Object lost = new Object();
+        Object healthy = new Object();
+        List<CompletableFuture<String>> lostCallers = new ArrayList<>();
+        List<CompletableFuture<String>> healthyCallers = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            CompletableFuture<String> caller = new CompletableFuture<>();
+            pending.register(caller, Duration.ofSeconds(30), i % 2 == 0 ? lost : healthy);
+            (i % 2 == 0 ? lostCallers : healthyCallers).add(caller);
+        }
+
+        assertEquals(500, pending.failAll(lost, new IllegalStateException("connection lost")));
+
+        assertTrue(lostCallers.stream().allMatch(CompletableFuture::isCompletedExceptionally));
+        assertTrue(healthyCallers.stream().noneMatch(CompletableFuture::isDone));
+        assertEquals(500, pending.size());
+    }
+
+    @Test
+    void many_outstanding_callers_are_answered_or_expire_and_leave_the_table_empty() throws Exception {
+        int threads = 4;
+        int perThread = 50_000;
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        AtomicInteger answered = new AtomicInteger();
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(Thread.ofPlatform().start(() -> {
+                long[] correlations = new long[perThread];
+                for (int i = 0; i < perThread; i++) {
+                    CompletableFuture<String> caller = new CompletableFuture<>();
+                    synchronized (callers) {
+                        callers.add(caller);
+                    }
+                    correlations[i] = pending.register(caller, Duration.ofMillis(300 + i % 200));
+                }
+                // every other caller gets its reply while the rest of the table still waits
+                for (int i = 0; i < perThread; i += 2) {
+                    CompletableFuture<String> caller = pending.remove(correlations[i]);
+                    if (caller != null && caller.complete("reply")) {
+                        answered.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        CompletableFuture.allOf(callers.stream().map(c -> c.exceptionally(e -> null)).toArray(CompletableFuture[]::new))
+                .get(10, TimeUnit.SECONDS);
+        assertEquals(threads * perThread, callers.size());
+        long timedOut = callers.stream().filter(CompletableFuture::isCompletedExceptionally).count();
+        assertEquals(threads * perThread, answered.get() + timedOut);
+        assertTrue(answered.get() > 0);
+        assertEquals(0, pending.size());
+    }
+}